@@ -0,0 +1,101 @@
+package com.safetynet.alerts.api.response;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Singular;
+
+/**
+ * Page of the change feed: the committed changes of the persons, firestations and medical records following an
+ * offset, in approximately commit order.
+ */
+@lombok.Builder(builderClassName = "Builder")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Data
+public class ChangesResponse {
+    /**
+     * Identifier of the feed, which changes when the server restarts: the offsets of another feed are meaningless.
+     */
+    private String feedId;
+
+    /**
+     * Offset to request the next changes after (the offset of the last change of this page, or the requested one if
+     * there is none).
+     */
+    private long nextOffset;
+
+    /**
+     * Whether or not changes following the requested offset were dropped (the feed only keeps the latest ones): the
+     * consumer must rescan the data.
+     */
+    private boolean truncated;
+
+    @Singular("change")
+    private List<Change> changes;
+
+    @lombok.Builder(builderClassName = "Builder")
+    @NoArgsConstructor
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Data
+    public static class Change {
+        private long offset;
+
+        /**
+         * When the change was committed.
+         */
+        private Instant timestamp;
+
+        private Entity entity;
+
+        private Type type;
+
+        /**
+         * Keys of the changed item before the change; {@code null} if it was created.
+         */
+        private Key before;
+
+        /**
+         * Keys of the changed item after the change; {@code null} if it was deleted.
+         */
+        private Key after;
+    }
+
+    /**
+     * The fields identifying a changed item, and locating it (address and station); those unknown or not relevant to
+     * the entity are {@code null}.
+     */
+    @lombok.Builder(builderClassName = "Builder")
+    @NoArgsConstructor
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Data
+    public static class Key {
+        /**
+         * ID of the person (or of the person owning the medical record).
+         */
+        private Long id;
+        private String firstName;
+        private String lastName;
+        private String address;
+        private String station;
+    }
+
+    public enum Entity {
+        PERSON,
+        FIRESTATION,
+        MEDICAL_RECORD,
+        /**
+         * The whole dataset was replaced (without the changes of each item): the consumer must rescan the data.
+         */
+        DATASET,
+    }
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+    }
+}
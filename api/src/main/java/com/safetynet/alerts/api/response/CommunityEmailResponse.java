@@ -21,6 +21,11 @@ public class CommunityEmailResponse implements Cloneable {
     @Singular("email")
     private List<String> emails;
 
+    /**
+     * Cursor of the next page; or {@code null} if this is the last one (or the list isn't paginated).
+     */
+    private String nextCursor;
+
     @SneakyThrows
     public CommunityEmailResponse clone() {
         CommunityEmailResponse o = (CommunityEmailResponse) super.clone();
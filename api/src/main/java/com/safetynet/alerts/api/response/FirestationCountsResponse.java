@@ -0,0 +1,55 @@
+package com.safetynet.alerts.api.response;
+
+import com.safetynet.alerts.api.model.Person;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Singular;
+import lombok.SneakyThrows;
+
+/**
+ * Counts of {@linkplain Person persons} covered by the given firestations (grouped by station).
+ */
+@lombok.Builder(builderClassName = "Builder")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Data
+public class FirestationCountsResponse implements Cloneable {
+    @Singular("station")
+    private List<Entry> stations;
+
+    @SneakyThrows
+    public FirestationCountsResponse clone() {
+        FirestationCountsResponse o = (FirestationCountsResponse) super.clone();
+        if (o.stations != null) {
+            o.stations = o.stations.stream().map(Entry::clone).collect(Collectors.toList());
+        }
+        return o;
+    }
+
+    @lombok.Builder(builderClassName = "Builder")
+    @NoArgsConstructor
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Data
+    public static class Entry implements Cloneable {
+        private String stationNumber;
+
+        /**
+         * Children count (under the age of 18).
+         */
+        private Integer childrenCount;
+
+        /**
+         * Adults count (aged 18 and over, or with an unknown age).
+         */
+        private Integer adultsCount;
+
+        @SneakyThrows
+        public Entry clone() {
+            return (Entry) super.clone();
+        }
+    }
+}
@@ -21,6 +21,12 @@ public class FloodStationsResponse implements Cloneable {
     @Singular("station")
     private List<Entry> stations;
 
+    /**
+     * Cursor of the next page; or {@code null} if this is the last one (or the list isn't paginated). The persons of
+     * the last address may continue on the next page.
+     */
+    private String nextCursor;
+
     @SneakyThrows
     public FloodStationsResponse clone() {
         FloodStationsResponse o = (FloodStationsResponse) super.clone();
@@ -0,0 +1,52 @@
+package com.safetynet.alerts.api.response;
+
+import com.safetynet.alerts.api.model.ApiError;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Singular;
+
+/**
+ * Report of a bulk import: the result of each imported item, in the order of the request.
+ */
+@lombok.Builder(builderClassName = "Builder")
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Data
+public class ImportResponse {
+    @Singular("person")
+    private List<Item> persons;
+
+    @Singular("firestation")
+    private List<Item> firestations;
+
+    @Singular("medicalRecord")
+    private List<Item> medicalRecords;
+
+    @lombok.Builder(builderClassName = "Builder")
+    @NoArgsConstructor
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Data
+    public static class Item {
+        private Status status;
+
+        /**
+         * ID of the created person (or of the person of the created medical record); {@code null} for firestations
+         * and failed items.
+         */
+        private Long id;
+
+        /**
+         * Why the item was not imported; {@code null} unless it {@linkplain Status#FAILED failed}.
+         */
+        private ApiError error;
+    }
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        FAILED,
+    }
+}
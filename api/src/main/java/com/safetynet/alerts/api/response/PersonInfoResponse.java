@@ -17,7 +17,7 @@ import lombok.SneakyThrows;
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Data
-public class PersonInfoResponse {
+public class PersonInfoResponse implements Cloneable {
     @Singular("person")
     private List<Person> persons;
 
@@ -32,6 +32,11 @@ public class PersonsCoveredByFirestationResponse implements Cloneable {
     @Singular("person")
     private List<Person> persons;
 
+    /**
+     * Cursor of the next page; or {@code null} if this is the last one (or the list isn't paginated).
+     */
+    private String nextCursor;
+
     @SneakyThrows
     public PersonsCoveredByFirestationResponse clone() {
         PersonsCoveredByFirestationResponse o = (PersonsCoveredByFirestationResponse) super.clone();
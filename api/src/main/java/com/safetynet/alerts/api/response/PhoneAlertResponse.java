@@ -22,6 +22,11 @@ public class PhoneAlertResponse implements Cloneable {
     @Singular("phone")
     private List<String> phones;
 
+    /**
+     * Cursor of the next page; or {@code null} if this is the last one (or the list isn't paginated).
+     */
+    private String nextCursor;
+
     @SneakyThrows
     public PhoneAlertResponse clone() {
         PhoneAlertResponse o = (PhoneAlertResponse) super.clone();
@@ -1,8 +1,12 @@
 package com.safetynet.alerts;
 
+import com.safetynet.alerts.cli.SnapshotCommand;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
+import com.safetynet.alerts.cli.SnapshotCommand;
 import io.swagger.v3.oas.annotations.info.Info;
+import java.util.Arrays;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
@@ -22,6 +26,15 @@ public class SafetynetAlertsApplication {
     public static final String VERSION = "1.0";
 
     public static void main(String[] args) {
-        SpringApplication.run(SafetynetAlertsApplication.class, args);
+        if (!SnapshotCommand.isCommand(args)) {
+            SpringApplication.run(SafetynetAlertsApplication.class, args);
+            return;
+        }
+        // a one-off command: no server, and no seed of the database (which an import requires empty)
+        SpringApplication application = new SpringApplication(SafetynetAlertsApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        String[] commandArgs = Arrays.copyOf(args, args.length + 1);
+        commandArgs[args.length] = "--safetynet.json-seed.enabled=false";
+        System.exit(SpringApplication.exit(application.run(commandArgs)));
     }
 }
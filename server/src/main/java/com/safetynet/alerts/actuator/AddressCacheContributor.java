@@ -0,0 +1,30 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.AddressCacheService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+public class AddressCacheContributor implements InfoContributor {
+    private final AddressCacheService addressCacheService;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> addressCache = new LinkedHashMap<>();
+        builder.withDetail("addressCache", addressCache);
+
+        addressCache.put("enabled", addressCacheService.isEnabled());
+        addressCache.put("size", addressCacheService.getSize());
+        addressCache.put("maxSize", addressCacheService.getMaxEntries());
+        addressCache.put("hits", addressCacheService.getHits());
+        addressCache.put("misses", addressCacheService.getMisses());
+    }
+}
@@ -0,0 +1,32 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.AlertsCacheService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+public class AlertsCacheContributor implements InfoContributor {
+    private final AlertsCacheService alertsCacheService;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> alertsCache = new LinkedHashMap<>();
+        builder.withDetail("alertsCache", alertsCache);
+
+        alertsCache.put("enabled", alertsCacheService.isEnabled());
+        alertsCache.put("size", alertsCacheService.getSize());
+        alertsCache.put("maxSize", alertsCacheService.getMaxEntries());
+        alertsCache.put("hits", alertsCacheService.getHits());
+        alertsCache.put("misses", alertsCacheService.getMisses());
+        alertsCache.put("evictions", alertsCacheService.getEvictions());
+        alertsCache.put("invalidations", alertsCacheService.getInvalidations());
+    }
+}
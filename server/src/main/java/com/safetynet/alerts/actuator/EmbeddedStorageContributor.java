@@ -0,0 +1,32 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+public class EmbeddedStorageContributor implements InfoContributor {
+    private final EmbeddedStorage embeddedStorage;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> storage = new LinkedHashMap<>();
+        builder.withDetail("embeddedStorage", storage);
+
+        storage.put("enabled", embeddedStorage.isEnabled());
+        if (!embeddedStorage.isEnabled()) {
+            return;
+        }
+        storage.put("sequence", embeddedStorage.getSequence());
+        storage.put("snapshotSequence", embeddedStorage.getSnapshotSequence());
+        storage.put("rows", embeddedStorage.getRowCounts());
+    }
+}
@@ -0,0 +1,66 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.properties.SecondLevelCacheProperties;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+public class SecondLevelCacheContributor implements InfoContributor {
+    private final SecondLevelCacheProperties props;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> secondLevelCache = new LinkedHashMap<>();
+        builder.withDetail("secondLevelCache", secondLevelCache);
+
+        secondLevelCache.put("enabled", props.isEnabled());
+        if (!props.isEnabled()) {
+            return;
+        }
+        secondLevelCache.put("maxEntries", props.getMaxEntries());
+        secondLevelCache.put("timeToLive", props.getTimeToLive());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        secondLevelCache.put("hits", statistics.getSecondLevelCacheHitCount());
+        secondLevelCache.put("misses", statistics.getSecondLevelCacheMissCount());
+        secondLevelCache.put("puts", statistics.getSecondLevelCachePutCount());
+
+        Map<String, Object> queryCache = new LinkedHashMap<>();
+        secondLevelCache.put("queryCache", queryCache);
+        queryCache.put("maxEntries", props.getQueryMaxEntries());
+        queryCache.put("hits", statistics.getQueryCacheHitCount());
+        queryCache.put("misses", statistics.getQueryCacheMissCount());
+        queryCache.put("puts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        secondLevelCache.put("regions", regions);
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(regionName);
+            if (regionStatistics == null) {
+                continue;
+            }
+            Map<String, Object> region = new LinkedHashMap<>();
+            regions.put(regionName, region);
+            // not supported by all the regions
+            if (regionStatistics.getElementCountInMemory() >= 0) {
+                region.put("size", regionStatistics.getElementCountInMemory());
+            }
+            region.put("hits", regionStatistics.getHitCount());
+            region.put("misses", regionStatistics.getMissCount());
+            region.put("puts", regionStatistics.getPutCount());
+        }
+    }
+}
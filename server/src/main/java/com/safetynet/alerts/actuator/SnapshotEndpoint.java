@@ -0,0 +1,57 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.DatasetSnapshotService;
+import com.safetynet.alerts.service.DatasetSnapshotService.Counts;
+import com.safetynet.alerts.service.DatasetSnapshotService.DatabaseNotEmptyException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.context.annotation.Scope;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports the dataset as a binary snapshot, or imports one into an empty database (see
+ * {@link DatasetSnapshotService}).
+ * <p>
+ * The operations of the endpoints only accept JSON: the snapshot to import is a file of the server, given by its path.
+ */
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+@Endpoint(id = "snapshot", enableByDefault = false)
+public class SnapshotEndpoint {
+    private final DatasetSnapshotService datasetSnapshotService;
+
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource exportSnapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        datasetSnapshotService.exportSnapshot(bytes);
+        return new ByteArrayResource(bytes.toByteArray());
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> importSnapshot(String path) {
+        try (InputStream is = Files.newInputStream(Paths.get(path))) {
+            Counts counts = datasetSnapshotService.importSnapshot(is);
+            return new WebEndpointResponse<>(counts);
+        } catch (NoSuchFileException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        } catch (DatabaseNotEmptyException e) {
+            return new WebEndpointResponse<>(409);
+        } catch (IOException | UncheckedIOException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+}
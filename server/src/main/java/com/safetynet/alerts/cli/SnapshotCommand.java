@@ -0,0 +1,66 @@
+package com.safetynet.alerts.cli;
+
+import com.safetynet.alerts.service.DatasetSnapshotService;
+import com.safetynet.alerts.service.DatasetSnapshotService.Counts;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports the dataset to a snapshot file ({@code --export-snapshot=<file>}), or imports one into an empty database
+ * ({@code --import-snapshot=<file>}). The application then exits, without serving requests.
+ */
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Component
+@Scope("singleton")
+public class SnapshotCommand implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCommand.class);
+    static final String EXPORT_OPTION = "export-snapshot";
+    static final String IMPORT_OPTION = "import-snapshot";
+
+    private final DatasetSnapshotService datasetSnapshotService;
+
+    /**
+     * Returns whether or not the command line asks for a snapshot command (rather than starting the server).
+     */
+    public static boolean isCommand(String... args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + EXPORT_OPTION + "=")
+                || arg.startsWith("--" + IMPORT_OPTION + "="));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> exports = args.getOptionValues(EXPORT_OPTION);
+        List<String> imports = args.getOptionValues(IMPORT_OPTION);
+        if (imports != null) {
+            // before the exports, so that a snapshot may be converted back
+            for (String file : imports) {
+                try (InputStream is = Files.newInputStream(Paths.get(file))) {
+                    Counts counts = datasetSnapshotService.importSnapshot(is);
+                    logger.info("Imported {} from {}", counts, file);
+                }
+            }
+        }
+        if (exports != null) {
+            for (String file : exports) {
+                Path path = Paths.get(file);
+                try (OutputStream os = Files.newOutputStream(path)) {
+                    Counts counts = datasetSnapshotService.exportSnapshot(os);
+                    logger.info("Exported {} to {} ({} bytes)", counts, file, Files.size(path));
+                }
+            }
+        }
+    }
+}
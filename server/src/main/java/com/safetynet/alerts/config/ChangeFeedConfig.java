@@ -0,0 +1,21 @@
+package com.safetynet.alerts.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.properties.ChangeFeedProperties;
+import com.safetynet.alerts.service.FileChangeSink;
+import java.nio.file.Paths;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ChangeFeedConfig {
+    /**
+     * Appends the change feed to the configured file (if any).
+     */
+    @Bean
+    @ConditionalOnExpression("'${safetynet.change-feed.file-sink:}' != ''")
+    public FileChangeSink fileChangeSink(ChangeFeedProperties props, ObjectMapper objectMapper) {
+        return new FileChangeSink(Paths.get(props.getFileSink()), objectMapper);
+    }
+}
@@ -0,0 +1,76 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.properties.ReplicaProperties;
+import com.safetynet.alerts.properties.SecondLevelCacheProperties;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.DataSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+@Configuration
+public class DataSourceConfig implements BeanPostProcessor, DisposableBean {
+    // resolved once the data source is created, so that the properties are bound
+    private final ObjectProvider<ReplicaProperties> replicaProperties;
+    private final ObjectProvider<SecondLevelCacheProperties> secondLevelCacheProperties;
+
+    private final List<ReplicaRoutingDataSource> routingDataSources = new CopyOnWriteArrayList<>();
+
+    public DataSourceConfig(ObjectProvider<ReplicaProperties> replicaProperties,
+            ObjectProvider<SecondLevelCacheProperties> secondLevelCacheProperties) {
+        this.replicaProperties = replicaProperties;
+        this.secondLevelCacheProperties = secondLevelCacheProperties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof DataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+            DataSource dataSource = (DataSource) bean;
+            ReplicaProperties props = replicaProperties.getIfAvailable();
+            if (props != null && props.isEnabled()) {
+                SecondLevelCacheProperties cacheProps = secondLevelCacheProperties.getIfAvailable();
+                if (cacheProps != null && cacheProps.isEnabled()) {
+                    // any read fills the cache, and a lagging replica would fill it back with evicted entries
+                    throw new IllegalStateException("The replicas cannot be enabled with the second-level cache");
+                }
+                ReplicaRoutingDataSource routingDataSource = createRoutingDataSource(dataSource, props);
+                routingDataSources.add(routingDataSource);
+                dataSource = routingDataSource;
+            }
+            // only fetch a physical connection on the first statement: read-only transactions answered from memory
+            // (see ReadModelService) never borrow a connection from the pool, and the others are routed once their
+            // read-only flag is known.
+            return new LazyConnectionDataSourceProxy(dataSource);
+        }
+        return bean;
+    }
+
+    private static ReplicaRoutingDataSource createRoutingDataSource(DataSource primary, ReplicaProperties props) {
+        if (props.getUrls().isEmpty()) {
+            throw new IllegalStateException("The replicas are enabled, but have no URLs");
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : props.getUrls()) {
+            HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(url).username(props.getUsername()).password(props.getPassword()).build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMaximumPoolSize(props.getPoolSize());
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, props.getSelection(), props.getStickyWindow(),
+                ReplicaRoutingDataSource::currentClient);
+    }
+
+    @Override
+    public void destroy() {
+        routingDataSources.forEach(ReplicaRoutingDataSource::close);
+    }
+}
@@ -0,0 +1,35 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import com.safetynet.alerts.repository.embedded.EmbeddedStorageListener;
+import java.util.Collections;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EmbeddedStorageConfig {
+    /**
+     * Starts JPA once the embedded storage is loaded in the database.
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor embeddedStorageDependsOnPostProcessor() {
+        return new EntityManagerFactoryDependsOnPostProcessor(EmbeddedStorage.class);
+    }
+
+    /**
+     * Logs the writes of Hibernate in the embedded storage.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer embeddedStorageCustomizer(EmbeddedStorage storage) {
+        return properties -> {
+            if (storage.isEnabled()) {
+                properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) ()
+                        -> Collections.singletonList(new EmbeddedStorageListener(storage)));
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.properties.SecondLevelCacheProperties;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SecondLevelCacheConfig {
+    /**
+     * The entities having a second-level cache region (named after their class).
+     */
+    static final List<Class<?>> CACHED_ENTITIES = Arrays.asList(AddressEntity.class, MedicalRecordEntity.class);
+
+    /**
+     * Enables the second-level and query caches of Hibernate, in local (Ehcache) JCache regions.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(SecondLevelCacheProperties props) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, props.isEnabled());
+            properties.put(AvailableSettings.USE_QUERY_CACHE, props.isEnabled());
+            if (props.isEnabled()) {
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+                // closed by Hibernate with the session factory
+                properties.put(ConfigSettings.CACHE_MANAGER, createCacheManager(props));
+                properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+                properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            }
+        };
+    }
+
+    static CacheManager createCacheManager(SecondLevelCacheProperties props) {
+        Duration timeToLive = Duration.ofSeconds(props.getTimeToLive());
+        Map<String, CacheConfiguration<?, ?>> caches = new HashMap<>();
+        for (Class<?> entity : CACHED_ENTITIES) {
+            caches.put(entity.getName(), cacheConfiguration(props.getMaxEntries(), timeToLive));
+        }
+        caches.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                cacheConfiguration(props.getQueryMaxEntries(), timeToLive));
+        // a table per entry, never evicted: without it's timestamp, a cached query result is assumed up to date
+        caches.put(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                cacheConfiguration(Long.MAX_VALUE, null));
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        // a distinct manager by session factory (the provider shares them by URI)
+        return provider.getCacheManager(URI.create("urn:safetynet:second-level-cache:" + UUID.randomUUID()),
+                new DefaultConfiguration(caches, SecondLevelCacheConfig.class.getClassLoader()));
+    }
+
+    private static CacheConfiguration<Object, Object> cacheConfiguration(long maxEntries, Duration timeToLive) {
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries));
+        if (timeToLive != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive));
+        }
+        return builder.build();
+    }
+}
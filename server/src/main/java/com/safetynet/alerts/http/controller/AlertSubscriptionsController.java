@@ -0,0 +1,131 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.model.ApiError;
+import com.safetynet.alerts.api.validation.constraint.IsAddress;
+import com.safetynet.alerts.api.validation.constraint.IsStationNumber;
+import com.safetynet.alerts.properties.AlertSubscriptionsProperties;
+import com.safetynet.alerts.service.AlertSubscriptionService;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscriber;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscription;
+import com.safetynet.alerts.util.ApiErrorCode;
+import com.safetynet.alerts.util.ApiException;
+import com.safetynet.alerts.util.springdoc.ApiErrorResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.util.function.BiFunction;
+import javax.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static com.safetynet.alerts.http.controller.ExceptionController.errorToResponse;
+
+@Tag(name = "alerts", description = "Alerts operations")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@RestController
+@RequestMapping("/")
+@Validated
+public class AlertSubscriptionsController {
+    private final AlertSubscriptionService alertSubscriptionService;
+    private final AlertSubscriptionsProperties props;
+
+    @Operation(
+            summary = "Streams the list of persons covered by a firestation.",
+            description = "Server-Sent Events: a \"firestation\" event with the current response of GET /firestation,"
+                    + " then a new one whenever a committed change modifies it. The stream ends after the configured"
+                    + " timeout; the client reconnects."
+    )
+    @ApiErrorResponse(method = "errorAlertSubscriptionsDisabled")
+    @ApiErrorResponse(method = "errorTooManySubscribers")
+    // no "produces": the emitter sets the content type of the events, and the errors are JSON
+    @RequestMapping(method = RequestMethod.GET, value = "/firestation/subscribe")
+    public SseEmitter subscribeToFirestation(
+            @RequestParam("stationNumber") @NotNull @IsStationNumber String stationNumber
+    ) {
+        return subscribe("firestation", stationNumber, alertSubscriptionService::subscribeToFirestation);
+    }
+
+    @Operation(
+            summary = "Streams the list of persons living at an address and the firestation covering them.",
+            description = "Server-Sent Events: a \"fire\" event with the current response of GET /fire, then a new"
+                    + " one whenever a committed change modifies it. The stream ends after the configured timeout;"
+                    + " the client reconnects."
+    )
+    @ApiErrorResponse(method = "errorAlertSubscriptionsDisabled")
+    @ApiErrorResponse(method = "errorTooManySubscribers")
+    @RequestMapping(method = RequestMethod.GET, value = "/fire/subscribe")
+    public SseEmitter subscribeToFire(
+            @RequestParam("address") @NotNull @IsAddress String address
+    ) {
+        return subscribe("fire", address, alertSubscriptionService::subscribeToFire);
+    }
+
+    private SseEmitter subscribe(String eventName, String key,
+            BiFunction<String, Subscriber, Subscription> subscribe) {
+        if (!alertSubscriptionService.isEnabled()) {
+            throw new ApiException(errorAlertSubscriptionsDisabled());
+        }
+        SseEmitter emitter = new SseEmitter(props.getTimeout() * 1000L);
+        Subscription subscription = subscribe.apply(key, new Subscriber() {
+            @Override
+            public void send(String json) throws IOException {
+                emitter.send(SseEmitter.event().name(eventName).data(json, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment(""));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    @ExceptionHandler(AlertSubscriptionService.TooManySubscribersException.class)
+    @ResponseBody
+    public ResponseEntity<ApiError> handleTooManySubscribersException() {
+        return errorToResponse(errorTooManySubscribers());
+    }
+
+    /**
+     * Returns a SERVICE/SERVICE_UNAVAILABLE error when there are too many subscribers, on the topic or in total.
+     */
+    static ApiError errorTooManySubscribers() {
+        return ApiError.builder()
+                .type(ApiError.ErrorType.SERVICE)
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .code(ApiErrorCode.SERVICE_UNAVAILABLE)
+                .message("Too many alert subscribers")
+                .build();
+    }
+
+    /**
+     * Returns a SERVICE/NOT_FOUND error when the alert subscriptions are disabled.
+     */
+    static ApiError errorAlertSubscriptionsDisabled() {
+        return ApiError.builder()
+                .type(ApiError.ErrorType.SERVICE)
+                .status(HttpStatus.NOT_FOUND.value())
+                .code(ApiErrorCode.NOT_FOUND)
+                .message("Alert subscriptions disabled")
+                .build();
+    }
+}
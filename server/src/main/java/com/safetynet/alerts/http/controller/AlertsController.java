@@ -1,8 +1,14 @@
 package com.safetynet.alerts.http.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.model.ApiError;
+import com.safetynet.alerts.api.model.Person;
 import com.safetynet.alerts.api.response.ChildAlertResponse;
 import com.safetynet.alerts.api.response.CommunityEmailResponse;
 import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
 import com.safetynet.alerts.api.response.FloodStationsResponse;
 import com.safetynet.alerts.api.response.PersonInfoResponse;
 import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
@@ -11,37 +17,113 @@ import com.safetynet.alerts.api.validation.constraint.IsAddress;
 import com.safetynet.alerts.api.validation.constraint.IsCity;
 import com.safetynet.alerts.api.validation.constraint.IsName;
 import com.safetynet.alerts.api.validation.constraint.IsStationNumber;
+import com.safetynet.alerts.properties.AlertsStreamingProperties;
+import com.safetynet.alerts.service.AlertsCacheService;
 import com.safetynet.alerts.service.AlertsService;
+import com.safetynet.alerts.service.CursorPage;
+import com.safetynet.alerts.service.DataVersionService;
+import com.safetynet.alerts.util.ApiErrorCode;
 import com.safetynet.alerts.util.spring.JsonRequestMapping;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import static com.safetynet.alerts.http.controller.ExceptionController.errorToResponse;
 
 @Tag(name = "alerts", description = "Alerts operations")
-@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @RestController
 @RequestMapping("/")
 @Validated
 public class AlertsController {
+    private static final int MAX_LIMIT = 1000;
+
     private final AlertsService alertsService;
+    private final AlertsCacheService alertsCacheService;
+    private final DataVersionService dataVersionService;
+    private final ObjectMapper objectMapper;
+    private final boolean streaming;
+
+    @Autowired
+    public AlertsController(AlertsService alertsService, AlertsCacheService alertsCacheService,
+            DataVersionService dataVersionService, ObjectMapper objectMapper,
+            @Autowired(required = false) AlertsStreamingProperties streamingProps) {
+        this.alertsService = alertsService;
+        this.alertsCacheService = alertsCacheService;
+        this.dataVersionService = dataVersionService;
+        this.objectMapper = objectMapper;
+        this.streaming = streamingProps != null && streamingProps.isEnabled();
+    }
 
     @Operation(
             summary = "Returns the list of persons covered by a firestation."
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/firestation")
     public PersonsCoveredByFirestationResponse getPersonsCoveredByFirestation(
-            @RequestParam("stationNumber") @NotNull @IsStationNumber String stationNumber
+            @RequestParam("stationNumber") @NotNull @IsStationNumber String stationNumber,
+            @RequestParam(value = "limit", required = false) @Min(1) @Max(MAX_LIMIT) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        CursorPage page = CursorPage.of(cursor, limit);
+        if (streaming && page.isUnbounded()) {
+            try (JsonGenerator generator = createGenerator(response)) {
+                generator.writeStartObject();
+                alertsService.streamPersonsCoveredByFirestation(stationNumber, ZonedDateTime.now(),
+                        writing(counts -> {
+                            generator.writeNumberField("childrenCount", counts.getChildrenCount());
+                            generator.writeNumberField("adultsCount", counts.getAdultsCount());
+                            generator.writeArrayFieldStart("persons");
+                        }),
+                        writing(generator::writeObject));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            return null;
+        }
+        return alertsCacheService.getPersonsCoveredByFirestation(stationNumber, page);
+    }
+
+    @Operation(
+            summary = "Returns the count of adults and children covered by the given firestations."
+    )
+    @JsonRequestMapping(method = RequestMethod.GET, value = "/firestationCounts")
+    public FirestationCountsResponse getFirestationCounts(
+            @RequestParam("stations") @NotEmpty List<@NotNull @IsStationNumber String> stations,
+            WebRequest webRequest
     ) {
-        return alertsService.getPersonsCoveredByFirestation(stationNumber);
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        return alertsCacheService.getFirestationCounts(stations);
     }
 
     @Operation(
@@ -49,9 +131,13 @@ public class AlertsController {
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/childAlert")
     public ChildAlertResponse getChildAlert(
-            @RequestParam("address") @NotNull @IsAddress String address
+            @RequestParam("address") @NotNull @IsAddress String address,
+            WebRequest webRequest
     ) {
-        return alertsService.getChildAlert(address);
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        return alertsCacheService.getChildAlert(address);
     }
 
     @Operation(
@@ -59,9 +145,15 @@ public class AlertsController {
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/phoneAlert")
     public PhoneAlertResponse getPhoneAlert(
-            @RequestParam("firestation") @NotNull @IsStationNumber String stationNumber
+            @RequestParam("firestation") @NotNull @IsStationNumber String stationNumber,
+            @RequestParam(value = "limit", required = false) @Min(1) @Max(MAX_LIMIT) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest
     ) {
-        return alertsService.getPhoneAlert(stationNumber);
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        return alertsCacheService.getPhoneAlert(stationNumber, CursorPage.of(cursor, limit));
     }
 
     @Operation(
@@ -69,9 +161,13 @@ public class AlertsController {
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/fire")
     public FireResponse getFire(
-            @RequestParam("address") @NotNull @IsAddress String address
+            @RequestParam("address") @NotNull @IsAddress String address,
+            WebRequest webRequest
     ) {
-        return alertsService.getFire(address);
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        return alertsCacheService.getFire(address);
     }
 
     @Operation(
@@ -79,9 +175,29 @@ public class AlertsController {
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/flood/stations")
     public FloodStationsResponse getFloodStations(
-            @RequestParam("stations") @NotEmpty List<@NotNull @IsStationNumber String> stations
-    ) {
-        return alertsService.getFloodStations(stations);
+            @RequestParam("stations") @NotEmpty List<@NotNull @IsStationNumber String> stations,
+            @RequestParam(value = "limit", required = false) @Min(1) @Max(MAX_LIMIT) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        CursorPage page = CursorPage.of(cursor, limit);
+        if (streaming && page.isUnbounded()) {
+            try (JsonGenerator generator = createGenerator(response)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("stations");
+                FloodStationsWriter writer = new FloodStationsWriter(generator);
+                alertsService.streamFloodStations(stations, ZonedDateTime.now(), writer);
+                writer.finish();
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            return null;
+        }
+        return alertsCacheService.getFloodStations(stations, page);
     }
 
     @Operation(
@@ -90,9 +206,13 @@ public class AlertsController {
     @JsonRequestMapping(method = RequestMethod.GET, value = "/personInfo")
     public PersonInfoResponse getPersonInfo(
             @RequestParam("firstName") @NotNull @IsName String firstName,
-            @RequestParam("lastName") @NotNull @IsName String lastName
+            @RequestParam("lastName") @NotNull @IsName String lastName,
+            WebRequest webRequest
     ) {
-        return alertsService.getPersonInfo(firstName, lastName);
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        return alertsCacheService.getPersonInfo(firstName, lastName);
     }
 
     @Operation(
@@ -100,8 +220,119 @@ public class AlertsController {
     )
     @JsonRequestMapping(method = RequestMethod.GET, value = "/communityEmail")
     public CommunityEmailResponse getCommunityEmail(
-            @RequestParam("city") @NotNull @IsCity String city
-    ) {
-        return alertsService.getCommunityEmail(city);
+            @RequestParam("city") @NotNull @IsCity String city,
+            @RequestParam(value = "limit", required = false) @Min(1) @Max(MAX_LIMIT) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            WebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+        CursorPage page = CursorPage.of(cursor, limit);
+        if (streaming && page.isUnbounded()) {
+            try (JsonGenerator generator = createGenerator(response)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("emails");
+                alertsService.streamCommunityEmail(city, writing(generator::writeString));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            return null;
+        }
+        return alertsCacheService.getCommunityEmail(city, page);
+    }
+
+    @ExceptionHandler(CursorPage.InvalidCursorException.class)
+    @ResponseBody
+    public ResponseEntity<ApiError> handleInvalidCursorException() {
+        return errorToResponse(errorInvalidCursor());
+    }
+
+    /**
+     * Returns a CLIENT/VALIDATION_FAILED error when a pagination cursor is invalid.
+     */
+    static ApiError errorInvalidCursor() {
+        return ApiError.builder()
+                .type(ApiError.ErrorType.CLIENT)
+                .status(HttpStatus.BAD_REQUEST.value())
+                .code(ApiErrorCode.VALIDATION_FAILED)
+                .message("Validation failed: cursor is invalid")
+                .metadata("parameter", "cursor")
+                .build();
+    }
+
+    /**
+     * Checks the {@code If-None-Match} header of the request against the current data version and date, and sets the
+     * {@code ETag} header of the response (unless the entity tags are disabled).
+     *
+     * @param webRequest the request
+     * @return {@code true} if the client's copy is up to date (the response is then a {@code 304 Not Modified})
+     */
+    private boolean isNotModified(WebRequest webRequest) {
+        return dataVersionService.isETagsEnabled()
+                && webRequest.checkNotModified(dataVersionService.getETag(LocalDate.now()));
+    }
+
+    /**
+     * Creates a JSON generator writing straight to the response body (with the same settings as the responses
+     * serialized by spring). The generator doesn't close the open objects, so that a failure leaves an invalid body.
+     */
+    private JsonGenerator createGenerator(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+    }
+
+    private static <T> Consumer<T> writing(JsonWriter<T> writer) {
+        return value -> {
+            try {
+                writer.write(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter<T> {
+        void write(T value) throws IOException;
+    }
+
+    /**
+     * Writes the persons of the flood stations response, opening an entry each time the address changes.
+     */
+    @RequiredArgsConstructor
+    private static class FloodStationsWriter implements BiConsumer<String, Person> {
+        private final JsonGenerator generator;
+        private String currentAddress;
+
+        @Override
+        public void accept(String address, Person person) {
+            try {
+                if (!address.equals(currentAddress)) {
+                    finish();
+                    currentAddress = address;
+                    generator.writeStartObject();
+                    generator.writeStringField("address", address);
+                    generator.writeArrayFieldStart("persons");
+                }
+                generator.writeObject(person);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Closes the current entry (if any).
+         */
+        void finish() throws IOException {
+            if (currentAddress != null) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                currentAddress = null;
+            }
+        }
     }
 }
@@ -0,0 +1,82 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.model.ApiError;
+import com.safetynet.alerts.api.response.ChangesResponse;
+import com.safetynet.alerts.service.ChangeFeedService;
+import com.safetynet.alerts.util.ApiErrorCode;
+import com.safetynet.alerts.util.ApiException;
+import com.safetynet.alerts.util.spring.JsonRequestMapping;
+import com.safetynet.alerts.util.springdoc.ApiErrorResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+@Tag(name = "changes", description = "Feed of the changes of persons, firestations and medical records")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@RestController
+@RequestMapping("/changes")
+@Validated
+public class ChangesController {
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_WAIT = 60;
+
+    private final ChangeFeedService changeFeedService;
+
+    @Operation(
+            summary = "Returns the changes committed after an offset.",
+            description = "The changes are returned in approximately commit order. Pass the nextOffset (and the feedId) of the"
+                    + " response to get the following ones. When the response is truncated, changes were missed: the"
+                    + " data must be rescanned."
+    )
+    @ApiErrorResponse(method = "errorChangeFeedDisabled")
+    @JsonRequestMapping(method = RequestMethod.GET)
+    public DeferredResult<ChangesResponse> getChanges(
+            @Parameter(description = "Offset of the last change already read (0 for the oldest kept change).")
+            @RequestParam(value = "after", defaultValue = "0") @Min(0) long after,
+            @Parameter(description = "Identifier of the feed of the offset; a different feed (after a restart of the"
+                    + " server) truncates the response.")
+            @RequestParam(value = "feedId", required = false) String feedId,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(MAX_LIMIT) int limit,
+            @Parameter(description = "Number of seconds to wait for changes when there is none yet (long polling).")
+            @RequestParam(value = "wait", defaultValue = "0") @Min(0) @Max(MAX_WAIT) int wait
+    ) {
+        if (!changeFeedService.isEnabled()) {
+            throw new ApiException(errorChangeFeedDisabled());
+        }
+        DeferredResult<ChangesResponse> res = new DeferredResult<>(wait * 1000L);
+        ChangesResponse changes = changeFeedService.read(feedId, after, limit);
+        if (wait == 0 || !changes.getChanges().isEmpty() || changes.isTruncated()) {
+            res.setResult(changes);
+            return res;
+        }
+        CompletableFuture<Void> changed = changeFeedService.awaitChanges(after);
+        changed.thenRun(() -> res.setResult(changeFeedService.read(feedId, after, limit)));
+        res.onTimeout(() -> res.setResult(changes));
+        res.onCompletion(() -> changed.cancel(false));
+        return res;
+    }
+
+    /**
+     * Returns a SERVICE/NOT_FOUND error when the change feed is disabled.
+     */
+    static ApiError errorChangeFeedDisabled() {
+        return ApiError.builder()
+                .type(ApiError.ErrorType.SERVICE)
+                .status(HttpStatus.NOT_FOUND.value())
+                .code(ApiErrorCode.NOT_FOUND)
+                .message("Change feed disabled")
+                .build();
+    }
+}
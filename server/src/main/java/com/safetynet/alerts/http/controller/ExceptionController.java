@@ -177,7 +177,7 @@ public class ExceptionController {
                 .build();
     }
 
-    private ApiError errorValidationFailed(String message, String parameter, String constraint,
+    static ApiError errorValidationFailed(String message, String parameter, String constraint,
             Map<String, Object> attributes) {
         if (parameter != null) {
             message = parameter + " " + message;
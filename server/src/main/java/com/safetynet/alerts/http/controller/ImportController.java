@@ -0,0 +1,215 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.model.ApiError;
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.ImportResponse;
+import com.safetynet.alerts.api.validation.group.Create;
+import com.safetynet.alerts.service.ImportService;
+import com.safetynet.alerts.service.JsonSeedService;
+import com.safetynet.alerts.service.MedicalRecordService;
+import com.safetynet.alerts.service.PersonService;
+import com.safetynet.alerts.util.spring.JsonRequestMapping;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.validation.ConstraintViolation;
+import javax.validation.Path;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.safetynet.alerts.http.controller.ExceptionController.errorValidationFailed;
+
+@Tag(name = "import", description = "Bulk import of persons, firestations and medical records")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@RestController
+@RequestMapping("/import")
+@Validated
+public class ImportController {
+    private final ImportService importService;
+    private final Validator validator;
+
+    @Operation(
+            summary = "Add persons, firestations and medical records at once.",
+            description = "Each item is validated and imported like by its creation endpoint, the body has the format"
+                    + " of the seed data. Failed items are reported without preventing the import of the others."
+    )
+    @JsonRequestMapping(method = RequestMethod.POST)
+    public ImportResponse importModels(
+            @Parameter(description = "Allow creation of new persons even if another person has the same first and last name combination.")
+            @RequestParam(value = "allowSimilarNames", defaultValue = "false") boolean allowSimilarNames,
+            @Parameter(description = "Persons, firestations and medical records that need to be added.")
+            @RequestBody JsonSeedService.Models body
+    ) {
+        List<ApiError> personErrors = validate("persons", nullToEmpty(body.getPersons()));
+        List<ApiError> firestationErrors = validate("firestations", nullToEmpty(body.getFirestations()));
+        List<ApiError> medicalRecordErrors = validate("medicalrecords", nullToEmpty(body.getMedicalrecords()));
+        ImportService.Report report = importService.importModels(new JsonSeedService.Models(
+                valid(body.getPersons(), personErrors),
+                valid(body.getFirestations(), firestationErrors),
+                valid(body.getMedicalrecords(), medicalRecordErrors)), allowSimilarNames);
+        return ImportResponse.builder()
+                .persons(toItems(personErrors, report.getPersons(), Person::getId))
+                .firestations(toItems(firestationErrors, report.getFirestations(), firestation -> null))
+                .medicalRecords(toItems(medicalRecordErrors, report.getMedicalRecords(), MedicalRecord::getPersonId))
+                .build();
+    }
+
+    @Operation(
+            summary = "Add new persons."
+    )
+    @JsonRequestMapping(method = RequestMethod.POST, value = "/persons")
+    public ImportResponse importPersons(
+            @Parameter(description = "Allow creation of new persons even if another person has the same first and last name combination.")
+            @RequestParam(value = "allowSimilarNames", defaultValue = "false") boolean allowSimilarNames,
+            @Parameter(description = "Person objects that need to be added.")
+            @RequestBody List<Person> body
+    ) {
+        List<ApiError> errors = validate("persons", body);
+        return ImportResponse.builder()
+                .persons(toItems(errors, importService.importPersons(valid(body, errors), allowSimilarNames),
+                        Person::getId))
+                .build();
+    }
+
+    @Operation(
+            summary = "Add or update firestations."
+    )
+    @JsonRequestMapping(method = RequestMethod.POST, value = "/firestations")
+    public ImportResponse importFirestations(
+            @Parameter(description = "Firestation objects that need to be added.")
+            @RequestBody List<Firestation> body
+    ) {
+        List<ApiError> errors = validate("firestations", body);
+        return ImportResponse.builder()
+                .firestations(toItems(errors, importService.importFirestations(valid(body, errors)),
+                        firestation -> null))
+                .build();
+    }
+
+    @Operation(
+            summary = "Add new medical records."
+    )
+    @JsonRequestMapping(method = RequestMethod.POST, value = "/medicalRecords")
+    public ImportResponse importMedicalRecords(
+            @Parameter(description = "Medical record objects that need to be added.")
+            @RequestBody List<MedicalRecord> body
+    ) {
+        List<ApiError> errors = validate("medicalRecords", body);
+        return ImportResponse.builder()
+                .medicalRecords(toItems(errors, importService.importMedicalRecords(valid(body, errors)),
+                        MedicalRecord::getPersonId))
+                .build();
+    }
+
+    /**
+     * Validates each item like a creation body, and returns the error of each item ({@code null} if valid).
+     */
+    private <T> List<ApiError> validate(String name, List<T> items) {
+        List<ApiError> res = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); ++i) {
+            String prefix = name + "[" + i + "]";
+            T item = items.get(i);
+            if (item == null) {
+                res.add(errorValidationFailed("is required", prefix, null, null));
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(item, Default.class, Create.class);
+            if (violations.isEmpty()) {
+                res.add(null);
+                continue;
+            }
+            // Only reports the first violation, like ExceptionController
+            ConstraintViolation<T> violation = violations.iterator().next();
+            String parameter = StreamSupport.stream(violation.getPropertyPath().spliterator(), false)
+                    .map(Path.Node::toString).collect(Collectors.joining(".", prefix + ".", ""));
+            String constraint = violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName();
+            res.add(errorValidationFailed(violation.getMessage(), parameter, constraint,
+                    violation.getConstraintDescriptor().getAttributes()));
+        }
+        return res;
+    }
+
+    /**
+     * Returns the items without validation error.
+     */
+    private static <T> List<T> valid(List<T> items, List<ApiError> errors) {
+        List<T> res = new ArrayList<>(items == null ? 0 : items.size());
+        for (int i = 0; i < errors.size(); ++i) {
+            if (errors.get(i) == null) {
+                res.add(items.get(i));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Merges the validation errors and the results of the valid items, in the order of the request.
+     */
+    private static <T> List<ImportResponse.Item> toItems(List<ApiError> errors,
+            List<ImportService.ItemResult<T>> results, Function<T, Long> idGetter) {
+        List<ImportResponse.Item> res = new ArrayList<>(errors.size());
+        int next = 0;
+        for (ApiError error : errors) {
+            if (error != null) {
+                res.add(failed(error));
+                continue;
+            }
+            ImportService.ItemResult<T> result = results.get(next++);
+            if (result.getError() != null) {
+                res.add(failed(toApiError(result.getError())));
+            } else {
+                res.add(ImportResponse.Item.builder()
+                        .status(result.isCreated() ? ImportResponse.Status.CREATED : ImportResponse.Status.UPDATED)
+                        .id(idGetter.apply(result.getValue()))
+                        .build());
+            }
+        }
+        return res;
+    }
+
+    private static ImportResponse.Item failed(ApiError error) {
+        return ImportResponse.Item.builder()
+                .status(ImportResponse.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Returns the error of the creation endpoints for a service exception.
+     */
+    private static ApiError toApiError(RuntimeException e) {
+        if (e instanceof PersonService.PersonExistsException) {
+            return PersonController.errorPersonExists();
+        } else if (e instanceof PersonService.InterferingAddressException) {
+            return PersonController.errorInterferingAddress();
+        } else if (e instanceof MedicalRecordService.MedicalRecordExistsException) {
+            return MedicalRecordController.errorMedicalRecordExists();
+        } else if (e instanceof MedicalRecordService.PersonNotFoundException) {
+            return MedicalRecordController.errorPersonNotFound();
+        } else if (e instanceof MedicalRecordService.InterferingNamesException) {
+            return MedicalRecordController.errorInterferingNames();
+        }
+        throw e;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+}
@@ -0,0 +1,19 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.alert-subscriptions")
+@Data
+@Validated
+public class AlertSubscriptionsProperties {
+    private boolean enabled = false;
+    private @Min(1) int timeout = 3600;
+    private @Min(1) int heartbeatInterval = 30;
+    private @Min(1) int queueSize = 16;
+    private @Min(1) int sendThreads = 8;
+    private @Min(1) int maxSubscribers = 1000;
+    private @Min(1) int maxSubscribersPerKey = 100;
+}
@@ -0,0 +1,14 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.alerts-cache")
+@Data
+@Validated
+public class AlertsCacheProperties {
+    private boolean enabled = false;
+    private @Min(1) int maxEntries = 1000;
+}
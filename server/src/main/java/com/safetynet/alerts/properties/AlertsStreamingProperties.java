@@ -0,0 +1,12 @@
+package com.safetynet.alerts.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.alerts-streaming")
+@Data
+@Validated
+public class AlertsStreamingProperties {
+    private boolean enabled = false;
+}
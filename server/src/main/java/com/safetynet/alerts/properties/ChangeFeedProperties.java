@@ -0,0 +1,16 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.change-feed")
+@Data
+@Validated
+public class ChangeFeedProperties {
+    private boolean enabled = false;
+    private @Min(1) @Max(1 << 30) int capacity = 65536;
+    private String fileSink = "";
+}
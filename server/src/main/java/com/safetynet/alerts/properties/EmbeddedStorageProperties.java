@@ -0,0 +1,17 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.embedded-storage")
+@Data
+@Validated
+public class EmbeddedStorageProperties {
+    private boolean enabled = false;
+    private @NotBlank String directory = "data";
+    private @Min(1) int snapshotInterval = 300;
+    private boolean fsync = true;
+}
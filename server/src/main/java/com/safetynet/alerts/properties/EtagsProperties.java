@@ -0,0 +1,12 @@
+package com.safetynet.alerts.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.etags")
+@Data
+@Validated
+public class EtagsProperties {
+    private boolean enabled = false;
+}
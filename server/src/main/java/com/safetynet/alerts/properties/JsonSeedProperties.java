@@ -1,5 +1,6 @@
 package com.safetynet.alerts.properties;
 
+import javax.validation.constraints.Min;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
@@ -9,4 +10,8 @@ import org.springframework.validation.annotation.Validated;
 @Validated
 public class JsonSeedProperties {
     private boolean enabled = true;
+    private boolean streaming = false;
+    private boolean reconcile = false;
+    private String path;
+    private @Min(1) int chunkSize = 1000;
 }
@@ -0,0 +1,14 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.migrations")
+@Data
+@Validated
+public class MigrationProperties {
+    private boolean enabled = true;
+    private @Min(0) int lockTimeout = 600;
+}
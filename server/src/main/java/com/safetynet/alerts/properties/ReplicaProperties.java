@@ -0,0 +1,23 @@
+package com.safetynet.alerts.properties;
+
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.replicas")
+@Data
+@Validated
+public class ReplicaProperties {
+    private boolean enabled = false;
+    private @NotNull List<String> urls = new ArrayList<>();
+    private String username;
+    private String password;
+    private @NotNull ReplicaRoutingDataSource.Selection selection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+    private @Min(0) int stickyWindow = 1000;
+    private @Min(1) int poolSize = 10;
+}
@@ -0,0 +1,16 @@
+package com.safetynet.alerts.properties;
+
+import javax.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "safetynet.second-level-cache")
+@Data
+@Validated
+public class SecondLevelCacheProperties {
+    private boolean enabled = false;
+    private @Min(1) int maxEntries = 10000;
+    private @Min(1) int timeToLive = 600;
+    private @Min(1) int queryMaxEntries = 1000;
+}
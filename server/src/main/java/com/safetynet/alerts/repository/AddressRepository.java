@@ -1,11 +1,38 @@
 package com.safetynet.alerts.repository;
 
 import com.safetynet.alerts.repository.entity.AddressEntity;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import javax.persistence.QueryHint;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface AddressRepository extends CrudRepository<AddressEntity, Long> {
+    // cached queries (with the second-level cache): their results are evicted on any write to the addresses
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<AddressEntity> findByAddress(String address);
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Iterable<AddressEntity> findAllByFirestationIn(Iterable<String> firestations);
+
+    List<AddressEntity> findAllByAddressIn(Collection<String> addresses);
+
+    @Query("select a.id as id, a.address as address, a.firestation as firestation from AddressEntity a")
+    List<AddressRef> findAllRefs();
+
+    /**
+     * Identifies an address without loading its entity.
+     */
+    interface AddressRef {
+        Long getId();
+
+        String getAddress();
+
+        String getFirestation();
+    }
 }
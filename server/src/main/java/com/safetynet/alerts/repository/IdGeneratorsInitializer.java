@@ -0,0 +1,61 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.repository.entity.IdGenerators;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the {@linkplain IdGenerators ID generators} past the existing IDs.
+ * <p>
+ * The tables were previously filled with {@code IDENTITY} IDs: without this, the generators would start again from 1
+ * and collide with the existing rows.
+ */
+@Component
+public class IdGeneratorsInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorsInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public IdGeneratorsInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        // waits for the (possibly background) bootstrap of JPA, so that the schema is up to date
+        entityManagerFactory.getMetamodel();
+        initialize(IdGenerators.ADDRESSES, "addresses");
+        initialize(IdGenerators.PERSONS, "persons");
+    }
+
+    void initialize(String generator, String table) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        if (maxId == null) {
+            // empty table: the generator starts from 1
+            return;
+        }
+        // with the pooled optimizer, the next reserved block ends at the stored value
+        long minValue = maxId + IdGenerators.ALLOCATION_SIZE;
+        List<Long> values = jdbcTemplate.queryForList("select " + IdGenerators.VALUE_COLUMN
+                + " from " + IdGenerators.TABLE + " where " + IdGenerators.NAME_COLUMN + " = ?", Long.class, generator);
+        if (values.isEmpty()) {
+            jdbcTemplate.update("insert into " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN + ", "
+                    + IdGenerators.VALUE_COLUMN + ") values (?, ?)", generator, minValue);
+        } else if (values.get(0) < minValue) {
+            jdbcTemplate.update("update " + IdGenerators.TABLE + " set " + IdGenerators.VALUE_COLUMN + " = ? where "
+                    + IdGenerators.NAME_COLUMN + " = ?", minValue, generator);
+        } else {
+            return;
+        }
+        logger.info("Moved ID generator {} past the existing IDs of {} (next value {})", generator, table, minValue);
+    }
+}
@@ -1,9 +1,37 @@
 package com.safetynet.alerts.repository;
 
 import com.safetynet.alerts.repository.entity.PersonEntity;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface PersonRepository extends CrudRepository<PersonEntity, Long>, PersonRepositoryCustom {
+    /**
+     * Rows fetched at once by the streaming queries (with MySQL, requires {@code useCursorFetch=true}).
+     */
+    String STREAM_FETCH_SIZE = "100";
+
+    String PERSON_ROW_SELECT = "select p.id as id, p.firstName as firstName, p.lastName as lastName,"
+            + " a.address as address, a.city as city, a.zip as zip, p.phone as phone, p.email as email,"
+            + " mr.id as medicalRecordId, mr.birthdate as birthdate"
+            + " from PersonEntity p join p.address a left join p.medicalRecord mr";
+
+    String COMPLETE_PERSON_ROW_SELECT = "select p.id as id, p.firstName as firstName, p.lastName as lastName,"
+            + " a.address as address, a.city as city, a.zip as zip, p.phone as phone, p.email as email,"
+            + " mr.id as medicalRecordId, mr.birthdate as birthdate,"
+            + " mr.medications as medications, mr.allergies as allergies"
+            + " from PersonEntity p join p.address a left join p.medicalRecord mr";
 
-public interface PersonRepository extends CrudRepository<PersonEntity, Long> {
     long removeById(Long id);
 
     boolean existsByFirstNameAndLastName(String firstName, String lastName);
@@ -12,9 +40,233 @@ public interface PersonRepository extends CrudRepository<PersonEntity, Long> {
 
     long removeByFirstNameAndLastName(String firstName, String lastName);
 
-    Iterable<PersonEntity> findAllByAddressCity(String city);
+    // the derived queries left join the address: inner joins let the database start from the address indexes
+    @Query("select p from PersonEntity p join p.address a where a.city = :city")
+    Iterable<PersonEntity> findAllByAddressCity(@Param("city") String city);
+
+    @Query("select p from PersonEntity p join p.address a where a.address = :address")
+    Iterable<PersonEntity> findAllByAddressAddress(@Param("address") String address);
+
+    @Query("select p from PersonEntity p join p.address a where a.firestation = :firestation")
+    Iterable<PersonEntity> findAllByAddressFirestation(@Param("firestation") String firestation);
+
+    /**
+     * Returns the distinct phones of persons covered by a firestation (in order of first appearance).
+     */
+    @Query("select p.phone from PersonEntity p where p.address.firestation = :firestation"
+            + " group by p.phone order by min(p.id)")
+    List<String> findDistinctPhonesByAddressFirestation(@Param("firestation") String firestation);
+
+    /**
+     * Returns the distinct emails of persons living in a city (in order of first appearance).
+     */
+    @Query("select p.email from PersonEntity p where p.address.city = :city"
+            + " group by p.email order by min(p.id)")
+    List<String> findDistinctEmailsByAddressCity(@Param("city") String city);
+
+    // The pages of distinct values are keyset pages of the persons (by ID, from the cursor), skipping the persons whose
+    // value was already held by an earlier one: a page reads the persons following the cursor up to the limit, rather
+    // than grouping all those of the station (or city).
+
+    /**
+     * Returns the distinct phones of persons covered by a firestation with the ID of the first person having each, in
+     * order of first appearance, after a given ID.
+     */
+    @Query("select p.id as personId, p.phone as value from PersonEntity p join p.address a"
+            + " where a.firestation = :firestation and p.id > :afterId and not exists ("
+            + "select q.id from PersonEntity q join q.address qa"
+            + " where q.phone = p.phone and q.id < p.id and qa.firestation = :firestation)"
+            + " order by p.id")
+    List<PersonValue> findDistinctPhonesByAddressFirestationAfter(@Param("firestation") String firestation,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Returns the distinct emails of persons living in a city with the ID of the first person having each, in order of
+     * first appearance, after a given ID.
+     */
+    @Query("select p.id as personId, p.email as value from PersonEntity p join p.address a"
+            + " where a.city = :city and p.id > :afterId and not exists ("
+            + "select q.id from PersonEntity q join q.address qa"
+            + " where q.email = p.email and q.id < p.id and qa.city = :city)"
+            + " order by p.id")
+    List<PersonValue> findDistinctEmailsByAddressCityAfter(@Param("city") String city, @Param("afterId") long afterId,
+            Pageable pageable);
+
+    /**
+     * Counts the adults and children covered by some firestations. Persons born after the cutoff date are children;
+     * the others, including those without a known birthdate, are adults.
+     *
+     * @param firestations firestations numbers
+     * @param cutoff       birthdate of persons becoming adults today
+     * @return the counts of each firestation covering at least one person
+     */
+    @Query("select a.firestation as firestation,"
+            + " sum(case when mr.birthdate > :cutoff then 0 else 1 end) as adultsCount,"
+            + " sum(case when mr.birthdate > :cutoff then 1 else 0 end) as childrenCount"
+            + " from PersonEntity p join p.address a left join p.medicalRecord mr"
+            + " where a.firestation in :firestations group by a.firestation")
+    List<AgeGroupsCount> countAgeGroupsByAddressFirestationIn(
+            @Param("firestations") Collection<String> firestations, @Param("cutoff") LocalDate cutoff);
+
+    // The "complete" finders fetch the address and medical record with the persons. The medical records collections
+    // are then loaded by one subselect each (fetching both bags by the same join would be a cartesian product).
+
+    @EntityGraph(PersonEntity.COMPLETE_GRAPH)
+    List<PersonEntity> findAllCompleteByFirstNameAndLastName(String firstName, String lastName);
+
+    @EntityGraph(PersonEntity.COMPLETE_GRAPH)
+    List<PersonEntity> findAllCompleteByAddressAddress(String address);
+
+    @EntityGraph(PersonEntity.COMPLETE_GRAPH)
+    List<PersonEntity> findAllCompleteByAddressFirestation(String firestation);
+
+    /**
+     * Returns the persons covered by some firestations, ordered by address then by ID. Addresses and medical records
+     * are fetched by the same statement (the medical records collections being fetched by one subselect each).
+     */
+    @Query("select p from PersonEntity p join fetch p.address a left join fetch p.medicalRecord"
+            + " where a.firestation in :firestations order by a.id, p.id")
+    List<PersonEntity> findAllCompleteByAddressFirestationIn(@Param("firestations") Collection<String> firestations);
+
+    @EntityGraph(PersonEntity.COMPLETE_GRAPH)
+    List<PersonEntity> findAllCompleteByAddressFirestationAndIdGreaterThanOrderById(String firestation, Long id,
+            Pageable pageable);
+
+    /**
+     * Returns the persons covered by some firestations after a given address and person, ordered like
+     * {@link #findAllCompleteByAddressFirestationIn(Collection)}.
+     */
+    @Query("select p from PersonEntity p join fetch p.address a left join fetch p.medicalRecord"
+            + " where a.firestation in :firestations"
+            + " and (a.id > :afterAddressId or (a.id = :afterAddressId and p.id > :afterId)) order by a.id, p.id")
+    List<PersonEntity> findAllCompleteByAddressFirestationInAfter(
+            @Param("firestations") Collection<String> firestations, @Param("afterAddressId") long afterAddressId,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select p from PersonEntity p join fetch p.address left join fetch p.medicalRecord order by p.id")
+    List<PersonEntity> findAllComplete();
+
+    @Query("select p from PersonEntity p join fetch p.address left join fetch p.medicalRecord where p.id in :ids")
+    List<PersonEntity> findAllCompleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    String PERSON_REF_SELECT = "select p.id as id, p.firstName as firstName, p.lastName as lastName,"
+            + " mr.id as medicalRecordId, a.address as address, a.firestation as firestation"
+            + " from PersonEntity p join p.address a left join p.medicalRecord mr";
+
+    @Query(PERSON_REF_SELECT + " where p.id in :ids")
+    List<PersonRef> findAllRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Returns the persons having one of the first names and one of the last names: a superset of the persons having
+     * one of the names combinations they form.
+     */
+    @Query(PERSON_REF_SELECT + " where p.firstName in :firstNames and p.lastName in :lastNames")
+    List<PersonRef> findAllRefsByFirstNameInAndLastNameIn(@Param("firstNames") Collection<String> firstNames,
+            @Param("lastNames") Collection<String> lastNames);
+
+    /**
+     * Returns all the persons (ordered by ID, so that the last of the persons having the same names comes last).
+     */
+    @Query(PERSON_REF_SELECT + " order by p.id")
+    List<PersonRef> findAllRefs();
+
+    // The streaming queries return projections, so that the persistence context doesn't grow with the results and
+    // no collection is loaded per row. They must be consumed (and closed) inside a transaction.
+
+    @Query("select p.email from PersonEntity p where p.address.city = :city"
+            + " group by p.email order by min(p.id)")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<String> streamDistinctEmailsByAddressCity(@Param("city") String city);
+
+    @Query(PERSON_ROW_SELECT + " where a.firestation = :firestation order by p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<PersonRow> streamAllRowsByAddressFirestation(@Param("firestation") String firestation);
+
+    /**
+     * Streams the persons covered by some firestations with their medical records, ordered by address then by ID.
+     */
+    @Query(COMPLETE_PERSON_ROW_SELECT + " where a.firestation in :firestations order by a.id, p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<CompletePersonRow> streamAllCompleteRowsByAddressFirestationIn(
+            @Param("firestations") Collection<String> firestations);
+
+    interface AgeGroupsCount {
+        String getFirestation();
+
+        long getAdultsCount();
+
+        long getChildrenCount();
+    }
+
+    /**
+     * A person with it's address and the birthdate of it's medical record.
+     */
+    interface PersonRow {
+        Long getId();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getAddress();
+
+        String getCity();
+
+        String getZip();
+
+        String getPhone();
+
+        String getEmail();
+
+        /**
+         * Returns the ID of the medical record; or {@code null} if the person has none.
+         */
+        Long getMedicalRecordId();
+
+        LocalDate getBirthdate();
+    }
+
+    /**
+     * A {@link PersonRow} with the collections of it's medical record.
+     */
+    interface CompletePersonRow extends PersonRow {
+        /**
+         * Returns the medications (empty if the person has no medical record).
+         */
+        List<String> getMedications();
+
+        /**
+         * Returns the allergies (empty if the person has no medical record).
+         */
+        List<String> getAllergies();
+    }
+
+    /**
+     * The keys of a person, with the ID of it's medical record and it's address.
+     */
+    interface PersonRef {
+        Long getId();
+
+        String getFirstName();
+
+        String getLastName();
+
+        /**
+         * Returns the ID of the medical record; or {@code null} if the person has none.
+         */
+        Long getMedicalRecordId();
+
+        String getAddress();
+
+        String getFirestation();
+    }
 
-    Iterable<PersonEntity> findAllByAddressAddress(String address);
+    /**
+     * A value of a collection owned by a person.
+     */
+    interface PersonValue {
+        Long getPersonId();
 
-    Iterable<PersonEntity> findAllByAddressFirestation(String firestation);
+        String getValue();
+    }
 }
@@ -0,0 +1,16 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.api.model.Person;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The queries of {@link PersonRepository} built at runtime.
+ */
+public interface PersonRepositoryCustom {
+    /**
+     * Returns the persons having one of the names (ordered by ID). Each name is matched as a (last name, first name)
+     * pair, so that the lookup is served by the {@code idx__persons__names} index.
+     */
+    List<PersonRepository.PersonRow> findAllRowsByNamesIn(Collection<Person.Key> names);
+}
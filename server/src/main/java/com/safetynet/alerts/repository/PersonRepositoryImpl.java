@@ -0,0 +1,57 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.api.model.Person;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+/**
+ * The implementation of {@link PersonRepositoryCustom}, merged into {@link PersonRepository} by Spring Data.
+ */
+public class PersonRepositoryImpl implements PersonRepositoryCustom {
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PersonRepository.PersonRow> findAllRowsByNamesIn(Collection<Person.Key> names) {
+        Set<Person.Key> keys = new LinkedHashSet<>(names);
+        List<PersonRepository.PersonRow> res = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return res;
+        }
+        // JPQL has no row value IN: an OR of the pairs is range scanned on the index as well
+        StringBuilder jpql = new StringBuilder(PersonRepository.PERSON_ROW_SELECT).append(" where");
+        for (int i = 0; i < keys.size(); ++i) {
+            jpql.append(i == 0 ? "" : " or").append(" (p.lastName = ?").append(2 * i + 1)
+                    .append(" and p.firstName = ?").append(2 * i + 2).append(")");
+        }
+        jpql.append(" order by p.id");
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        int position = 0;
+        for (Person.Key key : keys) {
+            query.setParameter(++position, key.getLastName());
+            query.setParameter(++position, key.getFirstName());
+        }
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> values = new HashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                values.put(element.getAlias(), tuple.get(element));
+            }
+            res.add(projectionFactory.createProjection(PersonRepository.PersonRow.class, values));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,362 @@
+package com.safetynet.alerts.repository;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Routes the connections of read-only transactions to replicas of the primary database.
+ * <p>
+ * The other connections (of read-write transactions, or outside transactions) are the primary's. A replica is chosen
+ * in turn, or as the one lending the fewest connections; if it cannot lend one, the primary does. Once a session (see
+ * {@link #currentClient()}) committed a write, it's reads stick to the primary for a short window, so that it reads
+ * it's own writes despite the replication lag. Likewise, the reads of a request tagged with the data version (see
+ * {@link #requireFreshReads()}) stick to the primary for the same window after any write. The reads filling state
+ * kept after them (caches, read model, pushed responses) must not be late at all: they are run
+ * {@link #onPrimary(Supplier)}.
+ * <p>
+ * The connections must only be fetched once the transaction is started: this data source is meant to be behind a
+ * {@link LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * The number of sessions above which the expired ones are purged.
+     */
+    private static final int MAX_SESSIONS = 10000;
+
+    /**
+     * The request attribute marking a request which reads must follow the latest writes.
+     */
+    private static final String FRESH_READS_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".FRESH_READS";
+
+    // whether or not the reads of the thread are pinned to the primary (see onPrimary)
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selection selection;
+    private final long stickyWindowNanos;
+    private final Supplier<String> sessionSupplier;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // the last commit time of the sessions having written, by session
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+    // the last commit time of any write
+    private final AtomicLong lastWrite;
+
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+    private final AtomicLong pinnedReads = new AtomicLong();
+
+    /**
+     * @param primary         the primary database
+     * @param replicas        the replicas (at least one)
+     * @param selection       how a replica is chosen
+     * @param stickyWindow    how long the reads of a session stick to the primary after it's writes (in milliseconds)
+     * @param sessionSupplier returns the session of the current thread; or {@code null} if it has none
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Selection selection,
+            long stickyWindow, Supplier<String> sessionSupplier) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("No replicas");
+        }
+        this.primary = primary;
+        replicas.forEach(replica -> this.replicas.add(new Replica(replica)));
+        this.selection = selection;
+        this.stickyWindowNanos = TimeUnit.MILLISECONDS.toNanos(stickyWindow);
+        this.sessionSupplier = sessionSupplier;
+        // as if the last write was committed before the window
+        this.lastWrite = new AtomicLong(System.nanoTime() - stickyWindowNanos);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return primary.getConnection();
+        }
+        String session = sessionSupplier.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerWrite(session);
+            return primary.getConnection();
+        }
+        if (Boolean.TRUE.equals(primaryReads.get()) || isFreshReadRequired()) {
+            pinnedReads.incrementAndGet();
+            return primary.getConnection();
+        }
+        if (isSticky(session)) {
+            stickyReads.incrementAndGet();
+            return primary.getConnection();
+        }
+        Replica replica = selectReplica();
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            fallbackReads.incrementAndGet();
+            logger.warn("Cannot connect to a replica, reading from the primary: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Returns a connection of the primary: the replicas only lend connections with their configured credentials.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Records the write of the current transaction, once committed.
+     */
+    private void registerWrite(String session) {
+        if (stickyWindowNanos <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(session);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                committed(session);
+            }
+        });
+    }
+
+    private void committed(String session) {
+        long now = System.nanoTime();
+        lastWrite.set(now);
+        if (session == null) {
+            return;
+        }
+        lastWrites.put(session, now);
+        if (lastWrites.size() > MAX_SESSIONS) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite >= stickyWindowNanos);
+        }
+    }
+
+    private boolean isFreshReadRequired() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && attributes.getAttribute(FRESH_READS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null
+                && System.nanoTime() - lastWrite.get() < stickyWindowNanos;
+    }
+
+    private boolean isSticky(String session) {
+        if (session == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(session);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < stickyWindowNanos) {
+            return true;
+        }
+        lastWrites.remove(session, lastWrite);
+        return false;
+    }
+
+    private Replica selectReplica() {
+        int first = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        Replica res = replicas.get(first);
+        if (selection == Selection.LEAST_BUSY) {
+            // the ties are broken in turn
+            for (int i = 1; i < replicas.size(); ++i) {
+                Replica replica = replicas.get((first + i) % replicas.size());
+                if (replica.active.get() < res.active.get()) {
+                    res = replica;
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the number of connections lent by each replica and not closed yet.
+     */
+    public List<Integer> getActiveConnections() {
+        List<Integer> res = new ArrayList<>();
+        replicas.forEach(replica -> res.add(replica.active.get()));
+        return res;
+    }
+
+    /**
+     * Returns the number of read-only transactions routed to the primary after a write of their session.
+     */
+    public long getStickyReads() {
+        return stickyReads.get();
+    }
+
+    /**
+     * Returns the number of read-only transactions routed to the primary because a replica couldn't lend a connection.
+     */
+    public long getFallbackReads() {
+        return fallbackReads.get();
+    }
+
+    /**
+     * Returns the number of read-only transactions routed to the primary because they had to read the latest writes.
+     */
+    public long getPinnedReads() {
+        return pinnedReads.get();
+    }
+
+    /**
+     * Closes the replicas (not the primary).
+     */
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) replica.dataSource).close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close a replica", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the client of the current HTTP request (it's remote address); or {@code null} outside the thread of a
+     * request.
+     */
+    public static String currentClient() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+
+    /**
+     * Runs an action which reads must not be late: it's read-only transactions are routed to the primary. It is meant
+     * for the reads filling state kept after them, which a lagging replica would fill with data older than the
+     * invalidations it already received.
+     *
+     * @param action the action, starting it's own transactions
+     * @return the result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (Boolean.TRUE.equals(primaryReads.get())) {
+            return action.get();
+        }
+        primaryReads.set(true);
+        try {
+            return action.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    /**
+     * Runs an action which reads must not be late (see {@link #onPrimary(Supplier)}).
+     */
+    public static void runOnPrimary(Runnable action) {
+        onPrimary(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns a task running an action with the routing of the reads of the current thread: the same pin to the
+     * primary (see {@link #onPrimary(Supplier)}) and the same HTTP request (for the sticky and fresh reads). It is meant
+     * for the actions the current thread hands to a pool, then waits for.
+     *
+     * @param action the action, starting it's own transactions
+     * @return the task, to run on another thread
+     */
+    public static <T> Callable<T> withCurrentRouting(Supplier<T> action) {
+        boolean pinned = Boolean.TRUE.equals(primaryReads.get());
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return () -> {
+            Boolean previousPinned = primaryReads.get();
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            primaryReads.set(pinned);
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                return action.get();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previousAttributes);
+                if (previousPinned == null) {
+                    primaryReads.remove();
+                } else {
+                    primaryReads.set(previousPinned);
+                }
+            }
+        };
+    }
+
+    /**
+     * Routes the next reads of the current HTTP request to the primary if a write was committed within the sticky
+     * window, so that a response tagged with the current data version is not read from a replica lagging behind it.
+     * Does nothing outside the thread of a request.
+     */
+    public static void requireFreshReads() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(FRESH_READS_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_BUSY,
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Returns a connection counted as active until it is closed.
+         */
+        private Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            active.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
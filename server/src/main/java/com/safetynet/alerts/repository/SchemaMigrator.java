@@ -0,0 +1,241 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.properties.MigrationProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import lombok.Value;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the versioned SQL migrations of the schema, before JPA starts.
+ * <p>
+ * The migrations are the {@code V<version>__<description>.sql} scripts of {@value #LOCATION}{@code <database>/} (e.g.
+ * {@code mysql}), applied in order of version, each at most once: the applied versions are recorded in the
+ * {@value #TABLE} table with a checksum of their script, which must not change afterwards. Versions applied by a newer
+ * server (during a rolling deploy) are ignored. On MySQL, concurrent servers wait for each other with a named lock.
+ * <p>
+ * MySQL cannot roll DDL back: a failed migration is not recorded and is applied again on the next start, so each
+ * migration should be a single statement or idempotent.
+ */
+@Component
+public class SchemaMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    public static final String TABLE = "schema_version";
+    static final String LOCATION = "classpath*:db/migration/";
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String LOCK_NAME = "safetynet_schema_migrations";
+
+    private final DataSource dataSource;
+    private final MigrationProperties props;
+    private final String location;
+
+    @Autowired
+    public SchemaMigrator(DataSource dataSource, MigrationProperties props) {
+        this(dataSource, props, LOCATION);
+    }
+
+    SchemaMigrator(DataSource dataSource, MigrationProperties props, String location) {
+        this.dataSource = dataSource;
+        this.props = props;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void migrate() throws SQLException, IOException {
+        if (!props.isEnabled()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            String database = getDatabase(connection);
+            Map<Integer, Migration> migrations = findMigrations(database);
+            boolean mysql = "mysql".equals(database);
+            if (mysql) {
+                lock(connection);
+            }
+            try {
+                createTable(connection);
+                Map<Integer, Long> applied = findApplied(connection);
+                for (Migration migration : migrations.values()) {
+                    Long checksum = applied.remove(migration.getVersion());
+                    if (checksum == null) {
+                        apply(connection, migration);
+                    } else if (checksum != migration.getChecksum()) {
+                        throw new IllegalStateException("Migration " + migration.getName()
+                                + " was changed after being applied");
+                    }
+                }
+                if (!applied.isEmpty()) {
+                    logger.info("Ignored schema versions {} applied by a newer server", applied.keySet());
+                }
+            } finally {
+                if (mysql) {
+                    unlock(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the migrations of a database, by version.
+     */
+    Map<Integer, Migration> findMigrations(String database) throws IOException {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Map<Integer, Migration> res = new TreeMap<>();
+        for (Resource resource : resolver.getResources(location + database + "/*.sql")) {
+            Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration name: " + resource.getFilename());
+            }
+            String script;
+            try (InputStream in = resource.getInputStream()) {
+                script = IOUtils.toString(in, StandardCharsets.UTF_8).replace("\r\n", "\n");
+            }
+            Migration migration = new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2),
+                    resource.getFilename(), script);
+            Migration previous = res.put(migration.getVersion(), migration);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate migration version: " + previous.getName() + ", "
+                        + migration.getName());
+            }
+        }
+        if (res.isEmpty()) {
+            throw new IllegalStateException("No migrations for database " + database);
+        }
+        return res;
+    }
+
+    private static String getDatabase(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        return "mariadb".equals(product) ? "mysql" : product;
+    }
+
+    private void lock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select get_lock(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, props.getLockTimeout());
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Timed out waiting for the migrations of another server");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("do release_lock(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.execute();
+        }
+    }
+
+    private static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists " + TABLE + " (version integer not null,"
+                    + " description varchar(255) not null, checksum bigint not null, installed_on timestamp not null,"
+                    + " execution_time bigint not null, primary key (version))");
+        }
+    }
+
+    private static Map<Integer, Long> findApplied(Connection connection) throws SQLException {
+        Map<Integer, Long> res = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select version, checksum from " + TABLE)) {
+            while (rs.next()) {
+                res.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return res;
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        logger.info("Applying migration {}", migration.getName());
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Failed to apply migration " + migration.getName() + ": " + e.getMessage(),
+                    e.getSQLState(), e.getErrorCode(), e);
+        }
+        long time = System.currentTimeMillis() - start;
+        try (PreparedStatement statement = connection.prepareStatement("insert into " + TABLE
+                + " (version, description, checksum, installed_on, execution_time)"
+                + " values (?, ?, ?, current_timestamp, ?)")) {
+            statement.setInt(1, migration.getVersion());
+            statement.setString(2, migration.getDescription());
+            statement.setLong(3, migration.getChecksum());
+            statement.setLong(4, time);
+            statement.executeUpdate();
+        }
+        logger.info("Applied migration {} in {} ms", migration.getName(), time);
+    }
+
+    /**
+     * A migration script.
+     */
+    @Value
+    static class Migration {
+        int version;
+        String description;
+        String name;
+        String script;
+
+        long getChecksum() {
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        }
+
+        /**
+         * Returns the statements of the script: they end with a {@code ;} at the end of a line, and the lines starting
+         * with {@code --} are comments.
+         */
+        List<String> getStatements() {
+            List<String> res = new ArrayList<>();
+            StringBuilder statement = new StringBuilder();
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                statement.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    res.add(statement.substring(0, statement.lastIndexOf(";")).trim());
+                    statement.setLength(0);
+                }
+            }
+            if (statement.length() > 0) {
+                res.add(statement.toString().trim());
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.repository.entity.SeedProgressEntity;
+import org.springframework.data.repository.CrudRepository;
+
+public interface SeedProgressRepository extends CrudRepository<SeedProgressEntity, String> {
+}
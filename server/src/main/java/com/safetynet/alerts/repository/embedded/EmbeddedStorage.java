@@ -0,0 +1,356 @@
+package com.safetynet.alerts.repository.embedded;
+
+import com.safetynet.alerts.properties.EmbeddedStorageProperties;
+import com.safetynet.alerts.repository.SchemaMigrator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists the entities in local files rather than in a database server: the database is an in-memory H2 one, only
+ * holding the data for the repositories.
+ * <p>
+ * All the rows are kept in memory (in primitive-keyed maps), and each committed transaction is appended to a
+ * {@linkplain WriteAheadLog write-ahead log} before it's commit in the database (see {@link EmbeddedStorageListener}).
+ * Periodically (and on shutdown), a {@linkplain SnapshotFile snapshot} of all the rows is written, and the log it
+ * covers is deleted. On startup, the latest snapshot is loaded, then the following transactions of the log are
+ * replayed, and the resulting rows are inserted in the (empty) database, before JPA starts.
+ * <p>
+ * A transaction which commit in the database fails once logged is {@linkplain #revert(List) reverted} by a following
+ * one, so that it is not replayed. Were the server to crash in between, it would be on the next startup.
+ */
+@Component
+@Scope("singleton")
+public class EmbeddedStorage {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStorage.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String LOCK_FILE = "lock";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final Path directory;
+    private final boolean fsync;
+    private final int snapshotInterval;
+
+    private FileLock directoryLock;
+
+    // guarded by this
+    private final Map<StoredTable, TableRows> tables = new EnumMap<>(StoredTable.class);
+    private WriteAheadLog log;
+    private long sequence;
+
+    /**
+     * Serializes the snapshots.
+     */
+    private final Object snapshotLock = new Object();
+    private volatile long snapshotSequence;
+    private ScheduledExecutorService snapshotExecutor;
+
+    /**
+     * @param schemaMigrator so that the schema is migrated before the rows are loaded
+     */
+    @Autowired
+    public EmbeddedStorage(DataSource dataSource, SchemaMigrator schemaMigrator, EmbeddedStorageProperties props) {
+        this.dataSource = dataSource;
+        this.enabled = props.isEnabled();
+        this.directory = Paths.get(props.getDirectory());
+        this.fsync = props.isFsync();
+        this.snapshotInterval = props.getSnapshotInterval();
+        for (StoredTable table : StoredTable.values()) {
+            tables.put(table, new TableRows(table));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the latest snapshot and the following transactions of the log in the database.
+     */
+    @PostConstruct
+    public synchronized void recover() throws IOException, SQLException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        checkDatabase();
+        Files.createDirectories(directory);
+        lockDirectory();
+        SnapshotFile snapshot = SnapshotFile.readLatest(directory);
+        if (snapshot != null) {
+            tables.putAll(snapshot.getTables());
+            snapshotSequence = snapshot.getSequence();
+        }
+        log = new WriteAheadLog(directory, fsync);
+        sequence = log.replay(snapshotSequence, this::apply);
+        log.open(sequence + 1);
+        long rows = load();
+        logger.info("Recovered {} rows from {} (snapshot {}, {} transactions of the log) in {} ms", rows,
+                directory.toAbsolutePath(), snapshotSequence, sequence - snapshotSequence,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("embedded-storage-snapshot-"));
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to write a snapshot", e);
+            }
+        }, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Locks the directory, so that a single server writes in it.
+     */
+    private void lockDirectory() throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            directoryLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by this process
+            directoryLock = null;
+        }
+        if (directoryLock == null) {
+            channel.close();
+            throw new IllegalStateException("The embedded storage " + directory.toAbsolutePath()
+                    + " is used by another server");
+        }
+    }
+
+    /**
+     * Checks that the database is an empty in-memory one: the rows are those of the storage.
+     */
+    private void checkDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            String url = connection.getMetaData().getURL();
+            if (!url.startsWith("jdbc:h2:mem:")) {
+                throw new IllegalStateException("The embedded storage needs an in-memory H2 database"
+                        + " (e.g. jdbc:h2:mem:safetynet), not " + url);
+            }
+            for (StoredTable table : StoredTable.values()) {
+                try (ResultSet rs = statement.executeQuery("select count(*) from " + table.getName())) {
+                    rs.next();
+                    if (rs.getLong(1) != 0) {
+                        throw new IllegalStateException("The database must be empty: " + table.getName()
+                                + " has rows");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the rows in the database.
+     *
+     * @return the number of rows
+     */
+    private long load() throws SQLException {
+        long res = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            for (StoredTable table : StoredTable.values()) {
+                try (PreparedStatement statement = connection.prepareStatement(table.getInsertSql())) {
+                    int[] batched = new int[1];
+                    SQLException[] error = new SQLException[1];
+                    tables.get(table).forEach(row -> {
+                        if (error[0] != null) {
+                            return;
+                        }
+                        try {
+                            table.setParameters(statement, row);
+                            statement.addBatch();
+                            if (++batched[0] % BATCH_SIZE == 0) {
+                                statement.executeBatch();
+                            }
+                        } catch (SQLException e) {
+                            error[0] = e;
+                        }
+                    });
+                    if (error[0] != null) {
+                        throw error[0];
+                    }
+                    statement.executeBatch();
+                    res += batched[0];
+                }
+            }
+            connection.commit();
+        }
+        return res;
+    }
+
+    private void apply(List<Mutation> mutations) {
+        for (Mutation mutation : mutations) {
+            TableRows rows = tables.get(mutation.getTable());
+            if (mutation.getRow() != null) {
+                rows.put(mutation.getRow());
+            } else {
+                rows.remove(mutation.getKey());
+            }
+        }
+    }
+
+    /**
+     * Appends the mutations of a transaction to the log (before it's commit in the database).
+     *
+     * @return the mutations reverting them (see {@link #revert(List)})
+     * @throws UncheckedIOException if they cannot be logged (the transaction must then be rolled back)
+     */
+    public synchronized List<Mutation> commit(List<Mutation> mutations) {
+        if (mutations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (log == null) {
+            throw new IllegalStateException("The embedded storage is not started");
+        }
+        try {
+            log.append(sequence + 1, mutations);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the write-ahead log", e);
+        }
+        List<Mutation> res = revertOf(mutations);
+        ++sequence;
+        apply(mutations);
+        return res;
+    }
+
+    /**
+     * Returns the mutations restoring the rows changed by the given ones to their current values.
+     */
+    private List<Mutation> revertOf(List<Mutation> mutations) {
+        Map<List<Object>, Mutation> res = new LinkedHashMap<>();
+        for (Mutation mutation : mutations) {
+            // the first mutation of a row sees it before the transaction
+            res.computeIfAbsent(Arrays.asList(mutation.getTable(), mutation.getKey()), key -> {
+                Object[] row = tables.get(mutation.getTable()).get(mutation.getKey());
+                return row != null ? Mutation.put(mutation.getTable(), row)
+                        : Mutation.remove(mutation.getTable(), mutation.getKey());
+            });
+        }
+        return new ArrayList<>(res.values());
+    }
+
+    /**
+     * Reverts a logged transaction which commit in the database failed: appends the mutations reverting it (returned
+     * by {@link #commit(List)}) as a new transaction. The rows it changed are still locked in the database, so that no
+     * other transaction changed them meanwhile.
+     *
+     * @throws UncheckedIOException if they cannot be logged (the failed transaction would then be replayed)
+     */
+    public synchronized void revert(List<Mutation> revert) {
+        commit(revert);
+    }
+
+    /**
+     * Writes a snapshot of all the rows (unless nothing was committed since the last one), and deletes the log it
+     * covers.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            SnapshotFile snapshot;
+            synchronized (this) {
+                if (log == null || sequence == snapshotSequence) {
+                    return;
+                }
+                // the copies are cheap (the rows are shared), and the file is written without blocking the commits
+                Map<StoredTable, TableRows> copies = new EnumMap<>(StoredTable.class);
+                tables.forEach((table, rows) -> copies.put(table, rows.copy()));
+                snapshot = new SnapshotFile(sequence, copies);
+                log.roll(sequence + 1);
+            }
+            long start = System.nanoTime();
+            long size = snapshot.write(directory);
+            synchronized (this) {
+                log.deleteUpTo(snapshot.getSequence());
+            }
+            snapshotSequence = snapshot.getSequence();
+            logger.info("Wrote snapshot {} ({} bytes) in {} ms", snapshot.getSequence(), size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Writes a last snapshot, so that the next startup has no log to replay.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled || log == null) {
+            return;
+        }
+        snapshotExecutor.shutdownNow();
+        snapshot();
+        release();
+    }
+
+    /**
+     * Closes the log and unlocks the directory (without a last snapshot, as on a crash).
+     */
+    void release() throws IOException {
+        synchronized (this) {
+            if (log == null) {
+                return;
+            }
+            log.close();
+            log = null;
+        }
+        snapshotExecutor.shutdownNow();
+        directoryLock.channel().close();
+    }
+
+    /**
+     * Returns the sequence number of the last committed transaction.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last transaction in a snapshot.
+     */
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Returns the number of rows of each table.
+     */
+    public synchronized Map<String, Integer> getRowCounts() {
+        Map<String, Integer> res = new LinkedHashMap<>();
+        tables.forEach((table, rows) -> res.put(table.getName(), rows.size()));
+        return res;
+    }
+}
@@ -0,0 +1,125 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the rows written by each Hibernate session, and commits them in the {@link EmbeddedStorage} once flushed,
+ * right before the commit of the database transaction (which is rolled back if they cannot be logged). If the commit
+ * then fails, they are reverted in the storage.
+ * <p>
+ * The repositories only write through Hibernate (no bulk or native updates), so that all the mutations are seen here.
+ */
+public class EmbeddedStorageListener implements Integrator, PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStorageListener.class);
+
+    private final EmbeddedStorage storage;
+
+    // the mutations flushed by each session, until the completion of it's transaction
+    private final Map<EventSource, List<Mutation>> pending = new ConcurrentHashMap<>();
+
+    public EmbeddedStorageListener(EmbeddedStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+            SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        pending.clear();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        StoredTable table = StoredTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            record(event.getSession(), Mutation.put(table, table.toRow(event.getEntity())));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        StoredTable table = StoredTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            record(event.getSession(), Mutation.put(table, table.toRow(event.getEntity())));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        StoredTable table = StoredTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            record(event.getSession(), Mutation.remove(table, event.getId()));
+        }
+    }
+
+    private void record(EventSource session, Mutation mutation) {
+        List<Mutation> mutations = pending.get(session);
+        if (mutations == null) {
+            // a session is only used by one thread at a time
+            mutations = new ArrayList<>();
+            pending.put(session, mutations);
+            AtomicReference<List<Mutation>> revert = new AtomicReference<>();
+            // the flush before the completion happens before these processes
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completed -> {
+                List<Mutation> committed = pending.remove(session);
+                if (committed != null) {
+                    revert.set(storage.commit(committed));
+                }
+            });
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+                pending.remove(session);
+                if (!success && revert.get() != null) {
+                    // logged, but not committed in the database
+                    try {
+                        storage.revert(revert.get());
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to revert a transaction of the embedded storage, it will be replayed"
+                                + " on the next startup", e);
+                    }
+                }
+            });
+        }
+        mutations.add(mutation);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A change of a row: it's new values, or it's removal.
+ */
+public final class Mutation {
+    private final StoredTable table;
+    private final Object key;
+    private final Object[] row;
+
+    private Mutation(StoredTable table, Object key, Object[] row) {
+        this.table = table;
+        this.key = key;
+        this.row = row;
+    }
+
+    /**
+     * Returns the insertion or update of a row.
+     */
+    public static Mutation put(StoredTable table, Object[] row) {
+        return new Mutation(table, row[0], row);
+    }
+
+    /**
+     * Returns the removal of the row having the primary key.
+     */
+    public static Mutation remove(StoredTable table, Object key) {
+        return new Mutation(table, key, null);
+    }
+
+    public StoredTable getTable() {
+        return table;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the new values of the row; or {@code null} if it is removed.
+     */
+    public Object[] getRow() {
+        return row;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(table.ordinal());
+        out.writeBoolean(row != null);
+        if (row != null) {
+            table.writeRow(out, row);
+        } else {
+            table.writeKey(out, key);
+        }
+    }
+
+    static Mutation read(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= StoredTable.values().length) {
+            throw new IOException("Unknown table " + ordinal);
+        }
+        StoredTable table = StoredTable.values()[ordinal];
+        return in.readBoolean() ? put(table, table.readRow(in)) : remove(table, table.readKey(in));
+    }
+}
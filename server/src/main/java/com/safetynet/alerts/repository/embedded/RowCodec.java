@@ -0,0 +1,107 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * The compact binary encoding of the values of the stored rows: variable-length integers (7 bits by byte, the small
+ * values first), {@code null} being encoded as zero where a value may be absent.
+ */
+public final class RowCodec {
+    /**
+     * The longest string accepted (in bytes), so that a corrupted length doesn't exhaust the memory.
+     */
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    private RowCodec() {
+    }
+
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long res = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            res |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return res;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        long res = readVarLong(in);
+        if (res > 0xFFFFFFFFL) {
+            throw new IOException("Malformed variable-length integer");
+        }
+        return (int) res;
+    }
+
+    /**
+     * Writes a signed value, so that small negative values are short too.
+     */
+    public static void writeZigZag(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readZigZag(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > MAX_STRING_LENGTH) {
+            throw new IOException("Malformed string length");
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        // 1 + the zig-zag encoding of the epoch day
+        long epochDay = value.toEpochDay();
+        writeVarLong(out, ((epochDay << 1) ^ (epochDay >> 63)) + 1);
+    }
+
+    public static LocalDate readDate(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value == 0) {
+            return null;
+        }
+        --value;
+        return LocalDate.ofEpochDay((value >>> 1) ^ -(value & 1));
+    }
+}
@@ -0,0 +1,148 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The snapshots of the {@link EmbeddedStorage}: all the rows as of a transaction, named after it's sequence number.
+ * <p>
+ * A snapshot is the magic number and version of the format, the sequence number, the rows of each table (preceded by
+ * their count), then the CRC-32 of all that. It is written to a temporary file, then renamed, so that a crash never
+ * leaves a partial snapshot.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x534E4150; // SNAP
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final long sequence;
+    private final Map<StoredTable, TableRows> tables;
+
+    SnapshotFile(long sequence, Map<StoredTable, TableRows> tables) {
+        this.sequence = sequence;
+        this.tables = tables;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Map<StoredTable, TableRows> getTables() {
+        return tables;
+    }
+
+    private static Path path(Path directory, long sequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+    }
+
+    /**
+     * Returns the snapshots by sequence number.
+     */
+    static TreeMap<Long, Path> find(Path directory) throws IOException {
+        TreeMap<Long, Path> res = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    res.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                }
+            });
+        }
+        return res;
+    }
+
+    /**
+     * Writes this snapshot, then deletes the previous ones.
+     *
+     * @return the size of the snapshot (in bytes)
+     */
+    long write(Path directory) throws IOException {
+        Path target = path(directory, sequence);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            RowCodec.writeVarLong(out, sequence);
+            for (StoredTable table : StoredTable.values()) {
+                TableRows rows = tables.get(table);
+                RowCodec.writeVarInt(out, rows.size());
+                IOException[] error = new IOException[1];
+                rows.forEach(row -> {
+                    if (error[0] == null) {
+                        try {
+                            table.writeRow(out, row);
+                        } catch (IOException e) {
+                            error[0] = e;
+                        }
+                    }
+                });
+                if (error[0] != null) {
+                    throw error[0];
+                }
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path previous : find(directory).headMap(sequence).values()) {
+            Files.deleteIfExists(previous);
+        }
+        return Files.size(target);
+    }
+
+    /**
+     * Reads the latest snapshot; or returns {@code null} if there is none.
+     */
+    static SnapshotFile readLatest(Path directory) throws IOException {
+        Map.Entry<Long, Path> latest = find(directory).lastEntry();
+        return latest != null ? read(latest.getValue()) : null;
+    }
+
+    static SnapshotFile read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            CheckedInputStream checked = new CheckedInputStream(in, new CRC32());
+            DataInputStream data = new DataInputStream(checked);
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+            int version = data.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long sequence = RowCodec.readVarLong(data);
+            Map<StoredTable, TableRows> tables = new EnumMap<>(StoredTable.class);
+            for (StoredTable table : StoredTable.values()) {
+                TableRows rows = new TableRows(table);
+                int count = RowCodec.readVarInt(data);
+                for (int i = 0; i < count; ++i) {
+                    rows.put(table.readRow(data));
+                }
+                tables.put(table, rows);
+            }
+            int checksum = (int) checked.getChecksum().getValue();
+            if (new DataInputStream(in).readInt() != checksum) {
+                throw new IOException("Corrupted snapshot: " + file);
+            }
+            return new SnapshotFile(sequence, tables);
+        }
+    }
+}
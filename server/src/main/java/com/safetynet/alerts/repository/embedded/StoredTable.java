@@ -0,0 +1,208 @@
+package com.safetynet.alerts.repository.embedded;
+
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.entity.SeedProgressEntity;
+import com.safetynet.alerts.repository.entity.StringListConverter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.hibernate.proxy.HibernateProxy;
+
+/**
+ * The tables kept by the {@link EmbeddedStorage}, in the order they are loaded in the database (referenced tables
+ * first).
+ * <p>
+ * A row is the array of the values of the columns, the first one being the primary key. The values are those stored in
+ * the database (e.g. the ID of the address of a person, the JSON array of the medications of a medical record).
+ */
+public enum StoredTable {
+    ADDRESSES(AddressEntity.class, "addresses", entity -> {
+        AddressEntity address = (AddressEntity) entity;
+        return new Object[]{address.getId(), address.getAddress(), address.getCity(), address.getZip(),
+                address.getFirestation()};
+    }, new Column("id", ColumnType.LONG), new Column("address", ColumnType.STRING),
+            new Column("city", ColumnType.STRING), new Column("zip", ColumnType.STRING),
+            new Column("firestation", ColumnType.STRING)),
+
+    PERSONS(PersonEntity.class, "persons", entity -> {
+        PersonEntity person = (PersonEntity) entity;
+        return new Object[]{person.getId(), person.getFirstName(), person.getLastName(), idOf(person.getAddress()),
+                person.getPhone(), person.getEmail()};
+    }, new Column("id", ColumnType.LONG), new Column("first_name", ColumnType.STRING),
+            new Column("last_name", ColumnType.STRING), new Column("address_id", ColumnType.LONG),
+            new Column("phone", ColumnType.STRING), new Column("email", ColumnType.STRING)),
+
+    MEDICAL_RECORDS(MedicalRecordEntity.class, "medicalrecords", entity -> {
+        MedicalRecordEntity medicalRecord = (MedicalRecordEntity) entity;
+        return new Object[]{medicalRecord.getId(), medicalRecord.getBirthdate(),
+                toColumn(medicalRecord.getMedications()), toColumn(medicalRecord.getAllergies())};
+    }, new Column("person_id", ColumnType.LONG), new Column("birthdate", ColumnType.DATE),
+            new Column("medications", ColumnType.STRING), new Column("allergies", ColumnType.STRING)),
+
+    SEED_PROGRESS(SeedProgressEntity.class, "seed_progress", entity -> {
+        SeedProgressEntity progress = (SeedProgressEntity) entity;
+        return new Object[]{progress.getName(), progress.getPersons(), progress.getFirestations(),
+                progress.getMedicalRecords(), progress.isCompleted()};
+    }, new Column("name", ColumnType.STRING), new Column("persons", ColumnType.LONG),
+            new Column("firestations", ColumnType.LONG), new Column("medical_records", ColumnType.LONG),
+            new Column("completed", ColumnType.BOOLEAN));
+
+    private final Class<?> entityClass;
+    private final String name;
+    private final Function<Object, Object[]> rowMapper;
+    private final List<Column> columns;
+
+    StoredTable(Class<?> entityClass, String name, Function<Object, Object[]> rowMapper, Column... columns) {
+        this.entityClass = entityClass;
+        this.name = name;
+        this.rowMapper = rowMapper;
+        this.columns = Arrays.asList(columns);
+    }
+
+    /**
+     * Returns the table of an entity class; or {@code null} if it isn't stored.
+     */
+    public static StoredTable of(Class<?> entityClass) {
+        for (StoredTable table : values()) {
+            if (table.entityClass == entityClass) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private static Long idOf(AddressEntity address) {
+        // doesn't initialize a lazy address
+        if (address instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) address).getHibernateLazyInitializer().getIdentifier();
+        }
+        return address.getId();
+    }
+
+    private static String toColumn(List<String> list) {
+        // like Hibernate, which doesn't convert null values
+        return list != null ? new StringListConverter().convertToDatabaseColumn(list) : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether or not the primary key is a {@code long}.
+     */
+    public boolean hasLongKey() {
+        return columns.get(0).type == ColumnType.LONG;
+    }
+
+    public Object[] toRow(Object entity) {
+        return rowMapper.apply(entity);
+    }
+
+    public String getInsertSql() {
+        return "insert into " + name + " ("
+                + columns.stream().map(column -> column.name).collect(Collectors.joining(", "))
+                + ") values (" + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    public void setParameters(PreparedStatement statement, Object[] row) throws SQLException {
+        for (int i = 0; i < columns.size(); ++i) {
+            Object value = row[i];
+            statement.setObject(i + 1, value instanceof LocalDate ? Date.valueOf((LocalDate) value) : value);
+        }
+    }
+
+    void writeKey(DataOutput out, Object key) throws IOException {
+        columns.get(0).type.write(out, key);
+    }
+
+    Object readKey(DataInput in) throws IOException {
+        return columns.get(0).type.read(in);
+    }
+
+    void writeRow(DataOutput out, Object[] row) throws IOException {
+        for (int i = 0; i < columns.size(); ++i) {
+            columns.get(i).type.write(out, row[i]);
+        }
+    }
+
+    Object[] readRow(DataInput in) throws IOException {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; ++i) {
+            row[i] = columns.get(i).type.read(in);
+        }
+        return row;
+    }
+
+    private static class Column {
+        private final String name;
+        private final ColumnType type;
+
+        private Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private enum ColumnType {
+        // the counts and IDs are never null
+        LONG {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                RowCodec.writeZigZag(out, (Long) value);
+            }
+
+            @Override
+            Object read(DataInput in) throws IOException {
+                return RowCodec.readZigZag(in);
+            }
+        },
+        STRING {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                RowCodec.writeString(out, (String) value);
+            }
+
+            @Override
+            Object read(DataInput in) throws IOException {
+                return RowCodec.readString(in);
+            }
+        },
+        DATE {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                RowCodec.writeDate(out, (LocalDate) value);
+            }
+
+            @Override
+            Object read(DataInput in) throws IOException {
+                return RowCodec.readDate(in);
+            }
+        },
+        BOOLEAN {
+            @Override
+            void write(DataOutput out, Object value) throws IOException {
+                out.writeBoolean((Boolean) value);
+            }
+
+            @Override
+            Object read(DataInput in) throws IOException {
+                return in.readBoolean();
+            }
+        };
+
+        abstract void write(DataOutput out, Object value) throws IOException;
+
+        abstract Object read(DataInput in) throws IOException;
+    }
+}
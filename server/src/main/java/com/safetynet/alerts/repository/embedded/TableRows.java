@@ -0,0 +1,71 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The rows of a table by primary key: in a primitive-keyed map for the {@code long} keys.
+ * <p>
+ * Not thread-safe.
+ */
+class TableRows {
+    private final LongObjectHashMap<Object[]> byLongKey;
+    private final Map<Object, Object[]> byKey;
+
+    TableRows(StoredTable table) {
+        this(table.hasLongKey() ? new LongObjectHashMap<>() : null, table.hasLongKey() ? null : new HashMap<>());
+    }
+
+    private TableRows(LongObjectHashMap<Object[]> byLongKey, Map<Object, Object[]> byKey) {
+        this.byLongKey = byLongKey;
+        this.byKey = byKey;
+    }
+
+    int size() {
+        return byLongKey != null ? byLongKey.size() : byKey.size();
+    }
+
+    Object[] get(Object key) {
+        return byLongKey != null ? byLongKey.get((Long) key) : byKey.get(key);
+    }
+
+    void put(Object[] row) {
+        if (byLongKey != null) {
+            byLongKey.put((Long) row[0], row);
+        } else {
+            byKey.put(row[0], row);
+        }
+    }
+
+    void remove(Object key) {
+        if (byLongKey != null) {
+            byLongKey.remove((Long) key);
+        } else {
+            byKey.remove(key);
+        }
+    }
+
+    void clear() {
+        if (byLongKey != null) {
+            byLongKey.clear();
+        } else {
+            byKey.clear();
+        }
+    }
+
+    void forEach(Consumer<Object[]> action) {
+        if (byLongKey != null) {
+            byLongKey.forEach((key, row) -> action.accept(row));
+        } else {
+            byKey.values().forEach(action);
+        }
+    }
+
+    /**
+     * Returns a copy of these rows (the rows themselves are never modified, but replaced).
+     */
+    TableRows copy() {
+        return byLongKey != null ? new TableRows(byLongKey.copy(), null) : new TableRows(null, new HashMap<>(byKey));
+    }
+}
@@ -0,0 +1,264 @@
+package com.safetynet.alerts.repository.embedded;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The log of the committed transactions, appended before their commit in the database.
+ * <p>
+ * The log is split into segments, named after the sequence number of their first transaction, so that the segments
+ * covered by a snapshot are deleted as a whole. Each transaction is a frame: it's length, the CRC-32 of it's content,
+ * then it's sequence number and mutations. A frame torn by a crash (at the end of the last segment) is truncated on
+ * replay.
+ */
+class WriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final boolean fsync;
+
+    private FileChannel channel;
+    private long segmentFirstSequence;
+    private boolean segmentEmpty;
+
+    WriteAheadLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Returns the segments by the sequence number of their first transaction.
+     */
+    TreeMap<Long, Path> findSegments() throws IOException {
+        TreeMap<Long, Path> res = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    res.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                }
+            });
+        }
+        return res;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+
+    /**
+     * Replays the transactions following a sequence number (those of a snapshot are skipped).
+     *
+     * @param after    the sequence number of the last transaction already applied
+     * @param consumer called with the mutations of each following transaction, in order
+     * @return the sequence number of the last transaction
+     */
+    long replay(long after, Consumer<List<Mutation>> consumer) throws IOException {
+        long last = after;
+        TreeMap<Long, Path> segments = findSegments();
+        for (Path segment : segments.values()) {
+            boolean lastSegment = segment.equals(segments.lastEntry().getValue());
+            last = replaySegment(segment, lastSegment, last, consumer);
+        }
+        return last;
+    }
+
+    private long replaySegment(Path segment, boolean lastSegment, long last, Consumer<List<Mutation>> consumer)
+            throws IOException {
+        long position = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                byte[] payload;
+                try {
+                    payload = readFrame(data);
+                } catch (EOFException | CorruptedFrameException e) {
+                    if (!lastSegment) {
+                        throw new IllegalStateException("Corrupted write-ahead log segment " + segment
+                                + " at " + position, e);
+                    }
+                    logger.warn("Truncating the write-ahead log segment {} at {}: {}", segment, position,
+                            e.getMessage());
+                    truncate(segment, position);
+                    return last;
+                }
+                if (payload == null) {
+                    return last;
+                }
+                position += 8 + payload.length;
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+                long sequence = RowCodec.readVarLong(frame);
+                if (sequence <= last) {
+                    // already in the snapshot
+                    continue;
+                }
+                if (sequence != last + 1) {
+                    throw new IllegalStateException("Missing transactions in the write-ahead log: " + (last + 1)
+                            + " to " + (sequence - 1));
+                }
+                int count = RowCodec.readVarInt(frame);
+                List<Mutation> mutations = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    mutations.add(Mutation.read(frame));
+                }
+                consumer.accept(mutations);
+                last = sequence;
+            }
+        }
+    }
+
+    /**
+     * Returns the content of the next frame; or {@code null} at the end of the segment.
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8)
+                | in.readUnsignedByte();
+        if (length <= 0 || length > MAX_FRAME_LENGTH) {
+            throw new CorruptedFrameException("invalid frame length " + length);
+        }
+        int checksum = in.readInt();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            throw new CorruptedFrameException("checksum mismatch");
+        }
+        return payload;
+    }
+
+    private static void truncate(Path segment, long size) throws IOException {
+        try (FileChannel truncated = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            truncated.truncate(size);
+            truncated.force(true);
+        }
+    }
+
+    /**
+     * Opens the last segment for appending; or creates the first one.
+     *
+     * @param nextSequence the sequence number of the next transaction
+     */
+    void open(long nextSequence) throws IOException {
+        Map.Entry<Long, Path> last = findSegments().lastEntry();
+        if (last != null) {
+            openSegment(last.getKey(), last.getValue());
+        } else {
+            openSegment(nextSequence, segmentPath(nextSequence));
+        }
+    }
+
+    private void openSegment(long firstSequence, Path segment) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segmentFirstSequence = firstSequence;
+        segmentEmpty = channel.size() == 0;
+    }
+
+    /**
+     * Appends a transaction (durably if fsync is enabled).
+     */
+    void append(long sequence, List<Mutation> mutations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeInt(0); // length
+        payload.writeInt(0); // checksum
+        RowCodec.writeVarLong(payload, sequence);
+        RowCodec.writeVarInt(payload, mutations.size());
+        for (Mutation mutation : mutations) {
+            mutation.write(payload);
+        }
+        if (bytes.size() - 8 > MAX_FRAME_LENGTH) {
+            // it couldn't be replayed
+            throw new IOException("Transaction too large for the write-ahead log: " + (bytes.size() - 8) + " bytes");
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 8, frame.limit() - 8);
+        frame.putInt(0, frame.limit() - 8);
+        frame.putInt(4, (int) crc.getValue());
+        long size = channel.size();
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // so that the next frames don't follow a torn one
+            channel.truncate(size);
+            throw e;
+        }
+        segmentEmpty = false;
+    }
+
+    /**
+     * Starts a new segment (unless the current one is empty), so that the current one can be deleted once covered by
+     * a snapshot.
+     *
+     * @param nextSequence the sequence number of the next transaction
+     */
+    void roll(long nextSequence) throws IOException {
+        if (segmentEmpty) {
+            return;
+        }
+        channel.force(true);
+        channel.close();
+        openSegment(nextSequence, segmentPath(nextSequence));
+    }
+
+    /**
+     * Deletes the segments containing only transactions up to a sequence number (covered by a snapshot).
+     */
+    void deleteUpTo(long sequence) throws IOException {
+        for (Map.Entry<Long, Path> segment : findSegments().headMap(segmentFirstSequence).entrySet()) {
+            if (segment.getKey() <= sequence) {
+                Files.deleteIfExists(segment.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static class CorruptedFrameException extends IOException {
+        private CorruptedFrameException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,25 +1,38 @@
 package com.safetynet.alerts.repository.entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.UniqueConstraint;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "addresses", uniqueConstraints = {
         @UniqueConstraint(name = "address", columnNames = {"address"}),
         // @UniqueConstraint(name = "unique_location", columnNames = {"address", "city", "zip"})
+}, indexes = {
+        @Index(name = "idx__addresses__firestation", columnList = "firestation"),
+        @Index(name = "idx__addresses__city", columnList = "city"),
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NoArgsConstructor
 @Data
 public class AddressEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.ADDRESSES)
+    @TableGenerator(name = IdGenerators.ADDRESSES, table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.ADDRESSES,
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "id", updatable = false, nullable = false)
     private Long id;
 
@@ -0,0 +1,21 @@
+package com.safetynet.alerts.repository.entity;
+
+/**
+ * The table-based ID generators of the entities.
+ * <p>
+ * MySQL 5.7 has no sequences, and Hibernate cannot batch the inserts of {@code IDENTITY} IDs (it needs each generated
+ * key right away). Instead, IDs are reserved from the {@value #TABLE} table by blocks of {@value #ALLOCATION_SIZE}
+ * (pooled optimizer), so that inserts are sent by JDBC batches.
+ */
+public final class IdGenerators {
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String ADDRESSES = "addresses";
+    public static final String PERSONS = "persons";
+
+    private IdGenerators() {
+    }
+}
@@ -3,16 +3,15 @@ package com.safetynet.alerts.repository.entity;
 import com.safetynet.alerts.util.DateUtil;
 import java.time.LocalDate;
 import java.util.List;
-import javax.persistence.CollectionTable;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
-import javax.persistence.ElementCollection;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.ForeignKey;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
+import javax.persistence.MapsId;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import lombok.Data;
@@ -20,23 +19,26 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.ToString;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
-import org.hibernate.annotations.OnDelete;
-import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "medicalrecords")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NoArgsConstructor
 @Data
 @EqualsAndHashCode(exclude = "person")
 @ToString(exclude = "person")
 public class MedicalRecordEntity {
+    /**
+     * The ID of the person (shared primary key: nothing is generated).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "person_id", updatable = false, nullable = false)
     private Long id;
 
+    @MapsId
     @OneToOne(targetEntity = PersonEntity.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id", updatable = false, nullable = false, foreignKey = @ForeignKey(name = "fk__medicalrecords__persons"))
     private PersonEntity person;
@@ -44,20 +46,14 @@ public class MedicalRecordEntity {
     @Column(name = "birthdate")
     private LocalDate birthdate;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "medicalrecord_medications", joinColumns = @JoinColumn(
-            name = "medicalrecord_id", foreignKey = @ForeignKey(name = "fk__medicalrecord_medications__medicalrecords")))
-    @Column(name = "medication")
-    @Fetch(value = FetchMode.SUBSELECT)
-    @OnDelete(action = OnDeleteAction.CASCADE) @JoinColumn
+    // JSON arrays in the row (rather than collection tables), so that a record is read and updated as a single row
+    // (the json column definition only matches MySQL, for ddl-auto validate)
+    @Column(name = "medications", columnDefinition = "json")
+    @Convert(converter = StringListConverter.class)
     private List<String> medications;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "medicalrecord_allergies", joinColumns = @JoinColumn(
-            name = "medicalrecord_id", foreignKey = @ForeignKey(name = "fk__medicalrecord_allergies__medicalrecords")))
-    @Column(name = "allergy")
-    @Fetch(value = FetchMode.SUBSELECT)
-    @OnDelete(action = OnDeleteAction.CASCADE) @JoinColumn
+    @Column(name = "allergies", columnDefinition = "json")
+    @Convert(converter = StringListConverter.class)
     private List<String> allergies;
 
     public Integer calculateAge(@NonNull LocalDate today) {
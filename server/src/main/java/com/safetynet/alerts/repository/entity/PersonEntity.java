@@ -8,20 +8,43 @@ import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "persons")
+@Table(name = "persons", indexes = {
+        // the names lookups filter on both, the last name first as it is the most selective
+        @Index(name = "idx__persons__names", columnList = "last_name, first_name"),
+        @Index(name = "idx__persons__address", columnList = "address_id"),
+        // the pages of distinct phones and emails look for an earlier person with the same value
+        @Index(name = "idx__persons__phone", columnList = "phone, id"),
+        @Index(name = "idx__persons__email", columnList = "email, id"),
+})
+@NamedEntityGraph(name = PersonEntity.COMPLETE_GRAPH, attributeNodes = {
+        @NamedAttributeNode("address"),
+        @NamedAttributeNode("medicalRecord"),
+})
 @NoArgsConstructor
 @Data
 public class PersonEntity {
+    /**
+     * Entity graph fetching everything needed by {@code PersonMapper.toCompletePerson}.
+     */
+    public static final String COMPLETE_GRAPH = "PersonEntity.complete";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = IdGenerators.PERSONS)
+    @TableGenerator(name = IdGenerators.PERSONS, table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+            valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = IdGenerators.PERSONS,
+            allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "id", updatable = false, nullable = false)
     private Long id;
 
@@ -31,7 +54,9 @@ public class PersonEntity {
     @Column(name = "last_name", nullable = false)
     private String lastName;
 
-    @ManyToOne(targetEntity = AddressEntity.class, fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    // not removed with the person: the address may be shared, and it holds the firestation mapping
+    @ManyToOne(targetEntity = AddressEntity.class, fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST,
+            CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH})
     @JoinColumn(name = "address_id", nullable = false, foreignKey = @ForeignKey(name = "fk__persons__addresses"))
     private AddressEntity address;
 
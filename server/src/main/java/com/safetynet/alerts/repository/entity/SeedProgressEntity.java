@@ -0,0 +1,39 @@
+package com.safetynet.alerts.repository.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The progress of a streamed seed: the count of items already written of each section of the seed document.
+ * <p>
+ * It is updated in the transaction of each written chunk, so an interrupted seed can be resumed after the last
+ * written chunk.
+ */
+@Entity
+@Table(name = "seed_progress")
+@NoArgsConstructor
+@Data
+public class SeedProgressEntity {
+    /**
+     * The seed document (e.g. its resource path).
+     */
+    @Id
+    @Column(name = "name", updatable = false, nullable = false)
+    private String name;
+
+    @Column(name = "persons", nullable = false)
+    private long persons;
+
+    @Column(name = "firestations", nullable = false)
+    private long firestations;
+
+    @Column(name = "medical_records", nullable = false)
+    private long medicalRecords;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+}
@@ -1,11 +1,14 @@
 package com.safetynet.alerts.repository.mapper;
 
 import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.repository.PersonRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.util.DateUtil;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
@@ -17,13 +20,23 @@ public final class PersonMapper {
             return null;
         }
         AddressEntity addressEntity = entity.getAddress(); // note: cannot be null
+        return toPerson(entity, addressEntity.getAddress(), addressEntity.getCity(), addressEntity.getZip());
+    }
+
+    /**
+     * Maps a person with an already known address (so that a lazy address is not loaded).
+     */
+    public Person toPerson(PersonEntity entity, String address, String city, String zip) {
+        if (entity == null) {
+            return null;
+        }
         return Person.builder()
                 .id(entity.getId())
                 .firstName(entity.getFirstName())
                 .lastName(entity.getLastName())
-                .address(addressEntity.getAddress())
-                .city(addressEntity.getCity())
-                .zip(addressEntity.getZip())
+                .address(address)
+                .city(city)
+                .zip(zip)
                 .phone(entity.getPhone())
                 .email(entity.getEmail())
                 .build();
@@ -58,4 +71,38 @@ public final class PersonMapper {
         }
         return res.build();
     }
+
+    /**
+     * Maps a streamed person row.
+     *
+     * @param row         the row
+     * @param now         the current date (to compute the age)
+     * @param medications medications of the person; or {@code null} to omit the medical records collections
+     * @param allergies   allergies of the person; or {@code null} to omit the medical records collections
+     * @return the person
+     */
+    public Person toCompletePerson(PersonRepository.PersonRow row, ZonedDateTime now, List<String> medications,
+            List<String> allergies) {
+        if (row == null) {
+            return null;
+        }
+        Person.Builder res = Person.builder()
+                .id(row.getId())
+                .firstName(row.getFirstName())
+                .lastName(row.getLastName())
+                .address(row.getAddress())
+                .city(row.getCity())
+                .zip(row.getZip())
+                .phone(row.getPhone())
+                .email(row.getEmail());
+        if (row.getMedicalRecordId() != null) {
+            res.birthdate(row.getBirthdate());
+            res.age(now == null ? null : DateUtil.calculateAge(row.getBirthdate(), now.toLocalDate()));
+            if (medications != null && allergies != null) {
+                res.medications(medications);
+                res.allergies(allergies);
+            }
+        }
+        return res.build();
+    }
 }
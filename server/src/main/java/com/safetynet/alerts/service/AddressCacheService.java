@@ -0,0 +1,249 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.AddressCacheProperties;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A bounded LRU cache of the {@linkplain AddressEntity addresses}, by address.
+ * <p>
+ * It lets the write services reference an existing address, and check it's city and zip, without looking it up.
+ * Transactions only publish their changes once committed: an address read or inserted by a transaction is cached
+ * unless another transaction changed addresses meanwhile (so that the cached value is committed, and not stale), and
+ * the addresses it changed are evicted (they are also evicted right away, for the transaction itself).
+ */
+@Service
+@Scope("singleton")
+public class AddressCacheService {
+    private final boolean enabled;
+    private final int maxEntries;
+
+    // guarded by this
+    private final LinkedHashMap<String, CachedAddress> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public AddressCacheService(@Autowired(required = false) AddressCacheProperties props) {
+        this.enabled = props != null && props.isEnabled();
+        this.maxEntries = props == null ? 0 : props.getMaxEntries();
+    }
+
+    /**
+     * Returns a cached address.
+     *
+     * @param address the address
+     * @return the address; or {@code null} if it is not cached (then, the caller should {@link #put} it once read)
+     */
+    public CachedAddress get(String address) {
+        if (!enabled) {
+            return null;
+        }
+        CachedAddress res;
+        synchronized (this) {
+            res = entries.get(address);
+        }
+        if (res != null) {
+            hits.incrementAndGet();
+            return res;
+        }
+        misses.incrementAndGet();
+        // the value about to be read can only be cached if no address changes in between
+        pending();
+        return null;
+    }
+
+    /**
+     * Caches an address read or written by the current transaction, once it is committed.
+     *
+     * @param entity the address (with it's ID)
+     * @return the cached value
+     */
+    public CachedAddress put(AddressEntity entity) {
+        CachedAddress value = new CachedAddress(entity);
+        if (!enabled || entity.getId() == null) {
+            return value;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                put(value);
+            }
+            return value;
+        }
+        pending().puts.put(value.getAddress(), value);
+        return value;
+    }
+
+    /**
+     * Evicts an address changed by the current transaction: now, and once it is completed.
+     */
+    public void evict(String address) {
+        if (!enabled) {
+            return;
+        }
+        PendingChanges pending = pending();
+        synchronized (this) {
+            ++generation;
+            entries.remove(address);
+        }
+        if (pending != null) {
+            ++pending.ownChanges;
+            pending.puts.remove(address);
+            pending.evictions.add(address);
+        }
+    }
+
+    /**
+     * Evicts all the addresses.
+     */
+    public synchronized void evictAll() {
+        ++generation;
+        entries.clear();
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        evict(event.getAddress());
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        evictAll();
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        // the writers may complete the city and zip of an address
+        Person after = event.getAfter();
+        if (!enabled || after == null) {
+            return;
+        }
+        CachedAddress cached;
+        synchronized (this) {
+            cached = entries.get(after.getAddress());
+        }
+        if (cached != null && (!Objects.equals(cached.getCity(), after.getCity())
+                || !Objects.equals(cached.getZip(), after.getZip()))) {
+            evict(after.getAddress());
+        }
+    }
+
+    // guarded by this
+    private void put(CachedAddress value) {
+        entries.put(value.getAddress(), value);
+        while (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Returns the changes of the current transaction (if any).
+     */
+    private PendingChanges pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            synchronized (this) {
+                pending = new PendingChanges(generation);
+            }
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The cached state of an address.
+     */
+    @Value
+    public static class CachedAddress {
+        Long id;
+        String address;
+        String city;
+        String zip;
+        String firestation;
+
+        private CachedAddress(AddressEntity entity) {
+            this.id = entity.getId();
+            this.address = entity.getAddress();
+            this.city = entity.getCity();
+            this.zip = entity.getZip();
+            this.firestation = entity.getFirestation();
+        }
+
+        public boolean isComplete() {
+            return getCity() != null && getZip() != null;
+        }
+    }
+
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+        private final long startGeneration;
+        private long ownChanges;
+        private final Map<String, CachedAddress> puts = new LinkedHashMap<>();
+        private final Set<String> evictions = new HashSet<>();
+
+        private PendingChanges(long startGeneration) {
+            this.startGeneration = startGeneration;
+        }
+
+        @Override
+        public void afterCommit() {
+            synchronized (AddressCacheService.this) {
+                // the read values may be stale if another transaction changed addresses meanwhile
+                boolean unchanged = generation == startGeneration + ownChanges;
+                if (!evictions.isEmpty()) {
+                    ++generation;
+                    evictions.forEach(entries::remove);
+                }
+                if (unchanged) {
+                    puts.values().forEach(AddressCacheService.this::put);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AddressCacheService.this);
+        }
+    }
+}
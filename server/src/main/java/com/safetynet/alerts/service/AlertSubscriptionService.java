@@ -0,0 +1,529 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.AlertSubscriptionsProperties;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Pushes the persons covered by a firestation, and the persons living at an address (with their firestation), to
+ * their subscribers whenever a committed change affects them.
+ * <p>
+ * The subscribers of a station (or of an address) share a topic: once changes are committed, the response of each
+ * affected topic is computed and serialized once by the push thread, then sent to all its subscribers (only if it
+ * changed). Bursts of changes are coalesced, since a topic is computed once per push whatever the count of changes
+ * affecting it.
+ * <p>
+ * The responses are queued for each subscriber, and sent by the sender threads (a write blocks until the client reads
+ * it): a client not reading fast enough doesn't delay the others, and is disconnected once it's queue is full. The
+ * subscribers are limited, by topic and in total.
+ */
+@Service
+@Scope("singleton")
+public class AlertSubscriptionService {
+    private static final Logger logger = LoggerFactory.getLogger(AlertSubscriptionService.class);
+
+    private final AlertsService alertsService;
+    private final ObjectWriter objectWriter;
+    private final boolean enabled;
+    private final int heartbeatInterval;
+    private final int queueSize;
+    private final int sendThreads;
+    private final int maxSubscribers;
+    private final int maxSubscribersPerKey;
+    private final Map<String, Topic> stationTopics = new ConcurrentHashMap<>();
+    private final Map<String, Topic> addressTopics = new ConcurrentHashMap<>();
+    private final Set<String> changedStations = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedAddresses = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pushScheduled = new AtomicBoolean();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private ScheduledExecutorService executor;
+    private ExecutorService senders;
+
+    @Autowired
+    public AlertSubscriptionService(AlertsService alertsService, ObjectMapper objectMapper,
+            AlertSubscriptionsProperties props) {
+        this.alertsService = alertsService;
+        // an event's data must fit on a line
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.enabled = props.isEnabled();
+        this.heartbeatInterval = props.getHeartbeatInterval();
+        this.queueSize = props.getQueueSize();
+        this.sendThreads = props.getSendThreads();
+        this.maxSubscribers = props.getMaxSubscribers();
+        this.maxSubscribersPerKey = props.getMaxSubscribersPerKey();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("alert-push-"));
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.SECONDS);
+        senders = Executors.newFixedThreadPool(sendThreads, new CustomizableThreadFactory("alert-send-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            senders.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Subscribes to the persons covered by a firestation: the subscriber is sent the current
+     * {@link com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse}, then the new one after each
+     * change.
+     *
+     * @throws TooManySubscribersException if the station, or this server, has too many subscribers
+     */
+    public Subscription subscribeToFirestation(String stationNumber, Subscriber subscriber) {
+        return subscribe(stationTopics, stationNumber,
+                () -> alertsService.getPersonsCoveredByFirestation(stationNumber), subscriber);
+    }
+
+    /**
+     * Subscribes to the persons living at an address: the subscriber is sent the current
+     * {@link com.safetynet.alerts.api.response.FireResponse}, then the new one after each change.
+     *
+     * @throws TooManySubscribersException if the address, or this server, has too many subscribers
+     */
+    public Subscription subscribeToFire(String address, Subscriber subscriber) {
+        return subscribe(addressTopics, address, () -> alertsService.getFire(address), subscriber);
+    }
+
+    /**
+     * Returns the count of subscribers, of all the topics.
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private Subscription subscribe(Map<String, Topic> topics, String key, Supplier<Object> query,
+            Subscriber subscriber) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscribersException();
+        }
+        Outbox outbox = new Outbox(subscriber);
+        Topic topic;
+        try {
+            topic = topics.compute(key, (k, current) -> {
+                Topic res = current == null ? new Topic(topics, key, query) : current;
+                if (res.outboxes.size() >= maxSubscribersPerKey) {
+                    throw new TooManySubscribersException();
+                }
+                outbox.topic = res;
+                res.outboxes.add(outbox);
+                return res;
+            });
+        } catch (TooManySubscribersException e) {
+            subscriberCount.decrementAndGet();
+            throw e;
+        }
+        Subscription subscription = new Subscription(outbox);
+        try {
+            // after registering the subscriber, so that a push can't be missed in between
+            topic.sendCurrent(outbox);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            throw e;
+        }
+        return subscription;
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        if (event.getBefore() == null && event.getAfter() == null) {
+            schedulePush(null, null);
+            return;
+        }
+        Set<String> addresses = new HashSet<>();
+        for (Person person : Arrays.asList(event.getBefore(), event.getAfter())) {
+            if (person != null) {
+                addKey(addresses, person.getAddress());
+            }
+        }
+        Set<String> stations = new HashSet<>();
+        addKey(stations, event.getBeforeStation());
+        addKey(stations, event.getAfterStation());
+        schedulePush(stations, addresses);
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        Set<String> stations = new HashSet<>();
+        addKey(stations, event.getBeforeStation());
+        addKey(stations, event.getAfterStation());
+        schedulePush(stations, Collections.singleton(event.getAddress()));
+    }
+
+    @EventListener
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        if (event.getAddress() == null) {
+            // the owner is unknown
+            schedulePush(null, null);
+            return;
+        }
+        Set<String> stations = new HashSet<>();
+        addKey(stations, event.getStation());
+        schedulePush(stations, Collections.singleton(event.getAddress()));
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        schedulePush(null, null);
+    }
+
+    private static void addKey(Set<String> keys, String key) {
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Pushes the topics of the given stations and addresses (or all of them if {@code null}) once the current
+     * transaction is committed (or immediately if there is none).
+     */
+    private void schedulePush(Set<String> stations, Set<String> addresses) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markChanged(stations, addresses);
+            return;
+        }
+        PendingPush pending = (PendingPush) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingPush();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        if (stations == null) {
+            pending.all = true;
+        } else {
+            pending.stations.addAll(stations);
+            pending.addresses.addAll(addresses);
+        }
+    }
+
+    private void markChanged(Set<String> stations, Set<String> addresses) {
+        if (stations == null) {
+            changedStations.addAll(stationTopics.keySet());
+            changedAddresses.addAll(addressTopics.keySet());
+        } else {
+            markChanged(stationTopics, changedStations, stations);
+            markChanged(addressTopics, changedAddresses, addresses);
+        }
+        if (pushScheduled.compareAndSet(false, true)) {
+            try {
+                // the changes marked until the push starts are pushed together
+                executor.execute(this::push);
+            } catch (RejectedExecutionException e) {
+                // stopping
+            }
+        }
+    }
+
+    private static void markChanged(Map<String, Topic> topics, Set<String> changed, Set<String> keys) {
+        for (String key : keys) {
+            // the subscribers of a key can't miss its change, since they are registered before their first send
+            if (topics.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+    }
+
+    private void push() {
+        // before draining, so that the changes marked meanwhile schedule another push
+        pushScheduled.set(false);
+        push(stationTopics, changedStations);
+        push(addressTopics, changedAddresses);
+    }
+
+    private static void push(Map<String, Topic> topics, Set<String> changed) {
+        for (Iterator<String> it = changed.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            it.remove();
+            Topic topic = topics.get(key);
+            if (topic != null) {
+                topic.push();
+            }
+        }
+    }
+
+    /**
+     * Sends a heartbeat to all the subscribers, so that the idle connections are kept open by the proxies (and the
+     * closed ones are detected).
+     */
+    private void heartbeat() {
+        for (Map<String, Topic> topics : Arrays.asList(stationTopics, addressTopics)) {
+            for (Topic topic : topics.values()) {
+                topic.heartbeat();
+            }
+        }
+    }
+
+    /**
+     * Receives the responses of a topic, as JSON. It's methods are called by one thread at a time.
+     */
+    public interface Subscriber {
+        void send(String json) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        /**
+         * Ends the stream of a subscriber which fell behind (it was unsubscribed).
+         */
+        void close();
+    }
+
+    public static class Subscription {
+        private final Outbox outbox;
+
+        private Subscription(Outbox outbox) {
+            this.outbox = outbox;
+        }
+
+        /**
+         * Stops sending to the subscriber; it can be called several times.
+         */
+        public void cancel() {
+            outbox.discard();
+            outbox.topic.unsubscribe(outbox);
+        }
+    }
+
+    public static class TooManySubscribersException extends FastRuntimeException {
+    }
+
+    /**
+     * A message to a subscriber.
+     */
+    private interface Message {
+        void sendTo(Subscriber subscriber) throws IOException;
+    }
+
+    /**
+     * The messages queued for a subscriber, sent in order by a sender thread.
+     */
+    private class Outbox implements Runnable {
+        private final Subscriber subscriber;
+        private Topic topic;
+
+        // guarded by this
+        private final Queue<Message> queue = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        private Outbox(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void send(String json) {
+            offer(subscriber -> subscriber.send(json));
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                if (!queue.isEmpty()) {
+                    // the client is sent something anyway
+                    return;
+                }
+            }
+            offer(Subscriber::heartbeat);
+        }
+
+        private void offer(Message message) {
+            boolean fellBehind = false;
+            boolean start;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= queueSize) {
+                    // it's stream is ended once the message being sent is
+                    fellBehind = true;
+                    closed = true;
+                    queue.clear();
+                    queue.add(Subscriber::close);
+                } else {
+                    queue.add(message);
+                }
+                start = !sending;
+                sending = true;
+            }
+            if (fellBehind) {
+                logger.debug("Subscriber of {} fell behind, unsubscribing it", topic.key);
+                topic.unsubscribe(this);
+            }
+            if (start) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // stopping
+                }
+            }
+        }
+
+        /**
+         * Drops the queued messages, and ignores the next ones.
+         */
+        private synchronized void discard() {
+            closed = true;
+            queue.clear();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Message message;
+                synchronized (this) {
+                    message = queue.poll();
+                    if (message == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    message.sendTo(subscriber);
+                } catch (IOException | RuntimeException e) {
+                    logger.debug("Failed to push to subscriber of {}, unsubscribing it", topic.key, e);
+                    discard();
+                    topic.unsubscribe(this);
+                }
+            }
+        }
+    }
+
+    private class Topic {
+        private final Map<String, Topic> topics;
+        private final String key;
+        private final Supplier<Object> query;
+        private final Set<Outbox> outboxes = ConcurrentHashMap.newKeySet();
+        /**
+         * The last response sent to the subscribers; {@code null} until the first one.
+         */
+        private String last;
+
+        private Topic(Map<String, Topic> topics, String key, Supplier<Object> query) {
+            this.topics = topics;
+            this.key = key;
+            this.query = query;
+        }
+
+        private synchronized void sendCurrent(Outbox outbox) {
+            if (last == null) {
+                // the pushes then keep it up to date
+                last = render();
+            }
+            outbox.send(last);
+        }
+
+        private synchronized void push() {
+            String json;
+            try {
+                json = render();
+            } catch (RuntimeException e) {
+                logger.error("Failed to compute the pushed response of {}", key, e);
+                return;
+            }
+            if (json.equals(last)) {
+                return;
+            }
+            last = json;
+            outboxes.forEach(outbox -> outbox.send(json));
+        }
+
+        private void heartbeat() {
+            outboxes.forEach(Outbox::heartbeat);
+        }
+
+        private String render() {
+            try {
+                // compared with the last pushed response: a lagging replica would push it back
+                return objectWriter.writeValueAsString(ReplicaRoutingDataSource.onPrimary(query));
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void unsubscribe(Outbox outbox) {
+            // the topic is dropped with its last subscriber (a new one is created by the next subscription)
+            topics.computeIfPresent(key, (k, current) -> {
+                if (current != this) {
+                    return current;
+                }
+                if (current.outboxes.remove(outbox)) {
+                    subscriberCount.decrementAndGet();
+                }
+                return current.outboxes.isEmpty() ? null : current;
+            });
+        }
+    }
+
+    private class PendingPush extends TransactionSynchronizationAdapter {
+        private final Set<String> stations = new HashSet<>();
+        private final Set<String> addresses = new HashSet<>();
+        private boolean all;
+
+        @Override
+        public void afterCommit() {
+            // the read model is refreshed by then (see ReadModelService), the push thread reads the committed state
+            if (all) {
+                markChanged(null, null);
+            } else {
+                markChanged(stations, addresses);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AlertSubscriptionService.this);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.ChildAlertResponse;
+import com.safetynet.alerts.api.response.CommunityEmailResponse;
+import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
+import com.safetynet.alerts.api.response.FloodStationsResponse;
+import com.safetynet.alerts.api.response.PersonInfoResponse;
+import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
+import com.safetynet.alerts.api.response.PhoneAlertResponse;
+import com.safetynet.alerts.properties.AlertsCacheProperties;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A bounded LRU cache of the {@linkplain AlertsService alerts} responses.
+ * <p>
+ * Responses are cached by endpoint, parameters and date (the ages depend on it), and tagged with the stations,
+ * addresses, cities and names they depend on. The change events of the write services evict the entries of the
+ * changed tags once their transaction is committed.
+ */
+@Service
+@Scope("singleton")
+public class AlertsCacheService {
+    private static final String STATION = "station";
+    private static final String ADDRESS = "address";
+    private static final String CITY = "city";
+    private static final String NAMES = "names";
+
+    private final AlertsService alertsService;
+    private final boolean enabled;
+    private final int maxEntries;
+
+    // guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<List<String>, Set<Key>> keysByTag = new HashMap<>();
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public AlertsCacheService(AlertsService alertsService, @Autowired(required = false) AlertsCacheProperties props) {
+        this.alertsService = alertsService;
+        this.enabled = props != null && props.isEnabled();
+        this.maxEntries = props == null ? 0 : props.getMaxEntries();
+    }
+
+    public PersonsCoveredByFirestationResponse getPersonsCoveredByFirestation(String stationNumber, CursorPage page) {
+        return get("firestation", paged(Collections.singletonList(stationNumber), page), true,
+                Collections.singleton(tag(STATION, stationNumber)),
+                now -> alertsService.getPersonsCoveredByFirestation(stationNumber, now, page),
+                PersonsCoveredByFirestationResponse::clone);
+    }
+
+    public FirestationCountsResponse getFirestationCounts(List<String> stations) {
+        return get("firestationCounts", new ArrayList<>(stations), true,
+                tags(STATION, stations),
+                now -> alertsService.getFirestationCounts(stations, now),
+                FirestationCountsResponse::clone);
+    }
+
+    public ChildAlertResponse getChildAlert(String address) {
+        return get("childAlert", Collections.singletonList(address), true,
+                Collections.singleton(tag(ADDRESS, address)),
+                now -> alertsService.getChildAlert(address, now),
+                ChildAlertResponse::clone);
+    }
+
+    public PhoneAlertResponse getPhoneAlert(String stationNumber, CursorPage page) {
+        return get("phoneAlert", paged(Collections.singletonList(stationNumber), page), false,
+                Collections.singleton(tag(STATION, stationNumber)),
+                now -> alertsService.getPhoneAlert(stationNumber, page),
+                PhoneAlertResponse::clone);
+    }
+
+    public FireResponse getFire(String address) {
+        return get("fire", Collections.singletonList(address), true,
+                Collections.singleton(tag(ADDRESS, address)),
+                now -> alertsService.getFire(address, now),
+                FireResponse::clone);
+    }
+
+    public FloodStationsResponse getFloodStations(List<String> stations, CursorPage page) {
+        return get("flood/stations", paged(new ArrayList<>(stations), page), true,
+                tags(STATION, stations),
+                now -> alertsService.getFloodStations(stations, now, page),
+                FloodStationsResponse::clone);
+    }
+
+    public PersonInfoResponse getPersonInfo(String firstName, String lastName) {
+        return get("personInfo", Arrays.asList(firstName, lastName), true,
+                Collections.singleton(tag(NAMES, firstName, lastName)),
+                now -> alertsService.getPersonInfo(firstName, lastName, now),
+                PersonInfoResponse::clone);
+    }
+
+    public CommunityEmailResponse getCommunityEmail(String city, CursorPage page) {
+        return get("communityEmail", paged(Collections.singletonList(city), page), false,
+                Collections.singleton(tag(CITY, city)),
+                now -> alertsService.getCommunityEmail(city, page),
+                CommunityEmailResponse::clone);
+    }
+
+    /**
+     * Appends the cursor and limit of a page to the parameters of an endpoint.
+     */
+    private static List<String> paged(List<String> params, CursorPage page) {
+        if (page.isUnbounded()) {
+            return params;
+        }
+        List<String> res = new ArrayList<>(params);
+        res.add(page.getCursor());
+        res.add(page.getLimit() == null ? null : page.getLimit().toString());
+        return res;
+    }
+
+    /**
+     * Returns a clone of the cached response; or computes and caches it.
+     *
+     * @param endpoint name of the endpoint
+     * @param params   parameters of the endpoint
+     * @param dated    whether or not the response depends on the current date
+     * @param tags     tags to evict the response on
+     * @param loader   computes the response at the given date
+     * @param cloner   clones the response
+     */
+    private <T> T get(String endpoint, List<String> params, boolean dated, Set<List<String>> tags,
+            Function<ZonedDateTime, T> loader, UnaryOperator<T> cloner) {
+        ZonedDateTime now = ZonedDateTime.now();
+        if (!enabled) {
+            return loader.apply(now);
+        }
+        Key key = new Key(endpoint, params, dated ? now.toLocalDate() : null);
+
+        Entry entry;
+        long loadGeneration;
+        synchronized (this) {
+            entry = entries.get(key);
+            loadGeneration = generation;
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return cloner.apply(this.<T>cast(entry.getValue()));
+        }
+        misses.incrementAndGet();
+
+        // not from a lagging replica: it would cache data older than the invalidations already received
+        T value = ReplicaRoutingDataSource.onPrimary(() -> loader.apply(now));
+        synchronized (this) {
+            // don't cache a value that may have been computed from invalidated data
+            if (loadGeneration == generation) {
+                put(key, new Entry(cloner.apply(value), tags));
+            }
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    // guarded by this
+    private void put(Key key, Entry entry) {
+        remove(key);
+        entries.put(key, entry);
+        entry.getTags().forEach(tag -> keysByTag.computeIfAbsent(tag, k -> new HashSet<>()).add(key));
+        while (entries.size() > maxEntries) {
+            Map.Entry<Key, Entry> eldest = entries.entrySet().iterator().next();
+            entries.remove(eldest.getKey());
+            unindex(eldest.getKey(), eldest.getValue());
+            evictions.incrementAndGet();
+        }
+    }
+
+    // guarded by this
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    // guarded by this
+    private void unindex(Key key, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (List<String> tag : entry.getTags()) {
+            Set<Key> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the entries depending on the given tags.
+     */
+    synchronized void invalidate(Collection<List<String>> tags) {
+        ++generation;
+        for (List<String> tag : tags) {
+            Set<Key> keys = keysByTag.get(tag);
+            if (keys != null) {
+                for (Key key : new ArrayList<>(keys)) {
+                    remove(key);
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts all the entries.
+     */
+    public synchronized void invalidateAll() {
+        ++generation;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        keysByTag.clear();
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        if (event.getBefore() == null && event.getAfter() == null) {
+            scheduleInvalidation(null);
+            return;
+        }
+        Set<List<String>> tags = new HashSet<>();
+        for (Person person : Arrays.asList(event.getBefore(), event.getAfter())) {
+            if (person != null) {
+                addTag(tags, ADDRESS, person.getAddress());
+                addTag(tags, CITY, person.getCity());
+                tags.add(tag(NAMES, person.getFirstName(), person.getLastName()));
+            }
+        }
+        addTag(tags, STATION, event.getBeforeStation());
+        addTag(tags, STATION, event.getAfterStation());
+        scheduleInvalidation(tags);
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        Set<List<String>> tags = new HashSet<>();
+        addTag(tags, ADDRESS, event.getAddress());
+        addTag(tags, STATION, event.getBeforeStation());
+        addTag(tags, STATION, event.getAfterStation());
+        scheduleInvalidation(tags);
+    }
+
+    @EventListener
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        if (event.getAddress() == null) {
+            // the owner is unknown
+            scheduleInvalidation(null);
+            return;
+        }
+        Set<List<String>> tags = new HashSet<>();
+        for (MedicalRecord medicalRecord : Arrays.asList(event.getBefore(), event.getAfter())) {
+            if (medicalRecord != null) {
+                tags.add(tag(NAMES, medicalRecord.getFirstName(), medicalRecord.getLastName()));
+            }
+        }
+        addTag(tags, ADDRESS, event.getAddress());
+        addTag(tags, STATION, event.getStation());
+        scheduleInvalidation(tags);
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        scheduleInvalidation(null);
+    }
+
+    /**
+     * Invalidates the given tags (or everything if {@code null}) once the current transaction is committed (or
+     * immediately if there is none).
+     */
+    private void scheduleInvalidation(Set<List<String>> tags) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (tags == null) {
+                invalidateAll();
+            } else {
+                invalidate(tags);
+            }
+            return;
+        }
+        PendingInvalidation pending = (PendingInvalidation) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingInvalidation();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        if (tags == null) {
+            pending.all = true;
+        } else {
+            pending.tags.addAll(tags);
+        }
+    }
+
+    private static List<String> tag(String type, String... values) {
+        List<String> res = new ArrayList<>(values.length + 1);
+        res.add(type);
+        res.addAll(Arrays.asList(values));
+        return res;
+    }
+
+    private static Set<List<String>> tags(String type, Collection<String> values) {
+        Set<List<String>> res = new HashSet<>();
+        values.forEach(value -> addTag(res, type, value));
+        return res;
+    }
+
+    private static void addTag(Set<List<String>> tags, String type, String value) {
+        if (value != null) {
+            tags.add(tag(type, value));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries removed to respect the size limit.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of entries removed because of data changes.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @RequiredArgsConstructor
+    @Data
+    private static class Key {
+        private final String endpoint;
+        private final List<String> params;
+        private final LocalDate date;
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    private static class Entry {
+        private final Object value;
+        private final Set<List<String>> tags;
+    }
+
+    private class PendingInvalidation extends TransactionSynchronizationAdapter {
+        private final Set<List<String>> tags = new HashSet<>();
+        private boolean all;
+
+        @Override
+        public void afterCommit() {
+            if (all) {
+                invalidateAll();
+            } else {
+                invalidate(tags);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AlertsCacheService.this);
+        }
+    }
+}
@@ -4,33 +4,86 @@ import com.safetynet.alerts.api.model.Person;
 import com.safetynet.alerts.api.response.ChildAlertResponse;
 import com.safetynet.alerts.api.response.CommunityEmailResponse;
 import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
 import com.safetynet.alerts.api.response.FloodStationsResponse;
 import com.safetynet.alerts.api.response.PersonInfoResponse;
 import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
 import com.safetynet.alerts.api.response.PhoneAlertResponse;
+import com.safetynet.alerts.properties.FloodFanOutProperties;
 import com.safetynet.alerts.repository.AddressRepository;
 import com.safetynet.alerts.repository.PersonRepository;
-import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.PersonMapper;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import lombok.RequiredArgsConstructor;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @Service
 @Scope("singleton")
 public class AlertsService {
+    private static final int ADULT_AGE = 18;
+
     private final AddressRepository addressRepository;
     private final PersonRepository personRepository;
     private final PersonMapper personMapper;
+    private final ReadModelService readModelService;
+    private final TransactionTemplate readOnlyTransaction;
+    /**
+     * Queries the flood stations concurrently; or {@code null} if disabled.
+     */
+    private final ExecutorService floodExecutor;
+
+    @Autowired
+    public AlertsService(AddressRepository addressRepository, PersonRepository personRepository,
+            PersonMapper personMapper, ReadModelService readModelService,
+            PlatformTransactionManager transactionManager,
+            @Autowired(required = false) FloodFanOutProperties floodFanOutProps) {
+        this.addressRepository = addressRepository;
+        this.personRepository = personRepository;
+        this.personMapper = personMapper;
+        this.readModelService = readModelService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.floodExecutor = floodFanOutProps != null && floodFanOutProps.isEnabled()
+                ? Executors.newFixedThreadPool(floodFanOutProps.getPoolSize(),
+                new CustomizableThreadFactory("flood-fan-out-"))
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (floodExecutor != null) {
+            floodExecutor.shutdownNow();
+        }
+    }
 
     @Transactional(readOnly = true)
     public PersonsCoveredByFirestationResponse getPersonsCoveredByFirestation(String stationNumber) {
@@ -39,20 +92,83 @@ public class AlertsService {
 
     @Transactional(readOnly = true)
     public PersonsCoveredByFirestationResponse getPersonsCoveredByFirestation(String stationNumber, ZonedDateTime now) {
+        return getPersonsCoveredByFirestation(stationNumber, now, CursorPage.UNBOUNDED);
+    }
+
+    /**
+     * Returns the persons covered by a firestation, paginated by ID. The counts are always those of all the persons.
+     */
+    @Transactional(readOnly = true)
+    public PersonsCoveredByFirestationResponse getPersonsCoveredByFirestation(String stationNumber, ZonedDateTime now,
+            CursorPage page) {
         PersonsCoveredByFirestationResponse.Builder res = PersonsCoveredByFirestationResponse.builder();
-        int adultsCount = 0;
-        int childrenCount = 0;
 
-        for (PersonEntity personEntity : personRepository.findAllByAddressFirestation(stationNumber)) {
-            Person person = personMapper.toCompletePerson(personEntity, now);
-            res.person(person);
-            if (isAdult(person)) {
-                ++adultsCount;
-            } else {
-                ++childrenCount;
+        if (page.isUnbounded() && readModelService.isReady()) {
+            // count from the same snapshot as the returned persons
+            int adultsCount = 0;
+            int childrenCount = 0;
+            for (Person person : readModelService.findAllByStation(stationNumber, now, false)) {
+                res.person(person);
+                if (isAdult(person)) {
+                    ++adultsCount;
+                } else {
+                    ++childrenCount;
+                }
             }
+            return res.adultsCount(adultsCount).childrenCount(childrenCount).build();
+        }
+        long afterId = page.getKeys(0L)[0];
+        List<Person> persons;
+        if (readModelService.isReady()) {
+            persons = readModelService.findAllByStation(stationNumber, now, false, afterId, page.getFetchSize());
+        } else if (page.isUnbounded()) {
+            persons = toCompletePersons(personRepository.findAllCompleteByAddressFirestation(stationNumber), now, false);
+        } else {
+            persons = toCompletePersons(personRepository.findAllCompleteByAddressFirestationAndIdGreaterThanOrderById(
+                    stationNumber, afterId, PageRequest.of(0, page.getFetchSize())), now, false);
+        }
+        res.nextCursor(page.truncate(persons, person -> new long[]{person.getId()}));
+        res.persons(persons);
+        FirestationCountsResponse.Entry counts = countAgeGroups(Collections.singleton(stationNumber), now)
+                .getOrDefault(stationNumber, emptyCounts(stationNumber));
+        return res.adultsCount(counts.getAdultsCount()).childrenCount(counts.getChildrenCount()).build();
+    }
+
+    /**
+     * Streams the {@linkplain #getPersonsCoveredByFirestation(String, ZonedDateTime) persons covered by a firestation}
+     * from the database, without building the response.
+     *
+     * @param stationNumber  the firestation number
+     * @param now            the current date
+     * @param countsConsumer receives the counts of adults and children, before any person
+     * @param personConsumer receives each person
+     */
+    @Transactional(readOnly = true)
+    public void streamPersonsCoveredByFirestation(String stationNumber, ZonedDateTime now,
+            Consumer<FirestationCountsResponse.Entry> countsConsumer, Consumer<Person> personConsumer) {
+        countsConsumer.accept(countAgeGroupsInDatabase(Collections.singleton(stationNumber), now)
+                .getOrDefault(stationNumber, emptyCounts(stationNumber)));
+        try (Stream<PersonRepository.PersonRow> rows
+                     = personRepository.streamAllRowsByAddressFirestation(stationNumber)) {
+            rows.forEach(row -> personConsumer.accept(personMapper.toCompletePerson(row, now, null, null)));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public FirestationCountsResponse getFirestationCounts(List<String> stations) {
+        return getFirestationCounts(stations, ZonedDateTime.now());
+    }
+
+    @Transactional(readOnly = true)
+    public FirestationCountsResponse getFirestationCounts(List<String> stations, ZonedDateTime now) {
+        FirestationCountsResponse.Builder res = FirestationCountsResponse.builder();
+
+        Set<String> distinctStations = new LinkedHashSet<>(stations);
+        Map<String, FirestationCountsResponse.Entry> counts = countAgeGroups(distinctStations, now);
+        for (String station : distinctStations) {
+            res.station(counts.getOrDefault(station, emptyCounts(station)));
         }
-        return res.adultsCount(adultsCount).childrenCount(childrenCount).build();
+        return res.build();
     }
 
     @Transactional(readOnly = true)
@@ -64,8 +180,10 @@ public class AlertsService {
     public ChildAlertResponse getChildAlert(String address, ZonedDateTime now) {
         ChildAlertResponse.Builder res = ChildAlertResponse.builder();
 
-        for (PersonEntity personEntity : personRepository.findAllByAddressAddress(address)) {
-            Person person = personMapper.toCompletePerson(personEntity, now);
+        List<Person> persons = readModelService.isReady()
+                ? readModelService.findAllByAddress(address, now, false)
+                : toCompletePersons(personRepository.findAllCompleteByAddressAddress(address), now, false);
+        for (Person person : persons) {
             if (isAdult(person)) {
                 res.adult(person);
             } else {
@@ -77,13 +195,30 @@ public class AlertsService {
 
     @Transactional(readOnly = true)
     public PhoneAlertResponse getPhoneAlert(String stationNumber) {
-        List<String> phones = StreamSupport
-                .stream(personRepository.findAllByAddressFirestation(stationNumber).spliterator(), false)
-                .map(PersonEntity::getPhone)
-                .filter(Objects::nonNull)
-                .distinct()
-                .collect(Collectors.toList());
-        return PhoneAlertResponse.builder().phones(phones).build();
+        return getPhoneAlert(stationNumber, CursorPage.UNBOUNDED);
+    }
+
+    /**
+     * Returns the distinct phones of persons covered by a firestation, paginated by the ID of the first person having
+     * each.
+     */
+    @Transactional(readOnly = true)
+    public PhoneAlertResponse getPhoneAlert(String stationNumber, CursorPage page) {
+        if (!page.isUnbounded()) {
+            long afterId = page.getKeys(0L)[0];
+            List<PersonRepository.PersonValue> phones = new ArrayList<>(readModelService.isReady()
+                    ? readModelService.findPhonesByStation(stationNumber, afterId, page.getFetchSize())
+                    : personRepository.findDistinctPhonesByAddressFirestationAfter(stationNumber, afterId,
+                    PageRequest.of(0, page.getFetchSize())));
+            String nextCursor = page.truncate(phones, phone -> new long[]{phone.getPersonId()});
+            return PhoneAlertResponse.builder().phones(values(phones)).nextCursor(nextCursor).build();
+        }
+        if (readModelService.isReady()) {
+            return PhoneAlertResponse.builder().phones(readModelService.findPhonesByStation(stationNumber)).build();
+        }
+        return PhoneAlertResponse.builder()
+                .phones(personRepository.findDistinctPhonesByAddressFirestation(stationNumber))
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -95,9 +230,14 @@ public class AlertsService {
     public FireResponse getFire(String address, ZonedDateTime now) {
         FireResponse.Builder res = FireResponse.builder();
 
+        if (readModelService.isReady()) {
+            return res.stationNumber(readModelService.findStationByAddress(address))
+                    .persons(readModelService.findAllByAddress(address, now, true))
+                    .build();
+        }
         addressRepository.findByAddress(address)
                 .ifPresent(addressEntity -> res.stationNumber(addressEntity.getFirestation()));
-        for (PersonEntity personEntity : personRepository.findAllByAddressAddress(address)) {
+        for (PersonEntity personEntity : personRepository.findAllCompleteByAddressAddress(address)) {
             res.person(personMapper.toCompletePerson(personEntity, now, true));
         }
         return res.build();
@@ -110,22 +250,129 @@ public class AlertsService {
 
     @Transactional(readOnly = true)
     public FloodStationsResponse getFloodStations(List<String> stations, ZonedDateTime now) {
+        return getFloodStations(stations, now, CursorPage.UNBOUNDED);
+    }
+
+    /**
+     * Returns the persons covered by some firestations grouped by address, paginated by address ID then person ID.
+     */
+    @Transactional(readOnly = true)
+    public FloodStationsResponse getFloodStations(List<String> stations, ZonedDateTime now, CursorPage page) {
         FloodStationsResponse.Builder res = FloodStationsResponse.builder();
 
-        for (AddressEntity addressEntity : addressRepository.findAllByFirestationIn(stations)) {
-            FloodStationsResponse.Entry.Builder entryBuilder = FloodStationsResponse.Entry.builder()
-                    .address(addressEntity.getAddress());
-            for (PersonEntity personEntity : personRepository.findAllByAddressAddress(addressEntity.getAddress())) {
-                entryBuilder.person(personMapper.toCompletePerson(personEntity, now, true));
+        if (!page.isUnbounded()) {
+            long[] after = page.getKeys(0L, 0L);
+            // persons with their address ID
+            List<Map.Entry<Long, Person>> rows = new ArrayList<>();
+            if (readModelService.isReady()) {
+                readModelService.findAllByStationsGroupedByAddressId(stations, now, true, after[0], after[1],
+                        page.getFetchSize()).forEach((addressId, persons) -> persons.forEach(person ->
+                        rows.add(new AbstractMap.SimpleImmutableEntry<>(addressId, person))));
+            } else {
+                for (PersonEntity personEntity : personRepository.findAllCompleteByAddressFirestationInAfter(
+                        stations, after[0], after[1], PageRequest.of(0, page.getFetchSize()))) {
+                    rows.add(new AbstractMap.SimpleImmutableEntry<>(personEntity.getAddress().getId(),
+                            personMapper.toCompletePerson(personEntity, now, true)));
+                }
             }
-            FloodStationsResponse.Entry entry = entryBuilder.build();
-            if (!entry.getPersons().isEmpty()) {
-                res.station(entry);
+            res.nextCursor(page.truncate(rows, row -> new long[]{row.getKey(), row.getValue().getId()}));
+            Map<Long, FloodStationsResponse.Entry.Builder> entries = new LinkedHashMap<>();
+            for (Map.Entry<Long, Person> row : rows) {
+                entries.computeIfAbsent(row.getKey(), k -> FloodStationsResponse.Entry.builder()
+                        .address(row.getValue().getAddress())).person(row.getValue());
             }
+            entries.values().forEach(entry -> res.station(entry.build()));
+            return res.build();
+        }
+
+        if (readModelService.isReady()) {
+            readModelService.findAllByStationsGroupedByAddress(stations, now, true).forEach((address, persons) ->
+                    res.station(FloodStationsResponse.Entry.builder().address(address).persons(persons).build()));
+            return res.build();
         }
+        List<String> distinctStations = new ArrayList<>(new LinkedHashSet<>(stations));
+        if (floodExecutor != null && distinctStations.size() > 1) {
+            return res.stations(findFloodEntriesConcurrently(distinctStations, now)).build();
+        }
+        // persons are ordered by address: group them in a single pass
+        Map<String, FloodStationsResponse.Entry.Builder> entries = new LinkedHashMap<>();
+        for (PersonEntity personEntity : personRepository.findAllCompleteByAddressFirestationIn(stations)) {
+            String address = personEntity.getAddress().getAddress();
+            entries.computeIfAbsent(address, k -> FloodStationsResponse.Entry.builder().address(address))
+                    .person(personMapper.toCompletePerson(personEntity, now, true));
+        }
+        entries.values().forEach(entry -> res.station(entry.build()));
         return res.build();
     }
 
+    /**
+     * Queries the persons covered by each firestation concurrently, each in its own read-only transaction (the first
+     * firestation in the current one), and merges them ordered like the sequential query (by address ID, then person
+     * ID).
+     */
+    private Collection<FloodStationsResponse.Entry> findFloodEntriesConcurrently(List<String> stations,
+            ZonedDateTime now) {
+        List<Future<Map<Long, FloodStationsResponse.Entry>>> futures = new ArrayList<>();
+        for (String station : stations.subList(1, stations.size())) {
+            // read like the current thread (eg. from the primary when it's pinned there)
+            futures.add(floodExecutor.submit(ReplicaRoutingDataSource.withCurrentRouting(
+                    () -> readOnlyTransaction.execute(status -> findFloodEntries(station, now)))));
+        }
+        try {
+            Map<Long, FloodStationsResponse.Entry> res = new TreeMap<>(findFloodEntries(stations.get(0), now));
+            for (Future<Map<Long, FloodStationsResponse.Entry>> future : futures) {
+                res.putAll(future.get());
+            }
+            return res.values();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying flood stations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Returns the flood entries of a firestation by address ID.
+     */
+    private Map<Long, FloodStationsResponse.Entry> findFloodEntries(String station, ZonedDateTime now) {
+        Map<Long, FloodStationsResponse.Entry.Builder> entries = new LinkedHashMap<>();
+        for (PersonEntity personEntity
+                : personRepository.findAllCompleteByAddressFirestationIn(Collections.singletonList(station))) {
+            entries.computeIfAbsent(personEntity.getAddress().getId(), k -> FloodStationsResponse.Entry.builder()
+                    .address(personEntity.getAddress().getAddress()))
+                    .person(personMapper.toCompletePerson(personEntity, now, true));
+        }
+        Map<Long, FloodStationsResponse.Entry> res = new LinkedHashMap<>();
+        entries.forEach((addressId, entry) -> res.put(addressId, entry.build()));
+        return res;
+    }
+
+    /**
+     * Streams the {@linkplain #getFloodStations(List, ZonedDateTime) persons covered by some firestations} from the
+     * database, without building the response.
+     * <p>
+     * The persons and their medical records are read by a single cursor.
+     *
+     * @param stations       the firestations numbers
+     * @param now            the current date
+     * @param personConsumer receives each person with it's address, grouped by address
+     */
+    @Transactional(readOnly = true)
+    public void streamFloodStations(List<String> stations, ZonedDateTime now,
+            BiConsumer<String, Person> personConsumer) {
+        try (Stream<PersonRepository.CompletePersonRow> rows
+                     = personRepository.streamAllCompleteRowsByAddressFirestationIn(stations)) {
+            rows.forEach(row -> personConsumer.accept(row.getAddress(), personMapper.toCompletePerson(row, now,
+                    row.getMedications(), row.getAllergies())));
+        }
+    }
+
     @Transactional(readOnly = true)
     public PersonInfoResponse getPersonInfo(String firstName, String lastName) {
         return getPersonInfo(firstName, lastName, ZonedDateTime.now());
@@ -135,7 +382,10 @@ public class AlertsService {
     public PersonInfoResponse getPersonInfo(String firstName, String lastName, ZonedDateTime now) {
         PersonInfoResponse.Builder res = PersonInfoResponse.builder();
 
-        for (PersonEntity personEntity : personRepository.findAllByFirstNameAndLastName(firstName, lastName)) {
+        if (readModelService.isReady()) {
+            return res.persons(readModelService.findAllByNames(firstName, lastName, now, true)).build();
+        }
+        for (PersonEntity personEntity : personRepository.findAllCompleteByFirstNameAndLastName(firstName, lastName)) {
             res.person(personMapper.toCompletePerson(personEntity, now, true));
         }
         return res.build();
@@ -143,17 +393,88 @@ public class AlertsService {
 
     @Transactional(readOnly = true)
     public CommunityEmailResponse getCommunityEmail(String city) {
-        List<String> emails = StreamSupport
-                .stream(personRepository.findAllByAddressCity(city).spliterator(), false)
-                .map(PersonEntity::getEmail)
-                .filter(Objects::nonNull)
-                .distinct()
+        return getCommunityEmail(city, CursorPage.UNBOUNDED);
+    }
+
+    /**
+     * Returns the distinct emails of persons living in a city, paginated by the ID of the first person having each.
+     */
+    @Transactional(readOnly = true)
+    public CommunityEmailResponse getCommunityEmail(String city, CursorPage page) {
+        if (!page.isUnbounded()) {
+            long afterId = page.getKeys(0L)[0];
+            List<PersonRepository.PersonValue> emails = new ArrayList<>(readModelService.isReady()
+                    ? readModelService.findEmailsByCity(city, afterId, page.getFetchSize())
+                    : personRepository.findDistinctEmailsByAddressCityAfter(city, afterId,
+                    PageRequest.of(0, page.getFetchSize())));
+            String nextCursor = page.truncate(emails, email -> new long[]{email.getPersonId()});
+            return CommunityEmailResponse.builder().emails(values(emails)).nextCursor(nextCursor).build();
+        }
+        if (readModelService.isReady()) {
+            return CommunityEmailResponse.builder().emails(readModelService.findEmailsByCity(city)).build();
+        }
+        return CommunityEmailResponse.builder()
+                .emails(personRepository.findDistinctEmailsByAddressCity(city))
+                .build();
+    }
+
+    /**
+     * Streams the distinct {@linkplain #getCommunityEmail(String) emails of persons living in a city} from the
+     * database, without building the response.
+     *
+     * @param city          the city
+     * @param emailConsumer receives each email
+     */
+    @Transactional(readOnly = true)
+    public void streamCommunityEmail(String city, Consumer<String> emailConsumer) {
+        try (Stream<String> emails = personRepository.streamDistinctEmailsByAddressCity(city)) {
+            emails.forEach(emailConsumer);
+        }
+    }
+
+    /**
+     * Counts the adults and children covered by some firestations, without loading the persons.
+     */
+    private Map<String, FirestationCountsResponse.Entry> countAgeGroups(Collection<String> stations,
+            ZonedDateTime now) {
+        if (readModelService.isReady()) {
+            return readModelService.countAgeGroupsByStations(stations, now.toLocalDate().minusYears(ADULT_AGE));
+        }
+        return countAgeGroupsInDatabase(stations, now);
+    }
+
+    private Map<String, FirestationCountsResponse.Entry> countAgeGroupsInDatabase(Collection<String> stations,
+            ZonedDateTime now) {
+        LocalDate cutoff = now.toLocalDate().minusYears(ADULT_AGE);
+        Map<String, FirestationCountsResponse.Entry> res = new LinkedHashMap<>();
+        for (PersonRepository.AgeGroupsCount count
+                : personRepository.countAgeGroupsByAddressFirestationIn(stations, cutoff)) {
+            res.put(count.getFirestation(), FirestationCountsResponse.Entry.builder()
+                    .stationNumber(count.getFirestation())
+                    .adultsCount(Math.toIntExact(count.getAdultsCount()))
+                    .childrenCount(Math.toIntExact(count.getChildrenCount()))
+                    .build());
+        }
+        return res;
+    }
+
+    private static FirestationCountsResponse.Entry emptyCounts(String station) {
+        return FirestationCountsResponse.Entry.builder().stationNumber(station).adultsCount(0).childrenCount(0).build();
+    }
+
+    private List<Person> toCompletePersons(Iterable<PersonEntity> personEntities, ZonedDateTime now,
+            boolean withMedicalRecords) {
+        return StreamSupport.stream(personEntities.spliterator(), false)
+                .map(personEntity -> personMapper.toCompletePerson(personEntity, now, withMedicalRecords))
                 .collect(Collectors.toList());
-        return CommunityEmailResponse.builder().emails(emails).build();
+    }
+
+    private static List<String> values(List<PersonRepository.PersonValue> personValues) {
+        return personValues.stream().map(PersonRepository.PersonValue::getValue).collect(Collectors.toList());
     }
 
     public static boolean isAdult(Person person) {
         Integer age = person.getAge();
-        return age == null || age >= 18;
+        return age == null || age >= ADULT_AGE;
     }
 }
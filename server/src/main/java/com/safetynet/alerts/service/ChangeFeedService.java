@@ -0,0 +1,335 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.ChangesResponse;
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import com.safetynet.alerts.api.response.ChangesResponse.Entity;
+import com.safetynet.alerts.api.response.ChangesResponse.Key;
+import com.safetynet.alerts.properties.ChangeFeedProperties;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import com.safetynet.alerts.util.concurrent.RingBuffer;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The change feed: the changes of the persons, firestations and medical records, kept once committed so that consumers
+ * can sync incrementally rather than rescanning the data.
+ * <p>
+ * The changes of a transaction get their offsets right after it's commit: they are in approximately commit order (the
+ * changes of transactions committing concurrently may be interleaved in either order).
+ * <p>
+ * The latest changes are kept in memory, in a {@link RingBuffer}. Consumers read them from their last offset (see
+ * {@link #read(String, long, int)}), possibly waiting for the next ones ({@link #awaitChanges(long)}); the
+ * {@linkplain ChangeSink sinks} are given all of them by threads of their own. The feed starts empty at each startup,
+ * with a new {@linkplain #getFeedId() ID}.
+ */
+@Service
+@Scope("singleton")
+public class ChangeFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+    static final int SINK_BATCH_SIZE = 1000;
+    static final long SINK_RETRY_DELAY = 1000;
+
+    private final boolean enabled;
+    private final String feedId = UUID.randomUUID().toString();
+    private final RingBuffer<Change> buffer;
+    private final List<ChangeSink> sinks;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private ExecutorService sinkExecutor;
+    private volatile boolean stopping;
+
+    @Autowired
+    public ChangeFeedService(ChangeFeedProperties props, ObjectProvider<ChangeSink> sinks) {
+        this.enabled = props.isEnabled();
+        this.buffer = enabled ? new RingBuffer<>(props.getCapacity()) : null;
+        this.sinks = enabled ? sinks.orderedStream().collect(Collectors.toList()) : new ArrayList<>();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        sinkExecutor = Executors.newFixedThreadPool(sinks.size(), new CustomizableThreadFactory("change-sink-"));
+        sinks.forEach(sink -> sinkExecutor.execute(() -> drain(sink)));
+    }
+
+    /**
+     * Stops the sinks, once they have written the changes already committed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        waiters.forEach(waiter -> waiter.future.complete(null));
+        if (sinkExecutor == null) {
+            return;
+        }
+        sinkExecutor.shutdown();
+        if (!sinkExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Change sinks still writing, interrupting them");
+            sinkExecutor.shutdownNow();
+        }
+        for (ChangeSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                logger.error("Failed to close change sink {}", sink, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the identifier of the feed, which changes at each startup.
+     */
+    public String getFeedId() {
+        return feedId;
+    }
+
+    /**
+     * Returns the changes following an offset.
+     *
+     * @param feedId identifier of the feed of the offset; or {@code null} if unknown
+     * @param after  offset of the last change already read (0 to read from the oldest kept one)
+     * @param limit  maximum count of returned changes
+     */
+    public ChangesResponse read(String feedId, long after, int limit) {
+        boolean otherFeed = feedId != null && !feedId.equals(this.feedId);
+        if (otherFeed || after > buffer.getLastOffset()) {
+            // an offset of the feed before a restart: everything may have changed since
+            RingBuffer.Batch<Change> batch = buffer.read(0, limit);
+            return toResponse(batch, true);
+        }
+        return toResponse(buffer.read(after, limit), false);
+    }
+
+    private ChangesResponse toResponse(RingBuffer.Batch<Change> batch, boolean truncated) {
+        return ChangesResponse.builder()
+                .feedId(feedId)
+                .nextOffset(batch.getLastOffset())
+                .truncated(truncated || batch.isTruncated())
+                .changes(batch.getElements())
+                .build();
+    }
+
+    /**
+     * Returns a future completed once changes follow an offset (or the feed is stopping). It may be cancelled by the
+     * caller, when it no longer waits.
+     */
+    public CompletableFuture<Void> awaitChanges(long after) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Waiter waiter = new Waiter(after, future);
+        waiters.add(waiter);
+        future.whenComplete((result, e) -> waiters.remove(waiter));
+        // after registering the waiter, so that an append can't be missed in between
+        if (stopping || buffer.getLastOffset() > after) {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        scheduleAppend(Entity.PERSON, event.getType(),
+                personKey(event.getType(), event.getPersonId(), event.getBefore(), event.getBeforeStation(), true),
+                personKey(event.getType(), event.getPersonId(), event.getAfter(), event.getAfterStation(), false));
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        scheduleAppend(Entity.FIRESTATION, event.getType(),
+                firestationKey(event.getAddress(), event.getBeforeStation()),
+                firestationKey(event.getAddress(), event.getAfterStation()));
+    }
+
+    @EventListener
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        scheduleAppend(Entity.MEDICAL_RECORD, event.getType(),
+                medicalRecordKey(event, event.getBefore(), true),
+                medicalRecordKey(event, event.getAfter(), false));
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        scheduleAppend(Entity.DATASET, ChangeType.CREATED, null, null);
+    }
+
+    /**
+     * Returns the keys of a person before or after a change; {@code null} if it didn't exist.
+     */
+    private static Key personKey(ChangeType type, Long id, Person person, String station, boolean before) {
+        if (!exists(type, before)) {
+            return null;
+        }
+        if (person == null) {
+            // unknown state
+            return Key.builder().id(id).build();
+        }
+        return Key.builder()
+                .id(id)
+                .firstName(person.getFirstName())
+                .lastName(person.getLastName())
+                .address(person.getAddress())
+                .station(station)
+                .build();
+    }
+
+    private static Key firestationKey(String address, String station) {
+        return station == null ? null : Key.builder().address(address).station(station).build();
+    }
+
+    private static Key medicalRecordKey(MedicalRecordChangedEvent event, MedicalRecord medicalRecord, boolean before) {
+        if (!exists(event.getType(), before)) {
+            return null;
+        }
+        Key.Builder res = Key.builder()
+                .id(event.getPersonId())
+                .address(event.getAddress())
+                .station(event.getStation());
+        if (medicalRecord != null) {
+            res.firstName(medicalRecord.getFirstName()).lastName(medicalRecord.getLastName());
+        }
+        return res.build();
+    }
+
+    /**
+     * Returns whether or not the changed item exists before (or after) a change.
+     */
+    private static boolean exists(ChangeType type, boolean before) {
+        return before ? type != ChangeType.CREATED : type != ChangeType.DELETED;
+    }
+
+    /**
+     * Appends a change once the current transaction is committed (or immediately if there is none).
+     */
+    private void scheduleAppend(Entity entity, ChangeType type, Key before, Key after) {
+        if (!enabled) {
+            return;
+        }
+        Change change = Change.builder()
+                .entity(entity)
+                .type(ChangesResponse.Type.valueOf(type.name()))
+                .before(before)
+                .after(after)
+                .build();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(change);
+            notifyWaiters();
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    private void append(Change change) {
+        Instant timestamp = Instant.now();
+        buffer.append(offset -> {
+            change.setOffset(offset);
+            change.setTimestamp(timestamp);
+            return change;
+        });
+    }
+
+    private void notifyWaiters() {
+        long lastOffset = buffer.getLastOffset();
+        for (Waiter waiter : waiters) {
+            if (waiter.after < lastOffset) {
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Gives all the changes to a sink, until the feed is stopping.
+     */
+    private void drain(ChangeSink sink) {
+        long offset = 0;
+        while (true) {
+            try {
+                RingBuffer.Batch<Change> batch = buffer.read(offset, SINK_BATCH_SIZE);
+                if (batch.isTruncated()) {
+                    logger.warn("Change sink {} fell behind, changes after offset {} were dropped", sink, offset);
+                    sink.changesDropped();
+                }
+                if (!batch.getElements().isEmpty()) {
+                    sink.write(batch.getElements());
+                } else if (stopping) {
+                    return;
+                } else {
+                    awaitChanges(batch.getLastOffset()).get();
+                }
+                offset = batch.getLastOffset();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException | ExecutionException e) {
+                logger.error("Failed to write to change sink {}, retrying", sink, e);
+                try {
+                    Thread.sleep(SINK_RETRY_DELAY);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final long after;
+        private final CompletableFuture<Void> future;
+
+        private Waiter(long after, CompletableFuture<Void> future) {
+            this.after = after;
+            this.future = future;
+        }
+    }
+
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            changes.forEach(ChangeFeedService.this::append);
+            notifyWaiters();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ChangeFeedService.this);
+        }
+    }
+}
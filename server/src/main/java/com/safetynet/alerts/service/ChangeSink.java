@@ -0,0 +1,28 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination of the change feed: every bean implementing it is given all the changes, in order, by a thread of its
+ * own (see {@link ChangeFeedService}).
+ */
+public interface ChangeSink extends Closeable {
+    /**
+     * Writes changes. If it fails, the same changes are written again later: the changes written before the failure
+     * must then be discarded, or the consumers of the sink must ignore the offsets they already read.
+     */
+    void write(List<Change> changes) throws IOException;
+
+    /**
+     * Called when changes were dropped before being written (the sink fell too far behind).
+     */
+    default void changesDropped() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,93 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import lombok.Data;
+
+/**
+ * A page of a keyset pagination: the elements following an opaque cursor (the keys of the last element of the
+ * previous page), up to a limit.
+ */
+@Data
+public final class CursorPage {
+    /**
+     * All the elements.
+     */
+    public static final CursorPage UNBOUNDED = new CursorPage(null, null);
+
+    private final String cursor;
+    private final Integer limit;
+
+    public static CursorPage of(String cursor, Integer limit) {
+        return cursor == null && limit == null ? UNBOUNDED : new CursorPage(cursor, limit);
+    }
+
+    public boolean isUnbounded() {
+        return cursor == null && limit == null;
+    }
+
+    /**
+     * Returns the number of elements to fetch: one more than the limit, to know if there is a next page.
+     */
+    public int getFetchSize() {
+        return limit == null ? Integer.MAX_VALUE : limit + 1;
+    }
+
+    /**
+     * Decodes the keys of the cursor.
+     *
+     * @param defaults keys to return if there is no cursor (the first page)
+     * @return the keys
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public long[] getKeys(long... defaults) {
+        if (cursor == null) {
+            return defaults;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\.");
+            if (parts.length != defaults.length) {
+                throw new InvalidCursorException();
+            }
+            long[] res = new long[parts.length];
+            for (int i = 0; i < parts.length; ++i) {
+                res[i] = Long.parseLong(parts[i]);
+            }
+            return res;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    /**
+     * Removes the extra fetched element (if any) and returns the cursor of the next page.
+     *
+     * @param elements the fetched elements (modified)
+     * @param keys     returns the keys of an element
+     * @return the cursor of the next page; or {@code null} if there is none
+     */
+    public <T> String truncate(List<T> elements, Function<T, long[]> keys) {
+        if (limit == null || elements.size() <= limit) {
+            return null;
+        }
+        elements.subList(limit, elements.size()).clear();
+        return encode(keys.apply(elements.get(limit - 1)));
+    }
+
+    static String encode(long... keys) {
+        StringBuilder res = new StringBuilder();
+        for (long key : keys) {
+            if (res.length() != 0) {
+                res.append('.');
+            }
+            res.append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(res.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class InvalidCursorException extends FastRuntimeException {
+    }
+}
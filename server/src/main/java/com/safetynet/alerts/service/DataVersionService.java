@@ -0,0 +1,111 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.properties.EtagsProperties;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A monotonically increasing version of the data, incremented by every committed write.
+ * <p>
+ * The version is seeded with the startup time so that tags emitted by a previous run are never reused. It only counts
+ * the writes of this server: the entity tags (disabled by default) require it to be the only one writing to the
+ * database. They also hold an identifier drawn at startup, so that the tags of different servers never match.
+ */
+@Service
+@Scope("singleton")
+public class DataVersionService {
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final String nodeId = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+    private final boolean etagsEnabled;
+
+    @Autowired
+    public DataVersionService(@Autowired(required = false) EtagsProperties props) {
+        this.etagsEnabled = props != null && props.isEnabled();
+    }
+
+    /**
+     * Returns whether or not the alerts responses are tagged with the data version.
+     */
+    public boolean isETagsEnabled() {
+        return etagsEnabled;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns a strong entity tag for responses computed from the current version of the data at the given date (the
+     * ages depend on it).
+     * <p>
+     * The tag must be computed <i>before</i> the response so that a write committed meanwhile changes it. The next
+     * reads of the current request follow the writes the tag covers, even with lagging replicas (see
+     * {@link ReplicaRoutingDataSource#requireFreshReads()}).
+     *
+     * @param date the date of the response
+     * @return the quoted entity tag
+     */
+    public String getETag(LocalDate date) {
+        ReplicaRoutingDataSource.requireFreshReads();
+        return "\"" + nodeId + "-" + Long.toHexString(getVersion()) + "-" + date.toEpochDay() + "\"";
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        scheduleIncrement();
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        scheduleIncrement();
+    }
+
+    @EventListener
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        scheduleIncrement();
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        scheduleIncrement();
+    }
+
+    /**
+     * Increments the version once the current transaction is committed (or immediately if there is none).
+     */
+    private void scheduleIncrement() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        if (TransactionSynchronizationManager.getResource(this) == null) {
+            PendingIncrement pending = new PendingIncrement();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+    }
+
+    private class PendingIncrement extends TransactionSynchronizationAdapter {
+        @Override
+        public void afterCommit() {
+            version.incrementAndGet();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DataVersionService.this);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.embedded.RowCodec;
+import com.safetynet.alerts.repository.entity.StringListConverter;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads a dataset snapshot written by {@link DatasetSnapshotWriter}, section by section.
+ * <p>
+ * A malformed snapshot is reported by an {@link IOException} (including a truncated one, by an
+ * {@link java.io.EOFException}).
+ */
+class DatasetSnapshotReader {
+    /**
+     * The largest list of medications or allergies accepted, so that a corrupted size doesn't exhaust the memory.
+     */
+    private static final int MAX_LIST_SIZE = 1 << 16;
+
+    private final CheckedInputStream checked;
+    private final DataInputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private final StringListConverter listConverter = new StringListConverter();
+    private long previousId = -1;
+
+    DatasetSnapshotReader(InputStream is) throws IOException {
+        checked = new CheckedInputStream(new BufferedInputStream(is, 64 * 1024), new CRC32());
+        in = new DataInputStream(checked);
+        if (in.readInt() != DatasetSnapshotWriter.MAGIC) {
+            throw new IOException("Not a dataset snapshot");
+        }
+        int version = in.readInt();
+        if (version != DatasetSnapshotWriter.VERSION) {
+            throw new IOException("Unsupported dataset snapshot version " + version);
+        }
+    }
+
+    /**
+     * Returns the next address row; or {@code null} at the end of the section.
+     */
+    Object[] readAddress() throws IOException {
+        Long id = readId();
+        if (id == null) {
+            return null;
+        }
+        return new Object[]{id, RowCodec.readString(in), readReference(), readReference(), readReference()};
+    }
+
+    /**
+     * Returns the next person row; or {@code null} at the end of the section.
+     */
+    Object[] readPerson() throws IOException {
+        Long id = readId();
+        if (id == null) {
+            return null;
+        }
+        return new Object[]{id, RowCodec.readString(in), readReference(), RowCodec.readVarLong(in),
+                RowCodec.readString(in), RowCodec.readString(in)};
+    }
+
+    /**
+     * Returns the next medical record row; or {@code null} at the end of the section.
+     */
+    Object[] readMedicalRecord() throws IOException {
+        Long id = readId();
+        if (id == null) {
+            return null;
+        }
+        return new Object[]{id, RowCodec.readDate(in), readList(), readList()};
+    }
+
+    /**
+     * Checks the checksum, and that nothing follows it.
+     */
+    void finish() throws IOException {
+        int expected = (int) checked.getChecksum().getValue();
+        if (in.readInt() != expected) {
+            throw new IOException("Invalid dataset snapshot checksum");
+        }
+        if (in.read() != -1) {
+            throw new IOException("Unexpected data after the dataset snapshot");
+        }
+    }
+
+    private Long readId() throws IOException {
+        long delta = RowCodec.readVarLong(in);
+        if (delta == 0) {
+            previousId = -1;
+            return null;
+        }
+        if (delta < 0) {
+            throw new IOException("Malformed ID");
+        }
+        previousId += delta;
+        return previousId;
+    }
+
+    private String readReference() throws IOException {
+        int reference = RowCodec.readVarInt(in);
+        if (reference == 0) {
+            return null;
+        }
+        if (reference == 1) {
+            String value = RowCodec.readString(in);
+            if (value == null) {
+                throw new IOException("Malformed dictionary value");
+            }
+            dictionary.add(value);
+            return value;
+        }
+        if (reference - 2 >= dictionary.size() || reference < 0) {
+            throw new IOException("Unknown dictionary reference " + reference);
+        }
+        return dictionary.get(reference - 2);
+    }
+
+    private String readList() throws IOException {
+        int size = RowCodec.readVarInt(in);
+        if (size == 0) {
+            return null;
+        }
+        if (size < 0 || size - 1 > MAX_LIST_SIZE) {
+            throw new IOException("Malformed list size " + size);
+        }
+        List<String> items = new ArrayList<>(size - 1);
+        for (int i = 1; i < size; ++i) {
+            items.add(readReference());
+        }
+        return listConverter.convertToDatabaseColumn(items);
+    }
+}
@@ -0,0 +1,236 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.IdGeneratorsInitializer;
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import com.safetynet.alerts.repository.embedded.Mutation;
+import com.safetynet.alerts.repository.embedded.StoredTable;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Scope;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports and imports the whole dataset as a compact binary snapshot (see {@link DatasetSnapshotWriter} for the
+ * format), several times smaller and faster to load than the JSON seed.
+ * <p>
+ * The IDs are kept, so that an imported dataset is identical to the exported one. The import bypasses JPA: the rows
+ * are inserted by JDBC batches, then a {@link DatasetImportedEvent} reloads what is derived from the data.
+ */
+@Service
+@Scope("singleton")
+public class DatasetSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSnapshotService.class);
+    static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_ADDRESSES = "select id, address, city, zip, firestation from addresses"
+            + " order by id";
+    private static final String SELECT_PERSONS = "select id, first_name, last_name, address_id, phone, email"
+            + " from persons order by id";
+    private static final String SELECT_MEDICAL_RECORDS = "select person_id, birthdate, medications, allergies"
+            + " from medicalrecords order by person_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransactionTemplate;
+    private final TransactionTemplate writeTransactionTemplate;
+    private final IdGeneratorsInitializer idGeneratorsInitializer;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EmbeddedStorage embeddedStorage;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public DatasetSnapshotService(DataSource dataSource, PlatformTransactionManager transactionManager,
+            IdGeneratorsInitializer idGeneratorsInitializer, EntityManagerFactory entityManagerFactory,
+            EmbeddedStorage embeddedStorage, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // streams the rows rather than loading whole tables (where the driver supports it)
+        this.jdbcTemplate.setFetchSize(BATCH_SIZE);
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setReadOnly(true);
+        // the three tables are read from the same state
+        this.readTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.idGeneratorsInitializer = idGeneratorsInitializer;
+        this.entityManagerFactory = entityManagerFactory;
+        this.embeddedStorage = embeddedStorage;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Writes a snapshot of the whole dataset (the stream is flushed, but left open).
+     */
+    public Counts exportSnapshot(OutputStream os) {
+        long start = System.nanoTime();
+        Counts counts = readTransactionTemplate.execute(status -> {
+            try {
+                DatasetSnapshotWriter writer = new DatasetSnapshotWriter(os);
+                Counts res = new Counts();
+                res.setAddresses(exportRows(SELECT_ADDRESSES, StoredTable.ADDRESSES, writer));
+                res.setPersons(exportRows(SELECT_PERSONS, StoredTable.PERSONS, writer));
+                res.setMedicalRecords(exportRows(SELECT_MEDICAL_RECORDS, StoredTable.MEDICAL_RECORDS, writer));
+                writer.finish();
+                return res;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        logger.info("Exported dataset snapshot ({}) in {} ms", counts, (System.nanoTime() - start) / 1000000);
+        return counts;
+    }
+
+    private long exportRows(String sql, StoredTable table, DatasetSnapshotWriter writer) throws IOException {
+        long[] count = {0};
+        jdbcTemplate.query(sql, resultSet -> {
+            Object[] row = new Object[resultSet.getMetaData().getColumnCount()];
+            for (int i = 0; i < row.length; ++i) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            // the layout of the stored tables
+            row[0] = ((Number) row[0]).longValue();
+            if (table == StoredTable.PERSONS) {
+                row[3] = ((Number) row[3]).longValue();
+            } else if (table == StoredTable.MEDICAL_RECORDS) {
+                row[1] = row[1] == null ? null : ((Date) row[1]).toLocalDate();
+            }
+            try {
+                writeRow(writer, table, row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ++count[0];
+        });
+        writer.endSection();
+        return count[0];
+    }
+
+    private static void writeRow(DatasetSnapshotWriter writer, StoredTable table, Object[] row) throws IOException {
+        switch (table) {
+            case ADDRESSES:
+                writer.writeAddress(row);
+                break;
+            case PERSONS:
+                writer.writePerson(row);
+                break;
+            default:
+                writer.writeMedicalRecord(row);
+                break;
+        }
+    }
+
+    /**
+     * Loads a snapshot into the (empty) database, in a single transaction.
+     *
+     * @throws DatabaseNotEmptyException if there already are addresses or persons
+     * @throws UncheckedIOException      if the snapshot can't be read or is malformed
+     */
+    public Counts importSnapshot(InputStream is) {
+        long start = System.nanoTime();
+        Counts counts = writeTransactionTemplate.execute(status -> {
+            if (!isDatabaseEmpty()) {
+                throw new DatabaseNotEmptyException();
+            }
+            // the rows are inserted by JDBC, unseen by the listener of the storage
+            List<Mutation> mutations = embeddedStorage.isEnabled() ? new ArrayList<>() : null;
+            Counts res = new Counts();
+            try {
+                DatasetSnapshotReader reader = new DatasetSnapshotReader(is);
+                res.setAddresses(importRows(reader, StoredTable.ADDRESSES, mutations));
+                res.setPersons(importRows(reader, StoredTable.PERSONS, mutations));
+                res.setMedicalRecords(importRows(reader, StoredTable.MEDICAL_RECORDS, mutations));
+                // before the commit, so that a corrupted snapshot is rolled back
+                reader.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            idGeneratorsInitializer.initialize();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (mutations != null) {
+                        // a single log transaction, so that a crash doesn't leave a partial dataset
+                        embeddedStorage.commit(mutations);
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    // the results of the queries run on the empty tables
+                    entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictAllRegions();
+                }
+            });
+            eventPublisher.publishEvent(new DatasetImportedEvent(res.getAddresses(), res.getPersons(),
+                    res.getMedicalRecords()));
+            return res;
+        });
+        logger.info("Imported dataset snapshot ({}) in {} ms", counts, (System.nanoTime() - start) / 1000000);
+        return counts;
+    }
+
+    private long importRows(DatasetSnapshotReader reader, StoredTable table, List<Mutation> mutations)
+            throws IOException {
+        long count = 0;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            Object[] row = readRow(reader, table);
+            if (row != null) {
+                batch.add(row);
+                if (mutations != null) {
+                    mutations.add(Mutation.put(table, row));
+                }
+            }
+            if (batch.size() == BATCH_SIZE || (row == null && !batch.isEmpty())) {
+                jdbcTemplate.batchUpdate(table.getInsertSql(), batch, batch.size(), table::setParameters);
+                count += batch.size();
+                batch.clear();
+            }
+            if (row == null) {
+                return count;
+            }
+        }
+    }
+
+    private static Object[] readRow(DatasetSnapshotReader reader, StoredTable table) throws IOException {
+        switch (table) {
+            case ADDRESSES:
+                return reader.readAddress();
+            case PERSONS:
+                return reader.readPerson();
+            default:
+                return reader.readMedicalRecord();
+        }
+    }
+
+    private boolean isDatabaseEmpty() {
+        return jdbcTemplate.queryForObject("select count(*) from addresses", Long.class) == 0
+                && jdbcTemplate.queryForObject("select count(*) from persons", Long.class) == 0;
+    }
+
+    @Data
+    public static class Counts {
+        private long addresses;
+        private long persons;
+        private long medicalRecords;
+    }
+
+    public static class DatabaseNotEmptyException extends FastRuntimeException {
+    }
+}
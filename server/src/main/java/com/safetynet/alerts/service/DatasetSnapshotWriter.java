@@ -0,0 +1,126 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.repository.embedded.RowCodec;
+import com.safetynet.alerts.repository.entity.StringListConverter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes a dataset snapshot: the addresses, then the persons, then the medical records, as rows in the layout of
+ * {@link com.safetynet.alerts.repository.embedded.StoredTable}, each section being sorted by ID.
+ * <p>
+ * The format is:
+ * <ul>
+ * <li>the {@link #MAGIC} and {@link #VERSION} ints;</li>
+ * <li>for each section, the rows, each starting with the (positive) difference between its ID and the previous one
+ * (-1 for the first row); a zero difference ends the section;</li>
+ * <li>the CRC32 of all the previous bytes.</li>
+ * </ul>
+ * Numbers are variable-length integers. The repeated values (cities, zip codes, stations, last names, medications and
+ * allergies) are references to a dictionary built along the stream: 0 for {@code null}, 1 for a new value (written next
+ * and added to the dictionary), or 2 + the index of a value already in the dictionary.
+ */
+class DatasetSnapshotWriter {
+    static final int MAGIC = 0x534E4453;
+    static final int VERSION = 1;
+
+    private final CheckedOutputStream checked;
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final StringListConverter listConverter = new StringListConverter();
+    private long previousId = -1;
+
+    DatasetSnapshotWriter(OutputStream os) throws IOException {
+        checked = new CheckedOutputStream(new BufferedOutputStream(os, 64 * 1024), new CRC32());
+        out = new DataOutputStream(checked);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    void writeAddress(Object[] row) throws IOException {
+        writeId((Long) row[0]);
+        RowCodec.writeString(out, (String) row[1]);
+        writeReference((String) row[2]);
+        writeReference((String) row[3]);
+        writeReference((String) row[4]);
+    }
+
+    void writePerson(Object[] row) throws IOException {
+        writeId((Long) row[0]);
+        RowCodec.writeString(out, (String) row[1]);
+        writeReference((String) row[2]);
+        RowCodec.writeVarLong(out, (Long) row[3]);
+        RowCodec.writeString(out, (String) row[4]);
+        RowCodec.writeString(out, (String) row[5]);
+    }
+
+    void writeMedicalRecord(Object[] row) throws IOException {
+        writeId((Long) row[0]);
+        RowCodec.writeDate(out, (LocalDate) row[1]);
+        writeList((String) row[2]);
+        writeList((String) row[3]);
+    }
+
+    /**
+     * Ends the current section, the next rows are those of the next one.
+     */
+    void endSection() throws IOException {
+        RowCodec.writeVarLong(out, 0);
+        previousId = -1;
+    }
+
+    /**
+     * Writes the checksum and flushes the stream (which is left open).
+     */
+    void finish() throws IOException {
+        out.flush();
+        out.writeInt((int) checked.getChecksum().getValue());
+        out.flush();
+    }
+
+    private void writeId(long id) throws IOException {
+        if (id <= previousId) {
+            throw new IllegalArgumentException("IDs must be positive and increasing: " + id);
+        }
+        RowCodec.writeVarLong(out, id - previousId);
+        previousId = id;
+    }
+
+    private void writeReference(String value) throws IOException {
+        if (value == null) {
+            RowCodec.writeVarInt(out, 0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            RowCodec.writeVarInt(out, index + 2);
+            return;
+        }
+        dictionary.put(value, dictionary.size());
+        RowCodec.writeVarInt(out, 1);
+        RowCodec.writeString(out, value);
+    }
+
+    /**
+     * Writes a JSON list column: 0 if {@code null}, else its size + 1 followed by the references of its items.
+     */
+    private void writeList(String column) throws IOException {
+        if (column == null) {
+            RowCodec.writeVarInt(out, 0);
+            return;
+        }
+        List<String> items = listConverter.convertToEntityAttribute(column);
+        RowCodec.writeVarInt(out, items.size() + 1);
+        for (String item : items) {
+            writeReference(item);
+        }
+    }
+}
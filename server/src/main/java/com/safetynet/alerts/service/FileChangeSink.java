@@ -0,0 +1,96 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ChangeSink} appending the changes to a file, as JSON lines (one {@link Change} by line). When changes were
+ * dropped, a {@code {"truncated":true}} line is written instead of them.
+ * <p>
+ * The lines of a failed write are truncated, so that the changes written again don't follow part of them. Were the
+ * truncation to fail too, the file would have duplicate changes: it's readers ignore the offsets they already read.
+ */
+public class FileChangeSink implements ChangeSink {
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+
+    public FileChangeSink(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(List<Change> changes) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (Change change : changes) {
+            lines.write(objectMapper.writeValueAsBytes(change));
+            lines.write('\n');
+        }
+        append(lines.toByteArray());
+    }
+
+    @Override
+    public void changesDropped() throws IOException {
+        append((objectMapper.writeValueAsString(Collections.singletonMap("truncated", true)) + '\n')
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends lines all at once: none of them is left if it fails.
+     */
+    private void append(byte[] lines) throws IOException {
+        FileChannel out = getChannel();
+        long size = out.size();
+        ByteBuffer buffer = ByteBuffer.wrap(lines);
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            try {
+                out.truncate(size);
+            } catch (IOException te) {
+                e.addSuppressed(te);
+                // reopened by the next write
+                close();
+            }
+            throw e;
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "file " + path;
+    }
+}
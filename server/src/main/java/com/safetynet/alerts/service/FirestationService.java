@@ -4,6 +4,8 @@ import com.safetynet.alerts.api.model.Firestation;
 import com.safetynet.alerts.repository.AddressRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.mapper.AddressMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
 import com.safetynet.alerts.util.exception.FastRuntimeException;
 import java.util.Objects;
 import lombok.Data;
@@ -11,6 +13,7 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class FirestationService {
     private final AddressRepository addressRepository;
     private final AddressMapper addressMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Returns a {@linkplain Firestation firestation} by it's address.
@@ -71,8 +75,10 @@ public class FirestationService {
         if (addressEntity == null || addressEntity.getFirestation() == null) {
             return false;
         }
+        String beforeStation = addressEntity.getFirestation();
         addressEntity.setFirestation(null);
         addressRepository.save(addressEntity);
+        eventPublisher.publishEvent(new FirestationChangedEvent(ChangeType.DELETED, address, beforeStation, null));
         return true;
     }
 
@@ -95,10 +101,14 @@ public class FirestationService {
         if (!Objects.equals(body.getAddress(), entity.getAddress())) {
             throw new ImmutableAddressException();
         }
+        String beforeStation = entity.getFirestation();
         entity.setFirestation(body.getStation());
         addressRepository.save(entity);
 
-        // returns result
+        // notify listeners and returns result
+        eventPublisher.publishEvent(new FirestationChangedEvent(
+                beforeStation == null ? ChangeType.CREATED : ChangeType.UPDATED,
+                entity.getAddress(), beforeStation, entity.getFirestation()));
         return new UpdateResult(create, addressMapper.toFirestation(entity));
     }
 
@@ -0,0 +1,346 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.AddressMapper;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A service that imports persons, firestations and medical records in bulk.
+ * <p>
+ * Each item is applied like by its creation endpoint, but the items are processed by chunks: the existing addresses
+ * and persons of a chunk are looked up by set-based queries, then the chunk is written at once and the persistence
+ * context is cleared so that it doesn't grow with the import. An item that cannot be imported is reported without
+ * failing the others.
+ */
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Service
+@Scope("singleton")
+public class ImportService {
+    static final int CHUNK_SIZE = 1000;
+
+    private final AddressRepository addressRepository;
+    private final PersonRepository personRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final PersonMapper personMapper;
+    private final AddressMapper addressMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+
+    /**
+     * Imports all the models of a document (persons first, so that the medical records can target them).
+     *
+     * @param models            the models to import
+     * @param allowSimilarNames whether or not similar names combination are allowed for persons
+     * @return the result of each model
+     */
+    @Transactional
+    public Report importModels(JsonSeedService.Models models, boolean allowSimilarNames) {
+        return new Report(
+                importPersons(nullToEmpty(models.getPersons()), allowSimilarNames),
+                importFirestations(nullToEmpty(models.getFirestations())),
+                importMedicalRecords(nullToEmpty(models.getMedicalrecords())));
+    }
+
+    /**
+     * Creates new {@linkplain Person persons}.
+     *
+     * @param persons           data (ids are ignored)
+     * @param allowSimilarNames whether or not similar names combination are allowed
+     * @return the result of each person, failed with {@link PersonService.PersonExistsException} or
+     * {@link PersonService.InterferingAddressException} like {@link PersonService#createPerson}
+     */
+    @Transactional
+    public List<ItemResult<Person>> importPersons(List<Person> persons, boolean allowSimilarNames) {
+        return importByChunks(persons, chunk -> importPersonsChunk(chunk, allowSimilarNames));
+    }
+
+    /**
+     * Creates or updates {@linkplain Firestation firestations}.
+     *
+     * @param firestations data
+     * @return the result of each firestation, like {@link FirestationService#createFirestation}
+     */
+    @Transactional
+    public List<ItemResult<Firestation>> importFirestations(List<Firestation> firestations) {
+        return importByChunks(firestations, this::importFirestationsChunk);
+    }
+
+    /**
+     * Creates new {@linkplain MedicalRecord medical records}.
+     *
+     * @param medicalRecords data
+     * @return the result of each medical record, failed with {@link MedicalRecordService.InterferingNamesException},
+     * {@link MedicalRecordService.PersonNotFoundException} or {@link MedicalRecordService.MedicalRecordExistsException}
+     * like {@link MedicalRecordService#createMedicalRecord}
+     */
+    @Transactional
+    public List<ItemResult<MedicalRecord>> importMedicalRecords(List<MedicalRecord> medicalRecords) {
+        return importByChunks(medicalRecords, this::importMedicalRecordsChunk);
+    }
+
+    private <T> List<ItemResult<T>> importByChunks(List<T> items, Function<List<T>, List<ItemResult<T>>> importer) {
+        List<ItemResult<T>> res = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i += CHUNK_SIZE) {
+            res.addAll(importer.apply(items.subList(i, Math.min(i + CHUNK_SIZE, items.size()))));
+            // the chunk is written: don't keep it's entities
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return res;
+    }
+
+    private List<ItemResult<Person>> importPersonsChunk(List<Person> chunk, boolean allowSimilarNames) {
+        Map<String, AddressEntity> addresses = findAddresses(chunk, Person::getAddress);
+        Set<Person.Key> names = new HashSet<>();
+        if (!allowSimilarNames) {
+            Set<String> firstNames = new HashSet<>();
+            Set<String> lastNames = new HashSet<>();
+            chunk.forEach(body -> {
+                firstNames.add(body.getFirstName());
+                lastNames.add(body.getLastName());
+            });
+            personRepository.findAllRefsByFirstNameInAndLastNameIn(firstNames, lastNames).forEach(ref ->
+                    names.add(new Person.Key(ref.getFirstName(), ref.getLastName())));
+        }
+
+        List<ItemResult<Person>> res = new ArrayList<>(chunk.size());
+        List<PersonEntity> entities = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (Person body : chunk) {
+            AddressEntity addressEntity = addresses.get(body.getAddress());
+            if (addressEntity != null && addressEntity.isComplete()
+                    && (!body.getCity().equals(addressEntity.getCity())
+                    || !body.getZip().equals(addressEntity.getZip()))) {
+                res.add(ItemResult.failure(new PersonService.InterferingAddressException()));
+                continue;
+            }
+            Person.Key key = new Person.Key(body.getFirstName(), body.getLastName());
+            if (!allowSimilarNames && names.contains(key)) {
+                res.add(ItemResult.failure(new PersonService.PersonExistsException()));
+                continue;
+            }
+            names.add(key);
+
+            // retrieve or create the address
+            if (addressEntity == null) {
+                addressEntity = new AddressEntity();
+                addressEntity.setAddress(body.getAddress());
+                addresses.put(body.getAddress(), addressEntity);
+            }
+            addressEntity.setCity(body.getCity());
+            addressEntity.setZip(body.getZip());
+
+            // create the person (the id is known once saved)
+            PersonEntity entity = new PersonEntity();
+            entity.setFirstName(body.getFirstName());
+            entity.setLastName(body.getLastName());
+            entity.setAddress(addressEntity);
+            entity.setPhone(body.getPhone());
+            entity.setEmail(body.getEmail());
+            entities.add(entity);
+            indexes.add(res.size());
+            res.add(null);
+        }
+        personRepository.saveAll(entities);
+
+        for (int i = 0; i < entities.size(); ++i) {
+            PersonEntity entity = entities.get(i);
+            Person after = personMapper.toPerson(entity);
+            res.set(indexes.get(i), ItemResult.success(true, after));
+            eventPublisher.publishEvent(new PersonChangedEvent(ChangeType.CREATED, entity.getId(), null, null, after,
+                    entity.getAddress().getFirestation()));
+        }
+        return res;
+    }
+
+    private List<ItemResult<Firestation>> importFirestationsChunk(List<Firestation> chunk) {
+        Map<String, AddressEntity> addresses = findAddresses(chunk, Firestation::getAddress);
+
+        List<ItemResult<Firestation>> res = new ArrayList<>(chunk.size());
+        List<AddressEntity> created = new ArrayList<>();
+        List<FirestationChangedEvent> events = new ArrayList<>();
+        for (Firestation body : chunk) {
+            AddressEntity entity = addresses.get(body.getAddress());
+            boolean create = (entity == null);
+            if (create) {
+                entity = new AddressEntity();
+                entity.setAddress(body.getAddress());
+                addresses.put(body.getAddress(), entity);
+                created.add(entity);
+            }
+            String beforeStation = entity.getFirestation();
+            entity.setFirestation(body.getStation());
+            res.add(ItemResult.success(create, addressMapper.toFirestation(entity)));
+            events.add(new FirestationChangedEvent(beforeStation == null ? ChangeType.CREATED : ChangeType.UPDATED,
+                    entity.getAddress(), beforeStation, entity.getFirestation()));
+        }
+        addressRepository.saveAll(created);
+
+        events.forEach(eventPublisher::publishEvent);
+        return res;
+    }
+
+    private List<ItemResult<MedicalRecord>> importMedicalRecordsChunk(List<MedicalRecord> chunk) {
+        // look up the targeted persons by ID, or else by names
+        Set<Long> ids = new HashSet<>();
+        Set<String> firstNames = new HashSet<>();
+        Set<String> lastNames = new HashSet<>();
+        for (MedicalRecord body : chunk) {
+            if (body.getPersonId() != null) {
+                ids.add(body.getPersonId());
+            } else if (body.getFirstName() != null && body.getLastName() != null) {
+                firstNames.add(body.getFirstName());
+                lastNames.add(body.getLastName());
+            }
+        }
+        Map<Long, PersonRepository.PersonRef> refsById = new HashMap<>();
+        Map<Person.Key, List<PersonRepository.PersonRef>> refsByNames = new HashMap<>();
+        Set<Long> personIdsWithMedicalRecord = new HashSet<>();
+        if (!ids.isEmpty()) {
+            for (PersonRepository.PersonRef ref : personRepository.findAllRefsByIdIn(ids)) {
+                refsById.put(ref.getId(), ref);
+            }
+        }
+        if (!firstNames.isEmpty()) {
+            for (PersonRepository.PersonRef ref
+                    : personRepository.findAllRefsByFirstNameInAndLastNameIn(firstNames, lastNames)) {
+                refsByNames.computeIfAbsent(new Person.Key(ref.getFirstName(), ref.getLastName()),
+                        k -> new ArrayList<>()).add(ref);
+            }
+        }
+        refsById.values().forEach(ref -> addIfHasMedicalRecord(personIdsWithMedicalRecord, ref));
+        refsByNames.values().forEach(refs -> refs.forEach(ref -> addIfHasMedicalRecord(personIdsWithMedicalRecord,
+                ref)));
+
+        List<ItemResult<MedicalRecord>> res = new ArrayList<>(chunk.size());
+        List<MedicalRecordEntity> entities = new ArrayList<>();
+        List<MedicalRecordChangedEvent> events = new ArrayList<>();
+        for (MedicalRecord body : chunk) {
+            PersonRepository.PersonRef ref = null;
+            if (body.getPersonId() != null) {
+                ref = refsById.get(body.getPersonId());
+            } else if (body.getFirstName() != null && body.getLastName() != null) {
+                List<PersonRepository.PersonRef> refs = refsByNames.getOrDefault(
+                        new Person.Key(body.getFirstName(), body.getLastName()), Collections.emptyList());
+                if (refs.size() > 1) {
+                    res.add(ItemResult.failure(new MedicalRecordService.InterferingNamesException()));
+                    continue;
+                }
+                ref = refs.isEmpty() ? null : refs.get(0);
+            }
+            if (ref == null) {
+                res.add(ItemResult.failure(new MedicalRecordService.PersonNotFoundException()));
+                continue;
+            }
+            if (!personIdsWithMedicalRecord.add(ref.getId())) {
+                res.add(ItemResult.failure(new MedicalRecordService.MedicalRecordExistsException()));
+                continue;
+            }
+
+            // the person is only referenced: it is neither loaded nor updated
+            MedicalRecordEntity entity = new MedicalRecordEntity();
+            entity.setPerson(entityManager.getReference(PersonEntity.class, ref.getId()));
+            entity.setBirthdate(body.getBirthdate());
+            entity.setMedications(new ArrayList<>(body.getMedications()));
+            entity.setAllergies(new ArrayList<>(body.getAllergies()));
+            entities.add(entity);
+
+            MedicalRecord after = MedicalRecord.builder()
+                    .personId(ref.getId())
+                    .firstName(ref.getFirstName())
+                    .lastName(ref.getLastName())
+                    .birthdate(body.getBirthdate())
+                    .medications(new ArrayList<>(body.getMedications()))
+                    .allergies(new ArrayList<>(body.getAllergies()))
+                    .build();
+            res.add(ItemResult.success(true, after));
+            events.add(new MedicalRecordChangedEvent(ChangeType.CREATED, ref.getId(), null, after,
+                    ref.getAddress(), ref.getFirestation()));
+        }
+        medicalRecordRepository.saveAll(entities);
+
+        events.forEach(eventPublisher::publishEvent);
+        return res;
+    }
+
+    /**
+     * Returns the existing addresses of some items by address.
+     */
+    private <T> Map<String, AddressEntity> findAddresses(List<T> items, Function<T, String> addressGetter) {
+        Set<String> addresses = new HashSet<>();
+        items.forEach(item -> addresses.add(addressGetter.apply(item)));
+        Map<String, AddressEntity> res = new HashMap<>();
+        for (AddressEntity addressEntity : addressRepository.findAllByAddressIn(addresses)) {
+            res.put(addressEntity.getAddress(), addressEntity);
+        }
+        return res;
+    }
+
+    private static void addIfHasMedicalRecord(Set<Long> personIds, PersonRepository.PersonRef ref) {
+        if (ref.getMedicalRecordId() != null) {
+            personIds.add(ref.getId());
+        }
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    /**
+     * The result of an imported item: the created or updated model; or the error that prevented it.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    @Getter
+    public static class ItemResult<T> {
+        private final boolean created;
+        private final T value;
+        private final FastRuntimeException error;
+
+        public static <T> ItemResult<T> success(boolean created, T value) {
+            return new ItemResult<>(created, value, null);
+        }
+
+        public static <T> ItemResult<T> failure(FastRuntimeException error) {
+            return new ItemResult<>(false, null, error);
+        }
+    }
+
+    @RequiredArgsConstructor
+    @Data
+    public static class Report {
+        private final List<ItemResult<Person>> persons;
+        private final List<ItemResult<Firestation>> firestations;
+        private final List<ItemResult<MedicalRecord>> medicalRecords;
+    }
+}
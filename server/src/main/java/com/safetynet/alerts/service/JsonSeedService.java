@@ -10,14 +10,21 @@ import com.safetynet.alerts.repository.PersonRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.util.spring.MappedFileResource;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import org.slf4j.Logger;
@@ -26,40 +33,139 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * A service that initializes repositories from the data.json file.
+ * <p>
+ * The seed is read from the {@code data.json} resource, or from the file configured by {@code safetynet.json-seed.path}.
+ * The path may also be a directory, whose {@code *.json} files are shards of the seed, read in the order of their names.
+ * <p>
+ * The database is only seeded at the first usage; or, in reconcile mode, updated with the differences of the seed.
  */
 @Service
 @Scope("singleton")
 public class JsonSeedService {
     private static final Logger logger = LoggerFactory.getLogger(JsonSeedService.class);
+    private static final String SEED_RESOURCE = "/data.json";
 
     private final AddressRepository addressRepository;
     private final PersonRepository personRepository;
     private final ObjectMapper objectMapper;
+    private final StreamingJsonSeedService streamingJsonSeedService;
+    private final ReconcilingJsonSeedService reconcilingJsonSeedService;
+    private final TransactionTemplate transactionTemplate;
     private final boolean enabled;
+    private final boolean streaming;
+    private final boolean reconcile;
+    private final String path;
 
     @Autowired
     public JsonSeedService(AddressRepository addressRepository, PersonRepository personRepository,
-            ObjectMapper objectMapper, JsonSeedProperties props) {
+            ObjectMapper objectMapper, StreamingJsonSeedService streamingJsonSeedService,
+            ReconcilingJsonSeedService reconcilingJsonSeedService, PlatformTransactionManager transactionManager,
+            JsonSeedProperties props) {
         this.addressRepository = addressRepository;
         this.personRepository = personRepository;
         this.objectMapper = objectMapper;
+        this.streamingJsonSeedService = streamingJsonSeedService;
+        this.reconcilingJsonSeedService = reconcilingJsonSeedService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.enabled = props.isEnabled();
+        this.streaming = props.isStreaming();
+        this.reconcile = props.isReconcile();
+        this.path = props.getPath();
     }
 
     @EventListener(ContextRefreshedEvent.class)
-    @Transactional
     public void onContextRefreshed() {
-        if (enabled && isDatabaseEmpty()) {
-            // Only seed the database at the first usage
-            logger.debug("Seeding database with data.json");
-            Models models = readSeedDataFromResource("/data.json");
-            Entities entities = seedDataToEntities(models);
-            personRepository.saveAll(entities.getPersons());
+        if (!enabled) {
+            return;
+        }
+        Map<String, Resource> resources = getSeedResources();
+        if (reconcile && !isDatabaseEmpty()) {
+            // Apply the differences between the seed and the database (chunks have their own transactions)
+            reconcilingJsonSeedService.reconcile(resources);
+            return;
+        }
+        if (streaming) {
+            // Seed the database at the first usage, or resume an interrupted seed (chunks have their own transactions)
+            if (streamingJsonSeedService.isStarted(resources.keySet()) || isDatabaseEmpty()) {
+                streamingJsonSeedService.seed(resources);
+            }
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            if (isDatabaseEmpty()) {
+                // Only seed the database at the first usage
+                logger.debug("Seeding database with {}", resources.keySet());
+                Models models = readSeedData(resources.values());
+                Entities entities = seedDataToEntities(models);
+                personRepository.saveAll(entities.getPersons());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the seed documents, by name: the {@code data.json} resource, the configured file, or the {@code *.json}
+     * files of the configured directory (sorted by name).
+     */
+    Map<String, Resource> getSeedResources() {
+        Map<String, Resource> resources = new LinkedHashMap<>();
+        if (path == null || path.isEmpty()) {
+            resources.put(SEED_RESOURCE, new ClassPathResource(SEED_RESOURCE));
+            return resources;
+        }
+
+        Path seedPath = Paths.get(path).toAbsolutePath().normalize();
+        if (Files.isRegularFile(seedPath)) {
+            resources.put(seedPath.toString(), new MappedFileResource(seedPath));
+        } else if (Files.isDirectory(seedPath)) {
+            try (Stream<Path> files = Files.list(seedPath)) {
+                files.filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(".json"))
+                        .sorted()
+                        .forEach(file -> resources.put(file.toString(), new MappedFileResource(file)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            throw new IllegalArgumentException("Seed path not found: " + seedPath);
+        }
+        return resources;
+    }
+
+    /**
+     * Reads seed documents in parallel, and merges them in order.
+     */
+    Models readSeedData(Collection<Resource> resources) {
+        List<Models> shards = resources.parallelStream()
+                .map(this::readSeedData)
+                .collect(Collectors.toList());
+        Models models = new Models(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (Models shard : shards) {
+            addAll(models.getPersons(), shard.getPersons());
+            addAll(models.getFirestations(), shard.getFirestations());
+            addAll(models.getMedicalrecords(), shard.getMedicalrecords());
+        }
+        return models;
+    }
+
+    private Models readSeedData(Resource resource) {
+        try (InputStream is = resource.getInputStream()) {
+            return readSeedDataFromResource(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> void addAll(List<T> list, List<T> items) {
+        if (items != null) {
+            list.addAll(items);
         }
     }
 
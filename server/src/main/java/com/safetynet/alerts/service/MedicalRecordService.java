@@ -3,14 +3,20 @@ package com.safetynet.alerts.service;
 import com.safetynet.alerts.api.model.MedicalRecord;
 import com.safetynet.alerts.repository.MedicalRecordRepository;
 import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.MedicalRecordMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
 import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,6 +28,7 @@ public class MedicalRecordService {
     private final MedicalRecordRepository medicalRecordRepository;
     private final PersonRepository personRepository;
     private final MedicalRecordMapper medicalRecordMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Returns a {@linkplain MedicalRecord medical record} by it's ID.
@@ -95,7 +102,13 @@ public class MedicalRecordService {
      */
     @Transactional
     public boolean deleteMedicalRecord(long id) {
-        return medicalRecordRepository.removeById(id) != 0;
+        MedicalRecordChangedEvent event = toDeletedEvent(medicalRecordRepository.findById(id).orElse(null));
+        if (medicalRecordRepository.removeById(id) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(event != null ? event
+                : new MedicalRecordChangedEvent(ChangeType.DELETED, id, null, null, null, null));
+        return true;
     }
 
     /**
@@ -108,6 +121,11 @@ public class MedicalRecordService {
      */
     @Transactional
     public boolean deleteMedicalRecordByNames(String firstName, String lastName) {
+        List<MedicalRecordChangedEvent> events = new ArrayList<>();
+        for (MedicalRecordEntity medicalRecordEntity : medicalRecordRepository
+                .findAllByPersonFirstNameAndPersonLastName(firstName, lastName)) {
+            events.add(toDeletedEvent(medicalRecordEntity));
+        }
         long count = medicalRecordRepository.removeByPersonFirstNameAndPersonLastName(firstName, lastName);
         if (count == 0) {
             return false;
@@ -115,6 +133,7 @@ public class MedicalRecordService {
         if (count > 1) {
             throw new InterferingNamesException();
         }
+        events.forEach(eventPublisher::publishEvent);
         return true;
     }
 
@@ -127,6 +146,7 @@ public class MedicalRecordService {
      */
     private UpdateResult update(MedicalRecordEntity entity, MedicalRecord body) {
         boolean create = (entity == null);
+        MedicalRecord before = medicalRecordMapper.toMedicalRecord(entity);
 
         // create or update the medical record
         if (create) {
@@ -142,8 +162,25 @@ public class MedicalRecordService {
         entity.setAllergies(body.getAllergies());
         medicalRecordRepository.save(entity);
 
-        // returns response
-        return new UpdateResult(create, medicalRecordMapper.toMedicalRecord(entity));
+        // notify listeners and returns response
+        MedicalRecord after = medicalRecordMapper.toMedicalRecord(entity);
+        AddressEntity addressEntity = entity.getPerson().getAddress();
+        eventPublisher.publishEvent(new MedicalRecordChangedEvent(create ? ChangeType.CREATED : ChangeType.UPDATED,
+                after.getPersonId(), before, after, addressEntity.getAddress(), addressEntity.getFirestation()));
+        return new UpdateResult(create, after);
+    }
+
+    /**
+     * Returns the event to publish once the given medical record is deleted.
+     */
+    private MedicalRecordChangedEvent toDeletedEvent(MedicalRecordEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        AddressEntity addressEntity = entity.getPerson().getAddress();
+        return new MedicalRecordChangedEvent(ChangeType.DELETED, entity.getPerson().getId(),
+                medicalRecordMapper.toMedicalRecord(entity), null,
+                addressEntity.getAddress(), addressEntity.getFirestation());
     }
 
     /**
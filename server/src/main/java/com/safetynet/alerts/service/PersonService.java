@@ -6,10 +6,17 @@ import com.safetynet.alerts.repository.PersonRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.AddressCacheService.CachedAddress;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
 import com.safetynet.alerts.util.exception.FastRuntimeException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import javax.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,7 +27,10 @@ import org.springframework.transaction.annotation.Transactional;
 public class PersonService {
     private final PersonRepository personRepository;
     private final AddressRepository addressRepository;
+    private final AddressCacheService addressCacheService;
     private final PersonMapper personMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
 
     /**
      * Returns a {@linkplain Person person} by it's ID.
@@ -100,7 +110,14 @@ public class PersonService {
      */
     @Transactional
     public boolean deletePerson(long id) {
-        return personRepository.removeById(id) != 0;
+        PersonEntity personEntity = personRepository.findById(id).orElse(null);
+        Person before = personMapper.toPerson(personEntity);
+        String beforeStation = getStation(personEntity);
+        if (personRepository.removeById(id) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new PersonChangedEvent(ChangeType.DELETED, id, before, beforeStation, null, null));
+        return true;
     }
 
     /**
@@ -113,6 +130,11 @@ public class PersonService {
      */
     @Transactional
     public boolean deletePersonByNames(String firstName, String lastName) {
+        List<PersonChangedEvent> events = new ArrayList<>();
+        for (PersonEntity personEntity : personRepository.findAllByFirstNameAndLastName(firstName, lastName)) {
+            events.add(new PersonChangedEvent(ChangeType.DELETED, personEntity.getId(),
+                    personMapper.toPerson(personEntity), getStation(personEntity), null, null));
+        }
         long count = personRepository.removeByFirstNameAndLastName(firstName, lastName);
         if (count == 0) {
             return false;
@@ -120,6 +142,7 @@ public class PersonService {
         if (count > 1) {
             throw new InterferingNamesException();
         }
+        events.forEach(eventPublisher::publishEvent);
         return true;
     }
 
@@ -134,22 +157,34 @@ public class PersonService {
      */
     private Person update(PersonEntity entity, Person body, boolean allowSimilarNames, boolean allowUpdateNames) {
         boolean create = (entity == null);
-
-        // retrieve or create the address
-        AddressEntity addressEntity = addressRepository.findByAddress(body.getAddress()).orElse(null);
-        if (addressEntity == null) {
-            addressEntity = new AddressEntity();
-            addressEntity.setAddress(body.getAddress());
-            addressEntity.setCity(body.getCity());
-            addressEntity.setZip(body.getZip());
-            addressRepository.save(addressEntity);
-        } else if (!addressEntity.isComplete()) {
-            addressEntity.setCity(body.getCity());
-            addressEntity.setZip(body.getZip());
-            addressRepository.save(addressEntity);
-        } else if (!body.getCity().equals(addressEntity.getCity())
-                || !body.getZip().equals(addressEntity.getZip())) {
-            throw new InterferingAddressException();
+        Person before = personMapper.toPerson(entity);
+        String beforeStation = getStation(entity);
+
+        // retrieve or create the address (a complete cached address is only referenced)
+        AddressEntity addressEntity;
+        CachedAddress address = addressCacheService.get(body.getAddress());
+        if (address != null && address.isComplete()) {
+            if (!body.getCity().equals(address.getCity()) || !body.getZip().equals(address.getZip())) {
+                throw new InterferingAddressException();
+            }
+            addressEntity = entityManager.getReference(AddressEntity.class, address.getId());
+        } else {
+            addressEntity = addressRepository.findByAddress(body.getAddress()).orElse(null);
+            if (addressEntity == null) {
+                addressEntity = new AddressEntity();
+                addressEntity.setAddress(body.getAddress());
+                addressEntity.setCity(body.getCity());
+                addressEntity.setZip(body.getZip());
+                addressRepository.save(addressEntity);
+            } else if (!addressEntity.isComplete()) {
+                addressEntity.setCity(body.getCity());
+                addressEntity.setZip(body.getZip());
+                addressRepository.save(addressEntity);
+            } else if (!body.getCity().equals(addressEntity.getCity())
+                    || !body.getZip().equals(addressEntity.getZip())) {
+                throw new InterferingAddressException();
+            }
+            address = addressCacheService.put(addressEntity);
         }
 
         // create or update the person
@@ -180,8 +215,15 @@ public class PersonService {
         entity.setEmail(body.getEmail());
         personRepository.save(entity);
 
-        // returns result
-        return personMapper.toPerson(entity);
+        // notify listeners and returns result
+        Person after = personMapper.toPerson(entity, address.getAddress(), address.getCity(), address.getZip());
+        eventPublisher.publishEvent(new PersonChangedEvent(create ? ChangeType.CREATED : ChangeType.UPDATED,
+                entity.getId(), before, beforeStation, after, address.getFirestation()));
+        return after;
+    }
+
+    private static String getStation(PersonEntity entity) {
+        return entity == null ? null : entity.getAddress().getFirestation();
     }
 
     public static class PersonExistsException extends FastRuntimeException {
@@ -0,0 +1,800 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
+import com.safetynet.alerts.properties.ReadModelProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.ReplicaRoutingDataSource;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * An in-memory copy of the persons, addresses and medical records, indexed to answer the alerts without querying the
+ * database.
+ * <p>
+ * The model is built once the application is ready, then kept up to date by the change events of the write services:
+ * the changed rows are reloaded once their transaction is committed. When they can't be, the model is disabled (the
+ * alerts are answered from the database) until it is rebuilt in the background, with an increasing delay between the
+ * attempts.
+ */
+@Service
+@Scope("singleton")
+public class ReadModelService {
+    private static final Logger logger = LoggerFactory.getLogger(ReadModelService.class);
+
+    /**
+     * Above this count of changed persons and addresses (e.g. after a bulk import), the whole model is rebuilt rather
+     * than loading the changed rows by huge IN queries.
+     */
+    static final int MAX_REFRESH_SIZE = 1000;
+    static final long MAX_REBUILD_RETRY_DELAY = 60000;
+
+    private final AddressRepository addressRepository;
+    private final PersonRepository personRepository;
+    private final PersonMapper personMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long minRebuildRetryDelay;
+    private final ScheduledExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile long rebuildRetryDelay;
+
+    /**
+     * Serializes rebuilds and refreshes, so that the rows loaded last are always the ones applied last.
+     */
+    private final Object refreshLock = new Object();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // guarded by lock
+    private final Map<Long, AddressEntity> addressesById = new HashMap<>();
+    private final Map<String, AddressEntity> addressesByAddress = new HashMap<>();
+    private final Map<String, NavigableSet<Long>> addressIdsByStation = new HashMap<>();
+    private final Map<String, NavigableSet<Long>> addressIdsByCity = new HashMap<>();
+    private final Map<Long, PersonEntity> personsById = new HashMap<>();
+    private final Map<Long, NavigableSet<Long>> personIdsByAddressId = new HashMap<>();
+    private final Map<Person.Key, NavigableSet<Long>> personIdsByName = new HashMap<>();
+    private final Map<String, DistinctValues> phonesByStation = new HashMap<>();
+    private final Map<String, DistinctValues> emailsByCity = new HashMap<>();
+
+    @Autowired
+    public ReadModelService(AddressRepository addressRepository, PersonRepository personRepository,
+            PersonMapper personMapper, PlatformTransactionManager transactionManager, ReadModelProperties props) {
+        this.addressRepository = addressRepository;
+        this.personRepository = personRepository;
+        this.personMapper = personMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = props.isEnabled();
+        this.minRebuildRetryDelay = props.getRebuildRetryDelay();
+        this.rebuildRetryDelay = minRebuildRetryDelay;
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("read-model-rebuild-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns whether or not the read model is enabled and built (and so can be queried).
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Loads the whole dataset in memory (replacing the current model).
+     */
+    public void rebuild() {
+        synchronized (refreshLock) {
+            logger.debug("Building read model");
+            // not from a lagging replica: the changes it misses would never be refreshed
+            Rows rows = ReplicaRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> new Rows(
+                    addressRepository.findAll(),
+                    personRepository.findAllComplete())));
+            lock.writeLock().lock();
+            try {
+                addressesById.clear();
+                addressesByAddress.clear();
+                addressIdsByStation.clear();
+                addressIdsByCity.clear();
+                personsById.clear();
+                personIdsByAddressId.clear();
+                personIdsByName.clear();
+                phonesByStation.clear();
+                emailsByCity.clear();
+                rows.addresses.forEach(this::putAddress);
+                rows.persons.forEach(this::putPerson);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            logger.debug("Read model built ({} addresses, {} persons)", addressesById.size(), personsById.size());
+        }
+    }
+
+    @EventListener
+    public void onPersonChanged(PersonChangedEvent event) {
+        Set<String> addresses = new HashSet<>();
+        if (event.getBefore() != null) {
+            addresses.add(event.getBefore().getAddress());
+        }
+        if (event.getAfter() != null) {
+            addresses.add(event.getAfter().getAddress());
+        }
+        scheduleRefresh(idSet(event.getPersonId()), addresses);
+    }
+
+    @EventListener
+    public void onFirestationChanged(FirestationChangedEvent event) {
+        scheduleRefresh(Collections.emptySet(), Collections.singleton(event.getAddress()));
+    }
+
+    @EventListener
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        scheduleRefresh(idSet(event.getPersonId()), Collections.emptySet());
+    }
+
+    @EventListener
+    public void onDatasetImported(DatasetImportedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        pendingRefresh().rebuild = true;
+    }
+
+    private static Set<Long> idSet(Long id) {
+        return id == null ? Collections.emptySet() : Collections.singleton(id);
+    }
+
+    /**
+     * Reloads the given rows once the current transaction is committed (or immediately if there is none). Rows
+     * changed by the same transaction are reloaded together.
+     */
+    private void scheduleRefresh(Collection<Long> personIds, Collection<String> addresses) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(personIds, addresses);
+            return;
+        }
+        PendingRefresh pending = pendingRefresh();
+        pending.personIds.addAll(personIds);
+        pending.addresses.addAll(addresses);
+    }
+
+    private PendingRefresh pendingRefresh() {
+        PendingRefresh pending = (PendingRefresh) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingRefresh();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    void refresh(Collection<Long> personIds, Collection<String> addresses) {
+        if (personIds.isEmpty() && addresses.isEmpty()) {
+            return;
+        }
+        synchronized (refreshLock) {
+            try {
+                if (personIds.size() + addresses.size() > MAX_REFRESH_SIZE) {
+                    rebuild();
+                    return;
+                }
+                Rows rows = ReplicaRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> new Rows(
+                        addresses.isEmpty() ? Collections.emptyList() : addressRepository.findAllByAddressIn(addresses),
+                        personIds.isEmpty() ? Collections.emptyList() : personRepository.findAllCompleteByIdIn(personIds))));
+                lock.writeLock().lock();
+                try {
+                    Set<String> deletedAddresses = new HashSet<>(addresses);
+                    for (AddressEntity addressEntity : rows.addresses) {
+                        putAddress(addressEntity);
+                        deletedAddresses.remove(addressEntity.getAddress());
+                    }
+                    for (String address : deletedAddresses) {
+                        removeAddress(addressesByAddress.get(address));
+                    }
+                    Set<Long> deletedPersonIds = new HashSet<>(personIds);
+                    for (PersonEntity personEntity : rows.persons) {
+                        putPerson(personEntity);
+                        deletedPersonIds.remove(personEntity.getId());
+                    }
+                    deletedPersonIds.forEach(this::removePerson);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (RuntimeException e) {
+                // the model may now be stale: fall back to the database until the next rebuild
+                ready = false;
+                logger.error("Failed to refresh read model, it is disabled until the next rebuild", e);
+                scheduleRebuild();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the model in the background after the current retry delay (unless a rebuild is already scheduled).
+     */
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.schedule(this::retryRebuild, rebuildRetryDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // stopping
+        }
+    }
+
+    private void retryRebuild() {
+        // before rebuilding, so that a refresh failing meanwhile schedules another rebuild
+        rebuildScheduled.set(false);
+        try {
+            rebuild();
+            rebuildRetryDelay = minRebuildRetryDelay;
+            logger.info("Read model rebuilt, it is enabled again");
+        } catch (RuntimeException e) {
+            rebuildRetryDelay = Math.min(rebuildRetryDelay * 2, Math.max(MAX_REBUILD_RETRY_DELAY,
+                    minRebuildRetryDelay));
+            logger.error("Failed to rebuild read model, retrying in {} ms", rebuildRetryDelay, e);
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Inserts or updates an address (and its indexes) from its entity.
+     *
+     * @return the address in the model
+     */
+    private AddressEntity putAddress(AddressEntity source) {
+        AddressEntity address = addressesById.get(source.getId());
+        if (address == null) {
+            // the address is unique: drop any previous row that was deleted and re-created
+            removeAddress(addressesByAddress.get(source.getAddress()));
+            address = new AddressEntity();
+            address.setId(source.getId());
+            address.setAddress(source.getAddress());
+            addressesById.put(address.getId(), address);
+            addressesByAddress.put(address.getAddress(), address);
+        } else {
+            unindex(addressIdsByStation, address.getFirestation(), address.getId());
+            unindex(addressIdsByCity, address.getCity(), address.getId());
+        }
+        // the phones and emails of the persons living there move along with the address
+        NavigableSet<Long> personIds = Objects.equals(address.getFirestation(), source.getFirestation())
+                && Objects.equals(address.getCity(), source.getCity())
+                ? Collections.emptyNavigableSet()
+                : personIdsByAddressId.getOrDefault(address.getId(), Collections.emptyNavigableSet());
+        personIds.forEach(personId -> unindexContacts(personsById.get(personId)));
+        address.setCity(source.getCity());
+        address.setZip(source.getZip());
+        address.setFirestation(source.getFirestation());
+        index(addressIdsByStation, address.getFirestation(), address.getId());
+        index(addressIdsByCity, address.getCity(), address.getId());
+        personIds.forEach(personId -> indexContacts(personsById.get(personId)));
+        return address;
+    }
+
+    private void removeAddress(AddressEntity address) {
+        if (address == null) {
+            return;
+        }
+        addressesById.remove(address.getId());
+        addressesByAddress.remove(address.getAddress());
+        unindex(addressIdsByStation, address.getFirestation(), address.getId());
+        unindex(addressIdsByCity, address.getCity(), address.getId());
+        NavigableSet<Long> personIds = personIdsByAddressId.get(address.getId());
+        if (personIds != null) {
+            new ArrayList<>(personIds).forEach(this::removePerson);
+        }
+    }
+
+    /**
+     * Inserts or updates a person (with its address and medical record) from its entity.
+     */
+    private void putPerson(PersonEntity source) {
+        removePerson(source.getId());
+        PersonEntity person = new PersonEntity();
+        person.setId(source.getId());
+        person.setFirstName(source.getFirstName());
+        person.setLastName(source.getLastName());
+        person.setAddress(putAddress(source.getAddress()));
+        person.setPhone(source.getPhone());
+        person.setEmail(source.getEmail());
+        MedicalRecordEntity medicalRecordSource = source.getMedicalRecord();
+        if (medicalRecordSource != null) {
+            MedicalRecordEntity medicalRecord = new MedicalRecordEntity();
+            medicalRecord.setId(medicalRecordSource.getId());
+            medicalRecord.setPerson(person);
+            medicalRecord.setBirthdate(medicalRecordSource.getBirthdate());
+            medicalRecord.setMedications(copyList(medicalRecordSource.getMedications()));
+            medicalRecord.setAllergies(copyList(medicalRecordSource.getAllergies()));
+            person.setMedicalRecord(medicalRecord);
+        }
+        personsById.put(person.getId(), person);
+        index(personIdsByAddressId, person.getAddress().getId(), person.getId());
+        index(personIdsByName, new Person.Key(person.getFirstName(), person.getLastName()), person.getId());
+        indexContacts(person);
+    }
+
+    private void removePerson(Long id) {
+        PersonEntity person = personsById.remove(id);
+        if (person != null) {
+            unindex(personIdsByAddressId, person.getAddress().getId(), id);
+            unindex(personIdsByName, new Person.Key(person.getFirstName(), person.getLastName()), id);
+            unindexContacts(person);
+        }
+    }
+
+    private void indexContacts(PersonEntity person) {
+        indexValue(phonesByStation, person.getAddress().getFirestation(), person.getPhone(), person.getId());
+        indexValue(emailsByCity, person.getAddress().getCity(), person.getEmail(), person.getId());
+    }
+
+    private void unindexContacts(PersonEntity person) {
+        unindexValue(phonesByStation, person.getAddress().getFirestation(), person.getPhone(), person.getId());
+        unindexValue(emailsByCity, person.getAddress().getCity(), person.getEmail(), person.getId());
+    }
+
+    private static List<String> copyList(List<String> list) {
+        return list == null ? new ArrayList<>() : new ArrayList<>(list);
+    }
+
+    private static <K> void index(Map<K, NavigableSet<Long>> index, K key, Long id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeSet<>()).add(id);
+        }
+    }
+
+    private static <K> void unindex(Map<K, NavigableSet<Long>> index, K key, Long id) {
+        if (key == null) {
+            return;
+        }
+        NavigableSet<Long> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void indexValue(Map<String, DistinctValues> index, String key, String value, Long id) {
+        if (key != null && value != null) {
+            index.computeIfAbsent(key, k -> new DistinctValues()).add(value, id);
+        }
+    }
+
+    private static void unindexValue(Map<String, DistinctValues> index, String key, String value, Long id) {
+        if (key == null || value == null) {
+            return;
+        }
+        DistinctValues values = index.get(key);
+        if (values != null) {
+            values.remove(value, id);
+            if (values.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the persons covered by a firestation (ordered by ID).
+     */
+    public List<Person> findAllByStation(String station, ZonedDateTime now, boolean withMedicalRecords) {
+        lock.readLock().lock();
+        try {
+            return mapPersons(personIdsOf(addressIdsByStation.get(station)),
+                    person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons covered by a firestation after the given ID (ordered by ID), up to a limit.
+     */
+    public List<Person> findAllByStation(String station, ZonedDateTime now, boolean withMedicalRecords, long afterId,
+            int limit) {
+        lock.readLock().lock();
+        try {
+            return mapPersons(head(personIdsOf(addressIdsByStation.get(station)).tailSet(afterId, false), limit),
+                    person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons living at an address (ordered by ID).
+     */
+    public List<Person> findAllByAddress(String address, ZonedDateTime now, boolean withMedicalRecords) {
+        lock.readLock().lock();
+        try {
+            AddressEntity addressEntity = addressesByAddress.get(address);
+            return mapPersons(addressEntity == null ? null : personIdsByAddressId.get(addressEntity.getId()),
+                    person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons with the given names (ordered by ID).
+     */
+    public List<Person> findAllByNames(String firstName, String lastName, ZonedDateTime now,
+            boolean withMedicalRecords) {
+        lock.readLock().lock();
+        try {
+            return mapPersons(personIdsByName.get(new Person.Key(firstName, lastName)),
+                    person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons covered by some firestations, grouped by address (ordered by address ID, then person ID).
+     * Addresses without persons are omitted.
+     */
+    public Map<String, List<Person>> findAllByStationsGroupedByAddress(Collection<String> stations, ZonedDateTime now,
+            boolean withMedicalRecords) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> addressIds = new TreeSet<>();
+            for (String station : stations) {
+                addressIdsByStation.getOrDefault(station, Collections.emptyNavigableSet()).forEach(addressIds::add);
+            }
+            Map<String, List<Person>> res = new LinkedHashMap<>();
+            for (Long addressId : addressIds) {
+                List<Person> persons = mapPersons(personIdsByAddressId.get(addressId),
+                        person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+                if (!persons.isEmpty()) {
+                    res.put(addressesById.get(addressId).getAddress(), persons);
+                }
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the persons covered by some firestations after the given address and person IDs, grouped by address ID
+     * (ordered by address ID, then person ID), up to a limit of persons.
+     */
+    public Map<Long, List<Person>> findAllByStationsGroupedByAddressId(Collection<String> stations, ZonedDateTime now,
+            boolean withMedicalRecords, long afterAddressId, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> addressIds = new TreeSet<>();
+            for (String station : stations) {
+                addressIdsByStation.getOrDefault(station, Collections.emptyNavigableSet()).forEach(addressIds::add);
+            }
+            Map<Long, List<Person>> res = new LinkedHashMap<>();
+            int remaining = limit;
+            for (Long addressId : addressIds.tailSet(afterAddressId, true)) {
+                if (remaining <= 0) {
+                    break;
+                }
+                NavigableSet<Long> personIds = personIdsByAddressId.getOrDefault(addressId,
+                        Collections.emptyNavigableSet());
+                if (addressId == afterAddressId) {
+                    personIds = personIds.tailSet(afterId, false);
+                }
+                List<Person> persons = mapPersons(head(personIds, remaining),
+                        person -> personMapper.toCompletePerson(person, now, withMedicalRecords));
+                if (!persons.isEmpty()) {
+                    res.put(addressId, persons);
+                    remaining -= persons.size();
+                }
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the adults and children covered by some firestations (see
+     * {@link PersonRepository#countAgeGroupsByAddressFirestationIn}).
+     *
+     * @return the counts of each firestation covering at least one person
+     */
+    public Map<String, FirestationCountsResponse.Entry> countAgeGroupsByStations(Collection<String> stations,
+            LocalDate cutoff) {
+        lock.readLock().lock();
+        try {
+            Map<String, FirestationCountsResponse.Entry> res = new LinkedHashMap<>();
+            for (String station : stations) {
+                int adultsCount = 0;
+                int childrenCount = 0;
+                for (Long personId : personIdsOf(addressIdsByStation.get(station))) {
+                    MedicalRecordEntity medicalRecord = personsById.get(personId).getMedicalRecord();
+                    if (medicalRecord != null && medicalRecord.getBirthdate() != null
+                            && medicalRecord.getBirthdate().isAfter(cutoff)) {
+                        ++childrenCount;
+                    } else {
+                        ++adultsCount;
+                    }
+                }
+                if (adultsCount + childrenCount != 0) {
+                    res.put(station, FirestationCountsResponse.Entry.builder()
+                            .stationNumber(station)
+                            .adultsCount(adultsCount)
+                            .childrenCount(childrenCount)
+                            .build());
+                }
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distinct phones of persons covered by a firestation.
+     */
+    public List<String> findPhonesByStation(String station) {
+        lock.readLock().lock();
+        try {
+            return DistinctValues.all(phonesByStation.get(station));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distinct emails of persons living in a city.
+     */
+    public List<String> findEmailsByCity(String city) {
+        lock.readLock().lock();
+        try {
+            return DistinctValues.all(emailsByCity.get(city));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distinct phones of persons covered by a firestation with the ID of the first person having each (see
+     * {@link PersonRepository#findDistinctPhonesByAddressFirestationAfter}), up to a limit.
+     */
+    public List<PersonRepository.PersonValue> findPhonesByStation(String station, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return DistinctValues.page(phonesByStation.get(station), afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distinct emails of persons living in a city with the ID of the first person having each (see
+     * {@link PersonRepository#findDistinctEmailsByAddressCityAfter}), up to a limit.
+     */
+    public List<PersonRepository.PersonValue> findEmailsByCity(String city, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return DistinctValues.page(emailsByCity.get(city), afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of the firestation covering an address; or {@code null} if there is none.
+     */
+    public String findStationByAddress(String address) {
+        lock.readLock().lock();
+        try {
+            AddressEntity addressEntity = addressesByAddress.get(address);
+            return addressEntity == null ? null : addressEntity.getFirestation();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private NavigableSet<Long> personIdsOf(NavigableSet<Long> addressIds) {
+        NavigableSet<Long> res = new TreeSet<>();
+        if (addressIds != null) {
+            for (Long addressId : addressIds) {
+                res.addAll(personIdsByAddressId.getOrDefault(addressId, Collections.emptyNavigableSet()));
+            }
+        }
+        return res;
+    }
+
+    private <T> List<T> mapPersons(NavigableSet<Long> personIds, Function<PersonEntity, T> mapper) {
+        if (personIds == null) {
+            return new ArrayList<>();
+        }
+        List<T> res = new ArrayList<>(personIds.size());
+        for (Long personId : personIds) {
+            res.add(mapper.apply(personsById.get(personId)));
+        }
+        return res;
+    }
+
+    private static NavigableSet<Long> head(NavigableSet<Long> ids, int limit) {
+        if (ids.size() <= limit) {
+            return ids;
+        }
+        NavigableSet<Long> res = new TreeSet<>();
+        for (Long id : ids) {
+            if (res.size() >= limit) {
+                break;
+            }
+            res.add(id);
+        }
+        return res;
+    }
+
+    /**
+     * The distinct values (phones or emails) of the persons of a firestation or city, ordered by the ID of the first
+     * person having each: the order of the paged queries, so that a page is read from where the previous one ended.
+     */
+    private static class DistinctValues {
+        private final Map<String, NavigableSet<Long>> personIdsByValue = new HashMap<>();
+        private final NavigableMap<Long, String> valuesByFirstPersonId = new TreeMap<>();
+
+        void add(String value, Long personId) {
+            NavigableSet<Long> personIds = personIdsByValue.computeIfAbsent(value, v -> new TreeSet<>());
+            Long first = personIds.isEmpty() ? null : personIds.first();
+            personIds.add(personId);
+            if (first == null || personId < first) {
+                if (first != null) {
+                    valuesByFirstPersonId.remove(first);
+                }
+                valuesByFirstPersonId.put(personId, value);
+            }
+        }
+
+        void remove(String value, Long personId) {
+            NavigableSet<Long> personIds = personIdsByValue.get(value);
+            if (personIds == null || !personIds.remove(personId)) {
+                return;
+            }
+            if (valuesByFirstPersonId.remove(personId, value) && !personIds.isEmpty()) {
+                valuesByFirstPersonId.put(personIds.first(), value);
+            }
+            if (personIds.isEmpty()) {
+                personIdsByValue.remove(value);
+            }
+        }
+
+        boolean isEmpty() {
+            return personIdsByValue.isEmpty();
+        }
+
+        static List<String> all(DistinctValues values) {
+            return values == null ? new ArrayList<>() : new ArrayList<>(values.valuesByFirstPersonId.values());
+        }
+
+        static List<PersonRepository.PersonValue> page(DistinctValues values, long afterId, int limit) {
+            List<PersonRepository.PersonValue> res = new ArrayList<>();
+            if (values == null) {
+                return res;
+            }
+            for (Map.Entry<Long, String> entry : values.valuesByFirstPersonId.tailMap(afterId, false).entrySet()) {
+                if (res.size() >= limit) {
+                    break;
+                }
+                res.add(new PersonValue(entry.getKey(), entry.getValue()));
+            }
+            return res;
+        }
+    }
+
+    @Value
+    private static class PersonValue implements PersonRepository.PersonValue {
+        Long personId;
+        String value;
+    }
+
+    @RequiredArgsConstructor
+    private static class Rows {
+        private final Iterable<AddressEntity> addresses;
+        private final Iterable<PersonEntity> persons;
+    }
+
+    private class PendingRefresh extends TransactionSynchronizationAdapter {
+        private final Set<Long> personIds = new HashSet<>();
+        private final Set<String> addresses = new HashSet<>();
+        /**
+         * Whether or not the whole dataset was replaced, the changed rows are then ignored.
+         */
+        private boolean rebuild;
+
+        @Override
+        public int getOrder() {
+            // reload before the other synchronizations run (eg. caches invalidations)
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void afterCommit() {
+            if (!rebuild) {
+                refresh(personIds, addresses);
+                return;
+            }
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                ready = false;
+                logger.error("Failed to rebuild read model, it is disabled until the next rebuild", e);
+                scheduleRebuild();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ReadModelService.this);
+        }
+    }
+}
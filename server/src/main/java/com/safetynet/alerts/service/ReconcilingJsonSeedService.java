@@ -0,0 +1,524 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.JsonSeedProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Scope;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A service that reconciles repositories with a new JSON seed document, writing only the differences.
+ * <p>
+ * The document is read by chunks with a {@link SeedDocumentReader}. The rows matching a chunk by natural keys (the
+ * address, the names of a person) are looked up by set-based queries, then only the created and changed items are
+ * written, each chunk in its own transaction. The firestations are kept until the documents are read, since an address
+ * may be mapped more than once. The rows missing from the documents are deleted last, so that an invalid document
+ * deletes nothing; and an interrupted reconciliation is completed by the next one.
+ * <p>
+ * Persons with similar names are matched in order of their IDs, and the medical records are associated to the last of
+ * them (like {@link StreamingJsonSeedService}). Addresses are not deleted, only their firestation (like
+ * {@link FirestationService#deleteFirestation}).
+ */
+@Service
+@Scope("singleton")
+public class ReconcilingJsonSeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ReconcilingJsonSeedService.class);
+
+    private final AddressRepository addressRepository;
+    private final PersonRepository personRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final PersonMapper personMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public ReconcilingJsonSeedService(AddressRepository addressRepository, PersonRepository personRepository,
+            MedicalRecordRepository medicalRecordRepository, PersonMapper personMapper,
+            ApplicationEventPublisher eventPublisher, EntityManager entityManager, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager, JsonSeedProperties props) {
+        this.addressRepository = addressRepository;
+        this.personRepository = personRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.personMapper = personMapper;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        // each chunk is committed on its own, even if called inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = props.getChunkSize();
+    }
+
+    /**
+     * Reconciles the repositories with documents, read one after the other as a single seed.
+     *
+     * @param resources the documents (with {@code persons}, {@code firestations} and {@code medicalrecords} arrays),
+     *                  by name
+     * @return what changed
+     */
+    public Report reconcile(Map<String, Resource> resources) {
+        State state = new State();
+        resources.forEach((name, resource) -> {
+            logger.info("Reconciling database with {}", name);
+            reconcile(name, resource, state);
+        });
+        forEachChunk(new ArrayList<>(state.stations.entrySet()), chunk -> inTransaction(() ->
+                reconcileFirestations(chunk, state)));
+        deleteMissing(state);
+
+        Report report = state.report;
+        logger.info("Reconciled database: persons {}, firestations {}, medical records {}",
+                report.getPersons(), report.getFirestations(), report.getMedicalRecords());
+        return report;
+    }
+
+    private void reconcile(String name, Resource resource, State state) {
+        // the medical records reference the persons: the ones preceding the persons are deferred to a second read of
+        // the document (like StreamingJsonSeedService)
+        Set<String> deferred = reconcileSections(resource, state, null);
+        if (!deferred.isEmpty()) {
+            logger.info("Reading {} again for its sections preceding the persons: {}", name, deferred);
+            reconcileSections(resource, state, deferred);
+        }
+    }
+
+    /**
+     * Reads the sections of a document.
+     *
+     * @param sections the sections to reconcile; or {@code null} to reconcile all of them, except the medical records
+     *                 preceding the persons
+     * @return the names of the sections not reconciled
+     */
+    private Set<String> reconcileSections(Resource resource, State state, Set<String> sections) {
+        Set<String> deferred = new LinkedHashSet<>();
+        boolean personsRead = false;
+        try (SeedDocumentReader reader = new SeedDocumentReader(objectMapper, resource, chunkSize)) {
+            String section;
+            while ((section = reader.nextSection()) != null) {
+                boolean skipped = sections != null ? !sections.contains(section)
+                        : !personsRead && section.equals("medicalrecords");
+                if (skipped) {
+                    if (sections == null) {
+                        deferred.add(section);
+                    }
+                    reader.skipSection();
+                    continue;
+                }
+                switch (section) {
+                    case "persons":
+                        reader.readSection(Person.class, 0, chunk -> inTransaction(() ->
+                                reconcilePersons(chunk, state)));
+                        personsRead = true;
+                        break;
+                    case "firestations":
+                        // an address may be mapped more than once (the last one wins): they are compared at the end
+                        reader.readSection(Firestation.class, 0, chunk -> chunk.forEach(firestation ->
+                                state.stations.put(firestation.getAddress(), firestation.getStation())));
+                        break;
+                    case "medicalrecords":
+                        reader.readSection(MedicalRecord.class, 0, chunk -> inTransaction(() ->
+                                reconcileMedicalRecords(chunk, state)));
+                        break;
+                    default:
+                        reader.skipSection();
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return deferred;
+    }
+
+    private void reconcilePersons(List<Person> chunk, State state) {
+        // look up the persons of the chunk by their names
+        Set<Person.Key> keys = new HashSet<>();
+        chunk.forEach(person -> keys.add(new Person.Key(person.getFirstName(), person.getLastName())));
+        Map<Person.Key, List<PersonRepository.PersonRow>> rowsByKey = new HashMap<>();
+        // ordered by ID
+        for (PersonRepository.PersonRow row : personRepository.findAllRowsByNamesIn(keys)) {
+            rowsByKey.computeIfAbsent(new Person.Key(row.getFirstName(), row.getLastName()),
+                    k -> new ArrayList<>()).add(row);
+        }
+
+        // match each person with the first row of its names not matched yet
+        Map<Long, Person> changed = new LinkedHashMap<>();
+        List<Person> created = new ArrayList<>();
+        for (Person person : chunk) {
+            Person.Key key = new Person.Key(person.getFirstName(), person.getLastName());
+            PersonRepository.PersonRow row = rowsByKey.getOrDefault(key, Collections.emptyList()).stream()
+                    .filter(r -> !state.personIds.contains(r.getId()))
+                    .findFirst().orElse(null);
+            if (row == null) {
+                created.add(person);
+                continue;
+            }
+            state.personIds.add(row.getId());
+            state.personIdsByKey.put(key, row.getId());
+            if (isUnchanged(row, person)) {
+                state.report.persons.unchanged++;
+            } else {
+                changed.put(row.getId(), person);
+            }
+        }
+        if (changed.isEmpty() && created.isEmpty()) {
+            return;
+        }
+
+        List<Person> written = new ArrayList<>(changed.values());
+        written.addAll(created);
+        Map<String, AddressEntity> addresses = findAddresses(written, Person::getAddress);
+        List<PersonChangedEvent> events = new ArrayList<>();
+        if (!changed.isEmpty()) {
+            // updated when the transaction is flushed
+            for (PersonEntity entity : personRepository.findAllCompleteByIdIn(changed.keySet())) {
+                Person body = changed.get(entity.getId());
+                Person before = personMapper.toPerson(entity);
+                String beforeStation = entity.getAddress().getFirestation();
+                entity.setAddress(toAddress(body, addresses));
+                entity.setPhone(body.getPhone());
+                entity.setEmail(body.getEmail());
+                events.add(new PersonChangedEvent(ChangeType.UPDATED, entity.getId(), before, beforeStation,
+                        personMapper.toPerson(entity), entity.getAddress().getFirestation()));
+                state.report.persons.updated++;
+            }
+        }
+
+        List<PersonEntity> entities = new ArrayList<>(created.size());
+        for (Person body : created) {
+            PersonEntity entity = new PersonEntity();
+            entity.setFirstName(body.getFirstName());
+            entity.setLastName(body.getLastName());
+            entity.setAddress(toAddress(body, addresses));
+            entity.setPhone(body.getPhone());
+            entity.setEmail(body.getEmail());
+            entities.add(entity);
+        }
+        personRepository.saveAll(entities);
+        for (PersonEntity entity : entities) {
+            // the IDs are generated on save
+            state.personIds.add(entity.getId());
+            state.personIdsByKey.put(new Person.Key(entity.getFirstName(), entity.getLastName()), entity.getId());
+            events.add(new PersonChangedEvent(ChangeType.CREATED, entity.getId(), null, null,
+                    personMapper.toPerson(entity), entity.getAddress().getFirestation()));
+            state.report.persons.created++;
+        }
+
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    private void reconcileFirestations(List<Map.Entry<String, String>> chunk, State state) {
+        Map<String, AddressEntity> addresses = findAddresses(chunk, Map.Entry::getKey);
+
+        // updated when the transaction is flushed
+        List<FirestationChangedEvent> events = new ArrayList<>();
+        for (Map.Entry<String, String> firestation : chunk) {
+            AddressEntity entity = addresses.get(firestation.getKey());
+            if (entity == null) {
+                throw new IllegalArgumentException("Unknown address: " + firestation.getKey());
+            }
+            String beforeStation = entity.getFirestation();
+            if (Objects.equals(beforeStation, firestation.getValue())) {
+                state.report.firestations.unchanged++;
+                continue;
+            }
+            entity.setFirestation(firestation.getValue());
+            if (beforeStation == null) {
+                events.add(new FirestationChangedEvent(ChangeType.CREATED, entity.getAddress(), null,
+                        entity.getFirestation()));
+                state.report.firestations.created++;
+            } else {
+                events.add(new FirestationChangedEvent(ChangeType.UPDATED, entity.getAddress(), beforeStation,
+                        entity.getFirestation()));
+                state.report.firestations.updated++;
+            }
+        }
+
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    private void reconcileMedicalRecords(List<MedicalRecord> chunk, State state) {
+        // associate the medical records with the matched or created persons (the last one wins for a same person)
+        Map<Long, MedicalRecord> bodies = new LinkedHashMap<>();
+        for (MedicalRecord medicalRecord : chunk) {
+            Long personId = state.personIdsByKey.get(
+                    new Person.Key(medicalRecord.getFirstName(), medicalRecord.getLastName()));
+            if (personId == null) {
+                throw new IllegalArgumentException("Unknown person: " + medicalRecord.getFirstName() + " "
+                        + medicalRecord.getLastName());
+            }
+            bodies.put(personId, medicalRecord);
+        }
+        Map<Long, PersonRepository.PersonRef> refs = new HashMap<>();
+        Set<Long> existingIds = new HashSet<>();
+        for (PersonRepository.PersonRef ref : personRepository.findAllRefsByIdIn(bodies.keySet())) {
+            refs.put(ref.getId(), ref);
+            if (ref.getMedicalRecordId() != null) {
+                existingIds.add(ref.getId());
+            }
+        }
+        Map<Long, MedicalRecordEntity> existing = new HashMap<>();
+        if (!existingIds.isEmpty()) {
+            medicalRecordRepository.findAllById(existingIds).forEach(entity -> existing.put(entity.getId(), entity));
+        }
+
+        List<MedicalRecordEntity> entities = new ArrayList<>();
+        List<MedicalRecordChangedEvent> events = new ArrayList<>();
+        bodies.forEach((personId, body) -> {
+            state.medicalRecordIds.add(personId);
+            PersonRepository.PersonRef ref = refs.get(personId);
+            MedicalRecordEntity entity = existing.get(personId);
+            List<String> medications = nullToEmpty(body.getMedications());
+            List<String> allergies = nullToEmpty(body.getAllergies());
+            if (entity == null) {
+                // the person is only referenced: it is neither loaded nor updated
+                entity = new MedicalRecordEntity();
+                entity.setPerson(entityManager.getReference(PersonEntity.class, personId));
+                entity.setBirthdate(body.getBirthdate());
+                entity.setMedications(new ArrayList<>(medications));
+                entity.setAllergies(new ArrayList<>(allergies));
+                entities.add(entity);
+                events.add(new MedicalRecordChangedEvent(ChangeType.CREATED, personId, null,
+                        toMedicalRecord(ref, entity), ref.getAddress(), ref.getFirestation()));
+                state.report.medicalRecords.created++;
+            } else if (Objects.equals(entity.getBirthdate(), body.getBirthdate())
+                    && medications.equals(entity.getMedications())
+                    && allergies.equals(entity.getAllergies())) {
+                state.report.medicalRecords.unchanged++;
+            } else {
+                // updated when the transaction is flushed
+                MedicalRecord before = toMedicalRecord(ref, entity);
+                entity.setBirthdate(body.getBirthdate());
+                entity.setMedications(new ArrayList<>(medications));
+                entity.setAllergies(new ArrayList<>(allergies));
+                events.add(new MedicalRecordChangedEvent(ChangeType.UPDATED, personId, before,
+                        toMedicalRecord(ref, entity), ref.getAddress(), ref.getFirestation()));
+                state.report.medicalRecords.updated++;
+            }
+        });
+        medicalRecordRepository.saveAll(entities);
+
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    /**
+     * Deletes the persons, firestations and medical records missing from the documents.
+     */
+    private void deleteMissing(State state) {
+        List<Long> personIds = new ArrayList<>();
+        List<Long> medicalRecordIds = new ArrayList<>();
+        List<Long> addressIds = new ArrayList<>();
+        inTransaction(() -> {
+            for (PersonRepository.PersonRef ref : personRepository.findAllRefs()) {
+                if (!state.personIds.contains(ref.getId())) {
+                    // the medical record is deleted with the person
+                    personIds.add(ref.getId());
+                } else if (ref.getMedicalRecordId() != null && !state.medicalRecordIds.contains(ref.getId())) {
+                    medicalRecordIds.add(ref.getId());
+                }
+            }
+            for (AddressRepository.AddressRef ref : addressRepository.findAllRefs()) {
+                if (ref.getFirestation() != null && !state.stations.containsKey(ref.getAddress())) {
+                    addressIds.add(ref.getId());
+                }
+            }
+        });
+
+        forEachChunk(personIds, chunk -> inTransaction(() -> {
+            List<PersonEntity> entities = personRepository.findAllCompleteByIdIn(chunk);
+            List<PersonChangedEvent> events = new ArrayList<>(entities.size());
+            for (PersonEntity entity : entities) {
+                events.add(new PersonChangedEvent(ChangeType.DELETED, entity.getId(), personMapper.toPerson(entity),
+                        entity.getAddress().getFirestation(), null, null));
+            }
+            personRepository.deleteAll(entities);
+            state.report.persons.deleted += entities.size();
+            events.forEach(eventPublisher::publishEvent);
+        }));
+
+        forEachChunk(medicalRecordIds, chunk -> inTransaction(() -> {
+            Map<Long, PersonRepository.PersonRef> refs = new HashMap<>();
+            personRepository.findAllRefsByIdIn(chunk).forEach(ref -> refs.put(ref.getId(), ref));
+            List<MedicalRecordChangedEvent> events = new ArrayList<>();
+            Iterable<MedicalRecordEntity> entities = medicalRecordRepository.findAllById(chunk);
+            for (MedicalRecordEntity entity : entities) {
+                PersonRepository.PersonRef ref = refs.get(entity.getId());
+                events.add(new MedicalRecordChangedEvent(ChangeType.DELETED, entity.getId(),
+                        toMedicalRecord(ref, entity), null, ref.getAddress(), ref.getFirestation()));
+            }
+            medicalRecordRepository.deleteAll(entities);
+            state.report.medicalRecords.deleted += events.size();
+            events.forEach(eventPublisher::publishEvent);
+        }));
+
+        forEachChunk(addressIds, chunk -> inTransaction(() -> {
+            // updated when the transaction is flushed
+            List<FirestationChangedEvent> events = new ArrayList<>();
+            for (AddressEntity entity : addressRepository.findAllById(chunk)) {
+                events.add(new FirestationChangedEvent(ChangeType.DELETED, entity.getAddress(),
+                        entity.getFirestation(), null));
+                entity.setFirestation(null);
+            }
+            state.report.firestations.deleted += events.size();
+            events.forEach(eventPublisher::publishEvent);
+        }));
+    }
+
+    /**
+     * Returns the existing addresses of some items by address.
+     */
+    private <T> Map<String, AddressEntity> findAddresses(Collection<T> items, Function<T, String> addressGetter) {
+        Set<String> addresses = new HashSet<>();
+        items.forEach(item -> addresses.add(addressGetter.apply(item)));
+        Map<String, AddressEntity> res = new HashMap<>();
+        for (AddressEntity addressEntity : addressRepository.findAllByAddressIn(addresses)) {
+            res.put(addressEntity.getAddress(), addressEntity);
+        }
+        return res;
+    }
+
+    /**
+     * Retrieves or creates the address of a person (a new address is saved with the person).
+     */
+    private static AddressEntity toAddress(Person person, Map<String, AddressEntity> addresses) {
+        AddressEntity addressEntity = addresses.computeIfAbsent(person.getAddress(), k -> {
+            AddressEntity e = new AddressEntity();
+            e.setAddress(person.getAddress());
+            return e;
+        });
+        // only written if changed
+        addressEntity.setCity(person.getCity());
+        addressEntity.setZip(person.getZip());
+        return addressEntity;
+    }
+
+    private static boolean isUnchanged(PersonRepository.PersonRow row, Person person) {
+        return Objects.equals(row.getAddress(), person.getAddress())
+                && Objects.equals(row.getCity(), person.getCity())
+                && Objects.equals(row.getZip(), person.getZip())
+                && Objects.equals(row.getPhone(), person.getPhone())
+                && Objects.equals(row.getEmail(), person.getEmail());
+    }
+
+    /**
+     * Maps a medical record without loading it's person.
+     */
+    private static MedicalRecord toMedicalRecord(PersonRepository.PersonRef ref, MedicalRecordEntity entity) {
+        return MedicalRecord.builder()
+                .personId(ref.getId())
+                .firstName(ref.getFirstName())
+                .lastName(ref.getLastName())
+                .birthdate(entity.getBirthdate())
+                .medications(new ArrayList<>(entity.getMedications()))
+                .allergies(new ArrayList<>(entity.getAllergies()))
+                .build();
+    }
+
+    private void inTransaction(Runnable runnable) {
+        transactionTemplate.execute(status -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    private <T> void forEachChunk(List<T> items, Consumer<List<T>> consumer) {
+        for (int i = 0; i < items.size(); i += chunkSize) {
+            consumer.accept(items.subList(i, Math.min(i + chunkSize, items.size())));
+        }
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    /**
+     * The state of a running reconciliation.
+     */
+    private static class State {
+        private final Report report = new Report();
+
+        /**
+         * The IDs of the persons matched or created.
+         */
+        private final Set<Long> personIds = new HashSet<>();
+
+        /**
+         * The ID of the last person matched or created, by names.
+         */
+        private final Map<Person.Key, Long> personIdsByKey = new HashMap<>();
+
+        /**
+         * The IDs of the medical records matched or created.
+         */
+        private final Set<Long> medicalRecordIds = new HashSet<>();
+
+        /**
+         * The firestations of the documents, by address (a few per firestation, so they fit in memory).
+         */
+        private final Map<String, String> stations = new LinkedHashMap<>();
+    }
+
+    /**
+     * What a reconciliation changed.
+     */
+    @Data
+    public static class Report {
+        private final Changes persons = new Changes();
+        private final Changes firestations = new Changes();
+        private final Changes medicalRecords = new Changes();
+    }
+
+    @Data
+    public static class Changes {
+        private long created;
+        private long updated;
+        private long deleted;
+        private long unchanged;
+
+        @Override
+        public String toString() {
+            return created + " created, " + updated + " updated, " + deleted + " deleted, " + unchanged + " unchanged";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.core.io.Resource;
+
+/**
+ * Reads the arrays of a seed document by chunks, without loading the whole document.
+ */
+class SeedDocumentReader implements Closeable {
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final long length;
+    private final int chunkSize;
+
+    SeedDocumentReader(ObjectMapper objectMapper, Resource resource, int chunkSize) throws IOException {
+        this.objectMapper = objectMapper;
+        this.length = contentLength(resource);
+        this.chunkSize = chunkSize;
+        // closing the parser closes the stream
+        this.parser = objectMapper.getFactory().createParser(resource.getInputStream());
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IllegalArgumentException("Seed document is not a JSON object: " + resource.getDescription());
+        }
+    }
+
+    /**
+     * Moves to the next array of the document (other values are skipped).
+     *
+     * @return the name of the array; or {@code null} at the end of the document
+     */
+    String nextSection() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                return field;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    /**
+     * Skips the current array.
+     */
+    void skipSection() throws IOException {
+        parser.skipChildren();
+    }
+
+    /**
+     * Reads the items of the current array by chunks.
+     *
+     * @param type     the type of the items
+     * @param skip     the number of items to skip first
+     * @param consumer called with each chunk (the list is reused once it returns)
+     */
+    <T> void readSection(Class<T> type, long skip, Consumer<List<T>> consumer) throws IOException {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        long skipped = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (skipped < skip) {
+                parser.skipChildren();
+                ++skipped;
+                continue;
+            }
+            chunk.add(objectMapper.readValue(parser, type));
+            if (chunk.size() == chunkSize) {
+                consumer.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Returns the percentage of the document read so far; or {@code -1} if the length of the document is unknown.
+     */
+    long getPercentage() {
+        if (length <= 0) {
+            return -1L;
+        }
+        return parser.getCurrentLocation().getByteOffset() * 100 / length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            // unknown length: progress is reported without percentage
+            return -1L;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.JsonSeedProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.SeedProgressRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.entity.SeedProgressEntity;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A service that seeds repositories from a JSON document too large for memory.
+ * <p>
+ * The document is read with a {@link SeedDocumentReader}, and its items are written by chunks, each in its own transaction.
+ * Only the IDs of the addresses and persons (by address and by names) are kept in memory, to associate the
+ * firestations and medical records. The progress is saved with each chunk, so an interrupted seed is resumed after
+ * its last written chunk.
+ * <p>
+ * The sections may come in any order, but the firestations and medical records preceding the persons are only
+ * written once the persons are, by a second read of the document.
+ * <p>
+ * Unlike {@link JsonSeedService#seedDataToEntities}, persons with similar names are all written (the medical records
+ * are associated to the last one).
+ */
+@Service
+@Scope("singleton")
+public class StreamingJsonSeedService {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingJsonSeedService.class);
+
+    private final AddressRepository addressRepository;
+    private final PersonRepository personRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final SeedProgressRepository seedProgressRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public StreamingJsonSeedService(AddressRepository addressRepository, PersonRepository personRepository,
+            MedicalRecordRepository medicalRecordRepository, SeedProgressRepository seedProgressRepository,
+            EntityManager entityManager, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            JsonSeedProperties props) {
+        this.addressRepository = addressRepository;
+        this.personRepository = personRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.seedProgressRepository = seedProgressRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        // each chunk is committed on its own, even if called inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = props.getChunkSize();
+    }
+
+    /**
+     * Returns the progress of a seed document, or {@code null} if its seed has never started.
+     */
+    public SeedProgressEntity getProgress(String name) {
+        return seedProgressRepository.findById(name).orElse(null);
+    }
+
+    /**
+     * Returns whether the seed of any of the given documents has started.
+     */
+    public boolean isStarted(Collection<String> names) {
+        return names.stream().anyMatch(seedProgressRepository::existsById);
+    }
+
+    /**
+     * Seeds a document, or resumes its seed.
+     *
+     * @param name     the name under which the progress is saved
+     * @param resource the document (with {@code persons}, {@code firestations} and {@code medicalrecords} arrays)
+     */
+    public void seed(String name, Resource resource) {
+        seed(Collections.singletonMap(name, resource));
+    }
+
+    /**
+     * Seeds documents one after the other, or resumes their seed.
+     * <p>
+     * The documents share the IDs of the written addresses and persons: a document may reference the addresses and
+     * persons of the previous ones.
+     *
+     * @param resources the documents, by the names under which their progresses are saved
+     */
+    public void seed(Map<String, Resource> resources) {
+        Map<String, SeedProgressEntity> progresses = new LinkedHashMap<>();
+        boolean resumed = false;
+        for (String name : resources.keySet()) {
+            SeedProgressEntity progress = getProgress(name);
+            resumed |= progress != null;
+            if (progress == null) {
+                progress = new SeedProgressEntity();
+                progress.setName(name);
+            }
+            if (!progress.isCompleted()) {
+                progresses.put(name, progress);
+            }
+        }
+        if (progresses.isEmpty()) {
+            return;
+        }
+
+        Index index = new Index();
+        if (resumed) {
+            loadIndex(index);
+        }
+        progresses.forEach((name, progress) -> seed(name, resources.get(name), progress, index));
+    }
+
+    private void seed(String name, Resource resource, SeedProgressEntity progress, Index index) {
+        if (progress.getPersons() == 0 && progress.getFirestations() == 0 && progress.getMedicalRecords() == 0) {
+            logger.info("Seeding database with {}", name);
+        } else {
+            logger.info("Resuming seed of {} ({} persons, {} firestations, {} medical records already written)",
+                    name, progress.getPersons(), progress.getFirestations(), progress.getMedicalRecords());
+        }
+
+        // the firestations and medical records reference the addresses and persons: the sections preceding the
+        // persons are deferred to a second read of the document
+        Set<String> deferred = readSections(resource, progress, index, null);
+        if (!deferred.isEmpty()) {
+            logger.info("Reading {} again for its sections preceding the persons: {}", name, deferred);
+            readSections(resource, progress, index, deferred);
+        }
+
+        progress.setCompleted(true);
+        seedProgressRepository.save(progress);
+        logger.info("Seeded database with {} ({} persons, {} firestations, {} medical records)", name,
+                progress.getPersons(), progress.getFirestations(), progress.getMedicalRecords());
+    }
+
+    /**
+     * Reads the sections of a document.
+     *
+     * @param sections the sections to write; or {@code null} to write all of them, except the firestations and medical
+     *                 records preceding the persons
+     * @return the names of the sections not written
+     */
+    private Set<String> readSections(Resource resource, SeedProgressEntity progress, Index index,
+            Set<String> sections) {
+        Set<String> deferred = new LinkedHashSet<>();
+        boolean personsRead = false;
+        try (SeedDocumentReader reader = new SeedDocumentReader(objectMapper, resource, chunkSize)) {
+            String section;
+            while ((section = reader.nextSection()) != null) {
+                boolean skipped = sections != null ? !sections.contains(section)
+                        : !personsRead && (section.equals("firestations") || section.equals("medicalrecords"));
+                if (skipped) {
+                    if (sections == null) {
+                        deferred.add(section);
+                    }
+                    reader.skipSection();
+                    continue;
+                }
+                switch (section) {
+                    case "persons":
+                        reader.readSection(Person.class, progress.getPersons(), chunk ->
+                                writeChunk(reader, progress, () -> {
+                                    writePersons(chunk, index);
+                                    progress.setPersons(progress.getPersons() + chunk.size());
+                                }));
+                        personsRead = true;
+                        break;
+                    case "firestations":
+                        reader.readSection(Firestation.class, progress.getFirestations(), chunk ->
+                                writeChunk(reader, progress, () -> {
+                                    writeFirestations(chunk, index);
+                                    progress.setFirestations(progress.getFirestations() + chunk.size());
+                                }));
+                        break;
+                    case "medicalrecords":
+                        reader.readSection(MedicalRecord.class, progress.getMedicalRecords(), chunk ->
+                                writeChunk(reader, progress, () -> {
+                                    writeMedicalRecords(chunk, index);
+                                    progress.setMedicalRecords(progress.getMedicalRecords() + chunk.size());
+                                }));
+                        break;
+                    default:
+                        reader.skipSection();
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return deferred;
+    }
+
+    private void writeChunk(SeedDocumentReader reader, SeedProgressEntity progress, Runnable writer) {
+        transactionTemplate.execute(status -> {
+            writer.run();
+            // saved with the chunk, so both are committed (or not) together
+            return seedProgressRepository.save(progress);
+        });
+        long percentage = reader.getPercentage();
+        if (percentage >= 0) {
+            logger.info("Seed progress: {}% ({} persons, {} firestations, {} medical records)", percentage,
+                    progress.getPersons(), progress.getFirestations(), progress.getMedicalRecords());
+        } else {
+            logger.info("Seed progress: {} persons, {} firestations, {} medical records",
+                    progress.getPersons(), progress.getFirestations(), progress.getMedicalRecords());
+        }
+    }
+
+    private void writePersons(List<Person> chunk, Index index) {
+        Map<String, AddressEntity> newAddresses = new HashMap<>();
+        List<PersonEntity> entities = new ArrayList<>(chunk.size());
+        for (Person person : chunk) {
+            // Reference the written addresses, or extract the new ones
+            AddressEntity addressEntity;
+            Long addressId = index.addressIds.get(person.getAddress());
+            if (addressId != null) {
+                addressEntity = entityManager.getReference(AddressEntity.class, addressId);
+            } else {
+                addressEntity = newAddresses.computeIfAbsent(person.getAddress(), k -> {
+                    AddressEntity e = new AddressEntity();
+                    e.setAddress(person.getAddress());
+                    e.setCity(person.getCity());
+                    e.setZip(person.getZip());
+                    return e;
+                });
+            }
+
+            PersonEntity personEntity = new PersonEntity();
+            personEntity.setFirstName(person.getFirstName());
+            personEntity.setLastName(person.getLastName());
+            personEntity.setAddress(addressEntity);
+            personEntity.setPhone(person.getPhone());
+            personEntity.setEmail(person.getEmail());
+            entities.add(personEntity);
+        }
+        personRepository.saveAll(entities);
+
+        // the IDs are generated on save
+        newAddresses.forEach((address, entity) -> index.addressIds.put(address, entity.getId()));
+        entities.forEach(entity -> index.personIds.put(
+                new Person.Key(entity.getFirstName(), entity.getLastName()), entity.getId()));
+    }
+
+    private void writeFirestations(List<Firestation> chunk, Index index) {
+        // Associate firestation number to addresses (updated when the transaction is flushed)
+        Map<Long, String> stationsByAddressId = new LinkedHashMap<>();
+        for (Firestation firestation : chunk) {
+            Long addressId = index.addressIds.get(firestation.getAddress());
+            if (addressId == null) {
+                throw new IllegalArgumentException("Unknown address: " + firestation.getAddress());
+            }
+            stationsByAddressId.put(addressId, firestation.getStation());
+        }
+        addressRepository.findAllById(stationsByAddressId.keySet()).forEach(addressEntity ->
+                addressEntity.setFirestation(stationsByAddressId.get(addressEntity.getId())));
+    }
+
+    private void writeMedicalRecords(List<MedicalRecord> chunk, Index index) {
+        // Create medical records and associate them with the persons (the last one wins for a same person)
+        Map<Long, MedicalRecord> medicalRecords = new LinkedHashMap<>();
+        for (MedicalRecord medicalRecord : chunk) {
+            Long personId = index.personIds.get(
+                    new Person.Key(medicalRecord.getFirstName(), medicalRecord.getLastName()));
+            if (personId == null) {
+                throw new IllegalArgumentException("Unknown person: " + medicalRecord.getFirstName() + " "
+                        + medicalRecord.getLastName());
+            }
+            medicalRecords.put(personId, medicalRecord);
+        }
+        // the records of a previous chunk (or document) are updated
+        Map<Long, MedicalRecordEntity> entities = new LinkedHashMap<>();
+        medicalRecordRepository.findAllById(medicalRecords.keySet())
+                .forEach(entity -> entities.put(entity.getId(), entity));
+        medicalRecords.forEach((personId, medicalRecord) -> {
+            MedicalRecordEntity medicalRecordEntity = entities.computeIfAbsent(personId, k -> {
+                MedicalRecordEntity e = new MedicalRecordEntity();
+                e.setPerson(entityManager.getReference(PersonEntity.class, personId));
+                return e;
+            });
+            medicalRecordEntity.setBirthdate(medicalRecord.getBirthdate());
+            medicalRecordEntity.setMedications(medicalRecord.getMedications());
+            medicalRecordEntity.setAllergies(medicalRecord.getAllergies());
+        });
+        medicalRecordRepository.saveAll(entities.values());
+    }
+
+    /**
+     * Loads the IDs of the addresses and persons written before an interruption.
+     */
+    private void loadIndex(Index index) {
+        transactionTemplate.execute(status -> {
+            addressRepository.findAllRefs().forEach(ref -> index.addressIds.put(ref.getAddress(), ref.getId()));
+            personRepository.findAllRefs().forEach(ref -> index.personIds.put(
+                    new Person.Key(ref.getFirstName(), ref.getLastName()), ref.getId()));
+            return null;
+        });
+    }
+
+    /**
+     * The IDs of the written addresses and persons.
+     */
+    private static class Index {
+        private final Map<String, Long> addressIds = new HashMap<>();
+        private final Map<Person.Key, Long> personIds = new HashMap<>();
+    }
+}
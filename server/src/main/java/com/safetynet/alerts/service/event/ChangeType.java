@@ -0,0 +1,10 @@
+package com.safetynet.alerts.service.event;
+
+/**
+ * Kind of mutation carried by a change event.
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
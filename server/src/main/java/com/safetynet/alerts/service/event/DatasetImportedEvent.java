@@ -0,0 +1,16 @@
+package com.safetynet.alerts.service.event;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published (synchronously, inside the writing transaction) when a whole dataset is bulk-loaded, without the events of
+ * each item: everything derived from the data must be reloaded.
+ */
+@RequiredArgsConstructor
+@Data
+public class DatasetImportedEvent {
+    private final long addresses;
+    private final long persons;
+    private final long medicalRecords;
+}
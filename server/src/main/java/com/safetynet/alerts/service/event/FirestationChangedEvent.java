@@ -0,0 +1,31 @@
+package com.safetynet.alerts.service.event;
+
+import com.safetynet.alerts.api.model.Firestation;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published (synchronously, inside the writing transaction) when the {@linkplain Firestation firestation} covering an
+ * address is created, updated or deleted.
+ */
+@RequiredArgsConstructor
+@Data
+public class FirestationChangedEvent {
+    private final @NonNull ChangeType type;
+
+    /**
+     * The changed address.
+     */
+    private final @NonNull String address;
+
+    /**
+     * Station number before the change; or {@code null} if there was none.
+     */
+    private final String beforeStation;
+
+    /**
+     * Station number after the change; or {@code null} if it was deleted.
+     */
+    private final String afterStation;
+}
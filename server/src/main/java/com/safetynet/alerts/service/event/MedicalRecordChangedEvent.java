@@ -0,0 +1,41 @@
+package com.safetynet.alerts.service.event;
+
+import com.safetynet.alerts.api.model.MedicalRecord;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published (synchronously, inside the writing transaction) when a {@linkplain MedicalRecord medical record} is
+ * created, updated or deleted.
+ */
+@RequiredArgsConstructor
+@Data
+public class MedicalRecordChangedEvent {
+    private final @NonNull ChangeType type;
+
+    /**
+     * ID of the person owning the changed medical record.
+     */
+    private final Long personId;
+
+    /**
+     * State of the medical record before the change; or {@code null} if it was created (or unknown).
+     */
+    private final MedicalRecord before;
+
+    /**
+     * State of the medical record after the change; or {@code null} if it was deleted.
+     */
+    private final MedicalRecord after;
+
+    /**
+     * Address of the person owning the medical record (if known).
+     */
+    private final String address;
+
+    /**
+     * Firestation covering the person owning the medical record (if known).
+     */
+    private final String station;
+}
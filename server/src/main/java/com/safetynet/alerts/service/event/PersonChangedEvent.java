@@ -0,0 +1,41 @@
+package com.safetynet.alerts.service.event;
+
+import com.safetynet.alerts.api.model.Person;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published (synchronously, inside the writing transaction) when a {@linkplain Person person} is created, updated or
+ * deleted.
+ */
+@RequiredArgsConstructor
+@Data
+public class PersonChangedEvent {
+    private final @NonNull ChangeType type;
+
+    /**
+     * ID of the changed person.
+     */
+    private final Long personId;
+
+    /**
+     * State of the person before the change; or {@code null} if it was created (or unknown).
+     */
+    private final Person before;
+
+    /**
+     * Firestation covering the person before the change.
+     */
+    private final String beforeStation;
+
+    /**
+     * State of the person after the change; or {@code null} if it was deleted.
+     */
+    private final Person after;
+
+    /**
+     * Firestation covering the person after the change.
+     */
+    private final String afterStation;
+}
@@ -11,4 +11,5 @@ public class ApiErrorCode {
     public static final String NOT_FOUND = "NOT_FOUND";
     public static final String INTERFERING_NAMES = "INTERFERING_NAMES";
     public static final String INTERFERING_ADDRESS = "INTERFERING_ADDRESS";
+    public static final String SERVICE_UNAVAILABLE = "SERVICE_UNAVAILABLE";
 }
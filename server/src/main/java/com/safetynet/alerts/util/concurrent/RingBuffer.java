@@ -0,0 +1,128 @@
+package com.safetynet.alerts.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+import lombok.Value;
+
+/**
+ * A bounded, lock-free, multi-producer multi-consumer log of the latest appended elements.
+ * <p>
+ * Each element gets the next offset (starting from 1), and is kept until {@code capacity} elements are appended after
+ * it. Readers don't consume the elements: each one reads from its own offset, and is told when the elements it hasn't
+ * read yet were overwritten.
+ */
+public class RingBuffer<T> {
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int mask;
+    /**
+     * Offset of the next appended element.
+     */
+    private final AtomicLong next = new AtomicLong(1);
+
+    /**
+     * @param capacity the count of kept elements, rounded up to a power of 2
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Returns the offset of the last appended element (whose append may still be in progress); 0 if there is none.
+     */
+    public long getLastOffset() {
+        return next.get() - 1;
+    }
+
+    /**
+     * Appends an element.
+     *
+     * @param factory creates the element from its offset
+     * @return the offset of the element
+     */
+    public long append(LongFunction<T> factory) {
+        long offset = next.getAndIncrement();
+        Slot<T> slot = new Slot<>(offset, factory.apply(offset));
+        int index = (int) offset & mask;
+        while (true) {
+            Slot<T> current = slots.get(index);
+            // a late append must not replace a newer element (appended a whole lap later)
+            if (current != null && current.offset > offset) {
+                return offset;
+            }
+            if (slots.compareAndSet(index, current, slot)) {
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Reads the elements following an offset, up to the first one whose append is still in progress.
+     *
+     * @param after offset of the last element already read (0 to read from the oldest kept one)
+     * @param limit maximum count of read elements
+     */
+    public Batch<T> read(long after, int limit) {
+        List<T> elements = new ArrayList<>(Math.min(limit, slots.length()));
+        boolean truncated = false;
+        long offset = after + 1;
+        while (elements.size() < limit) {
+            long oldest = next.get() - slots.length();
+            if (offset < oldest) {
+                // overwritten before (or while) being read
+                truncated = true;
+                offset = oldest;
+            }
+            Slot<T> slot = slots.get((int) offset & mask);
+            if (slot == null || slot.offset < offset) {
+                // not appended yet
+                break;
+            }
+            if (slot.offset > offset) {
+                continue;
+            }
+            elements.add(slot.value);
+            ++offset;
+        }
+        return new Batch<>(elements, offset - 1, truncated);
+    }
+
+    @Value
+    public static class Batch<T> {
+        List<T> elements;
+
+        /**
+         * Offset of the last read element (or the one read after if there is none).
+         */
+        long lastOffset;
+
+        /**
+         * Whether or not elements following the offset read after were overwritten (so are missing).
+         */
+        boolean truncated;
+    }
+
+    private static class Slot<T> {
+        private final long offset;
+        private final T value;
+
+        private Slot(long offset, T value) {
+            this.offset = offset;
+            this.value = value;
+        }
+    }
+}
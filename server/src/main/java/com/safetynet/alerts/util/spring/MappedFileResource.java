@@ -0,0 +1,113 @@
+package com.safetynet.alerts.util.spring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * A {@link FileSystemResource} read through memory-mapped regions of a {@link FileChannel}.
+ * <p>
+ * The file is read from the page cache without copies into an intermediate heap buffer. A mapping cannot exceed
+ * {@link Integer#MAX_VALUE} bytes, so larger files are mapped by consecutive regions.
+ */
+public class MappedFileResource extends FileSystemResource {
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private final long regionSize;
+
+    public MappedFileResource(Path path) {
+        this(path, MAX_REGION_SIZE);
+    }
+
+    MappedFileResource(Path path, long regionSize) {
+        super(path);
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new MappedInputStream(FileChannel.open(getFile().toPath(), StandardOpenOption.READ), regionSize);
+    }
+
+    /**
+     * An {@link InputStream} over the successive mapped regions of a channel.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long size;
+        private final long regionSize;
+        private long regionStart;
+        private MappedByteBuffer region;
+
+        private MappedInputStream(FileChannel channel, long regionSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.regionSize = regionSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextRegion()) {
+                return -1;
+            }
+            return region.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextRegion()) {
+                return -1;
+            }
+            int n = Math.min(len, region.remaining());
+            region.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && nextRegion()) {
+                int step = (int) Math.min(n - skipped, region.remaining());
+                region.position(region.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return region != null ? region.remaining() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Maps the next region once the current one is consumed.
+         *
+         * @return {@code false} at the end of the file
+         */
+        private boolean nextRegion() throws IOException {
+            if (region != null) {
+                if (region.hasRemaining()) {
+                    return true;
+                }
+                regionStart += region.capacity();
+            }
+            if (regionStart >= size) {
+                return false;
+            }
+            region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(regionSize, size - regionStart));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- The indexes of the finders. Idempotent, as Hibernate may already have created them.
+
+create index if not exists idx__persons__names on persons (last_name, first_name);
+create index if not exists idx__persons__address on persons (address_id);
+create index if not exists idx__addresses__firestation on addresses (firestation);
+create index if not exists idx__addresses__city on addresses (city);
+alter table persons add constraint if not exists fk__persons__addresses foreign key (address_id)
+    references addresses (id);
@@ -0,0 +1,15 @@
+-- Moves the medications and allergies of the medical records into JSON array columns of their row, so that a record is
+-- read and updated as a single row, and drops the collection tables.
+
+alter table medicalrecords add column if not exists medications varchar;
+alter table medicalrecords add column if not exists allergies varchar;
+
+update medicalrecords mr set
+    medications = coalesce((select cast(json_arrayagg(m.medication null on null) as varchar)
+        from medicalrecord_medications m where m.medicalrecord_id = mr.person_id), '[]'),
+    allergies = coalesce((select cast(json_arrayagg(al.allergy null on null) as varchar)
+        from medicalrecord_allergies al where al.medicalrecord_id = mr.person_id), '[]')
+where medications is null;
+
+drop table if exists medicalrecord_medications;
+drop table if exists medicalrecord_allergies;
@@ -0,0 +1,4 @@
+-- The indexes of the pages of distinct phones and emails. Idempotent, as Hibernate may already have created them.
+
+create index if not exists idx__persons__phone on persons (phone, id);
+create index if not exists idx__persons__email on persons (email, id);
@@ -0,0 +1,61 @@
+-- The schema previously created by Hibernate (ddl-auto: update), without the finder indexes.
+-- Idempotent, so that it adopts the databases created by Hibernate: existing tables are left as they are.
+
+create table if not exists addresses (
+    id bigint not null,
+    address varchar(255) not null,
+    city varchar(255),
+    firestation varchar(255),
+    zip varchar(255),
+    primary key (id),
+    constraint address unique (address)
+) engine=InnoDB;
+
+create table if not exists persons (
+    id bigint not null,
+    email varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    phone varchar(255) not null,
+    address_id bigint not null,
+    primary key (id),
+    constraint fk__persons__addresses foreign key (address_id) references addresses (id)
+) engine=InnoDB;
+
+create table if not exists medicalrecords (
+    person_id bigint not null,
+    birthdate date,
+    primary key (person_id),
+    constraint fk__medicalrecords__persons foreign key (person_id) references persons (id)
+) engine=InnoDB;
+
+create table if not exists medicalrecord_medications (
+    medicalrecord_id bigint not null,
+    medication varchar(255),
+    constraint fk__medicalrecord_medications__medicalrecords foreign key (medicalrecord_id)
+        references medicalrecords (person_id) on delete cascade
+) engine=InnoDB;
+
+create table if not exists medicalrecord_allergies (
+    medicalrecord_id bigint not null,
+    allergy varchar(255),
+    constraint fk__medicalrecord_allergies__medicalrecords foreign key (medicalrecord_id)
+        references medicalrecords (person_id) on delete cascade
+) engine=InnoDB;
+
+create table if not exists id_generators (
+    name varchar(255) not null,
+    next_val bigint,
+    primary key (name)
+) engine=InnoDB;
+
+insert ignore into id_generators (name, next_val) values ('addresses', 0), ('persons', 0);
+
+create table if not exists seed_progress (
+    name varchar(255) not null,
+    completed bit not null,
+    firestations bigint not null,
+    medical_records bigint not null,
+    persons bigint not null,
+    primary key (name)
+) engine=InnoDB;
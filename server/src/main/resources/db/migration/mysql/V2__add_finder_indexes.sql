@@ -0,0 +1,31 @@
+-- The indexes of the finders, built online: the tables stay readable and writable by the running servers.
+-- Idempotent, as Hibernate may already have created them.
+-- On persons, MySQL drops the implicit index of the foreign key once idx__persons__address can replace it.
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'persons' and index_name = 'idx__persons__names') = 0,
+    'alter table persons add index idx__persons__names (last_name, first_name), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'persons' and index_name = 'idx__persons__address') = 0,
+    'alter table persons add index idx__persons__address (address_id), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'addresses' and index_name = 'idx__addresses__firestation') = 0,
+    'alter table addresses add index idx__addresses__firestation (firestation), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'addresses' and index_name = 'idx__addresses__city') = 0,
+    'alter table addresses add index idx__addresses__city (city), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
@@ -0,0 +1,20 @@
+-- Moves the medications and allergies of the medical records into JSON array columns of their row, so that a record is
+-- read and updated as a single row, and drops the collection tables.
+-- The servers of the previous version cannot read the medical records anymore: stop them before deploying.
+-- Idempotent: the records already moved are left as they are.
+
+set @ddl = if((select count(*) from information_schema.columns where table_schema = database()
+        and table_name = 'medicalrecords' and column_name = 'medications') = 0,
+    'alter table medicalrecords add column medications json, add column allergies json', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+update medicalrecords mr set
+    mr.medications = coalesce((select json_arrayagg(m.medication) from medicalrecord_medications m
+        where m.medicalrecord_id = mr.person_id), json_array()),
+    mr.allergies = coalesce((select json_arrayagg(al.allergy) from medicalrecord_allergies al
+        where al.medicalrecord_id = mr.person_id), json_array())
+where mr.medications is null;
+
+drop table if exists medicalrecord_medications, medicalrecord_allergies;
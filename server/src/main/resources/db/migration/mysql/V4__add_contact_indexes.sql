@@ -0,0 +1,16 @@
+-- The indexes of the pages of distinct phones and emails, built online: the table stays readable and writable by the
+-- running servers. Idempotent, as Hibernate may already have created them.
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'persons' and index_name = 'idx__persons__phone') = 0,
+    'alter table persons add index idx__persons__phone (phone, id), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = if((select count(*) from information_schema.statistics where table_schema = database()
+        and table_name = 'persons' and index_name = 'idx__persons__email') = 0,
+    'alter table persons add index idx__persons__email (email, id), algorithm=inplace, lock=none', 'do 0');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
@@ -0,0 +1,40 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.AddressCacheService;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class AddressCacheContributorTest {
+    @Mock
+    private AddressCacheService addressCacheService;
+
+    private AddressCacheContributor contributor;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(addressCacheService.isEnabled()).thenReturn(true);
+        when(addressCacheService.getSize()).thenReturn(1);
+        when(addressCacheService.getMaxEntries()).thenReturn(2);
+        when(addressCacheService.getHits()).thenReturn(3L);
+        when(addressCacheService.getMisses()).thenReturn(4L);
+        contributor = new AddressCacheContributor(addressCacheService);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contribute() {
+        Map addressCache = InfoContributorTestUtil.doContribute(contributor).get("addressCache", Map.class);
+        assertEquals(true, addressCache.get("enabled"));
+        assertEquals(1, addressCache.get("size"));
+        assertEquals(2, addressCache.get("maxSize"));
+        assertEquals(3L, addressCache.get("hits"));
+        assertEquals(4L, addressCache.get("misses"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.AlertsCacheService;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class AlertsCacheContributorTest {
+    @Mock
+    private AlertsCacheService alertsCacheService;
+
+    private AlertsCacheContributor contributor;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(alertsCacheService.isEnabled()).thenReturn(true);
+        when(alertsCacheService.getSize()).thenReturn(1);
+        when(alertsCacheService.getMaxEntries()).thenReturn(2);
+        when(alertsCacheService.getHits()).thenReturn(3L);
+        when(alertsCacheService.getMisses()).thenReturn(4L);
+        when(alertsCacheService.getEvictions()).thenReturn(5L);
+        when(alertsCacheService.getInvalidations()).thenReturn(6L);
+        contributor = new AlertsCacheContributor(alertsCacheService);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contribute() {
+        Map alertsCache = InfoContributorTestUtil.doContribute(contributor).get("alertsCache", Map.class);
+        assertEquals(true, alertsCache.get("enabled"));
+        assertEquals(1, alertsCache.get("size"));
+        assertEquals(2, alertsCache.get("maxSize"));
+        assertEquals(3L, alertsCache.get("hits"));
+        assertEquals(4L, alertsCache.get("misses"));
+        assertEquals(5L, alertsCache.get("evictions"));
+        assertEquals(6L, alertsCache.get("invalidations"));
+    }
+}
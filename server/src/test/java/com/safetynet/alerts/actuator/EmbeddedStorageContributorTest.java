@@ -0,0 +1,49 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.when;
+
+class EmbeddedStorageContributorTest {
+    @Mock
+    private EmbeddedStorage embeddedStorage;
+
+    private EmbeddedStorageContributor contributor;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        contributor = new EmbeddedStorageContributor(embeddedStorage);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contribute() {
+        when(embeddedStorage.isEnabled()).thenReturn(true);
+        when(embeddedStorage.getSequence()).thenReturn(3L);
+        when(embeddedStorage.getSnapshotSequence()).thenReturn(2L);
+        when(embeddedStorage.getRowCounts()).thenReturn(Collections.singletonMap("persons", 1));
+
+        Map storage = InfoContributorTestUtil.doContribute(contributor).get("embeddedStorage", Map.class);
+        assertEquals(true, storage.get("enabled"));
+        assertEquals(3L, storage.get("sequence"));
+        assertEquals(2L, storage.get("snapshotSequence"));
+        assertEquals(Collections.singletonMap("persons", 1), storage.get("rows"));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contributeDisabled() {
+        Map storage = InfoContributorTestUtil.doContribute(contributor).get("embeddedStorage", Map.class);
+        assertEquals(false, storage.get("enabled"));
+        assertFalse(storage.containsKey("sequence"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.properties.SecondLevelCacheProperties;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class SecondLevelCacheContributorTest {
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Statistics statistics;
+
+    @Mock
+    private CacheRegionStatistics regionStatistics;
+
+    @Mock
+    private CacheRegionStatistics timestampsStatistics;
+
+    private final SecondLevelCacheProperties props = new SecondLevelCacheProperties();
+
+    private SecondLevelCacheContributor contributor;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        props.setEnabled(true);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.getSecondLevelCacheHitCount()).thenReturn(1L);
+        when(statistics.getSecondLevelCacheMissCount()).thenReturn(2L);
+        when(statistics.getSecondLevelCachePutCount()).thenReturn(3L);
+        when(statistics.getQueryCacheHitCount()).thenReturn(4L);
+        when(statistics.getQueryCacheMissCount()).thenReturn(5L);
+        when(statistics.getQueryCachePutCount()).thenReturn(6L);
+        when(statistics.getSecondLevelCacheRegionNames())
+                .thenReturn(new String[]{"addresses", "timestamps", "unknown"});
+        when(statistics.getCacheRegionStatistics("addresses")).thenReturn(regionStatistics);
+        when(statistics.getCacheRegionStatistics("timestamps")).thenReturn(timestampsStatistics);
+        when(timestampsStatistics.getElementCountInMemory())
+                .thenReturn(CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN);
+        when(regionStatistics.getElementCountInMemory()).thenReturn(7L);
+        when(regionStatistics.getHitCount()).thenReturn(8L);
+        when(regionStatistics.getMissCount()).thenReturn(9L);
+        when(regionStatistics.getPutCount()).thenReturn(10L);
+        contributor = new SecondLevelCacheContributor(props, entityManagerFactory);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contribute() {
+        Map secondLevelCache = InfoContributorTestUtil.doContribute(contributor).get("secondLevelCache", Map.class);
+        assertEquals(true, secondLevelCache.get("enabled"));
+        assertEquals(10000, secondLevelCache.get("maxEntries"));
+        assertEquals(600, secondLevelCache.get("timeToLive"));
+        assertEquals(1L, secondLevelCache.get("hits"));
+        assertEquals(2L, secondLevelCache.get("misses"));
+        assertEquals(3L, secondLevelCache.get("puts"));
+
+        Map queryCache = (Map) secondLevelCache.get("queryCache");
+        assertEquals(1000, queryCache.get("maxEntries"));
+        assertEquals(4L, queryCache.get("hits"));
+        assertEquals(5L, queryCache.get("misses"));
+        assertEquals(6L, queryCache.get("puts"));
+
+        Map regions = (Map) secondLevelCache.get("regions");
+        assertEquals(2, regions.size());
+        assertEquals(false, ((Map) regions.get("timestamps")).containsKey("size"));
+        Map region = (Map) regions.get("addresses");
+        assertEquals(7L, region.get("size"));
+        assertEquals(8L, region.get("hits"));
+        assertEquals(9L, region.get("misses"));
+        assertEquals(10L, region.get("puts"));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    void contributeDisabled() {
+        props.setEnabled(false);
+
+        Map secondLevelCache = InfoContributorTestUtil.doContribute(contributor).get("secondLevelCache", Map.class);
+        assertEquals(false, secondLevelCache.get("enabled"));
+        assertEquals(1, secondLevelCache.size());
+    }
+}
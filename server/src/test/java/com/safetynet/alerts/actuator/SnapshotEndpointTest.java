@@ -0,0 +1,74 @@
+package com.safetynet.alerts.actuator;
+
+import com.safetynet.alerts.service.DatasetSnapshotService;
+import com.safetynet.alerts.service.DatasetSnapshotService.Counts;
+import com.safetynet.alerts.service.DatasetSnapshotService.DatabaseNotEmptyException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnapshotEndpointTest {
+    @Mock
+    private DatasetSnapshotService datasetSnapshotService;
+
+    @TempDir
+    Path directory;
+
+    private SnapshotEndpoint endpoint;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        endpoint = new SnapshotEndpoint(datasetSnapshotService);
+        file = Files.write(directory.resolve("snapshot.bin"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    void importSnapshot() {
+        Counts counts = new Counts();
+        when(datasetSnapshotService.importSnapshot(any())).thenReturn(counts);
+
+        WebEndpointResponse<Object> response = endpoint.importSnapshot(file.toString());
+
+        assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+        assertSame(counts, response.getBody());
+    }
+
+    @Test
+    void importSnapshotNotFound() {
+        WebEndpointResponse<Object> response = endpoint.importSnapshot(directory.resolve("missing").toString());
+
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, response.getStatus());
+        verify(datasetSnapshotService, never()).importSnapshot(any());
+    }
+
+    @Test
+    void importSnapshotNotEmpty() {
+        when(datasetSnapshotService.importSnapshot(any())).thenThrow(new DatabaseNotEmptyException());
+
+        assertEquals(409, endpoint.importSnapshot(file.toString()).getStatus());
+    }
+
+    @Test
+    void importSnapshotInvalid() {
+        when(datasetSnapshotService.importSnapshot(any()))
+                .thenThrow(new UncheckedIOException(new IOException("Not a dataset snapshot")));
+
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.importSnapshot(file.toString()).getStatus());
+    }
+}
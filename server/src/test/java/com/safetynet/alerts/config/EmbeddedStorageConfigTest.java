@@ -0,0 +1,152 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.properties.EmbeddedStorageProperties;
+import com.safetynet.alerts.properties.MigrationProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.SchemaMigrator;
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "safetynet.embedded-storage.enabled=true")
+@Import({SchemaMigrator.class, MigrationConfig.class, EmbeddedStorage.class, EmbeddedStorageConfig.class})
+@EnableConfigurationProperties({MigrationProperties.class, EmbeddedStorageProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// closed before the deletion of the directory
+@DirtiesContext
+class EmbeddedStorageConfigTest {
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private EmbeddedStorage storage;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void storageProperties(DynamicPropertyRegistry registry) {
+        registry.add("safetynet.embedded-storage.directory", directory::toString);
+    }
+
+    @AfterEach
+    void cleanup() {
+        personRepository.deleteAll();
+        addressRepository.deleteAll();
+    }
+
+    private static PersonEntity createPerson() {
+        AddressEntity address = new AddressEntity();
+        address.setAddress("1509 Culver St");
+        address.setCity("Culver");
+        PersonEntity person = new PersonEntity();
+        person.setFirstName("John");
+        person.setLastName("Boyd");
+        person.setPhone("841-874-6512");
+        person.setEmail("jaboyd@email.com");
+        person.setAddress(address);
+        MedicalRecordEntity medicalRecord = new MedicalRecordEntity();
+        medicalRecord.setPerson(person);
+        medicalRecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        medicalRecord.setMedications(new ArrayList<>(Collections.singletonList("aznol:350mg")));
+        medicalRecord.setAllergies(new ArrayList<>());
+        person.setMedicalRecord(medicalRecord);
+        return person;
+    }
+
+    @Test
+    void writesLogged() {
+        long sequence = storage.getSequence();
+
+        PersonEntity person = personRepository.save(createPerson());
+
+        // a transaction for the person, it's address and medical record
+        assertEquals(sequence + 1, storage.getSequence());
+        assertEquals(1, storage.getRowCounts().get("persons"));
+        assertEquals(1, storage.getRowCounts().get("addresses"));
+        assertEquals(1, storage.getRowCounts().get("medicalrecords"));
+
+        new TransactionTemplate(transactionManager).execute(status
+                -> medicalRecordRepository.removeById(person.getId()));
+
+        assertEquals(sequence + 2, storage.getSequence());
+        assertEquals(0, storage.getRowCounts().get("medicalrecords"));
+        assertEquals(1, storage.getRowCounts().get("persons"));
+    }
+
+    @Test
+    void updateLogged() {
+        PersonEntity person = personRepository.save(createPerson());
+        long sequence = storage.getSequence();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            medicalRecordRepository.findById(person.getId()).get().getAllergies().add("nillacilan");
+            return null;
+        });
+
+        assertEquals(sequence + 1, storage.getSequence());
+    }
+
+    @Test
+    void rollbackNotLogged() {
+        long sequence = storage.getSequence();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            personRepository.save(createPerson());
+            // the flush triggers the listener
+            entityManager.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(sequence, storage.getSequence());
+        assertEquals(0, storage.getRowCounts().get("persons"));
+    }
+
+    @Test
+    void readNotLogged() {
+        personRepository.save(createPerson());
+        long sequence = storage.getSequence();
+
+        personRepository.findAllByFirstNameAndLastName("John", "Boyd").forEach(p -> {
+        });
+
+        assertEquals(sequence, storage.getSequence());
+    }
+}
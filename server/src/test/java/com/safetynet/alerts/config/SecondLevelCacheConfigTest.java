@@ -0,0 +1,91 @@
+package com.safetynet.alerts.config;
+
+import com.safetynet.alerts.properties.MigrationProperties;
+import com.safetynet.alerts.properties.SecondLevelCacheProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.SchemaMigrator;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import java.util.Collections;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "safetynet.second-level-cache.enabled=true")
+@Import({SchemaMigrator.class, MigrationConfig.class, SecondLevelCacheConfig.class})
+@EnableConfigurationProperties({MigrationProperties.class, SecondLevelCacheProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTest {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        AddressEntity address = new AddressEntity();
+        address.setAddress("1509 Culver St");
+        address.setFirestation("3");
+        addressRepository.save(address);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup() {
+        addressRepository.deleteAll();
+    }
+
+    private void findByAddress() {
+        assertEquals("3", addressRepository.findByAddress("1509 Culver St").get().getFirestation());
+    }
+
+    @Test
+    void findByAddressCached() {
+        findByAddress();
+        findByAddress();
+
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        // the address is read from the second-level cache
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 1);
+    }
+
+    @Test
+    void findAllByFirestationInCached() {
+        addressRepository.findAllByFirestationIn(Collections.singletonList("3")).forEach(a -> {
+        });
+        addressRepository.findAllByFirestationIn(Collections.singletonList("3")).forEach(a -> {
+        });
+
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByAddressEvictedOnWrite() {
+        findByAddress();
+        AddressEntity address = new AddressEntity();
+        address.setAddress("29 15th St");
+        addressRepository.save(address);
+        findByAddress();
+
+        assertEquals(2, statistics.getQueryCacheMissCount());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+}
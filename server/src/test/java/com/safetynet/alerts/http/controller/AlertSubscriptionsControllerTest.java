@@ -0,0 +1,114 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.properties.AlertSubscriptionsProperties;
+import com.safetynet.alerts.service.AlertSubscriptionService;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscriber;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.safetynet.alerts.http.controller.AlertSubscriptionsController.errorAlertSubscriptionsDisabled;
+import static com.safetynet.alerts.http.controller.AlertSubscriptionsController.errorTooManySubscribers;
+import static com.safetynet.alerts.util.ApiErrorCode.VALIDATION_FAILED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AlertSubscriptionsController.class)
+class AlertSubscriptionsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AlertSubscriptionService alertSubscriptionService;
+
+    @MockBean
+    private AlertSubscriptionsProperties props;
+
+    private final Subscription subscription = mock(Subscription.class);
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(alertSubscriptionService.isEnabled()).thenReturn(true);
+        when(props.getTimeout()).thenReturn(3600);
+    }
+
+    @Test
+    void subscribeToFirestation() throws Exception {
+        when(alertSubscriptionService.subscribeToFirestation(eq("3"), any())).thenAnswer(invocation -> {
+            invocation.<Subscriber>getArgument(1).send("{\"adultsCount\":1}");
+            return subscription;
+        });
+
+        MvcResult result = mockMvc.perform(get("/firestation/subscribe").queryParam("stationNumber", "3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals("text/event-stream", result.getResponse().getContentType());
+        assertEquals("event:firestation\ndata:{\"adultsCount\":1}\n\n", result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void subscribeToFire() throws Exception {
+        when(alertSubscriptionService.subscribeToFire(eq("1509 Culver St"), any())).thenAnswer(invocation -> {
+            Subscriber subscriber = invocation.getArgument(1);
+            subscriber.send("{\"stationNumber\":\"3\"}");
+            subscriber.heartbeat();
+            return subscription;
+        });
+
+        MvcResult result = mockMvc.perform(get("/fire/subscribe").queryParam("address", "1509 Culver St"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals("event:fire\ndata:{\"stationNumber\":\"3\"}\n\n:\n\n",
+                result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void subscribeWithFailedValidation() throws Exception {
+        mockMvc.perform(get("/firestation/subscribe"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+
+        mockMvc.perform(get("/fire/subscribe").queryParam("address", ""))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+    }
+
+    @Test
+    void subscribeTooMany() throws Exception {
+        when(alertSubscriptionService.subscribeToFire(eq("1509 Culver St"), any()))
+                .thenThrow(new AlertSubscriptionService.TooManySubscribersException());
+
+        mockMvc.perform(get("/fire/subscribe").queryParam("address", "1509 Culver St"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$").value(errorTooManySubscribers()));
+    }
+
+    @Test
+    void subscribeDisabled() throws Exception {
+        when(alertSubscriptionService.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(get("/firestation/subscribe").queryParam("stationNumber", "3"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$").value(errorAlertSubscriptionsDisabled()));
+        verify(alertSubscriptionService, never()).subscribeToFirestation(anyString(), any());
+    }
+}
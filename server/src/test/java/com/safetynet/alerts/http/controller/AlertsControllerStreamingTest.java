@@ -0,0 +1,117 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
+import com.safetynet.alerts.config.JacksonConfig;
+import com.safetynet.alerts.properties.AlertsStreamingProperties;
+import com.safetynet.alerts.service.AlertsCacheService;
+import com.safetynet.alerts.service.AlertsService;
+import com.safetynet.alerts.service.DataVersionService;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.safetynet.alerts.http.controller.AlertsServiceMock.knownCity;
+import static com.safetynet.alerts.http.controller.AlertsServiceMock.knownStationNumber;
+import static com.safetynet.alerts.http.controller.AlertsServiceMock.knownStationNumberList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = AlertsController.class, properties = "safetynet.alerts-streaming.enabled=true")
+@EnableConfigurationProperties(AlertsStreamingProperties.class)
+@Import(JacksonConfig.class)
+class AlertsControllerStreamingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AlertsService alertsService;
+
+    @MockBean
+    private AlertsCacheService alertsCacheService;
+
+    @MockBean
+    private DataVersionService dataVersionService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getPersonsCoveredByFirestation() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(2, Consumer.class).accept(FirestationCountsResponse.Entry.builder()
+                    .stationNumber(knownStationNumber()).childrenCount(1).adultsCount(2).build());
+            invocation.getArgument(3, Consumer.class).accept(Person.builder().id(1L).build());
+            invocation.getArgument(3, Consumer.class).accept(Person.builder().id(2L)
+                    .birthdate(LocalDate.of(2001, 10, 25)).build());
+            return null;
+        }).when(alertsService).streamPersonsCoveredByFirestation(eq(knownStationNumber()), any(), any(), any());
+
+        mockMvc.perform(get("/firestation").queryParam("stationNumber", knownStationNumber()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("{\"childrenCount\":1,\"adultsCount\":2,"
+                        + "\"persons\":[{\"id\":1},{\"id\":2,\"birthdate\":\"10/25/2001\"}]}"));
+        verifyNoInteractions(alertsCacheService);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getFloodStations() throws Exception {
+        doAnswer(invocation -> {
+            BiConsumer<String, Person> consumer = invocation.getArgument(2, BiConsumer.class);
+            consumer.accept("A1", Person.builder().id(1L).medications(Collections.singletonList("m")).build());
+            consumer.accept("A1", Person.builder().id(2L).build());
+            consumer.accept("A2", Person.builder().id(3L).build());
+            return null;
+        }).when(alertsService).streamFloodStations(eq(Arrays.asList(knownStationNumberList().split(","))),
+                any(), any());
+
+        mockMvc.perform(get("/flood/stations").queryParam("stations", knownStationNumberList()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"stations\":["
+                        + "{\"address\":\"A1\",\"persons\":[{\"id\":1,\"medications\":[\"m\"]},{\"id\":2}]},"
+                        + "{\"address\":\"A2\",\"persons\":[{\"id\":3}]}]}"));
+
+        // no person
+        mockMvc.perform(get("/flood/stations").queryParam("stations", "B5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"stations\":[]}"));
+        verifyNoInteractions(alertsCacheService);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getCommunityEmail() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept("a@b.c");
+            invocation.getArgument(1, Consumer.class).accept("d@e.f");
+            return null;
+        }).when(alertsService).streamCommunityEmail(eq(knownCity()), any());
+
+        mockMvc.perform(get("/communityEmail").queryParam("city", knownCity()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"emails\":[\"a@b.c\",\"d@e.f\"]}"));
+        verifyNoInteractions(alertsCacheService);
+    }
+}
@@ -1,17 +1,23 @@
 package com.safetynet.alerts.http.controller;
 
+import com.safetynet.alerts.api.response.PhoneAlertResponse;
+import com.safetynet.alerts.service.AlertsCacheService;
 import com.safetynet.alerts.service.AlertsService;
+import com.safetynet.alerts.service.CursorPage;
+import com.safetynet.alerts.service.DataVersionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyChildAlertResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyCommunityEmailResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyFireResponseJson;
+import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyFirestationCountsResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyFloodStationsResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyPersonInfoResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyPersonsCoveredByFirestationResponseJson;
@@ -19,6 +25,7 @@ import static com.safetynet.alerts.http.controller.AlertsServiceMock.emptyPhoneA
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledChildAlertResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledCommunityEmailResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledFireResponseJson;
+import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledFirestationCountsResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledFloodStationsResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledPersonInfoResponseJson;
 import static com.safetynet.alerts.http.controller.AlertsServiceMock.filledPersonsCoveredByFirestationResponseJson;
@@ -40,8 +47,14 @@ import static com.safetynet.alerts.http.controller.PersonServiceMock.knownPerson
 import static com.safetynet.alerts.http.controller.PersonServiceMock.unknownPerson;
 import static com.safetynet.alerts.http.controller.PersonServiceMock.unknownPersonJson;
 import static com.safetynet.alerts.util.ApiErrorCode.VALIDATION_FAILED;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -53,10 +66,48 @@ class AlertsControllerTest {
     @MockBean
     private AlertsService alertsService;
 
+    @MockBean
+    private AlertsCacheService alertsCacheService;
+
+    @MockBean
+    private DataVersionService dataVersionService;
+
     @BeforeEach
     void setup() throws Exception {
         MockitoAnnotations.initMocks(this);
-        AlertsServiceMock.init(alertsService);
+        AlertsServiceMock.init(alertsCacheService);
+    }
+
+    @Test
+    void notModified() throws Exception {
+        when(dataVersionService.isETagsEnabled()).thenReturn(true);
+        when(dataVersionService.getETag(any())).thenReturn("\"1-2\"");
+
+        // matching tag
+        mockMvc.perform(get("/firestation").queryParam("stationNumber", knownStationNumber())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-2\""))
+                .andExpect(content().string(""));
+        verify(alertsCacheService, never()).getPersonsCoveredByFirestation(any(), any());
+
+        // outdated tag
+        mockMvc.perform(get("/firestation").queryParam("stationNumber", knownStationNumber())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-2\""))
+                .andExpect(content().json(filledPersonsCoveredByFirestationResponseJson()));
+    }
+
+    @Test
+    void notModifiedDisabled() throws Exception {
+        when(dataVersionService.getETag(any())).thenReturn("\"1-2\"");
+
+        mockMvc.perform(get("/firestation").queryParam("stationNumber", knownStationNumber())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(content().json(filledPersonsCoveredByFirestationResponseJson()));
     }
 
     @Test
@@ -77,6 +128,24 @@ class AlertsControllerTest {
                 .andExpect(content().json(filledPersonsCoveredByFirestationResponseJson()));
     }
 
+    @Test
+    void getFirestationCounts() throws Exception {
+        // invalid number
+        mockMvc.perform(get("/firestationCounts").queryParam("stations", invalidStationNumber()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+
+        // unknown number
+        mockMvc.perform(get("/firestationCounts").queryParam("stations", unknownStationNumber()))
+                .andExpect(status().isOk())
+                .andExpect(content().json(emptyFirestationCountsResponseJson()));
+
+        // known number
+        mockMvc.perform(get("/firestationCounts").queryParam("stations", knownStationNumberList()))
+                .andExpect(status().isOk())
+                .andExpect(content().json(filledFirestationCountsResponseJson()));
+    }
+
     @Test
     void getChildAlert() throws Exception {
         // invalid address
@@ -113,6 +182,33 @@ class AlertsControllerTest {
                 .andExpect(content().json(filledPhoneAlertResponseJson()));
     }
 
+    @Test
+    void getPhoneAlertPaged() throws Exception {
+        when(alertsCacheService.getPhoneAlert(knownStationNumber(), CursorPage.of("MQ", 1)))
+                .thenReturn(PhoneAlertResponse.builder().phone("841-874-6512").nextCursor("Mg").build());
+
+        mockMvc.perform(get("/phoneAlert").queryParam("firestation", knownStationNumber())
+                .queryParam("limit", "1").queryParam("cursor", "MQ"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phones[0]").value("841-874-6512"))
+                .andExpect(jsonPath("$.nextCursor").value("Mg"));
+
+        // invalid limit
+        mockMvc.perform(get("/phoneAlert").queryParam("firestation", knownStationNumber())
+                .queryParam("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+
+        // invalid cursor
+        when(alertsCacheService.getPhoneAlert(eq(knownStationNumber()), eq(CursorPage.of("x", null))))
+                .thenThrow(new CursorPage.InvalidCursorException());
+        mockMvc.perform(get("/phoneAlert").queryParam("firestation", knownStationNumber())
+                .queryParam("cursor", "x"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED))
+                .andExpect(jsonPath("$.metadata.parameter").value("cursor"));
+    }
+
     @Test
     void getFire() throws Exception {
         // invalid address
@@ -4,83 +4,94 @@ import com.safetynet.alerts.api.model.Person;
 import com.safetynet.alerts.api.response.ChildAlertResponse;
 import com.safetynet.alerts.api.response.CommunityEmailResponse;
 import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
 import com.safetynet.alerts.api.response.FloodStationsResponse;
 import com.safetynet.alerts.api.response.PersonInfoResponse;
 import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
 import com.safetynet.alerts.api.response.PhoneAlertResponse;
-import com.safetynet.alerts.service.AlertsService;
+import com.safetynet.alerts.service.AlertsCacheService;
 import java.util.Arrays;
 import lombok.experimental.UtilityClass;
 import org.apache.commons.lang3.StringUtils;
 
 import static com.safetynet.alerts.http.controller.PersonServiceMock.knownPerson;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @UtilityClass
 public class AlertsServiceMock {
-    public static void init(AlertsService alertsService) {
+    public static void init(AlertsCacheService alertsCacheService) {
         // getPersonsCoveredByFirestation
         // - unknown (empty)
-        when(alertsService.getPersonsCoveredByFirestation(any()))
+        when(alertsCacheService.getPersonsCoveredByFirestation(any(), any()))
                 .thenReturn(emptyPersonsCoveredByFirestationResponse());
 
         // - known (filled)
-        when(alertsService.getPersonsCoveredByFirestation(knownStationNumber()))
+        when(alertsCacheService.getPersonsCoveredByFirestation(eq(knownStationNumber()), any()))
                 .thenReturn(filledPersonsCoveredByFirestationResponse());
 
+        // getFirestationCounts
+        // - unknown (empty)
+        when(alertsCacheService.getFirestationCounts(any()))
+                .thenReturn(emptyFirestationCountsResponse());
+
+        // - known (filled)
+        when(alertsCacheService.getFirestationCounts(Arrays.asList(knownStationNumberList().split(","))))
+                .thenReturn(filledFirestationCountsResponse());
+
         // getChildAlert
         // - unknown (empty)
-        when(alertsService.getChildAlert(any()))
+        when(alertsCacheService.getChildAlert(any()))
                 .thenReturn(emptyChildAlertResponse());
 
         // - known (filled)
-        when(alertsService.getChildAlert(knownAddress()))
+        when(alertsCacheService.getChildAlert(knownAddress()))
                 .thenReturn(filledChildAlertResponse());
 
         // getPhoneAlert
         // - unknown (empty)
-        when(alertsService.getPhoneAlert(any()))
+        when(alertsCacheService.getPhoneAlert(any(), any()))
                 .thenReturn(emptyPhoneAlertResponse());
 
         // - known (filled)
-        when(alertsService.getPhoneAlert(knownStationNumber()))
+        when(alertsCacheService.getPhoneAlert(eq(knownStationNumber()), any()))
                 .thenReturn(filledPhoneAlertResponse());
 
         // getFire
         // - unknown (empty)
-        when(alertsService.getFire(any()))
+        when(alertsCacheService.getFire(any()))
                 .thenReturn(emptyFireResponse());
 
         // - known (filled)
-        when(alertsService.getFire(knownAddress()))
+        when(alertsCacheService.getFire(knownAddress()))
                 .thenReturn(filledFireResponse());
 
         // getFloodStations
         // - unknown (empty)
-        when(alertsService.getFloodStations(any()))
+        when(alertsCacheService.getFloodStations(any(), any()))
                 .thenReturn(emptyFloodStationsResponse());
 
         // - known (filled)
-        when(alertsService.getFloodStations(Arrays.asList(knownStationNumberList().split(","))))
+        when(alertsCacheService.getFloodStations(eq(Arrays.asList(knownStationNumberList().split(","))), any()))
                 .thenReturn(filledFloodStationsResponse());
 
         // getPersonInfo
         // - unknown (empty)
-        when(alertsService.getPersonInfo(any(), any()))
+        when(alertsCacheService.getPersonInfo(any(), any()))
                 .thenReturn(emptyPersonInfoResponse());
 
         // - known (filled)
-        when(alertsService.getPersonInfo(knownPerson().getFirstName(), knownPerson().getLastName()))
+        when(alertsCacheService.getPersonInfo(knownPerson().getFirstName(), knownPerson().getLastName()))
                 .thenReturn(filledPersonInfoResponse());
 
         // getCommunityEmail
         // - unknown (empty)
-        when(alertsService.getCommunityEmail(any()))
+        when(alertsCacheService.getCommunityEmail(any(), any()))
                 .thenReturn(emptyCommunityEmailResponse());
 
         // - known (filled)
-        when(alertsService.getCommunityEmail(knownCity()))
+        when(alertsCacheService.getCommunityEmail(eq(knownCity()), any()))
                 .thenReturn(filledCommunityEmailResponse());
     }
 
@@ -148,6 +159,28 @@ public class AlertsServiceMock {
         return "{\"childrenCount\":0,\"adultsCount\":0,\"persons\":[]}";
     }
 
+    public static FirestationCountsResponse filledFirestationCountsResponse() {
+        return FirestationCountsResponse.builder()
+                .station(FirestationCountsResponse.Entry.builder()
+                        .stationNumber("A1").childrenCount(1).adultsCount(2).build())
+                .station(FirestationCountsResponse.Entry.builder()
+                        .stationNumber("A2").childrenCount(0).adultsCount(3).build())
+                .build();
+    }
+
+    public static String filledFirestationCountsResponseJson() {
+        return "{\"stations\":[{\"stationNumber\":\"A1\",\"childrenCount\":1,\"adultsCount\":2},"
+                + "{\"stationNumber\":\"A2\",\"childrenCount\":0,\"adultsCount\":3}]}";
+    }
+
+    public static FirestationCountsResponse emptyFirestationCountsResponse() {
+        return FirestationCountsResponse.builder().build();
+    }
+
+    public static String emptyFirestationCountsResponseJson() {
+        return "{\"stations\":[]}";
+    }
+
     public static ChildAlertResponse filledChildAlertResponse() {
         return ChildAlertResponse.builder()
                 .children(Person.builder().id(1L).build())
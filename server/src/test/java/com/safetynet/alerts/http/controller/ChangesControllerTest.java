@@ -0,0 +1,102 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.response.ChangesResponse;
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import com.safetynet.alerts.api.response.ChangesResponse.Entity;
+import com.safetynet.alerts.service.ChangeFeedService;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.safetynet.alerts.http.controller.ChangesController.errorChangeFeedDisabled;
+import static com.safetynet.alerts.util.ApiErrorCode.VALIDATION_FAILED;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ChangesController.class)
+class ChangesControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChangeFeedService changeFeedService;
+
+    private final ChangesResponse empty = ChangesResponse.builder().feedId("feed").nextOffset(3).build();
+    private final ChangesResponse changes = ChangesResponse.builder().feedId("feed").nextOffset(4)
+            .change(Change.builder().offset(4).entity(Entity.PERSON).type(ChangesResponse.Type.DELETED).build())
+            .build();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(changeFeedService.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void getChanges() throws Exception {
+        when(changeFeedService.read("feed", 3, 100)).thenReturn(changes);
+
+        MvcResult result = mockMvc.perform(get("/changes").queryParam("after", "3").queryParam("feedId", "feed"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feedId").value("feed"))
+                .andExpect(jsonPath("$.nextOffset").value(4))
+                .andExpect(jsonPath("$.truncated").value(false))
+                .andExpect(jsonPath("$.changes[0].entity").value("PERSON"))
+                .andExpect(jsonPath("$.changes[0].type").value("DELETED"));
+        verify(changeFeedService, never()).awaitChanges(anyLong());
+    }
+
+    @Test
+    void getChangesLongPoll() throws Exception {
+        when(changeFeedService.read("feed", 3, 100)).thenReturn(empty);
+        CompletableFuture<Void> changed = new CompletableFuture<>();
+        when(changeFeedService.awaitChanges(3)).thenReturn(changed);
+
+        MvcResult result = mockMvc.perform(get("/changes").queryParam("after", "3").queryParam("feedId", "feed")
+                .queryParam("wait", "30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        when(changeFeedService.read("feed", 3, 100)).thenReturn(changes);
+        changed.complete(null);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].offset").value(4));
+    }
+
+    @Test
+    void getChangesWithFailedValidation() throws Exception {
+        mockMvc.perform(get("/changes").queryParam("wait", "61"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+
+        mockMvc.perform(get("/changes").queryParam("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+    }
+
+    @Test
+    void getChangesDisabled() throws Exception {
+        when(changeFeedService.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(get("/changes"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$").value(errorChangeFeedDisabled()));
+    }
+}
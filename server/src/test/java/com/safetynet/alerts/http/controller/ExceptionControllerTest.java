@@ -1,6 +1,8 @@
 package com.safetynet.alerts.http.controller;
 
+import com.safetynet.alerts.service.AlertsCacheService;
 import com.safetynet.alerts.service.AlertsService;
+import com.safetynet.alerts.service.DataVersionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
@@ -28,6 +30,12 @@ class ExceptionControllerTest {
     @MockBean
     private AlertsService alertsService;
 
+    @MockBean
+    private AlertsCacheService alertsCacheService;
+
+    @MockBean
+    private DataVersionService dataVersionService;
+
     @BeforeEach
     void setup() throws Exception {
         MockitoAnnotations.initMocks(this);
@@ -35,7 +43,7 @@ class ExceptionControllerTest {
 
     @Test
     void unhandledException() throws Exception {
-        when(alertsService.getFire(any()))
+        when(alertsCacheService.getFire(any()))
                 .thenThrow(new RuntimeException("test unhandled exception"));
 
         mockMvc.perform(get("/fire").queryParam("address", knownAddress()))
@@ -55,7 +63,7 @@ class ExceptionControllerTest {
 
     @Test
     void bodyNotReadable() throws Exception {
-        when(alertsService.getFire(any()))
+        when(alertsCacheService.getFire(any()))
                 .thenThrow(new HttpMessageNotReadableException("test", (HttpInputMessage) null));
 
         mockMvc.perform(get("/fire").queryParam("address", knownAddress()))
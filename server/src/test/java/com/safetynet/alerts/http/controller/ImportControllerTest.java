@@ -0,0 +1,108 @@
+package com.safetynet.alerts.http.controller;
+
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.service.ImportService;
+import com.safetynet.alerts.service.PersonService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.safetynet.alerts.http.controller.PersonController.errorPersonExists;
+import static com.safetynet.alerts.util.ApiErrorCode.VALIDATION_FAILED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ImportController.class)
+class ImportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ImportService importService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private static String personJson(String firstName, String phone) {
+        return "{\"firstName\":\"" + firstName + "\""
+                + ",\"lastName\":\"Person\""
+                + ",\"address\":\"9-3\""
+                + ",\"city\":\"Paris\""
+                + ",\"zip\":\"93000\""
+                + (phone == null ? "" : ",\"phone\":\"" + phone + "\"")
+                + ",\"email\":\"mail@domain.tld\""
+                + "}";
+    }
+
+    @Test
+    void importPersonsWithFailedValidation() throws Exception {
+        // missing body
+        mockMvc.perform(post("/import/persons"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(VALIDATION_FAILED));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importPersons() throws Exception {
+        Person created = Person.builder().id(7L).build();
+        when(importService.importPersons(any(), anyBoolean())).thenReturn(Arrays.asList(
+                ImportService.ItemResult.success(true, created),
+                ImportService.ItemResult.failure(new PersonService.PersonExistsException())));
+
+        mockMvc.perform(post("/import/persons").contentType(APPLICATION_JSON).content("["
+                + personJson("Known", "123-456-7890") + ","
+                + personJson("Invalid", null) + ","
+                + personJson("Many", "123-456-7890") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons.length()").value(3))
+                .andExpect(jsonPath("$.persons[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.persons[0].id").value(7L))
+                .andExpect(jsonPath("$.persons[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.persons[1].error.code").value(VALIDATION_FAILED))
+                .andExpect(jsonPath("$.persons[1].error.metadata.parameter").value("persons[1].phone"))
+                .andExpect(jsonPath("$.persons[2].status").value("FAILED"))
+                .andExpect(jsonPath("$.persons[2].error").value(errorPersonExists()));
+
+        // only the valid persons are imported
+        ArgumentCaptor<List<Person>> captor = ArgumentCaptor.forClass(List.class);
+        verify(importService).importPersons(captor.capture(), eq(false));
+        assertEquals(2, captor.getValue().size());
+        assertEquals("Many", captor.getValue().get(1).getFirstName());
+    }
+
+    @Test
+    void importModels() throws Exception {
+        Firestation firestation = Firestation.builder().address("9-3").station("3").build();
+        when(importService.importModels(any(), eq(true))).thenReturn(new ImportService.Report(
+                Collections.emptyList(),
+                Collections.singletonList(ImportService.ItemResult.success(false, firestation)),
+                Collections.emptyList()));
+
+        mockMvc.perform(post("/import").queryParam("allowSimilarNames", "true").contentType(APPLICATION_JSON)
+                .content("{\"firestations\":[{\"address\":\"9-3\",\"station\":\"3\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.persons.length()").value(0))
+                .andExpect(jsonPath("$.firestations[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$.medicalRecords.length()").value(0));
+    }
+}
@@ -0,0 +1,78 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.repository.entity.IdGenerators;
+import java.util.Collections;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdGeneratorsInitializerTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    private IdGeneratorsInitializer initializer;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        initializer = new IdGeneratorsInitializer(jdbcTemplate, entityManagerFactory);
+    }
+
+    @Test
+    void initializeEmptyTable() {
+        when(jdbcTemplate.queryForObject("select max(id) from persons", Long.class)).thenReturn(null);
+
+        initializer.initialize(IdGenerators.PERSONS, "persons");
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void initializeMissingGenerator() {
+        when(jdbcTemplate.queryForObject("select max(id) from persons", Long.class)).thenReturn(23L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(IdGenerators.PERSONS)))
+                .thenReturn(Collections.emptyList());
+
+        initializer.initialize(IdGenerators.PERSONS, "persons");
+
+        verify(jdbcTemplate).update(startsWith("insert into " + IdGenerators.TABLE), eq(IdGenerators.PERSONS),
+                eq(23L + IdGenerators.ALLOCATION_SIZE));
+    }
+
+    @Test
+    void initializeBehindGenerator() {
+        when(jdbcTemplate.queryForObject("select max(id) from persons", Long.class)).thenReturn(5000L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(IdGenerators.PERSONS)))
+                .thenReturn(Collections.singletonList(100L));
+
+        initializer.initialize(IdGenerators.PERSONS, "persons");
+
+        verify(jdbcTemplate).update(startsWith("update " + IdGenerators.TABLE),
+                eq(5000L + IdGenerators.ALLOCATION_SIZE), eq(IdGenerators.PERSONS));
+    }
+
+    @Test
+    void initializeUpToDateGenerator() {
+        when(jdbcTemplate.queryForObject("select max(id) from persons", Long.class)).thenReturn(23L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(IdGenerators.PERSONS)))
+                .thenReturn(Collections.singletonList(100L));
+
+        initializer.initialize(IdGenerators.PERSONS, "persons");
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+}
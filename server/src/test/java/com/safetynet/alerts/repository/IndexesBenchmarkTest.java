@@ -0,0 +1,201 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.config.MigrationConfig;
+import com.safetynet.alerts.properties.MigrationProperties;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the hot finders use the indexes declared on the entities, on a synthetic dataset (H2).
+ * <p>
+ * The schema is the migrated one (checked against the entities by Hibernate). The plans are those of the SQL
+ * generated by Hibernate for each finder. Run it as a benchmark on a million persons with
+ * {@code -Dbenchmark.persons=1000000}: the plan and the time of each finder are logged with the indexes, then without
+ * them.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.safetynet.alerts.repository.IndexesBenchmarkTest$FirstStatementInspector",
+})
+@Import({SchemaMigrator.class, MigrationConfig.class})
+@EnableConfigurationProperties(MigrationProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+class IndexesBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(IndexesBenchmarkTest.class);
+
+    private static final int PERSONS = Integer.getInteger("benchmark.persons", 10000);
+    private static final int PERSONS_BY_ADDRESS = 10;
+    private static final int CITIES = 1000;
+    private static final int FIRESTATIONS = 500;
+    // shared by several persons, as families share them
+    private static final int PHONES = PERSONS / 3;
+    private static final int EMAILS = PERSONS / 2;
+    private static final int RUNS = 5;
+    // the last names combination, so that a scan has to read (almost) all the persons
+    private static final String FIRST_NAME = "F99";
+    private static final String LAST_NAME = "L" + (PERSONS / 100 - 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    private final List<Finder> finders = Arrays.asList(
+            new Finder("findAllByFirstNameAndLastName",
+                    () -> personRepository.findAllByFirstNameAndLastName(FIRST_NAME, LAST_NAME).forEach(p -> {
+                    }),
+                    new Object[]{FIRST_NAME, LAST_NAME}, "idx__persons__names"),
+            new Finder("existsByFirstNameAndLastName",
+                    () -> personRepository.existsByFirstNameAndLastName(FIRST_NAME, LAST_NAME),
+                    new Object[]{FIRST_NAME, LAST_NAME}, "idx__persons__names"),
+            new Finder("findAllByAddressCity",
+                    () -> personRepository.findAllByAddressCity("City 42").forEach(p -> {
+                    }),
+                    new Object[]{"City 42"}, "idx__addresses__city", "idx__persons__address"),
+            new Finder("findAllByFirestationIn",
+                    () -> addressRepository.findAllByFirestationIn(Arrays.asList("3", "42")).forEach(a -> {
+                    }),
+                    new Object[]{"3", "42"}, "idx__addresses__firestation"),
+            // a page reads the persons following the cursor, and looks for an earlier one with each value (by the
+            // index of the value: without it, each person scans the earlier ones)
+            new Finder("findDistinctPhonesByAddressFirestationAfter",
+                    () -> personRepository.findDistinctPhonesByAddressFirestationAfter("3", PERSONS / 2,
+                            PageRequest.of(0, 10)),
+                    new Object[]{"3", PERSONS / 2, "3"}, "idx__persons__phone").withoutFallback(),
+            new Finder("findDistinctEmailsByAddressCityAfter",
+                    () -> personRepository.findDistinctEmailsByAddressCityAfter("City 42", PERSONS / 2,
+                            PageRequest.of(0, 10)),
+                    new Object[]{"City 42", PERSONS / 2, "City 42"}, "idx__persons__email").withoutFallback());
+
+    private void insertDataset() {
+        int addresses = PERSONS / PERSONS_BY_ADDRESS;
+        jdbcTemplate.update("insert into addresses (id, address, city, zip, firestation)"
+                + " select x, concat(x, ' Synthetic St'), concat('City ', mod(x, " + CITIES + ")), '97451',"
+                + " cast(mod(x, " + FIRESTATIONS + ") as varchar) from system_range(1, " + addresses + ")");
+        // 100 first names by last name, so that each names combination is unique
+        jdbcTemplate.update("insert into persons (id, first_name, last_name, address_id, phone, email)"
+                + " select x, concat('F', mod(x, 100)), concat('L', x / 100), mod(x, " + addresses + ") + 1,"
+                + " concat('841-874-', mod(x, " + PHONES + ")), concat('s', mod(x, " + EMAILS + "), '@email.com')"
+                + " from system_range(1, " + PERSONS + ")");
+    }
+
+    private void dropIndexes() {
+        // the foreign key relies on the address index
+        jdbcTemplate.execute("alter table persons drop constraint fk__persons__addresses");
+        jdbcTemplate.execute("drop index idx__persons__names");
+        jdbcTemplate.execute("drop index idx__persons__address");
+        jdbcTemplate.execute("drop index idx__persons__phone");
+        jdbcTemplate.execute("drop index idx__persons__email");
+        jdbcTemplate.execute("drop index idx__addresses__firestation");
+        jdbcTemplate.execute("drop index idx__addresses__city");
+    }
+
+    private String explain(Finder finder) {
+        FirstStatementInspector.first.remove();
+        finder.query.run();
+        String sql = FirstStatementInspector.first.get();
+        // the remaining parameters are row limits
+        Object[] args = Arrays.copyOf(finder.args, sql.length() - sql.replace("?", "").length());
+        Arrays.fill(args, finder.args.length, args.length, 1);
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, args).replaceAll("\\s+", " ");
+    }
+
+    private double time(Finder finder) {
+        finder.query.run(); // warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; ++i) {
+            finder.query.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / RUNS;
+    }
+
+    @Test
+    void findersUseIndexes() {
+        insertDataset();
+
+        List<String> results = new ArrayList<>();
+        for (Finder finder : finders) {
+            String plan = explain(finder);
+            results.add(String.format(Locale.ROOT, "%s: %.2f ms with indexes, plan: %s",
+                    finder.name, time(finder), plan));
+            for (String index : finder.indexes) {
+                assertTrue(plan.toLowerCase(Locale.ROOT).contains(index), finder.name + " should use " + index);
+            }
+        }
+
+        dropIndexes();
+        for (Finder finder : finders) {
+            if (!finder.fallback) {
+                continue;
+            }
+            String plan = explain(finder);
+            results.add(String.format(Locale.ROOT, "%s: %.2f ms without indexes, plan: %s",
+                    finder.name, time(finder), plan));
+            assertTrue(plan.contains(".tableScan"), finder.name + " should scan without indexes");
+        }
+
+        logger.info("Finders on {} persons:\n{}", PERSONS, String.join("\n", results));
+    }
+
+    /**
+     * Records the first SQL statement prepared by Hibernate (on this thread), that is the one of the finder (the
+     * medical records of the persons are loaded after it).
+     */
+    public static class FirstStatementInspector implements StatementInspector {
+        private static final ThreadLocal<String> first = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (first.get() == null) {
+                first.set(sql);
+            }
+            return sql;
+        }
+    }
+
+    private static class Finder {
+        private final String name;
+        private final Runnable query;
+        private final Object[] args;
+        private final String[] indexes;
+        /**
+         * Whether or not the finder is still run without the indexes (in a time comparable to the others).
+         */
+        private boolean fallback = true;
+
+        private Finder(String name, Runnable query, Object[] args, String... indexes) {
+            this.name = name;
+            this.query = query;
+            this.args = args;
+            this.indexes = indexes;
+        }
+
+        private Finder withoutFallback() {
+            this.fallback = false;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.config.MigrationConfig;
+import com.safetynet.alerts.properties.MigrationProperties;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import({SchemaMigrator.class, MigrationConfig.class})
+@EnableConfigurationProperties(MigrationProperties.class)
+class PersonRepositoryTest {
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("insert into addresses (id, address, city, zip, firestation) values"
+                + " (1, '1509 Culver St', 'Culver', '97451', '1'), (2, '29 15th St', 'Culver', '97451', '2')");
+        jdbcTemplate.update("insert into persons (id, first_name, last_name, address_id, phone, email) values"
+                + " (1, 'F1', 'L', 1, 'p1', 'e1'),"
+                + " (2, 'F2', 'L', 2, 'p2', 'e2'),"
+                + " (3, 'F3', 'L', 1, 'p2', 'e1'),"
+                + " (4, 'F4', 'L', 1, 'p1', 'e3'),"
+                + " (5, 'F5', 'L', 1, 'p3', 'e2'),"
+                + " (6, 'F6', 'L', 2, 'p4', 'e4'),"
+                + " (7, 'F7', 'L', 1, 'p2', 'e5')");
+    }
+
+    private static List<String> toStrings(List<PersonRepository.PersonValue> values) {
+        return values.stream().map(value -> value.getPersonId() + ":" + value.getValue()).collect(Collectors.toList());
+    }
+
+    @Test
+    void findDistinctPhonesByAddressFirestationAfter() {
+        assertEquals(Arrays.asList("1:p1", "3:p2"), toStrings(
+                personRepository.findDistinctPhonesByAddressFirestationAfter("1", 0, PageRequest.of(0, 2))));
+        // the phones of the persons 4 and 7 were returned with the persons 1 and 3
+        assertEquals(Arrays.asList("5:p3"), toStrings(
+                personRepository.findDistinctPhonesByAddressFirestationAfter("1", 3, PageRequest.of(0, 2))));
+        assertEquals(Arrays.asList(), toStrings(
+                personRepository.findDistinctPhonesByAddressFirestationAfter("1", 5, PageRequest.of(0, 2))));
+    }
+
+    @Test
+    void findDistinctEmailsByAddressCityAfter() {
+        assertEquals(Arrays.asList("1:e1", "2:e2"), toStrings(
+                personRepository.findDistinctEmailsByAddressCityAfter("Culver", 0, PageRequest.of(0, 2))));
+        assertEquals(Arrays.asList("4:e3", "6:e4"), toStrings(
+                personRepository.findDistinctEmailsByAddressCityAfter("Culver", 2, PageRequest.of(0, 2))));
+        assertEquals(Arrays.asList("7:e5"), toStrings(
+                personRepository.findDistinctEmailsByAddressCityAfter("Culver", 6, PageRequest.of(0, 2))));
+    }
+
+    @Test
+    void findAllRefs() {
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L), personRepository.findAllRefs().stream()
+                .map(PersonRepository.PersonRef::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void findAllRowsByNamesIn() {
+        jdbcTemplate.update("insert into persons (id, first_name, last_name, address_id, phone, email) values"
+                + " (8, 'F1', 'M', 1, 'p5', 'e6'), (9, 'F3', 'L', 2, 'p6', 'e7')");
+
+        // not the cross product of the names: (F1, L) and (F3, M) don't match
+        assertEquals(Arrays.asList(1L, 3L, 9L), personRepository.findAllRowsByNamesIn(Arrays.asList(
+                new Person.Key("F1", "L"), new Person.Key("F3", "L"), new Person.Key("F3", "L"))).stream()
+                .map(PersonRepository.PersonRow::getId).collect(Collectors.toList()));
+        List<PersonRepository.PersonRow> rows = personRepository.findAllRowsByNamesIn(Arrays.asList(
+                new Person.Key("F1", "M"), new Person.Key("F2", "M")));
+        assertEquals(1, rows.size());
+        assertEquals("F1", rows.get(0).getFirstName());
+        assertEquals("M", rows.get(0).getLastName());
+        assertEquals("1509 Culver St", rows.get(0).getAddress());
+        assertEquals("p5", rows.get(0).getPhone());
+        assertEquals(Arrays.asList(), personRepository.findAllRowsByNamesIn(Arrays.asList()));
+    }
+}
@@ -0,0 +1,276 @@
+package com.safetynet.alerts.repository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplicaRoutingDataSourceTest {
+    private final AtomicReference<String> session = new AtomicReference<>("client");
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+
+    @BeforeEach
+    void setup() {
+        primary = createDatabase("primary");
+        replica1 = createDatabase("replica1");
+        replica2 = createDatabase("replica2");
+    }
+
+    /**
+     * Returns an embedded database knowing it's name.
+     */
+    private static DataSource createDatabase(String name) {
+        JdbcDataSource res = new JdbcDataSource();
+        res.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(res);
+        jdbcTemplate.execute("create table node (name varchar(255))");
+        jdbcTemplate.update("insert into node (name) values (?)", name);
+        return res;
+    }
+
+    private ReplicaRoutingDataSource createRoutingDataSource(ReplicaRoutingDataSource.Selection selection,
+            long stickyWindow) {
+        return new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), selection, stickyWindow,
+                session::get);
+    }
+
+    /**
+     * Returns the database answering a transaction.
+     */
+    private static String queryNode(DataSource dataSource, boolean readOnly) {
+        DataSource lazyDataSource = new LazyConnectionDataSourceProxy(dataSource);
+        TransactionTemplate transactionTemplate
+                = new TransactionTemplate(new DataSourceTransactionManager(lazyDataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status
+                -> new JdbcTemplate(lazyDataSource).queryForObject("select name from node", String.class));
+    }
+
+    private static String getNode(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select name from node")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    void getConnectionRoundRobin() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                0);
+
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            nodes.add(queryNode(dataSource, true));
+        }
+        assertEquals(Arrays.asList("replica1", "replica2", "replica1", "replica2"), nodes);
+        assertEquals(Arrays.asList(0, 0), dataSource.getActiveConnections());
+    }
+
+    @Test
+    void getConnectionLeastBusy() throws Exception {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.LEAST_BUSY,
+                0);
+        DataSource lazyDataSource = new LazyConnectionDataSourceProxy(dataSource);
+        TransactionTemplate transactionTemplate
+                = new TransactionTemplate(new DataSourceTransactionManager(lazyDataSource));
+        transactionTemplate.setReadOnly(true);
+
+        List<String> nodes = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            // holds the connection of replica1 while other threads read
+            nodes.add(new JdbcTemplate(lazyDataSource).queryForObject("select name from node", String.class));
+            for (int i = 0; i < 2; ++i) {
+                Thread reader = new Thread(() -> nodes.add(queryNode(dataSource, true)));
+                reader.start();
+                try {
+                    reader.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            assertEquals(Arrays.asList(1, 0), dataSource.getActiveConnections());
+            return null;
+        });
+        assertEquals(Arrays.asList("replica1", "replica2", "replica2"), nodes);
+    }
+
+    @Test
+    void getConnectionWrite() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                0);
+
+        assertEquals("primary", queryNode(dataSource, false));
+        assertEquals("replica1", queryNode(dataSource, true));
+    }
+
+    @Test
+    void getConnectionWithoutTransaction() throws Exception {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                0);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals("primary", getNode(connection));
+        }
+    }
+
+    @Test
+    void getConnectionStickyAfterWrite() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                60000);
+
+        assertEquals("primary", queryNode(dataSource, false));
+        assertEquals("primary", queryNode(dataSource, true));
+        session.set("other client");
+        assertEquals("replica1", queryNode(dataSource, true));
+        session.set(null);
+        assertEquals("replica2", queryNode(dataSource, true));
+        assertEquals(1, dataSource.getStickyReads());
+    }
+
+    @Test
+    void getConnectionStickyWindowElapsed() throws Exception {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                50);
+
+        queryNode(dataSource, false);
+        Thread.sleep(100);
+        assertEquals("replica1", queryNode(dataSource, true));
+    }
+
+    @Test
+    void getConnectionNotStickyAfterRollback() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                60000);
+        DataSource lazyDataSource = new LazyConnectionDataSourceProxy(dataSource);
+        TransactionTemplate transactionTemplate
+                = new TransactionTemplate(new DataSourceTransactionManager(lazyDataSource));
+
+        transactionTemplate.execute(status -> {
+            new JdbcTemplate(lazyDataSource).update("insert into node (name) values ('rolled back')");
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals("replica1", queryNode(dataSource, true));
+    }
+
+    @Test
+    void getConnectionReplicaDown() {
+        JdbcDataSource down = new JdbcDataSource();
+        down.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";IFEXISTS=TRUE");
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(down, replica2),
+                ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 0, session::get);
+
+        assertEquals("primary", queryNode(dataSource, true));
+        assertEquals("replica2", queryNode(dataSource, true));
+        assertEquals(1, dataSource.getFallbackReads());
+    }
+
+    @Test
+    void getConnectionOnPrimary() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                0);
+
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> queryNode(dataSource, true)));
+        assertEquals("replica1", queryNode(dataSource, true));
+        assertEquals(1, dataSource.getPinnedReads());
+    }
+
+    @Test
+    void getConnectionWithCurrentRouting() throws Exception {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                60000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> get(executor.submit(
+                    ReplicaRoutingDataSource.withCurrentRouting(() -> queryNode(dataSource, true))))));
+            // the pool thread is no longer pinned
+            assertEquals("replica1", executor.submit(() -> queryNode(dataSource, true)).get());
+
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            try {
+                ReplicaRoutingDataSource.requireFreshReads();
+                session.set(null);
+                queryNode(dataSource, false);
+                assertEquals("primary", executor.submit(
+                        ReplicaRoutingDataSource.withCurrentRouting(() -> queryNode(dataSource, true))).get());
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+            assertEquals(2, dataSource.getPinnedReads());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void getConnectionFreshReads() {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                60000);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            ReplicaRoutingDataSource.requireFreshReads();
+            assertEquals("replica1", queryNode(dataSource, true));
+
+            // written by another client (or outside any request)
+            session.set(null);
+            queryNode(dataSource, false);
+            session.set("client");
+            assertEquals("primary", queryNode(dataSource, true));
+            assertEquals(1, dataSource.getPinnedReads());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        assertEquals("replica2", queryNode(dataSource, true));
+    }
+
+    @Test
+    void getConnectionWithCredentials() throws Exception {
+        ReplicaRoutingDataSource dataSource = createRoutingDataSource(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                0);
+
+        try (Connection connection = dataSource.getConnection("", "")) {
+            assertEquals("primary", getNode(connection));
+        }
+    }
+
+    @Test
+    void createWithoutReplicas() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplicaRoutingDataSource(primary,
+                new ArrayList<>(), ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 0, session::get));
+    }
+}
@@ -0,0 +1,144 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.properties.MigrationProperties;
+import java.util.Arrays;
+import java.util.UUID;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigratorTest {
+    private static final String TEST_LOCATION = "classpath*:db/test-migration/";
+
+    private final MigrationProperties props = new MigrationProperties();
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private long countApplied() {
+        return jdbcTemplate.queryForObject("select count(*) from " + SchemaMigrator.TABLE, Long.class);
+    }
+
+    @Test
+    void migrate() throws Exception {
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+
+        assertEquals(Arrays.asList("first", "second"),
+                jdbcTemplate.queryForList("select name from items order by id", String.class));
+        assertEquals(Arrays.asList("create_items", "add_item"), jdbcTemplate.queryForList(
+                "select description from " + SchemaMigrator.TABLE + " order by version", String.class));
+    }
+
+    @Test
+    void migrateApplied() throws Exception {
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+        jdbcTemplate.update("delete from " + SchemaMigrator.TABLE + " where version = 2");
+        jdbcTemplate.update("delete from items where id = 2");
+
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+
+        // only the missing version is applied again
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from items", Long.class));
+        assertEquals(2, countApplied());
+    }
+
+    @Test
+    void migrateNewerVersions() throws Exception {
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+        jdbcTemplate.update("insert into " + SchemaMigrator.TABLE + " (version, description, checksum,"
+                + " installed_on, execution_time) values (3, 'newer', 0, current_timestamp, 0)");
+
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+
+        assertEquals(3, countApplied());
+    }
+
+    @Test
+    void migrateChanged() throws Exception {
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+        jdbcTemplate.update("update " + SchemaMigrator.TABLE + " set checksum = 0 where version = 1");
+
+        SchemaMigrator migrator = new SchemaMigrator(dataSource, props, TEST_LOCATION);
+        assertThrows(IllegalStateException.class, migrator::migrate);
+    }
+
+    @Test
+    void migrateDisabled() throws Exception {
+        props.setEnabled(false);
+
+        new SchemaMigrator(dataSource, props, TEST_LOCATION).migrate();
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from information_schema.tables"
+                + " where table_schema = 'PUBLIC'", Long.class));
+    }
+
+    @Test
+    void migrateSchemaCreatedByHibernate() throws Exception {
+        // the schema is created by the migrations, then the previous servers didn't record them
+        new SchemaMigrator(dataSource, props).migrate();
+        jdbcTemplate.update("insert into addresses (id, address) values (1, 'address')");
+        jdbcTemplate.execute("drop table " + SchemaMigrator.TABLE);
+
+        new SchemaMigrator(dataSource, props).migrate();
+
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from addresses", Long.class));
+        assertEquals(Arrays.asList(0L, 0L),
+                jdbcTemplate.queryForList("select next_val from id_generators order by name", Long.class));
+        assertTrue(countApplied() >= 2);
+    }
+
+    @Test
+    void migrateCompactMedicalRecords() throws Exception {
+        // a database with the collection tables of the medical records (version 2)
+        SchemaMigrator migrator = new SchemaMigrator(dataSource, props);
+        for (SchemaMigrator.Migration migration : migrator.findMigrations("h2").values()) {
+            if (migration.getVersion() < 3) {
+                migration.getStatements().forEach(jdbcTemplate::execute);
+            }
+        }
+        jdbcTemplate.update("insert into addresses (id, address) values (1, 'address')");
+        jdbcTemplate.update("insert into persons (id, first_name, last_name, phone, email, address_id)"
+                + " values (1, 'John', 'Boyd', 'phone', 'email', 1), (2, 'Jacob', 'Boyd', 'phone', 'email', 1)");
+        jdbcTemplate.update("insert into medicalrecords (person_id) values (1), (2)");
+        jdbcTemplate.update("insert into medicalrecord_medications (medicalrecord_id, medication)"
+                + " values (1, 'aznol:350mg'), (1, 'hydrapermazol:100mg')");
+        jdbcTemplate.update("insert into medicalrecord_allergies (medicalrecord_id, allergy) values (1, 'nillacilan')");
+
+        migrator.migrate();
+
+        assertEquals(Arrays.asList("[\"aznol:350mg\",\"hydrapermazol:100mg\"]", "[]"), jdbcTemplate.queryForList(
+                "select medications from medicalrecords order by person_id", String.class));
+        assertEquals(Arrays.asList("[\"nillacilan\"]", "[]"), jdbcTemplate.queryForList(
+                "select allergies from medicalrecords order by person_id", String.class));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from information_schema.tables"
+                + " where table_name like 'MEDICALRECORD\\_%'", Long.class));
+    }
+
+    @Test
+    void findMigrationsMySql() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(dataSource, props);
+
+        // the same versions for each database
+        assertEquals(migrator.findMigrations("h2").keySet(), migrator.findMigrations("mysql").keySet());
+        assertThrows(IllegalStateException.class, () -> migrator.findMigrations("oracle"));
+    }
+
+    @Test
+    void getStatements() {
+        SchemaMigrator.Migration migration = new SchemaMigrator.Migration(1, "test", "V1__test.sql",
+                "-- comment;\nselect 1;\n\nselect\n  'a;b' from dual;\nselect 3");
+
+        assertEquals(Arrays.asList("select 1", "select\n  'a;b' from dual", "select 3"), migration.getStatements());
+    }
+}
@@ -0,0 +1,209 @@
+package com.safetynet.alerts.repository.embedded;
+
+import com.safetynet.alerts.properties.EmbeddedStorageProperties;
+import com.safetynet.alerts.properties.MigrationProperties;
+import com.safetynet.alerts.repository.SchemaMigrator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedStorageTest {
+    private static final Object[] ADDRESS = {1L, "1509 Culver St", "Culver", "97451", "3"};
+    private static final Object[] PERSON = {1L, "John", "Boyd", 1L, "841-874-6512", "jaboyd@email.com"};
+    private static final Object[] MEDICAL_RECORD = {1L, LocalDate.of(1984, 3, 6), "[\"aznol:350mg\"]", "[]"};
+
+    @TempDir
+    Path directory;
+
+    private final EmbeddedStorageProperties props = new EmbeddedStorageProperties();
+    private EmbeddedStorage storage;
+
+    @BeforeEach
+    void setup() {
+        props.setEnabled(true);
+        props.setDirectory(directory.toString());
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        if (storage != null && storage.isEnabled()) {
+            storage.release();
+        }
+    }
+
+    private static DataSource createDatabase(String url) throws Exception {
+        JdbcDataSource res = new JdbcDataSource();
+        res.setURL(url);
+        new SchemaMigrator(res, new MigrationProperties()).migrate();
+        return res;
+    }
+
+    private static DataSource createDatabase() throws Exception {
+        return createDatabase("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * Starts a storage on a new database.
+     */
+    private JdbcTemplate start() throws Exception {
+        DataSource dataSource = createDatabase();
+        storage = new EmbeddedStorage(dataSource, null, props);
+        storage.recover();
+        return new JdbcTemplate(dataSource);
+    }
+
+    private void commitPerson() {
+        storage.commit(Arrays.asList(Mutation.put(StoredTable.ADDRESSES, ADDRESS),
+                Mutation.put(StoredTable.PERSONS, PERSON), Mutation.put(StoredTable.MEDICAL_RECORDS, MEDICAL_RECORD)));
+    }
+
+    private Path walSegment() throws IOException {
+        return new WriteAheadLog(directory, false).findSegments().lastEntry().getValue();
+    }
+
+    @Test
+    void recoverFromLog() throws Exception {
+        start();
+        commitPerson();
+        storage.commit(Collections.singletonList(Mutation.remove(StoredTable.MEDICAL_RECORDS, 1L)));
+        storage.release();
+
+        JdbcTemplate jdbcTemplate = start();
+
+        assertEquals(2, storage.getSequence());
+        assertEquals(0, storage.getSnapshotSequence());
+        assertEquals("Boyd", jdbcTemplate.queryForObject("select last_name from persons where id = 1", String.class));
+        assertEquals(1L, jdbcTemplate.queryForObject("select address_id from persons where id = 1", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from medicalrecords", Long.class));
+    }
+
+    @Test
+    void recoverFromSnapshotAndLog() throws Exception {
+        start();
+        commitPerson();
+        storage.snapshot();
+        storage.commit(Collections.singletonList(Mutation.put(StoredTable.PERSONS,
+                new Object[]{2L, "Jacob", "Boyd", 1L, "841-874-6513", "drk@email.com"})));
+        storage.release();
+
+        JdbcTemplate jdbcTemplate = start();
+
+        assertEquals(2, storage.getSequence());
+        assertEquals(1, storage.getSnapshotSequence());
+        assertEquals(Arrays.asList("John", "Jacob"),
+                jdbcTemplate.queryForList("select first_name from persons order by id", String.class));
+        assertEquals(LocalDate.of(1984, 3, 6), jdbcTemplate.queryForObject(
+                "select birthdate from medicalrecords where person_id = 1", Date.class).toLocalDate());
+        assertEquals("[\"aznol:350mg\"]", jdbcTemplate.queryForObject(
+                "select medications from medicalrecords where person_id = 1", String.class));
+        // the log covered by the snapshot is deleted
+        assertEquals(Collections.singleton(2L), new WriteAheadLog(directory, false).findSegments().keySet());
+    }
+
+    @Test
+    void recoverReverted() throws Exception {
+        start();
+        commitPerson();
+        List<Mutation> revert = storage.commit(Arrays.asList(
+                Mutation.put(StoredTable.PERSONS, new Object[]{1L, "Johnny", "Boyd", 1L, "841-874-6512", "j@e.com"}),
+                Mutation.put(StoredTable.PERSONS, new Object[]{2L, "Jacob", "Boyd", 1L, "841-874-6513", "d@e.com"}),
+                Mutation.remove(StoredTable.MEDICAL_RECORDS, 1L),
+                Mutation.put(StoredTable.PERSONS, new Object[]{1L, "Jon", "Boyd", 1L, "841-874-6512", "j@e.com"})));
+        storage.revert(revert);
+        storage.release();
+
+        JdbcTemplate jdbcTemplate = start();
+
+        assertEquals(3, storage.getSequence());
+        assertEquals(Collections.singletonList("John"),
+                jdbcTemplate.queryForList("select first_name from persons order by id", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from medicalrecords", Long.class));
+    }
+
+    @Test
+    void closeWritesSnapshot() throws Exception {
+        start();
+        commitPerson();
+        storage.close();
+
+        assertEquals(Collections.singleton(1L), SnapshotFile.find(directory).keySet());
+        assertEquals(0, Files.size(walSegment()));
+        JdbcTemplate jdbcTemplate = start();
+        assertEquals(1, storage.getSnapshotSequence());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from persons", Long.class));
+    }
+
+    @Test
+    void recoverTornLog() throws Exception {
+        start();
+        commitPerson();
+        storage.release();
+        long size = Files.size(walSegment());
+        // a frame torn by a crash
+        Files.write(walSegment(), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        start();
+
+        assertEquals(size, Files.size(walSegment()));
+        assertEquals(1, storage.getSequence());
+        storage.commit(Collections.singletonList(Mutation.remove(StoredTable.MEDICAL_RECORDS, 1L)));
+        storage.release();
+        JdbcTemplate jdbcTemplate = start();
+        assertEquals(2, storage.getSequence());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from medicalrecords", Long.class));
+    }
+
+    @Test
+    void recoverLocked() throws Exception {
+        start();
+
+        EmbeddedStorage other = new EmbeddedStorage(createDatabase(), null, props);
+        assertThrows(IllegalStateException.class, other::recover);
+    }
+
+    @Test
+    void recoverWithoutInMemoryDatabase() throws Exception {
+        DataSource dataSource = createDatabase("jdbc:h2:" + directory.resolve("database").toAbsolutePath());
+
+        EmbeddedStorage other = new EmbeddedStorage(dataSource, null, props);
+        assertThrows(IllegalStateException.class, other::recover);
+        assertFalse(Files.exists(directory.resolve("lock")));
+    }
+
+    @Test
+    void recoverDisabled() throws Exception {
+        props.setEnabled(false);
+
+        start();
+
+        assertFalse(storage.isEnabled());
+        assertFalse(Files.exists(directory.resolve("lock")));
+    }
+
+    @Test
+    void snapshotUnchanged() throws Exception {
+        start();
+        storage.snapshot();
+
+        assertTrue(SnapshotFile.find(directory).isEmpty());
+    }
+}
@@ -0,0 +1,30 @@
+package com.safetynet.alerts.repository.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StringListConverterTest {
+    private final StringListConverter converter = new StringListConverter();
+
+    @Test
+    void convertToDatabaseColumn() {
+        assertEquals("[\"aznol:350mg\",\"a \\\"quoted\\\", value\",null]",
+                converter.convertToDatabaseColumn(Arrays.asList("aznol:350mg", "a \"quoted\", value", null)));
+        assertEquals("[]", converter.convertToDatabaseColumn(Collections.emptyList()));
+        assertEquals("[]", converter.convertToDatabaseColumn(null));
+    }
+
+    @Test
+    void convertToEntityAttribute() {
+        assertEquals(Arrays.asList("aznol:350mg", "a \"quoted\", value", null),
+                converter.convertToEntityAttribute("[\"aznol:350mg\", \"a \\\"quoted\\\", value\", null]"));
+        assertEquals(new ArrayList<>(), converter.convertToEntityAttribute("[]"));
+        assertEquals(new ArrayList<>(), converter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute("{}"));
+    }
+}
@@ -0,0 +1,194 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.AddressCacheProperties;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.service.AddressCacheService.CachedAddress;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AddressCacheServiceTest {
+    private AddressCacheService addressCacheService;
+
+    @BeforeEach
+    void setup() {
+        AddressCacheProperties props = new AddressCacheProperties();
+        props.setEnabled(true);
+        props.setMaxEntries(2);
+        addressCacheService = new AddressCacheService(props);
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static AddressEntity createAddress(long id, String address, String city) {
+        AddressEntity entity = new AddressEntity();
+        entity.setId(id);
+        entity.setAddress(address);
+        entity.setCity(city);
+        entity.setZip(city == null ? null : "zip");
+        entity.setFirestation("1");
+        return entity;
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void getHit() {
+        assertNull(addressCacheService.get("a"));
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        CachedAddress cached = addressCacheService.get("a");
+
+        assertEquals(1L, cached.getId());
+        assertEquals("city", cached.getCity());
+        assertEquals("zip", cached.getZip());
+        assertEquals("1", cached.getFirestation());
+        assertTrue(cached.isComplete());
+        assertEquals(1, addressCacheService.getHits());
+        assertEquals(1, addressCacheService.getMisses());
+    }
+
+    @Test
+    void putLeastRecentlyUsedEvicted() {
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        addressCacheService.put(createAddress(2L, "b", "city"));
+        addressCacheService.get("a");
+        addressCacheService.put(createAddress(3L, "c", "city"));
+
+        assertEquals(2, addressCacheService.getSize());
+        assertNull(addressCacheService.get("b"));
+        assertEquals(1L, addressCacheService.get("a").getId());
+    }
+
+    @Test
+    void putWithoutId() {
+        AddressEntity entity = createAddress(1L, "a", "city");
+        entity.setId(null);
+        CachedAddress cached = addressCacheService.put(entity);
+
+        assertEquals("a", cached.getAddress());
+        assertEquals(0, addressCacheService.getSize());
+    }
+
+    @Test
+    void disabled() {
+        addressCacheService = new AddressCacheService(null);
+        CachedAddress cached = addressCacheService.put(createAddress(1L, "a", "city"));
+
+        assertEquals(1L, cached.getId());
+        assertFalse(addressCacheService.isEnabled());
+        assertNull(addressCacheService.get("a"));
+        assertEquals(0, addressCacheService.getMisses());
+    }
+
+    @Test
+    void onFirestationChanged() {
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        addressCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "2"));
+
+        assertEquals(0, addressCacheService.getSize());
+    }
+
+    @Test
+    void onPersonChanged() {
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        addressCacheService.put(createAddress(2L, "b", null));
+        Person unchanged = Person.builder().address("a").city("city").zip("zip").build();
+        Person completed = Person.builder().address("b").city("city").zip("zip").build();
+
+        addressCacheService.onPersonChanged(new PersonChangedEvent(ChangeType.CREATED, 1L, null, null, unchanged, "1"));
+        addressCacheService.onPersonChanged(new PersonChangedEvent(ChangeType.CREATED, 2L, null, null, completed, "1"));
+        addressCacheService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, unchanged, "1", null, null));
+
+        assertEquals(1L, addressCacheService.get("a").getId());
+        assertNull(addressCacheService.get("b"));
+    }
+
+    @Test
+    void putInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertNull(addressCacheService.get("a"));
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        assertEquals(0, addressCacheService.getSize());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1L, addressCacheService.get("a").getId());
+    }
+
+    @Test
+    void putInRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        addressCacheService.get("a");
+        addressCacheService.put(createAddress(1L, "a", "city"));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0, addressCacheService.getSize());
+    }
+
+    @Test
+    void putInTransactionWithOwnChanges() {
+        TransactionSynchronizationManager.initSynchronization();
+        addressCacheService.get("a");
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        addressCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "b", "1", "2"));
+        addressCacheService.get("c");
+        addressCacheService.put(createAddress(3L, "c", "city"));
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1L, addressCacheService.get("a").getId());
+        assertEquals(3L, addressCacheService.get("c").getId());
+    }
+
+    @Test
+    void putInTransactionWithConcurrentChanges() {
+        TransactionSynchronizationManager.initSynchronization();
+        addressCacheService.get("a");
+        addressCacheService.put(createAddress(1L, "a", "city"));
+
+        // another transaction changed addresses meanwhile: the read value may be stale
+        addressCacheService.evictAll();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(0, addressCacheService.getSize());
+    }
+
+    @Test
+    void evictInTransaction() throws Exception {
+        addressCacheService.put(createAddress(1L, "a", "city"));
+        TransactionSynchronizationManager.initSynchronization();
+        addressCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "2"));
+        assertEquals(0, addressCacheService.getSize());
+
+        // a concurrent reader caches the committed value, before this transaction commits
+        Thread reader = new Thread(() -> addressCacheService.put(createAddress(1L, "a", "city")));
+        reader.start();
+        reader.join();
+        assertEquals(1, addressCacheService.getSize());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(0, addressCacheService.getSize());
+    }
+}
@@ -0,0 +1,274 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
+import com.safetynet.alerts.properties.AlertSubscriptionsProperties;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscriber;
+import com.safetynet.alerts.service.AlertSubscriptionService.Subscription;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AlertSubscriptionServiceTest {
+    private static final Person PERSON = Person.builder().firstName("John").lastName("Boyd")
+            .address("1509 Culver St").build();
+    private static final Person MOVED_PERSON = Person.builder().firstName("John").lastName("Boyd")
+            .address("29 15th St").build();
+    private static final PersonsCoveredByFirestationResponse STATION = PersonsCoveredByFirestationResponse.builder()
+            .adultsCount(1).person(PERSON).build();
+    private static final PersonsCoveredByFirestationResponse EMPTY_STATION =
+            PersonsCoveredByFirestationResponse.builder().build();
+    private static final FireResponse FIRE = FireResponse.builder().stationNumber("3").person(PERSON).build();
+
+    @Mock
+    private AlertsService alertsService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AlertSubscriptionsProperties props = new AlertSubscriptionsProperties();
+    private AlertSubscriptionService alertSubscriptionService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        props.setEnabled(true);
+        alertSubscriptionService = new AlertSubscriptionService(alertsService, objectMapper, props);
+        alertSubscriptionService.start();
+        when(alertsService.getPersonsCoveredByFirestation("3")).thenReturn(STATION);
+        when(alertsService.getFire("1509 Culver St")).thenReturn(FIRE);
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        alertSubscriptionService.stop();
+    }
+
+    @Test
+    void subscribe() throws Exception {
+        QueueSubscriber first = new QueueSubscriber();
+        QueueSubscriber second = new QueueSubscriber();
+
+        alertSubscriptionService.subscribeToFire("1509 Culver St", first);
+        alertSubscriptionService.subscribeToFire("1509 Culver St", second);
+
+        assertEquals(objectMapper.writeValueAsString(FIRE), first.next());
+        assertEquals(objectMapper.writeValueAsString(FIRE), second.next());
+        // computed once for both subscribers
+        verify(alertsService, times(1)).getFire("1509 Culver St");
+        assertEquals(2, alertSubscriptionService.getSubscriberCount());
+    }
+
+    @Test
+    void pushChanged() throws Exception {
+        QueueSubscriber first = new QueueSubscriber();
+        QueueSubscriber second = new QueueSubscriber();
+        alertSubscriptionService.subscribeToFirestation("3", first);
+        alertSubscriptionService.subscribeToFirestation("3", second);
+        first.next();
+        second.next();
+        when(alertsService.getPersonsCoveredByFirestation("3")).thenReturn(EMPTY_STATION);
+
+        alertSubscriptionService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, PERSON, "3",
+                null, null));
+
+        assertEquals(objectMapper.writeValueAsString(EMPTY_STATION), first.next());
+        assertEquals(objectMapper.writeValueAsString(EMPTY_STATION), second.next());
+        verify(alertsService, times(2)).getPersonsCoveredByFirestation("3");
+    }
+
+    @Test
+    void pushOnlyAffectedAndChanged() throws Exception {
+        QueueSubscriber subscriber = new QueueSubscriber();
+        alertSubscriptionService.subscribeToFirestation("3", subscriber);
+        subscriber.next();
+
+        // another station
+        alertSubscriptionService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "29 15th St",
+                null, "2"));
+        // the response is the same
+        alertSubscriptionService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "951 LoneTree",
+                null, "3"));
+
+        assertNull(subscriber.queue.poll(500, TimeUnit.MILLISECONDS));
+        verify(alertsService, times(2)).getPersonsCoveredByFirestation("3");
+    }
+
+    @Test
+    void pushAfterCommit() throws Exception {
+        QueueSubscriber subscriber = new QueueSubscriber();
+        alertSubscriptionService.subscribeToFire("1509 Culver St", subscriber);
+        subscriber.next();
+        TransactionSynchronizationManager.initSynchronization();
+        FireResponse moved = FireResponse.builder().stationNumber("3").build();
+        when(alertsService.getFire("1509 Culver St")).thenReturn(moved);
+
+        alertSubscriptionService.onPersonChanged(new PersonChangedEvent(ChangeType.UPDATED, 1L, PERSON, "3",
+                MOVED_PERSON, "2"));
+
+        assertNull(subscriber.queue.poll(200, TimeUnit.MILLISECONDS));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(objectMapper.writeValueAsString(moved), subscriber.next());
+        assertNull(TransactionSynchronizationManager.getResource(alertSubscriptionService));
+    }
+
+    @Test
+    void pushAllOnDatasetImported() throws Exception {
+        QueueSubscriber stationSubscriber = new QueueSubscriber();
+        QueueSubscriber addressSubscriber = new QueueSubscriber();
+        alertSubscriptionService.subscribeToFirestation("3", stationSubscriber);
+        alertSubscriptionService.subscribeToFire("1509 Culver St", addressSubscriber);
+        stationSubscriber.next();
+        addressSubscriber.next();
+        when(alertsService.getPersonsCoveredByFirestation("3")).thenReturn(EMPTY_STATION);
+        FireResponse emptyFire = FireResponse.builder().build();
+        when(alertsService.getFire("1509 Culver St")).thenReturn(emptyFire);
+
+        alertSubscriptionService.onDatasetImported(new DatasetImportedEvent(0, 0, 0));
+
+        assertEquals(objectMapper.writeValueAsString(EMPTY_STATION), stationSubscriber.next());
+        assertEquals(objectMapper.writeValueAsString(emptyFire), addressSubscriber.next());
+    }
+
+    @Test
+    void unsubscribe() throws Exception {
+        QueueSubscriber subscriber = new QueueSubscriber();
+        QueueSubscriber failing = new QueueSubscriber();
+        Subscription subscription = alertSubscriptionService.subscribeToFirestation("3", subscriber);
+        alertSubscriptionService.subscribeToFirestation("3", failing);
+        failing.failing = true;
+        when(alertsService.getPersonsCoveredByFirestation("3")).thenReturn(EMPTY_STATION);
+
+        alertSubscriptionService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, PERSON, "3",
+                null, null));
+        subscriber.next();
+        subscriber.next();
+        for (int i = 0; i < 100 && alertSubscriptionService.getSubscriberCount() > 1; ++i) {
+            Thread.sleep(50);
+        }
+
+        // the failing subscriber was dropped
+        assertEquals(1, alertSubscriptionService.getSubscriberCount());
+        subscription.cancel();
+        subscription.cancel();
+        assertEquals(0, alertSubscriptionService.getSubscriberCount());
+    }
+
+    @Test
+    void disconnectSlowSubscriber() throws Exception {
+        props.setQueueSize(1);
+        alertSubscriptionService.stop();
+        alertSubscriptionService = new AlertSubscriptionService(alertsService, objectMapper, props);
+        alertSubscriptionService.start();
+        AtomicInteger adultsCount = new AtomicInteger();
+        when(alertsService.getPersonsCoveredByFirestation("3")).thenAnswer(invocation ->
+                PersonsCoveredByFirestationResponse.builder().adultsCount(adultsCount.incrementAndGet()).build());
+        QueueSubscriber subscriber = new QueueSubscriber();
+        CountDownLatch unblocked = new CountDownLatch(1);
+        QueueSubscriber slow = new QueueSubscriber() {
+            @Override
+            public void send(String json) throws IOException {
+                try {
+                    unblocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.send(json);
+            }
+        };
+        alertSubscriptionService.subscribeToFirestation("3", subscriber);
+        alertSubscriptionService.subscribeToFirestation("3", slow);
+        subscriber.next();
+
+        for (int i = 0; i < 3; ++i) {
+            alertSubscriptionService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED,
+                    "951 LoneTree", null, "3"));
+            // not delayed by the slow subscriber
+            assertEquals(objectMapper.writeValueAsString(PersonsCoveredByFirestationResponse.builder()
+                    .adultsCount(i + 2).build()), subscriber.next());
+        }
+
+        assertEquals(1, alertSubscriptionService.getSubscriberCount());
+        unblocked.countDown();
+        // the response being sent, then the end of the stream
+        slow.next();
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+        assertNull(slow.queue.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void subscribeTooMany() {
+        props.setMaxSubscribers(2);
+        props.setMaxSubscribersPerKey(1);
+        alertSubscriptionService.stop();
+        alertSubscriptionService = new AlertSubscriptionService(alertsService, objectMapper, props);
+        alertSubscriptionService.start();
+
+        Subscription subscription = alertSubscriptionService.subscribeToFirestation("3", new QueueSubscriber());
+        assertThrows(AlertSubscriptionService.TooManySubscribersException.class,
+                () -> alertSubscriptionService.subscribeToFirestation("3", new QueueSubscriber()));
+        alertSubscriptionService.subscribeToFire("1509 Culver St", new QueueSubscriber());
+        assertThrows(AlertSubscriptionService.TooManySubscribersException.class,
+                () -> alertSubscriptionService.subscribeToFire("29 15th St", new QueueSubscriber()));
+        assertEquals(2, alertSubscriptionService.getSubscriberCount());
+
+        subscription.cancel();
+        alertSubscriptionService.subscribeToFirestation("3", new QueueSubscriber());
+        assertEquals(2, alertSubscriptionService.getSubscriberCount());
+    }
+
+    private static class QueueSubscriber implements Subscriber {
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile boolean failing;
+
+        @Override
+        public void send(String json) throws IOException {
+            if (failing) {
+                throw new IOException("closed");
+            }
+            queue.add(json);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        private String next() throws InterruptedException {
+            return queue.poll(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.PersonInfoResponse;
+import com.safetynet.alerts.api.response.PhoneAlertResponse;
+import com.safetynet.alerts.properties.AlertsCacheProperties;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AlertsCacheServiceTest {
+    @Mock
+    private AlertsService alertsService;
+
+    private AlertsCacheService alertsCacheService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        AlertsCacheProperties props = new AlertsCacheProperties();
+        props.setEnabled(true);
+        props.setMaxEntries(2);
+        alertsCacheService = new AlertsCacheService(alertsService, props);
+
+        when(alertsService.getPhoneAlert(any(), any()))
+                .thenAnswer(invocation -> PhoneAlertResponse.builder().phone(invocation.getArgument(0)).build());
+        when(alertsService.getFire(any(), any()))
+                .thenAnswer(invocation -> FireResponse.builder().stationNumber(invocation.getArgument(0)).build());
+        when(alertsService.getPersonInfo(any(), any(), any()))
+                .thenAnswer(invocation -> PersonInfoResponse.builder().build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getHit() {
+        PhoneAlertResponse first = alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        PhoneAlertResponse second = alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        second.getPhones().add("mutated");
+        PhoneAlertResponse third = alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        assertEquals(first, third);
+        assertNotSame(second, third);
+        verify(alertsService, times(1)).getPhoneAlert("1", CursorPage.UNBOUNDED);
+        assertEquals(2, alertsCacheService.getHits());
+        assertEquals(1, alertsCacheService.getMisses());
+        assertEquals(1, alertsCacheService.getSize());
+    }
+
+    @Test
+    void getPaged() {
+        CursorPage page = CursorPage.of(null, 2);
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("1", page);
+        alertsCacheService.getPhoneAlert("1", CursorPage.of(null, 2));
+
+        verify(alertsService, times(1)).getPhoneAlert("1", CursorPage.UNBOUNDED);
+        verify(alertsService, times(1)).getPhoneAlert("1", page);
+        assertEquals(2, alertsCacheService.getSize());
+    }
+
+    @Test
+    void getDated() {
+        alertsCacheService.getFire("a");
+        alertsCacheService.getFire("a");
+
+        verify(alertsService, times(1)).getFire(eq("a"), any(ZonedDateTime.class));
+    }
+
+    @Test
+    void getEvictsLeastRecentlyUsed() {
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("2", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("3", CursorPage.UNBOUNDED);
+
+        assertEquals(2, alertsCacheService.getSize());
+        assertEquals(1, alertsCacheService.getEvictions());
+
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("2", CursorPage.UNBOUNDED);
+        verify(alertsService, times(1)).getPhoneAlert("1", CursorPage.UNBOUNDED);
+        verify(alertsService, times(2)).getPhoneAlert("2", CursorPage.UNBOUNDED);
+    }
+
+    @Test
+    void getDisabled() {
+        alertsCacheService = new AlertsCacheService(alertsService, null);
+
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        verify(alertsService, times(2)).getPhoneAlert("1", CursorPage.UNBOUNDED);
+        assertEquals(0, alertsCacheService.getSize());
+    }
+
+    @Test
+    void getSkipsConcurrentlyInvalidated() {
+        doAnswer(invocation -> {
+            alertsCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "2"));
+            return PhoneAlertResponse.builder().build();
+        }).when(alertsService).getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        assertEquals(0, alertsCacheService.getSize());
+    }
+
+    @Test
+    void onFirestationChanged() {
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+        alertsCacheService.getPhoneAlert("2", CursorPage.UNBOUNDED);
+
+        alertsCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "3"));
+
+        assertEquals(1, alertsCacheService.getSize());
+        assertEquals(1, alertsCacheService.getInvalidations());
+        alertsCacheService.getPhoneAlert("2", CursorPage.UNBOUNDED);
+        verify(alertsService, times(1)).getPhoneAlert("2", CursorPage.UNBOUNDED);
+    }
+
+    @Test
+    void onPersonChanged() {
+        Person person = Person.builder().firstName("f").lastName("l").address("a").city("c").build();
+        alertsCacheService.getFire("a");
+        alertsCacheService.getPersonInfo("f", "l");
+        assertEquals(2, alertsCacheService.getSize());
+
+        alertsCacheService.onPersonChanged(new PersonChangedEvent(ChangeType.CREATED, 1L, null, null, person, "1"));
+
+        assertEquals(0, alertsCacheService.getSize());
+    }
+
+    @Test
+    void onMedicalRecordChanged() {
+        MedicalRecord medicalRecord = MedicalRecord.builder().firstName("f").lastName("l").build();
+        alertsCacheService.getPersonInfo("f", "l");
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        alertsCacheService.onMedicalRecordChanged(
+                new MedicalRecordChangedEvent(ChangeType.UPDATED, 1L, medicalRecord, medicalRecord, "a", "2"));
+        assertEquals(1, alertsCacheService.getSize());
+
+        alertsCacheService.onMedicalRecordChanged(
+                new MedicalRecordChangedEvent(ChangeType.DELETED, null, medicalRecord, null, null, null));
+        assertEquals(0, alertsCacheService.getSize());
+    }
+
+    @Test
+    void onChangedInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        alertsCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "2"));
+        assertEquals(1, alertsCacheService.getSize());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertEquals(0, alertsCacheService.getSize());
+    }
+
+    @Test
+    void onChangedInRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        alertsCacheService.getPhoneAlert("1", CursorPage.UNBOUNDED);
+
+        alertsCacheService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "a", "1", "2"));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(1, alertsCacheService.getSize());
+    }
+}
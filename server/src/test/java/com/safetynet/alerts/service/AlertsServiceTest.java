@@ -5,26 +5,41 @@ import com.safetynet.alerts.api.model.Person;
 import com.safetynet.alerts.api.response.ChildAlertResponse;
 import com.safetynet.alerts.api.response.CommunityEmailResponse;
 import com.safetynet.alerts.api.response.FireResponse;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
 import com.safetynet.alerts.api.response.FloodStationsResponse;
 import com.safetynet.alerts.api.response.PersonInfoResponse;
 import com.safetynet.alerts.api.response.PersonsCoveredByFirestationResponse;
 import com.safetynet.alerts.api.response.PhoneAlertResponse;
+import com.safetynet.alerts.properties.FloodFanOutProperties;
 import com.safetynet.alerts.repository.AddressRepository;
 import com.safetynet.alerts.repository.PersonRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.PersonMapper;
 import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import uk.co.jemos.podam.api.PodamFactory;
 import uk.co.jemos.podam.api.PodamFactoryImpl;
 
@@ -35,6 +50,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class AlertsServiceTest {
@@ -46,6 +63,12 @@ class AlertsServiceTest {
     @Mock
     private PersonRepository personRepository;
 
+    @Mock
+    private ReadModelService readModelService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private final PersonMapper personMapper = new PersonMapper();
 
     private AlertsService alertsService;
@@ -55,7 +78,8 @@ class AlertsServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        alertsService = new AlertsService(addressRepository, personRepository, personMapper);
+        alertsService = new AlertsService(addressRepository, personRepository, personMapper, readModelService,
+                transactionManager, null);
     }
 
     @Test
@@ -69,8 +93,12 @@ class AlertsServiceTest {
         PersonEntity adult2 = factory.manufacturePojo(PersonEntity.class);
         adult2.getMedicalRecord().setBirthdate(now.minusYears(50).toLocalDate());
 
-        when(personRepository.findAllByAddressFirestation("A1"))
+        when(personRepository.findAllCompleteByAddressFirestation("A1"))
                 .thenReturn(Arrays.asList(child1, child2, adult1, adult2));
+        PersonRepository.AgeGroupsCount counts = ageGroupsCount("A1", 2, 2);
+        when(personRepository.countAgeGroupsByAddressFirestationIn(
+                Collections.singleton("A1"), now.minusYears(18).toLocalDate()))
+                .thenReturn(Collections.singletonList(counts));
 
         PersonsCoveredByFirestationResponse res = alertsService.getPersonsCoveredByFirestation("A1", now);
         assertEquals(PersonsCoveredByFirestationResponse.builder()
@@ -83,6 +111,50 @@ class AlertsServiceTest {
                 .build(), res);
     }
 
+    @Test
+    void getPersonsCoveredByFirestationFromReadModel() {
+        Person child = Person.builder().id(1L).age(5).build();
+        Person adult = Person.builder().id(2L).age(null).build();
+
+        when(readModelService.isReady()).thenReturn(true);
+        when(readModelService.findAllByStation("A1", now, false)).thenReturn(Arrays.asList(child, adult));
+
+        PersonsCoveredByFirestationResponse res = alertsService.getPersonsCoveredByFirestation("A1", now);
+        assertEquals(PersonsCoveredByFirestationResponse.builder()
+                .childrenCount(1)
+                .adultsCount(1)
+                .person(child)
+                .person(adult)
+                .build(), res);
+        Mockito.verifyNoInteractions(personRepository);
+    }
+
+
+    @Test
+    void getPersonsCoveredByFirestationPaged() {
+        PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
+        person1.getMedicalRecord().setBirthdate(now.minusYears(5).toLocalDate());
+        PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
+        person2.getMedicalRecord().setBirthdate(now.minusYears(50).toLocalDate());
+
+        when(personRepository.findAllCompleteByAddressFirestationAndIdGreaterThanOrderById(
+                eq("A1"), eq(3L), eq(PageRequest.of(0, 2))))
+                .thenReturn(Arrays.asList(person1, person2));
+        PersonRepository.AgeGroupsCount counts = ageGroupsCount("A1", 4, 3);
+        when(personRepository.countAgeGroupsByAddressFirestationIn(
+                Collections.singleton("A1"), now.minusYears(18).toLocalDate()))
+                .thenReturn(Collections.singletonList(counts));
+
+        PersonsCoveredByFirestationResponse res = alertsService.getPersonsCoveredByFirestation("A1", now,
+                CursorPage.of(CursorPage.encode(3L), 1));
+        assertEquals(PersonsCoveredByFirestationResponse.builder()
+                .childrenCount(3)
+                .adultsCount(4)
+                .person(personMapper.toCompletePerson(person1, now))
+                .nextCursor(CursorPage.encode(person1.getId()))
+                .build(), res);
+    }
+
     @Test
     void getPersonsCoveredByFirestationNow() {
         AlertsService alertsServiceSpy = Mockito.spy(alertsService);
@@ -95,6 +167,111 @@ class AlertsServiceTest {
         assertThat(Duration.between(ZonedDateTime.now(), overloadedArg[0]).abs()).isLessThan(Duration.ofSeconds(1));
     }
 
+    @Test
+    void getFirestationCounts() {
+        List<PersonRepository.AgeGroupsCount> counts = Arrays.asList(
+                ageGroupsCount("A3", 4, 0), ageGroupsCount("A1", 2, 1));
+        when(personRepository.countAgeGroupsByAddressFirestationIn(
+                new HashSet<>(Arrays.asList("A1", "A2", "A3")), now.minusYears(18).toLocalDate()))
+                .thenReturn(counts);
+
+        FirestationCountsResponse res = alertsService.getFirestationCounts(Arrays.asList("A1", "A2", "A3", "A1"), now);
+        assertEquals(FirestationCountsResponse.builder()
+                .station(FirestationCountsResponse.Entry.builder()
+                        .stationNumber("A1").adultsCount(2).childrenCount(1).build())
+                .station(FirestationCountsResponse.Entry.builder()
+                        .stationNumber("A2").adultsCount(0).childrenCount(0).build())
+                .station(FirestationCountsResponse.Entry.builder()
+                        .stationNumber("A3").adultsCount(4).childrenCount(0).build())
+                .build(), res);
+        verify(personRepository, never()).findAllCompleteByAddressFirestation(any());
+    }
+
+    @Test
+    void getFirestationCountsNow() {
+        AlertsService alertsServiceSpy = Mockito.spy(alertsService);
+        ZonedDateTime[] overloadedArg = new ZonedDateTime[1];
+        doAnswer(ctx -> {
+            overloadedArg[0] = ctx.getArgument(1);
+            return null;
+        }).when(alertsServiceSpy).getFirestationCounts(eq(Collections.singletonList("A")), any(ZonedDateTime.class));
+        alertsServiceSpy.getFirestationCounts(Collections.singletonList("A"));
+        assertThat(Duration.between(ZonedDateTime.now(), overloadedArg[0]).abs()).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void streamPersonsCoveredByFirestation() {
+        PersonEntity child = factory.manufacturePojo(PersonEntity.class);
+        child.getMedicalRecord().setBirthdate(now.minusYears(5).toLocalDate());
+        PersonEntity adult = factory.manufacturePojo(PersonEntity.class);
+        adult.setMedicalRecord(null);
+
+        when(readModelService.isReady()).thenReturn(true);
+        PersonRepository.AgeGroupsCount counts = ageGroupsCount("A1", 1, 1);
+        when(personRepository.countAgeGroupsByAddressFirestationIn(
+                Collections.singleton("A1"), now.minusYears(18).toLocalDate()))
+                .thenReturn(Collections.singletonList(counts));
+        Stream<PersonRepository.PersonRow> rows = Stream.of(personRow(child), personRow(adult));
+        when(personRepository.streamAllRowsByAddressFirestation("A1")).thenReturn(rows);
+
+        List<Object> res = new ArrayList<>();
+        alertsService.streamPersonsCoveredByFirestation("A1", now, res::add, res::add);
+        assertEquals(Arrays.asList(
+                FirestationCountsResponse.Entry.builder().stationNumber("A1").adultsCount(1).childrenCount(1).build(),
+                personMapper.toCompletePerson(child, now),
+                personMapper.toCompletePerson(adult, now)), res);
+        verify(readModelService, never()).countAgeGroupsByStations(any(), any());
+    }
+
+    private static PersonRepository.PersonRow personRow(PersonEntity entity) {
+        return personRow(PersonRepository.PersonRow.class, entity);
+    }
+
+    private static PersonRepository.CompletePersonRow completePersonRow(PersonEntity entity) {
+        PersonRepository.CompletePersonRow res = personRow(PersonRepository.CompletePersonRow.class, entity);
+        MedicalRecordEntity medicalRecord = entity.getMedicalRecord();
+        when(res.getMedications()).thenReturn(medicalRecord == null ? Collections.emptyList()
+                : medicalRecord.getMedications());
+        when(res.getAllergies()).thenReturn(medicalRecord == null ? Collections.emptyList()
+                : medicalRecord.getAllergies());
+        return res;
+    }
+
+    private static <T extends PersonRepository.PersonRow> T personRow(Class<T> type, PersonEntity entity) {
+        T res = Mockito.mock(type);
+        when(res.getId()).thenReturn(entity.getId());
+        when(res.getFirstName()).thenReturn(entity.getFirstName());
+        when(res.getLastName()).thenReturn(entity.getLastName());
+        when(res.getAddress()).thenReturn(entity.getAddress().getAddress());
+        when(res.getCity()).thenReturn(entity.getAddress().getCity());
+        when(res.getZip()).thenReturn(entity.getAddress().getZip());
+        when(res.getPhone()).thenReturn(entity.getPhone());
+        when(res.getEmail()).thenReturn(entity.getEmail());
+        if (entity.getMedicalRecord() != null) {
+            when(res.getMedicalRecordId()).thenReturn(entity.getId());
+            when(res.getBirthdate()).thenReturn(entity.getMedicalRecord().getBirthdate());
+        } else {
+            when(res.getMedicalRecordId()).thenReturn(null);
+        }
+        return res;
+    }
+
+    private static PersonRepository.PersonValue personValue(Long personId, String value) {
+        PersonRepository.PersonValue res = Mockito.mock(PersonRepository.PersonValue.class);
+        when(res.getPersonId()).thenReturn(personId);
+        when(res.getValue()).thenReturn(value);
+        return res;
+    }
+
+    private static PersonRepository.AgeGroupsCount ageGroupsCount(String firestation, long adultsCount,
+            long childrenCount) {
+        PersonRepository.AgeGroupsCount res = Mockito.mock(PersonRepository.AgeGroupsCount.class);
+        when(res.getFirestation()).thenReturn(firestation);
+        when(res.getAdultsCount()).thenReturn(adultsCount);
+        when(res.getChildrenCount()).thenReturn(childrenCount);
+        return res;
+    }
+
     @Test
     void getChildAlert() {
         PersonEntity child1 = factory.manufacturePojo(PersonEntity.class);
@@ -106,7 +283,7 @@ class AlertsServiceTest {
         PersonEntity adult2 = factory.manufacturePojo(PersonEntity.class);
         adult2.getMedicalRecord().setBirthdate(now.minusYears(50).toLocalDate());
 
-        when(personRepository.findAllByAddressAddress("1509 Culver St"))
+        when(personRepository.findAllCompleteByAddressAddress("1509 Culver St"))
                 .thenReturn(Arrays.asList(child1, child2, adult1, adult2));
 
         ChildAlertResponse res = alertsService.getChildAlert("1509 Culver St", now);
@@ -132,15 +309,8 @@ class AlertsServiceTest {
 
     @Test
     void getPhoneAlert() {
-        PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
-        person1.setPhone("123-456-7890");
-        PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
-        person2.setPhone("012-345-6789");
-        PersonEntity person3 = factory.manufacturePojo(PersonEntity.class);
-        person3.setPhone("000-000-0000");
-
-        when(personRepository.findAllByAddressFirestation("A1"))
-                .thenReturn(Arrays.asList(person1, person2, person3));
+        when(personRepository.findDistinctPhonesByAddressFirestation("A1"))
+                .thenReturn(Arrays.asList("123-456-7890", "012-345-6789", "000-000-0000"));
 
         PhoneAlertResponse res = alertsService.getPhoneAlert("A1");
         assertEquals(PhoneAlertResponse.builder()
@@ -150,6 +320,21 @@ class AlertsServiceTest {
                 .build(), res);
     }
 
+
+    @Test
+    void getPhoneAlertPaged() {
+        List<PersonRepository.PersonValue> phones = Arrays.asList(personValue(3L, "123-456-7890"),
+                personValue(5L, "012-345-6789"));
+        when(personRepository.findDistinctPhonesByAddressFirestationAfter("A1", 0L, PageRequest.of(0, 3)))
+                .thenReturn(phones);
+
+        PhoneAlertResponse res = alertsService.getPhoneAlert("A1", CursorPage.of(null, 2));
+        assertEquals(PhoneAlertResponse.builder()
+                .phone("123-456-7890")
+                .phone("012-345-6789")
+                .build(), res);
+    }
+
     @Test
     void getFire() {
         getFire(true);
@@ -168,7 +353,7 @@ class AlertsServiceTest {
 
         when(addressRepository.findByAddress("1509 Culver St"))
                 .thenReturn(Optional.ofNullable(addressEntity));
-        when(personRepository.findAllByAddressAddress("1509 Culver St"))
+        when(personRepository.findAllCompleteByAddressAddress("1509 Culver St"))
                 .thenReturn(Arrays.asList(person1, person2, person3));
 
         FireResponse res = alertsService.getFire("1509 Culver St", now);
@@ -196,19 +381,15 @@ class AlertsServiceTest {
     void getFloodStations() {
         AddressEntity address1 = factory.manufacturePojo(AddressEntity.class);
         AddressEntity address2 = factory.manufacturePojo(AddressEntity.class);
-        AddressEntity address3 = factory.manufacturePojo(AddressEntity.class);
         PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
+        person1.setAddress(address1);
         PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
+        person2.setAddress(address1);
         PersonEntity person3 = factory.manufacturePojo(PersonEntity.class);
+        person3.setAddress(address2);
 
-        when(addressRepository.findAllByFirestationIn(Arrays.asList("A1", "A2")))
-                .thenReturn(Arrays.asList(address1, address2, address3));
-        when(personRepository.findAllByAddressAddress(address1.getAddress()))
-                .thenReturn(Arrays.asList(person1, person2));
-        when(personRepository.findAllByAddressAddress(address2.getAddress()))
-                .thenReturn(Collections.singletonList(person3));
-        when(personRepository.findAllByAddressAddress(address3.getAddress()))
-                .thenReturn(Collections.emptyList());
+        when(personRepository.findAllCompleteByAddressFirestationIn(Arrays.asList("A1", "A2")))
+                .thenReturn(Arrays.asList(person1, person2, person3));
 
         FloodStationsResponse res = alertsService.getFloodStations(Arrays.asList("A1", "A2"), now);
         assertEquals(FloodStationsResponse.builder()
@@ -224,6 +405,159 @@ class AlertsServiceTest {
                 .build(), res);
     }
 
+    @Test
+    void streamFloodStations() {
+        PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
+        PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
+        person2.setAddress(person1.getAddress());
+        person2.getMedicalRecord().setMedications(Collections.emptyList());
+        PersonEntity person3 = factory.manufacturePojo(PersonEntity.class);
+        person3.setMedicalRecord(null);
+        List<String> stations = Arrays.asList("A1", "A2");
+
+        Stream<PersonRepository.CompletePersonRow> rows
+                = Stream.of(completePersonRow(person1), completePersonRow(person2), completePersonRow(person3));
+        when(personRepository.streamAllCompleteRowsByAddressFirestationIn(stations)).thenReturn(rows);
+
+        List<String> addresses = new ArrayList<>();
+        List<Person> persons = new ArrayList<>();
+        alertsService.streamFloodStations(stations, now, (address, person) -> {
+            addresses.add(address);
+            persons.add(person);
+        });
+        assertEquals(Arrays.asList(person1.getAddress().getAddress(), person1.getAddress().getAddress(),
+                person3.getAddress().getAddress()), addresses);
+        assertEquals(Arrays.asList(personMapper.toCompletePerson(person1, now, true),
+                personMapper.toCompletePerson(person2, now, true),
+                personMapper.toCompletePerson(person3, now, true)), persons);
+    }
+
+    @Test
+    void getFloodStationsFromReadModel() {
+        Person person1 = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+        Person person2 = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+        Map<String, List<Person>> personsByAddress = new LinkedHashMap<>();
+        personsByAddress.put("1509 Culver St", Arrays.asList(person1, person2));
+
+        when(readModelService.isReady()).thenReturn(true);
+        when(readModelService.findAllByStationsGroupedByAddress(Arrays.asList("A1", "A2"), now, true))
+                .thenReturn(personsByAddress);
+
+        FloodStationsResponse res = alertsService.getFloodStations(Arrays.asList("A1", "A2"), now);
+        assertEquals(FloodStationsResponse.builder()
+                .station(FloodStationsResponse.Entry.builder()
+                        .address("1509 Culver St")
+                        .person(person1)
+                        .person(person2)
+                        .build())
+                .build(), res);
+        Mockito.verifyNoInteractions(addressRepository, personRepository);
+    }
+
+
+
+    @Test
+    void getFloodStationsConcurrently() {
+        FloodFanOutProperties props = new FloodFanOutProperties();
+        props.setEnabled(true);
+        props.setPoolSize(2);
+        alertsService = new AlertsService(addressRepository, personRepository, personMapper, readModelService,
+                transactionManager, props);
+        AddressEntity address1 = factory.manufacturePojo(AddressEntity.class);
+        address1.setId(1L);
+        AddressEntity address2 = factory.manufacturePojo(AddressEntity.class);
+        address2.setId(2L);
+        AddressEntity address3 = factory.manufacturePojo(AddressEntity.class);
+        address3.setId(3L);
+        PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
+        person1.setAddress(address1);
+        PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
+        person2.setAddress(address2);
+        PersonEntity person3 = factory.manufacturePojo(PersonEntity.class);
+        person3.setAddress(address3);
+
+        when(personRepository.findAllCompleteByAddressFirestationIn(Collections.singletonList("A1")))
+                .thenReturn(Collections.singletonList(person2));
+        when(personRepository.findAllCompleteByAddressFirestationIn(Collections.singletonList("A2")))
+                .thenReturn(Arrays.asList(person1, person3));
+
+        try {
+            FloodStationsResponse res = alertsService.getFloodStations(Arrays.asList("A1", "A2", "A3", "A1"), now);
+            assertEquals(FloodStationsResponse.builder()
+                    .station(FloodStationsResponse.Entry.builder()
+                            .address(address1.getAddress())
+                            .person(personMapper.toCompletePerson(person1, now, true))
+                            .build())
+                    .station(FloodStationsResponse.Entry.builder()
+                            .address(address2.getAddress())
+                            .person(personMapper.toCompletePerson(person2, now, true))
+                            .build())
+                    .station(FloodStationsResponse.Entry.builder()
+                            .address(address3.getAddress())
+                            .person(personMapper.toCompletePerson(person3, now, true))
+                            .build())
+                    .build(), res);
+            // the first station in the current transaction, the others in their own
+            verify(transactionManager, Mockito.times(2)).getTransaction(any());
+        } finally {
+            alertsService.shutdown();
+        }
+    }
+    @Test
+    void getFloodStationsConcurrentlyInRequest() {
+        FloodFanOutProperties props = new FloodFanOutProperties();
+        props.setEnabled(true);
+        props.setPoolSize(2);
+        alertsService = new AlertsService(addressRepository, personRepository, personMapper, readModelService,
+                transactionManager, props);
+        RequestAttributes attributes = new ServletRequestAttributes(new MockHttpServletRequest());
+        List<RequestAttributes> seenAttributes = Collections.synchronizedList(new ArrayList<>());
+        when(personRepository.findAllCompleteByAddressFirestationIn(any())).thenAnswer(invocation -> {
+            seenAttributes.add(RequestContextHolder.getRequestAttributes());
+            return Collections.emptyList();
+        });
+
+        RequestContextHolder.setRequestAttributes(attributes);
+        try {
+            alertsService.getFloodStations(Arrays.asList("A1", "A2", "A3"), now);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            alertsService.shutdown();
+        }
+
+        // the stations queried by the pool are routed like the request (eg. to the primary for fresh reads)
+        assertEquals(Arrays.asList(attributes, attributes, attributes), seenAttributes);
+    }
+
+    @Test
+    void getFloodStationsPaged() {
+        Person person1 = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+        Person person2 = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+        Person person3 = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+        Map<Long, List<Person>> personsByAddressId = new LinkedHashMap<>();
+        personsByAddressId.put(7L, Collections.singletonList(person1));
+        personsByAddressId.put(8L, Arrays.asList(person2, person3));
+
+        when(readModelService.isReady()).thenReturn(true);
+        when(readModelService.findAllByStationsGroupedByAddressId(Arrays.asList("A1", "A2"), now, true, 7L, 4L, 3))
+                .thenReturn(personsByAddressId);
+
+        FloodStationsResponse res = alertsService.getFloodStations(Arrays.asList("A1", "A2"), now,
+                CursorPage.of(CursorPage.encode(7L, 4L), 2));
+        assertEquals(FloodStationsResponse.builder()
+                .station(FloodStationsResponse.Entry.builder()
+                        .address(person1.getAddress())
+                        .person(person1)
+                        .build())
+                .station(FloodStationsResponse.Entry.builder()
+                        .address(person2.getAddress())
+                        .person(person2)
+                        .build())
+                .nextCursor(CursorPage.encode(8L, person2.getId()))
+                .build(), res);
+        Mockito.verifyNoInteractions(addressRepository, personRepository);
+    }
+
     @Test
     void getFloodStationsNow() {
         AlertsService alertsServiceSpy = Mockito.spy(alertsService);
@@ -241,7 +575,7 @@ class AlertsServiceTest {
         PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
         PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
 
-        when(personRepository.findAllByFirstNameAndLastName("Jean", "Sebastien"))
+        when(personRepository.findAllCompleteByFirstNameAndLastName("Jean", "Sebastien"))
                 .thenReturn(Arrays.asList(person1, person2));
 
         PersonInfoResponse res = alertsService.getPersonInfo("Jean", "Sebastien", now);
@@ -251,6 +585,19 @@ class AlertsServiceTest {
                 .build(), res);
     }
 
+    @Test
+    void getPersonInfoFromReadModel() {
+        Person person = personMapper.toCompletePerson(factory.manufacturePojo(PersonEntity.class), now, true);
+
+        when(readModelService.isReady()).thenReturn(true);
+        when(readModelService.findAllByNames("Jean", "Sebastien", now, true))
+                .thenReturn(Collections.singletonList(person));
+
+        PersonInfoResponse res = alertsService.getPersonInfo("Jean", "Sebastien", now);
+        assertEquals(PersonInfoResponse.builder().person(person).build(), res);
+        Mockito.verifyNoInteractions(personRepository);
+    }
+
     @Test
     void getPersonInfoNow() {
         AlertsService alertsServiceSpy = Mockito.spy(alertsService);
@@ -265,19 +612,42 @@ class AlertsServiceTest {
 
     @Test
     void getCommunityEmail() {
-        PersonEntity person1 = factory.manufacturePojo(PersonEntity.class);
-        PersonEntity person2 = factory.manufacturePojo(PersonEntity.class);
-
-        when(personRepository.findAllByAddressCity("Paris"))
-                .thenReturn(Arrays.asList(person1, person2));
+        when(personRepository.findDistinctEmailsByAddressCity("Paris"))
+                .thenReturn(Arrays.asList("jaboyd@email.com", "drk@email.com"));
 
         CommunityEmailResponse res = alertsService.getCommunityEmail("Paris");
         assertEquals(CommunityEmailResponse.builder()
-                .email(person1.getEmail())
-                .email(person2.getEmail())
+                .email("jaboyd@email.com")
+                .email("drk@email.com")
                 .build(), res);
     }
 
+
+    @Test
+    void getCommunityEmailPaged() {
+        List<PersonRepository.PersonValue> emails = Arrays.asList(personValue(3L, "jaboyd@email.com"),
+                personValue(5L, "drk@email.com"));
+        when(readModelService.isReady()).thenReturn(true);
+        when(readModelService.findEmailsByCity("Paris", 2L, 2)).thenReturn(emails);
+
+        CommunityEmailResponse res = alertsService.getCommunityEmail("Paris", CursorPage.of(CursorPage.encode(2L), 1));
+        assertEquals(CommunityEmailResponse.builder()
+                .email("jaboyd@email.com")
+                .nextCursor(CursorPage.encode(3L))
+                .build(), res);
+        Mockito.verifyNoInteractions(personRepository);
+    }
+
+    @Test
+    void streamCommunityEmail() {
+        when(personRepository.streamDistinctEmailsByAddressCity("Culver"))
+                .thenReturn(Stream.of("a@b.c", "d@e.f"));
+
+        List<String> res = new ArrayList<>();
+        alertsService.streamCommunityEmail("Culver", res::add);
+        assertEquals(Arrays.asList("a@b.c", "d@e.f"), res);
+    }
+
     @Test
     void isAdult() {
         assertFalse(AlertsService.isAdult(Person.builder().age(7).build()));
@@ -0,0 +1,211 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.ChangesResponse;
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import com.safetynet.alerts.api.response.ChangesResponse.Entity;
+import com.safetynet.alerts.api.response.ChangesResponse.Key;
+import com.safetynet.alerts.properties.ChangeFeedProperties;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class ChangeFeedServiceTest {
+    private static final Person PERSON = Person.builder().firstName("John").lastName("Boyd")
+            .address("1509 Culver St").build();
+    private static final Person MOVED_PERSON = Person.builder().firstName("John").lastName("Boyd")
+            .address("29 15th St").build();
+
+    @Mock
+    private ObjectProvider<ChangeSink> sinks;
+
+    private final ChangeFeedProperties props = new ChangeFeedProperties();
+    private final List<Change> written = new CopyOnWriteArrayList<>();
+    private ChangeFeedService changeFeedService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        props.setEnabled(true);
+        props.setCapacity(4);
+        when(sinks.orderedStream()).thenReturn(Stream.empty());
+    }
+
+    @AfterEach
+    void cleanup() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (changeFeedService != null) {
+            changeFeedService.stop();
+        }
+    }
+
+    private void start() {
+        changeFeedService = new ChangeFeedService(props, sinks);
+        changeFeedService.start();
+    }
+
+    private List<Change> readAll() {
+        return changeFeedService.read(changeFeedService.getFeedId(), 0, 100).getChanges();
+    }
+
+    @Test
+    void personChanges() {
+        start();
+
+        changeFeedService.onPersonChanged(new PersonChangedEvent(ChangeType.CREATED, 1L, null, null, PERSON, "3"));
+        changeFeedService.onPersonChanged(new PersonChangedEvent(ChangeType.UPDATED, 1L, PERSON, "3",
+                MOVED_PERSON, "2"));
+        changeFeedService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+
+        List<Change> changes = readAll();
+        assertEquals(3, changes.size());
+        Key created = Key.builder().id(1L).firstName("John").lastName("Boyd").address("1509 Culver St")
+                .station("3").build();
+        assertEquals(1, changes.get(0).getOffset());
+        assertEquals(Entity.PERSON, changes.get(0).getEntity());
+        assertEquals(ChangesResponse.Type.CREATED, changes.get(0).getType());
+        assertNull(changes.get(0).getBefore());
+        assertEquals(created, changes.get(0).getAfter());
+        assertEquals(created, changes.get(1).getBefore());
+        assertEquals("29 15th St", changes.get(1).getAfter().getAddress());
+        assertEquals("2", changes.get(1).getAfter().getStation());
+        // the state before the deletion is unknown
+        assertEquals(Key.builder().id(1L).build(), changes.get(2).getBefore());
+        assertNull(changes.get(2).getAfter());
+    }
+
+    @Test
+    void firestationAndMedicalRecordChanges() {
+        start();
+
+        changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED, "1509 Culver St",
+                "3", "4"));
+        changeFeedService.onMedicalRecordChanged(new MedicalRecordChangedEvent(ChangeType.DELETED, 1L,
+                MedicalRecord.builder().firstName("John").lastName("Boyd").build(), null, "1509 Culver St", "4"));
+        changeFeedService.onDatasetImported(new DatasetImportedEvent(1, 1, 1));
+
+        List<Change> changes = readAll();
+        assertEquals(Key.builder().address("1509 Culver St").station("3").build(), changes.get(0).getBefore());
+        assertEquals(Key.builder().address("1509 Culver St").station("4").build(), changes.get(0).getAfter());
+        assertEquals(Entity.MEDICAL_RECORD, changes.get(1).getEntity());
+        assertEquals(Key.builder().id(1L).firstName("John").lastName("Boyd").address("1509 Culver St")
+                .station("4").build(), changes.get(1).getBefore());
+        assertNull(changes.get(1).getAfter());
+        assertEquals(Entity.DATASET, changes.get(2).getEntity());
+    }
+
+    @Test
+    void appendedAfterCommit() {
+        start();
+        TransactionSynchronizationManager.initSynchronization();
+
+        changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "1509 Culver St",
+                null, "3"));
+        changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "29 15th St",
+                null, "2"));
+        CompletableFuture<Void> changed = changeFeedService.awaitChanges(0);
+        assertTrue(readAll().isEmpty());
+        assertFalse(changed.isDone());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(2, readAll().size());
+        assertTrue(changed.isDone());
+        assertTrue(changeFeedService.awaitChanges(1).isDone());
+        assertFalse(changeFeedService.awaitChanges(2).isDone());
+        assertNull(TransactionSynchronizationManager.getResource(changeFeedService));
+    }
+
+    @Test
+    void discardedOnRollback() {
+        start();
+        TransactionSynchronizationManager.initSynchronization();
+
+        changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "1509 Culver St",
+                null, "3"));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(readAll().isEmpty());
+        assertNull(TransactionSynchronizationManager.getResource(changeFeedService));
+    }
+
+    @Test
+    void readTruncated() {
+        start();
+        for (int i = 0; i < 6; ++i) {
+            changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "a" + i,
+                    null, "1"));
+        }
+
+        // the 2 oldest changes were dropped
+        ChangesResponse response = changeFeedService.read(changeFeedService.getFeedId(), 1, 100);
+        assertTrue(response.isTruncated());
+        assertEquals(6, response.getNextOffset());
+        assertEquals(3L, response.getChanges().get(0).getOffset());
+
+        response = changeFeedService.read(changeFeedService.getFeedId(), 2, 100);
+        assertFalse(response.isTruncated());
+        assertEquals(4, response.getChanges().size());
+
+        // the offset of another feed
+        assertTrue(changeFeedService.read("other", 5, 100).isTruncated());
+        assertTrue(changeFeedService.read(null, 7, 100).isTruncated());
+        assertFalse(changeFeedService.read(null, 6, 100).isTruncated());
+    }
+
+    @Test
+    void sinks() throws Exception {
+        when(sinks.orderedStream()).thenReturn(Stream.of(written::addAll));
+        start();
+
+        for (int i = 0; i < 3; ++i) {
+            changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "a" + i,
+                    null, "1"));
+        }
+        // the changes already committed are written before stopping
+        changeFeedService.stop();
+
+        assertEquals(3, written.size());
+        assertEquals(new ArrayList<>(readAll()), written);
+    }
+
+    @Test
+    void disabled() {
+        props.setEnabled(false);
+        when(sinks.orderedStream()).thenReturn(Stream.of(written::addAll));
+        start();
+
+        changeFeedService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "1509 Culver St",
+                null, "3"));
+
+        assertFalse(changeFeedService.isEnabled());
+        assertTrue(written.isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.safetynet.alerts.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorPageTest {
+    @Test
+    void of() {
+        assertSame(CursorPage.UNBOUNDED, CursorPage.of(null, null));
+        assertTrue(CursorPage.UNBOUNDED.isUnbounded());
+        assertEquals(Integer.MAX_VALUE, CursorPage.UNBOUNDED.getFetchSize());
+        assertEquals(11, CursorPage.of(null, 10).getFetchSize());
+    }
+
+    @Test
+    void getKeys() {
+        assertArrayEquals(new long[]{0L, 0L}, CursorPage.of(null, 10).getKeys(0L, 0L));
+        assertArrayEquals(new long[]{12L, 345L}, CursorPage.of(CursorPage.encode(12L, 345L), 10).getKeys(0L, 0L));
+    }
+
+    @Test
+    void getKeysInvalid() {
+        assertThrows(CursorPage.InvalidCursorException.class, () -> CursorPage.of("%%", 10).getKeys(0L));
+        assertThrows(CursorPage.InvalidCursorException.class, () -> CursorPage.of("YQ", 10).getKeys(0L));
+        assertThrows(CursorPage.InvalidCursorException.class,
+                () -> CursorPage.of(CursorPage.encode(1L, 2L), 10).getKeys(0L));
+    }
+
+    @Test
+    void truncate() {
+        List<Long> elements = new ArrayList<>(Arrays.asList(1L, 2L, 3L));
+        assertEquals(CursorPage.encode(2L), CursorPage.of(null, 2).truncate(elements, id -> new long[]{id}));
+        assertEquals(Arrays.asList(1L, 2L), elements);
+
+        // last page
+        assertNull(CursorPage.of(null, 2).truncate(elements, id -> new long[]{id}));
+        assertNull(CursorPage.UNBOUNDED.truncate(elements, id -> new long[]{id}));
+        assertEquals(Arrays.asList(1L, 2L), elements);
+    }
+}
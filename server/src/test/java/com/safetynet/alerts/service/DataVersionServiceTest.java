@@ -0,0 +1,97 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.properties.EtagsProperties;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DataVersionServiceTest {
+    private DataVersionService dataVersionService;
+
+    @BeforeEach
+    void setup() {
+        dataVersionService = new DataVersionService(new EtagsProperties());
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getETag() {
+        LocalDate date = LocalDate.of(2001, 10, 25);
+        String etag = dataVersionService.getETag(date);
+
+        assertEquals(etag, dataVersionService.getETag(date));
+        assertNotEquals(etag, dataVersionService.getETag(date.plusDays(1)));
+
+        dataVersionService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "a", null, "1"));
+        assertNotEquals(etag, dataVersionService.getETag(date));
+    }
+
+    @Test
+    void getETagOfOtherServer() {
+        LocalDate date = LocalDate.of(2001, 10, 25);
+
+        // even with the same version
+        assertNotEquals(dataVersionService.getETag(date), new DataVersionService(new EtagsProperties()) {
+            @Override
+            public long getVersion() {
+                return dataVersionService.getVersion();
+            }
+        }.getETag(date));
+    }
+
+    @Test
+    void onChanged() {
+        long version = dataVersionService.getVersion();
+
+        dataVersionService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+        dataVersionService.onMedicalRecordChanged(
+                new MedicalRecordChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+
+        assertEquals(version + 2, dataVersionService.getVersion());
+    }
+
+    @Test
+    void onChangedInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        long version = dataVersionService.getVersion();
+
+        dataVersionService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+        dataVersionService.onFirestationChanged(new FirestationChangedEvent(ChangeType.CREATED, "a", null, "1"));
+        assertEquals(version, dataVersionService.getVersion());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertEquals(version + 1, dataVersionService.getVersion());
+    }
+
+    @Test
+    void onChangedInRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        long version = dataVersionService.getVersion();
+
+        dataVersionService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(version, dataVersionService.getVersion());
+    }
+}
@@ -0,0 +1,154 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.config.MigrationConfig;
+import com.safetynet.alerts.properties.EmbeddedStorageProperties;
+import com.safetynet.alerts.properties.MigrationProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.IdGeneratorsInitializer;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.SchemaMigrator;
+import com.safetynet.alerts.repository.embedded.EmbeddedStorage;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.service.DatasetSnapshotService.Counts;
+import com.safetynet.alerts.service.DatasetSnapshotService.DatabaseNotEmptyException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({SchemaMigrator.class, MigrationConfig.class, IdGeneratorsInitializer.class, EmbeddedStorage.class,
+        DatasetSnapshotService.class})
+@EnableConfigurationProperties({MigrationProperties.class, EmbeddedStorageProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DatasetSnapshotServiceTest {
+    private static final String SELECT_ROWS = "select a.*, p.*, m.* from persons p"
+            + " join addresses a on a.id = p.address_id left join medicalrecords m on m.person_id = p.id order by p.id";
+
+    @Autowired
+    private DatasetSnapshotService datasetSnapshotService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private byte[] json;
+
+    @BeforeEach
+    void setup() throws IOException {
+        try (InputStream is = DatasetSnapshotServiceTest.class.getResourceAsStream("/data.json")) {
+            json = IOUtils.toByteArray(is);
+        }
+        JsonSeedService.Models models = new ObjectMapper().findAndRegisterModules()
+                .readValue(json, JsonSeedService.Models.class);
+        personRepository.saveAll(JsonSeedService.seedDataToEntities(models).getPersons());
+    }
+
+    @AfterEach
+    void cleanup() {
+        personRepository.deleteAll();
+        addressRepository.deleteAll();
+    }
+
+    private byte[] exportSnapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        datasetSnapshotService.exportSnapshot(bytes);
+        return bytes.toByteArray();
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    @Test
+    void exportImport() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SELECT_ROWS);
+
+        byte[] snapshot = exportSnapshot();
+        cleanup();
+        Counts counts = datasetSnapshotService.importSnapshot(new ByteArrayInputStream(snapshot));
+
+        assertTrue(snapshot.length * 3 < json.length, snapshot.length + " bytes");
+        assertEquals(rows, jdbcTemplate.queryForList(SELECT_ROWS));
+        assertEquals(count("addresses"), counts.getAddresses());
+        assertEquals(count("persons"), counts.getPersons());
+        assertEquals(count("medicalrecords"), counts.getMedicalRecords());
+        // the ID generators are moved past the imported IDs
+        long maxId = jdbcTemplate.queryForObject("select max(id) from persons", Long.class);
+        PersonEntity person = new PersonEntity();
+        person.setFirstName("Jane");
+        person.setLastName("Doe");
+        person.setPhone("841-874-0000");
+        person.setEmail("jdoe@email.com");
+        AddressEntity address = new AddressEntity();
+        address.setAddress("1 Main St");
+        person.setAddress(address);
+        assertTrue(personRepository.save(person).getId() > maxId);
+    }
+
+    @Test
+    void importNotEmpty() {
+        byte[] snapshot = exportSnapshot();
+
+        assertThrows(DatabaseNotEmptyException.class,
+                () -> datasetSnapshotService.importSnapshot(new ByteArrayInputStream(snapshot)));
+    }
+
+    @Test
+    void importCorrupted() {
+        byte[] snapshot = exportSnapshot();
+        cleanup();
+        snapshot[snapshot.length / 2] ^= 1;
+
+        assertThrows(UncheckedIOException.class,
+                () -> datasetSnapshotService.importSnapshot(new ByteArrayInputStream(snapshot)));
+        // rolled back
+        assertEquals(0, count("addresses"));
+        assertEquals(0, count("persons"));
+    }
+
+    @Test
+    void importTruncated() {
+        byte[] snapshot = exportSnapshot();
+        cleanup();
+        byte[] truncated = new byte[snapshot.length - 4];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+
+        assertThrows(UncheckedIOException.class,
+                () -> datasetSnapshotService.importSnapshot(new ByteArrayInputStream(truncated)));
+        assertEquals(0, count("persons"));
+    }
+
+    @Test
+    void importNotSnapshot() {
+        cleanup();
+
+        assertThrows(UncheckedIOException.class,
+                () -> datasetSnapshotService.importSnapshot(new ByteArrayInputStream(json)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.safetynet.alerts.api.response.ChangesResponse;
+import com.safetynet.alerts.api.response.ChangesResponse.Change;
+import com.safetynet.alerts.api.response.ChangesResponse.Entity;
+import com.safetynet.alerts.api.response.ChangesResponse.Key;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileChangeSinkTest {
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static Change change(long offset) {
+        return Change.builder()
+                .offset(offset)
+                .timestamp(Instant.ofEpochSecond(offset))
+                .entity(Entity.FIRESTATION)
+                .type(ChangesResponse.Type.CREATED)
+                .after(Key.builder().address("1509 Culver St").station("3").build())
+                .build();
+    }
+
+    @Test
+    void write() throws Exception {
+        Path path = directory.resolve("changes").resolve("changes.jsonl");
+        try (FileChangeSink sink = new FileChangeSink(path, objectMapper)) {
+            sink.write(Arrays.asList(change(1), change(2)));
+            sink.changesDropped();
+        }
+        // appended
+        try (FileChangeSink sink = new FileChangeSink(path, objectMapper)) {
+            sink.write(Collections.singletonList(change(5)));
+        }
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals(change(1), objectMapper.readValue(lines.get(0), Change.class));
+        assertEquals(change(2), objectMapper.readValue(lines.get(1), Change.class));
+        assertEquals("{\"truncated\":true}", lines.get(2));
+        assertEquals(change(5), objectMapper.readValue(lines.get(3), Change.class));
+    }
+
+    @Test
+    void writeFailed() throws Exception {
+        Path path = directory.resolve("changes.jsonl");
+        ObjectMapper failingMapper = new ObjectMapper() {
+            @Override
+            public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+                if (((Change) value).getOffset() == 3) {
+                    throw new JsonMappingException(null, "failed");
+                }
+                return objectMapper.writeValueAsBytes(value);
+            }
+        };
+        try (FileChangeSink sink = new FileChangeSink(path, failingMapper)) {
+            sink.write(Collections.singletonList(change(1)));
+            assertThrows(IOException.class, () -> sink.write(Arrays.asList(change(2), change(3))));
+        }
+
+        // none of the failed write
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertEquals(change(1), objectMapper.readValue(lines.get(0), Change.class));
+    }
+}
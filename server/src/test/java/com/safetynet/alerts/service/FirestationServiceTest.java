@@ -5,11 +5,14 @@ import com.safetynet.alerts.api.model.Firestation;
 import com.safetynet.alerts.repository.AddressRepository;
 import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.mapper.AddressMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import uk.co.jemos.podam.api.PodamFactory;
 import uk.co.jemos.podam.api.PodamFactoryImpl;
 
@@ -24,6 +27,9 @@ class FirestationServiceTest {
     @Mock
     private AddressRepository addressRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private final AddressMapper addressMapper = new AddressMapper();
 
     private FirestationService firestationService;
@@ -33,7 +39,7 @@ class FirestationServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        firestationService = new FirestationService(addressRepository, addressMapper);
+        firestationService = new FirestationService(addressRepository, addressMapper, eventPublisher);
     }
 
     @Test
@@ -117,9 +123,12 @@ class FirestationServiceTest {
         when(addressRepository.findByAddress("1509 Culver St"))
                 .thenReturn(Optional.ofNullable(address));
 
+        String station = exists ? address.getFirestation() : null;
         boolean res = firestationService.deleteFirestation("1509 Culver St");
         assertEquals(withFirestation, res);
         if (res) {
+            verify(eventPublisher, times(1)).publishEvent(new FirestationChangedEvent(
+                    ChangeType.DELETED, "1509 Culver St", station, null));
             assertNull(address.getFirestation());
             verify(addressRepository, times(1)).save(address);
         }
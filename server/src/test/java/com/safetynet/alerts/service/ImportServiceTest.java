@@ -0,0 +1,299 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Firestation;
+import com.safetynet.alerts.api.model.MedicalRecord;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.AddressMapper;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImportServiceTest {
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ImportService importService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        importService = new ImportService(addressRepository, personRepository, medicalRecordRepository,
+                new PersonMapper(), new AddressMapper(), eventPublisher, entityManager);
+
+        // simulates the generation of IDs
+        AtomicLong nextId = new AtomicLong(10L);
+        when(personRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<PersonEntity> entities = invocation.getArgument(0);
+            entities.forEach(entity -> entity.setId(nextId.getAndIncrement()));
+            return entities;
+        });
+    }
+
+    private static AddressEntity address(String address, String city, String zip, String firestation) {
+        AddressEntity res = new AddressEntity();
+        res.setAddress(address);
+        res.setCity(city);
+        res.setZip(zip);
+        res.setFirestation(firestation);
+        return res;
+    }
+
+    private static Person person(String firstName, String lastName, String address, String city, String zip) {
+        return Person.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .address(address)
+                .city(city)
+                .zip(zip)
+                .phone("841-874-6512")
+                .email("jaboyd@email.com")
+                .build();
+    }
+
+    private static Firestation firestation(String address, String station) {
+        return Firestation.builder()
+                .address(address)
+                .station(station)
+                .build();
+    }
+
+    private static PersonRepository.PersonRef ref(Long id, String firstName, String lastName,
+            Long medicalRecordId) {
+        return new PersonRepository.PersonRef() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getFirstName() {
+                return firstName;
+            }
+
+            @Override
+            public String getLastName() {
+                return lastName;
+            }
+
+            @Override
+            public Long getMedicalRecordId() {
+                return medicalRecordId;
+            }
+
+            @Override
+            public String getAddress() {
+                return "1509 Culver St";
+            }
+
+            @Override
+            public String getFirestation() {
+                return "3";
+            }
+        };
+    }
+
+    private static MedicalRecord medicalRecord(Long personId, String firstName, String lastName) {
+        return MedicalRecord.builder()
+                .personId(personId)
+                .firstName(firstName)
+                .lastName(lastName)
+                .birthdate(LocalDate.of(1984, 3, 6))
+                .medications(Collections.singletonList("aznol:350mg"))
+                .allergies(Collections.emptyList())
+                .build();
+    }
+
+    @Test
+    void importPersons() {
+        when(addressRepository.findAllByAddressIn(any())).thenReturn(Arrays.asList(
+                address("1509 Culver St", "Culver", "97451", "3"),
+                address("29 15th St", null, null, "2")));
+        when(personRepository.findAllRefsByFirstNameInAndLastNameIn(any(), any())).thenReturn(Arrays.asList(
+                ref(1L, "John", "Boyd", null),
+                // only a superset of the names: "Jacob Cooper" is not an existing person
+                ref(2L, "Jacob", "Boyd", null),
+                ref(3L, "Tessa", "Cooper", null)));
+
+        List<ImportService.ItemResult<Person>> res = importService.importPersons(Arrays.asList(
+                person("John", "Boyd", "1509 Culver St", "Culver", "97451"),
+                person("Jacob", "Cooper", "1509 Culver St", "Culver", "97451"),
+                person("Jacob", "Cooper", "29 15th St", "Culver", "97451"),
+                person("Eric", "Cadigan", "1509 Culver St", "Paris", "97451"),
+                person("Ron", "Peters", "112 Steppes Pl", "Culver", "97451")), false);
+
+        assertEquals(5, res.size());
+        assertTrue(res.get(0).getError() instanceof PersonService.PersonExistsException);
+        assertTrue(res.get(1).isCreated());
+        assertEquals(10L, res.get(1).getValue().getId());
+        // similar names inside the import itself
+        assertTrue(res.get(2).getError() instanceof PersonService.PersonExistsException);
+        assertTrue(res.get(3).getError() instanceof PersonService.InterferingAddressException);
+        assertTrue(res.get(4).isCreated());
+        assertEquals(11L, res.get(4).getValue().getId());
+        assertEquals("112 Steppes Pl", res.get(4).getValue().getAddress());
+
+        verify(personRepository, times(1)).saveAll(any());
+        verify(eventPublisher, times(1)).publishEvent(new PersonChangedEvent(ChangeType.CREATED, 10L, null, null,
+                res.get(1).getValue(), "3"));
+        verify(eventPublisher, times(1)).publishEvent(new PersonChangedEvent(ChangeType.CREATED, 11L, null, null,
+                res.get(4).getValue(), null));
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void importPersonsWithSimilarNames() {
+        when(addressRepository.findAllByAddressIn(any())).thenReturn(Collections.singletonList(
+                address("29 15th St", null, null, "2")));
+
+        List<ImportService.ItemResult<Person>> res = importService.importPersons(Arrays.asList(
+                person("John", "Boyd", "29 15th St", "Culver", "97451"),
+                person("John", "Boyd", "29 15th St", "Culver", "97451")), true);
+
+        assertTrue(res.get(0).isCreated());
+        assertTrue(res.get(1).isCreated());
+        // the incomplete address is filled
+        assertEquals("Culver", res.get(0).getValue().getCity());
+        verify(personRepository, times(0)).findAllRefsByFirstNameInAndLastNameIn(any(), any());
+    }
+
+    @Test
+    void importPersonsByChunks() {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < ImportService.CHUNK_SIZE + 1; ++i) {
+            persons.add(person("John", "Boyd", "1509 Culver St", "Culver", "97451"));
+        }
+
+        List<ImportService.ItemResult<Person>> res = importService.importPersons(persons, true);
+
+        assertEquals(persons.size(), res.size());
+        verify(addressRepository, times(2)).findAllByAddressIn(any());
+        verify(personRepository, times(2)).saveAll(any());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void importFirestations() {
+        when(addressRepository.findAllByAddressIn(any())).thenReturn(Arrays.asList(
+                address("1509 Culver St", "Culver", "97451", "3"),
+                address("29 15th St", "Culver", "97451", null)));
+
+        List<ImportService.ItemResult<Firestation>> res = importService.importFirestations(Arrays.asList(
+                firestation("1509 Culver St", "1"),
+                firestation("29 15th St", "2"),
+                firestation("112 Steppes Pl", "4")));
+
+        assertFalse(res.get(0).isCreated());
+        assertFalse(res.get(1).isCreated());
+        assertTrue(res.get(2).isCreated());
+        assertEquals(firestation("112 Steppes Pl", "4"), res.get(2).getValue());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AddressEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(addressRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        verify(eventPublisher, times(1)).publishEvent(new FirestationChangedEvent(ChangeType.UPDATED,
+                "1509 Culver St", "3", "1"));
+        verify(eventPublisher, times(1)).publishEvent(new FirestationChangedEvent(ChangeType.CREATED,
+                "29 15th St", null, "2"));
+        verify(eventPublisher, times(1)).publishEvent(new FirestationChangedEvent(ChangeType.CREATED,
+                "112 Steppes Pl", null, "4"));
+    }
+
+    @Test
+    void importMedicalRecords() {
+        when(personRepository.findAllRefsByIdIn(any())).thenReturn(Arrays.asList(
+                ref(1L, "John", "Boyd", null),
+                ref(2L, "Jacob", "Boyd", 2L)));
+        when(personRepository.findAllRefsByFirstNameInAndLastNameIn(any(), any())).thenReturn(Arrays.asList(
+                ref(3L, "Tenley", "Boyd", null),
+                ref(4L, "Roger", "Boyd", null),
+                ref(5L, "Roger", "Boyd", null)));
+
+        List<ImportService.ItemResult<MedicalRecord>> res = importService.importMedicalRecords(Arrays.asList(
+                medicalRecord(1L, null, null),
+                medicalRecord(2L, null, null),
+                medicalRecord(6L, null, null),
+                medicalRecord(null, "Tenley", "Boyd"),
+                medicalRecord(null, "Tenley", "Boyd"),
+                medicalRecord(null, "Roger", "Boyd"),
+                medicalRecord(null, "Felicia", "Boyd")));
+
+        assertTrue(res.get(0).isCreated());
+        assertEquals("John", res.get(0).getValue().getFirstName());
+        assertTrue(res.get(1).getError() instanceof MedicalRecordService.MedicalRecordExistsException);
+        assertTrue(res.get(2).getError() instanceof MedicalRecordService.PersonNotFoundException);
+        assertTrue(res.get(3).isCreated());
+        assertEquals(3L, res.get(3).getValue().getPersonId());
+        // the first one of the import already created it
+        assertTrue(res.get(4).getError() instanceof MedicalRecordService.MedicalRecordExistsException);
+        assertTrue(res.get(5).getError() instanceof MedicalRecordService.InterferingNamesException);
+        assertTrue(res.get(6).getError() instanceof MedicalRecordService.PersonNotFoundException);
+        assertNull(res.get(6).getValue());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MedicalRecordEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(medicalRecordRepository).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        verify(entityManager).getReference(PersonEntity.class, 1L);
+        verify(entityManager).getReference(eq(PersonEntity.class), eq(3L));
+        verify(eventPublisher, times(1)).publishEvent(new MedicalRecordChangedEvent(ChangeType.CREATED, 1L,
+                null, res.get(0).getValue(), "1509 Culver St", "3"));
+    }
+
+    @Test
+    void importModels() {
+        JsonSeedService.Models models = new JsonSeedService.Models(null,
+                Collections.singletonList(firestation("1509 Culver St", "1")), null);
+
+        ImportService.Report res = importService.importModels(models, false);
+
+        assertTrue(res.getPersons().isEmpty());
+        assertEquals(1, res.getFirestations().size());
+        assertTrue(res.getMedicalRecords().isEmpty());
+    }
+}
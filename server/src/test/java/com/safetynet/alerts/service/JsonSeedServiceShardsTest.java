@@ -0,0 +1,109 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.properties.JsonSeedProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.util.spring.MappedFileResource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static com.safetynet.alerts.service.JsonSeedServiceTestData.seedEntities;
+import static com.safetynet.alerts.service.JsonSeedServiceTestData.seedModels;
+import static com.safetynet.alerts.service.JsonSeedServiceTestData.seedModelsJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonSeedServiceShardsTest {
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private StreamingJsonSeedService streamingJsonSeedService;
+
+    @Mock
+    private ReconcilingJsonSeedService reconcilingJsonSeedService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private JsonSeedService createService(String path) {
+        JsonSeedProperties props = new JsonSeedProperties();
+        props.setPath(path);
+        return new JsonSeedService(addressRepository, personRepository, new ObjectMapper().findAndRegisterModules(),
+                streamingJsonSeedService, reconcilingJsonSeedService, transactionManager, props);
+    }
+
+    private void writeShard(String name, String json) throws Exception {
+        Files.write(dir.resolve(name), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void getSeedResourcesDefault() {
+        Map<String, Resource> resources = createService("").getSeedResources();
+
+        assertEquals(1, resources.size());
+        assertTrue(resources.get("/data.json") instanceof ClassPathResource);
+    }
+
+    @Test
+    void getSeedResourcesFile() throws Exception {
+        writeShard("seed.json", seedModelsJson());
+        JsonSeedService jsonSeedService = createService(dir.resolve("seed.json").toString());
+
+        Map<String, Resource> resources = jsonSeedService.getSeedResources();
+
+        assertEquals(1, resources.size());
+        assertTrue(resources.get(dir.resolve("seed.json").toString()) instanceof MappedFileResource);
+        assertEquals(seedModels(), jsonSeedService.readSeedData(resources.values()));
+    }
+
+    @Test
+    void getSeedResourcesDirectory() throws Exception {
+        // the second shard references the address and persons of the first one
+        String json = seedModelsJson();
+        int firestations = json.indexOf("\"firestations\"");
+        writeShard("20-records.json", "{" + json.substring(firestations));
+        writeShard("10-persons.json", json.substring(0, json.lastIndexOf(',', firestations)) + "}");
+        writeShard("readme.txt", "not a shard");
+        JsonSeedService jsonSeedService = createService(dir.toString());
+
+        Map<String, Resource> resources = jsonSeedService.getSeedResources();
+
+        assertEquals(Arrays.asList(dir.resolve("10-persons.json").toString(), dir.resolve("20-records.json").toString()),
+                Arrays.asList(resources.keySet().toArray()));
+        JsonSeedService.Models models = jsonSeedService.readSeedData(resources.values());
+        assertEquals(seedModels(), models);
+        assertEquals(seedEntities(), JsonSeedService.seedDataToEntities(models));
+    }
+
+    @Test
+    void getSeedResourcesNotFound() {
+        JsonSeedService jsonSeedService = createService(dir.resolve("missing").toString());
+
+        assertThrows(IllegalArgumentException.class, jsonSeedService::getSeedResources);
+    }
+}
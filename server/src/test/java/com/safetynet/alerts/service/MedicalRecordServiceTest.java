@@ -7,6 +7,8 @@ import com.safetynet.alerts.repository.PersonRepository;
 import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.MedicalRecordMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import uk.co.jemos.podam.api.PodamFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -34,6 +37,9 @@ class MedicalRecordServiceTest {
     @Mock
     private PersonRepository personRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private final MedicalRecordMapper medicalRecordMapper = new MedicalRecordMapper();
 
     private MedicalRecordService medicalRecordService;
@@ -43,7 +49,8 @@ class MedicalRecordServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        medicalRecordService = new MedicalRecordService(medicalRecordRepository, personRepository, medicalRecordMapper);
+        medicalRecordService = new MedicalRecordService(medicalRecordRepository, personRepository, medicalRecordMapper,
+                eventPublisher);
     }
 
     @Test
@@ -193,9 +200,16 @@ class MedicalRecordServiceTest {
 
     @Test
     void deleteMedicalRecord() {
+        MedicalRecordEntity medicalRecord = factory.manufacturePojo(MedicalRecordEntity.class);
+
+        when(medicalRecordRepository.findById(1L)).thenReturn(Optional.of(medicalRecord));
         when(medicalRecordRepository.removeById(1L)).thenReturn(1L);
 
         assertTrue(medicalRecordService.deleteMedicalRecord(1L));
+        verify(eventPublisher, times(1)).publishEvent(new MedicalRecordChangedEvent(ChangeType.DELETED,
+                medicalRecord.getPerson().getId(), medicalRecordMapper.toMedicalRecord(medicalRecord), null,
+                medicalRecord.getPerson().getAddress().getAddress(),
+                medicalRecord.getPerson().getAddress().getFirestation()));
     }
 
     @Test
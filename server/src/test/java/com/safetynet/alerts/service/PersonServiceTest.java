@@ -2,17 +2,23 @@ package com.safetynet.alerts.service;
 
 import com.safetynet.alerts.PodamFactoryUtil;
 import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.AddressCacheProperties;
 import com.safetynet.alerts.repository.AddressRepository;
 import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
 import com.safetynet.alerts.repository.entity.PersonEntity;
 import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
+import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import uk.co.jemos.podam.api.PodamFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -21,6 +27,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,6 +40,12 @@ class PersonServiceTest {
     @Mock
     private AddressRepository addressRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
     private final PersonMapper personMapper = new PersonMapper();
 
     private PersonService personService;
@@ -41,7 +55,19 @@ class PersonServiceTest {
     @BeforeEach
     void setup() {
         MockitoAnnotations.initMocks(this);
-        personService = new PersonService(personRepository, addressRepository, personMapper);
+        personService = new PersonService(personRepository, addressRepository, new AddressCacheService(null),
+                personMapper, eventPublisher, entityManager);
+    }
+
+    private AddressEntity cacheAddress(AddressCacheService addressCacheService) {
+        AddressEntity address = new AddressEntity();
+        address.setId(2L);
+        address.setAddress("1509 Culver St");
+        address.setCity("Culver");
+        address.setZip("97451");
+        address.setFirestation("3");
+        addressCacheService.put(address);
+        return address;
     }
 
     @Test
@@ -91,9 +117,59 @@ class PersonServiceTest {
             Person res = personService.createPerson(person.clone(), allowSimilarNames);
             assertEquals(person, res);
             verify(personRepository, times(1)).save(any());
+            verify(eventPublisher, times(1)).publishEvent(new PersonChangedEvent(
+                    ChangeType.CREATED, null, null, null, person, null));
         }
     }
 
+    @Test
+    void createPersonWithCachedAddress() {
+        AddressCacheProperties props = new AddressCacheProperties();
+        props.setEnabled(true);
+        AddressCacheService addressCacheService = new AddressCacheService(props);
+        personService = new PersonService(personRepository, addressRepository, addressCacheService,
+                personMapper, eventPublisher, entityManager);
+        AddressEntity address = cacheAddress(addressCacheService);
+        Person person = Person.builder()
+                .firstName("Jean")
+                .lastName("Sebastien")
+                .address(address.getAddress())
+                .city(address.getCity())
+                .zip(address.getZip())
+                .build();
+
+        when(entityManager.getReference(AddressEntity.class, address.getId())).thenReturn(address);
+
+        Person res = personService.createPerson(person.clone(), true);
+        assertEquals(person, res);
+        verify(addressRepository, never()).findByAddress(any());
+        verify(personRepository, times(1)).save(argThat(entity -> entity.getAddress() == address));
+        verify(eventPublisher, times(1)).publishEvent(new PersonChangedEvent(
+                ChangeType.CREATED, null, null, null, person, "3"));
+    }
+
+    @Test
+    void createPersonWithCachedAddressInterfering() {
+        AddressCacheProperties props = new AddressCacheProperties();
+        props.setEnabled(true);
+        AddressCacheService addressCacheService = new AddressCacheService(props);
+        personService = new PersonService(personRepository, addressRepository, addressCacheService,
+                personMapper, eventPublisher, entityManager);
+        AddressEntity address = cacheAddress(addressCacheService);
+        Person person = Person.builder()
+                .firstName("Jean")
+                .lastName("Sebastien")
+                .address(address.getAddress())
+                .city(address.getCity())
+                .zip("other")
+                .build();
+
+        assertThrows(PersonService.InterferingAddressException.class,
+                () -> personService.createPerson(person.clone(), true));
+        verify(addressRepository, never()).findByAddress(any());
+        verify(personRepository, never()).save(any());
+    }
+
     @Test
     void updatePersonNotExisting() {
         Person res = personService.updatePerson(1L, Person.builder().build(), false);
@@ -199,13 +275,19 @@ class PersonServiceTest {
     @Test
     void deletePersonNotExisting() {
         assertFalse(personService.deletePerson(1L));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void deletePerson() {
+        PersonEntity person = factory.manufacturePojo(PersonEntity.class);
+
+        when(personRepository.findById(1L)).thenReturn(Optional.of(person));
         when(personRepository.removeById(1L)).thenReturn(1L);
 
         assertTrue(personService.deletePerson(1L));
+        verify(eventPublisher, times(1)).publishEvent(new PersonChangedEvent(ChangeType.DELETED, 1L,
+                personMapper.toPerson(person), person.getAddress().getFirestation(), null, null));
     }
 
     @Test
@@ -215,9 +297,15 @@ class PersonServiceTest {
 
     @Test
     void deletePersonByNames() {
+        PersonEntity person = factory.manufacturePojo(PersonEntity.class);
+
+        when(personRepository.findAllByFirstNameAndLastName("A", "B")).thenReturn(Collections.singletonList(person));
         when(personRepository.removeByFirstNameAndLastName("A", "B")).thenReturn(1L);
 
         assertTrue(personService.deletePersonByNames("A", "B"));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof PersonChangedEvent
+                && ((PersonChangedEvent) event).getType() == ChangeType.DELETED
+                && person.getId().equals(((PersonChangedEvent) event).getPersonId())));
     }
 
     @Test
@@ -226,5 +314,6 @@ class PersonServiceTest {
 
         assertThrows(PersonService.InterferingNamesException.class,
                 () -> personService.deletePersonByNames("A", "B"));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,444 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.api.response.FirestationCountsResponse;
+import com.safetynet.alerts.properties.ReadModelProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.DatasetImportedEvent;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.MedicalRecordChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadModelServiceTest {
+    private static final ZonedDateTime now = ZonedDateTime.of(2001, 10, 25, 15, 29, 17, 0, ZoneId.of("Europe/Paris"));
+
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final PersonMapper personMapper = new PersonMapper();
+
+    private ReadModelService readModelService;
+
+    private AddressEntity address1;
+    private AddressEntity address2;
+    private AddressEntity address3;
+    private PersonEntity person1;
+    private PersonEntity person2;
+    private PersonEntity person3;
+    private PersonEntity person4;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        readModelService = createReadModelService(true);
+
+        address1 = address(1L, "1509 Culver St", "Culver", "1");
+        address2 = address(2L, "29 15th St", "Culver", "2");
+        address3 = address(3L, "834 Binoc Ave", "Paris", "1");
+        person1 = person(1L, "John", "Boyd", address1, "841-874-6512", "jaboyd@email.com", 1984);
+        person2 = person(2L, "Jacob", "Boyd", address1, "841-874-6513", "drk@email.com", 2015);
+        person3 = person(3L, "Tenley", "Boyd", address2, "841-874-6512", "tenz@email.com", 1990);
+        person4 = person(4L, "John", "Boyd", address3, "841-874-6544", "jaboyd@email.com", 1970);
+        person4.setMedicalRecord(null);
+
+        when(addressRepository.findAll()).thenReturn(Arrays.asList(address1, address2, address3));
+        when(personRepository.findAllComplete()).thenReturn(Arrays.asList(person1, person2, person3, person4));
+    }
+
+    @AfterEach
+    void teardown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        readModelService.stop();
+    }
+
+    private ReadModelService createReadModelService(boolean enabled) {
+        ReadModelProperties props = new ReadModelProperties();
+        props.setEnabled(enabled);
+        props.setRebuildRetryDelay(10);
+        return new ReadModelService(addressRepository, personRepository, personMapper, transactionManager, props);
+    }
+
+    private static AddressEntity address(Long id, String address, String city, String firestation) {
+        AddressEntity res = new AddressEntity();
+        res.setId(id);
+        res.setAddress(address);
+        res.setCity(city);
+        res.setZip("97451");
+        res.setFirestation(firestation);
+        return res;
+    }
+
+    private static PersonEntity person(Long id, String firstName, String lastName, AddressEntity address,
+            String phone, String email, int birthYear) {
+        PersonEntity res = new PersonEntity();
+        res.setId(id);
+        res.setFirstName(firstName);
+        res.setLastName(lastName);
+        res.setAddress(address);
+        res.setPhone(phone);
+        res.setEmail(email);
+        MedicalRecordEntity medicalRecord = new MedicalRecordEntity();
+        medicalRecord.setId(id);
+        medicalRecord.setPerson(res);
+        medicalRecord.setBirthdate(LocalDate.of(birthYear, 3, 6));
+        medicalRecord.setMedications(Collections.singletonList("aznol:350mg"));
+        medicalRecord.setAllergies(Collections.singletonList("nillacilan"));
+        res.setMedicalRecord(medicalRecord);
+        return res;
+    }
+
+    private List<Person> toPersons(boolean withMedicalRecords, PersonEntity... persons) {
+        return Arrays.asList(Arrays.stream(persons)
+                .map(person -> personMapper.toCompletePerson(person, now, withMedicalRecords))
+                .toArray(Person[]::new));
+    }
+
+    @Test
+    void disabled() {
+        readModelService = createReadModelService(false);
+        readModelService.onApplicationReady();
+        assertFalse(readModelService.isReady());
+        verify(personRepository, never()).findAllComplete();
+
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L, null, null, null, null));
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+    }
+
+    @Test
+    void rebuild() {
+        assertFalse(readModelService.isReady());
+        readModelService.onApplicationReady();
+        assertTrue(readModelService.isReady());
+
+        assertEquals(toPersons(false, person1, person2, person4),
+                readModelService.findAllByStation("1", now, false));
+        assertEquals(toPersons(true, person1, person2),
+                readModelService.findAllByAddress("1509 Culver St", now, true));
+        assertEquals(toPersons(true, person1, person4),
+                readModelService.findAllByNames("John", "Boyd", now, true));
+        assertEquals(Arrays.asList("841-874-6512", "841-874-6513", "841-874-6544"),
+                readModelService.findPhonesByStation("1"));
+        assertEquals(Arrays.asList("jaboyd@email.com", "drk@email.com", "tenz@email.com"),
+                readModelService.findEmailsByCity("Culver"));
+        assertEquals("2", readModelService.findStationByAddress("29 15th St"));
+
+        Map<String, List<Person>> expectedFlood = new LinkedHashMap<>();
+        expectedFlood.put("1509 Culver St", toPersons(true, person1, person2));
+        expectedFlood.put("29 15th St", toPersons(true, person3));
+        expectedFlood.put("834 Binoc Ave", toPersons(true, person4));
+        assertEquals(expectedFlood,
+                readModelService.findAllByStationsGroupedByAddress(Arrays.asList("2", "1"), now, true));
+    }
+
+    @Test
+    void paged() {
+        readModelService.rebuild();
+
+        assertEquals(toPersons(false, person2),
+                readModelService.findAllByStation("1", now, false, 1L, 1));
+        assertEquals(Arrays.asList("1:841-874-6512", "2:841-874-6513"),
+                personValues(readModelService.findPhonesByStation("1", 0L, 2)));
+        assertEquals(Arrays.asList("2:841-874-6513", "4:841-874-6544"),
+                personValues(readModelService.findPhonesByStation("1", 1L, 2)));
+        assertEquals(Arrays.asList("2:drk@email.com", "3:tenz@email.com"),
+                personValues(readModelService.findEmailsByCity("Culver", 1L, 5)));
+
+        Map<Long, List<Person>> expectedFlood = new LinkedHashMap<>();
+        expectedFlood.put(1L, toPersons(true, person2));
+        expectedFlood.put(2L, toPersons(true, person3));
+        assertEquals(expectedFlood,
+                readModelService.findAllByStationsGroupedByAddressId(Arrays.asList("2", "1"), now, true, 1L, 1L, 2));
+    }
+
+    @Test
+    void pagedAfterChanges() {
+        readModelService.rebuild();
+
+        when(addressRepository.findAllByAddressIn(Collections.singleton("1509 Culver St")))
+                .thenReturn(Collections.singletonList(address1));
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L,
+                personMapper.toPerson(person1), "1", null, null));
+        AddressEntity updated = address(2L, "29 15th St", "Culver", "1");
+        when(addressRepository.findAllByAddressIn(Collections.singleton("29 15th St")))
+                .thenReturn(Collections.singletonList(updated));
+        readModelService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED,
+                "29 15th St", "2", "1"));
+
+        // person3 now has the first phone 841-874-6512 of the firestation 1
+        assertEquals(Arrays.asList("2:841-874-6513", "3:841-874-6512"),
+                personValues(readModelService.findPhonesByStation("1", 0L, 2)));
+        assertEquals(Collections.singletonList("4:841-874-6544"),
+                personValues(readModelService.findPhonesByStation("1", 3L, 2)));
+        assertTrue(readModelService.findPhonesByStation("2", 0L, 2).isEmpty());
+        assertEquals(Arrays.asList("841-874-6513", "841-874-6512", "841-874-6544"),
+                readModelService.findPhonesByStation("1"));
+        assertEquals(Arrays.asList("2:drk@email.com", "3:tenz@email.com"),
+                personValues(readModelService.findEmailsByCity("Culver", 0L, 5)));
+    }
+
+    private static List<String> personValues(List<PersonRepository.PersonValue> personValues) {
+        return personValues.stream()
+                .map(personValue -> personValue.getPersonId() + ":" + personValue.getValue())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void countAgeGroupsByStations() {
+        readModelService.rebuild();
+
+        // person1 is 17 years old, person4 has no medical record
+        Map<String, FirestationCountsResponse.Entry> expected = new LinkedHashMap<>();
+        expected.put("2", FirestationCountsResponse.Entry.builder()
+                .stationNumber("2").adultsCount(0).childrenCount(1).build());
+        expected.put("1", FirestationCountsResponse.Entry.builder()
+                .stationNumber("1").adultsCount(1).childrenCount(2).build());
+        assertEquals(expected, readModelService.countAgeGroupsByStations(
+                Arrays.asList("2", "9", "1"), now.minusYears(18).toLocalDate()));
+    }
+
+    @Test
+    void rebuildUnknownKeys() {
+        readModelService.rebuild();
+
+        assertTrue(readModelService.findAllByStation("9", now, false).isEmpty());
+        assertTrue(readModelService.findAllByAddress("unknown", now, false).isEmpty());
+        assertTrue(readModelService.findAllByNames("Jean", "Sebastien", now, false).isEmpty());
+        assertTrue(readModelService.findPhonesByStation("9").isEmpty());
+        assertTrue(readModelService.findEmailsByCity("Lyon").isEmpty());
+        assertNull(readModelService.findStationByAddress("unknown"));
+        assertTrue(readModelService.findAllByStationsGroupedByAddress(
+                Collections.singletonList("9"), now, false).isEmpty());
+    }
+
+    @Test
+    void isolatedFromEntities() {
+        readModelService.rebuild();
+
+        person1.setPhone("000-000-0000");
+        address1.setFirestation("9");
+        person1.getMedicalRecord().setMedications(Collections.emptyList());
+
+        List<Person> persons = readModelService.findAllByAddress("1509 Culver St", now, true);
+        assertEquals("841-874-6512", persons.get(0).getPhone());
+        assertEquals(Collections.singletonList("aznol:350mg"), persons.get(0).getMedications());
+        assertEquals("1", readModelService.findStationByAddress("1509 Culver St"));
+    }
+
+    @Test
+    void personMoved() {
+        readModelService.rebuild();
+
+        PersonEntity moved = person(2L, "Jacob", "Boyd", address(2L, "29 15th St", "Culver", "2"),
+                "841-874-6513", "drk@email.com", 2015);
+        when(personRepository.findAllCompleteByIdIn(Collections.singleton(2L)))
+                .thenReturn(Collections.singletonList(moved));
+        when(addressRepository.findAllByAddressIn(any()))
+                .thenReturn(Arrays.asList(address1, address2));
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.UPDATED, 2L,
+                personMapper.toPerson(person2), "1", personMapper.toPerson(moved), "2"));
+
+        assertEquals(toPersons(false, person1), readModelService.findAllByAddress("1509 Culver St", now, false));
+        assertEquals(toPersons(false, moved, person3), readModelService.findAllByAddress("29 15th St", now, false));
+        assertEquals(Arrays.asList("841-874-6513", "841-874-6512"), readModelService.findPhonesByStation("2"));
+    }
+
+    @Test
+    void personDeleted() {
+        readModelService.rebuild();
+
+        when(addressRepository.findAllByAddressIn(Collections.singleton("1509 Culver St")))
+                .thenReturn(Collections.singletonList(address1));
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 1L,
+                personMapper.toPerson(person1), "1", null, null));
+
+        assertEquals(toPersons(false, person2), readModelService.findAllByAddress("1509 Culver St", now, false));
+        assertEquals(toPersons(false, person4), readModelService.findAllByNames("John", "Boyd", now, false));
+    }
+
+    @Test
+    void addressDeleted() {
+        readModelService.rebuild();
+
+        // the cascade deletes the address with the last person living there
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 3L,
+                personMapper.toPerson(person3), "2", null, null));
+
+        assertNull(readModelService.findStationByAddress("29 15th St"));
+        assertTrue(readModelService.findAllByStation("2", now, false).isEmpty());
+    }
+
+    @Test
+    void firestationChanged() {
+        readModelService.rebuild();
+
+        AddressEntity updated = address(2L, "29 15th St", "Culver", "1");
+        when(addressRepository.findAllByAddressIn(Collections.singleton("29 15th St")))
+                .thenReturn(Collections.singletonList(updated));
+        readModelService.onFirestationChanged(new FirestationChangedEvent(ChangeType.UPDATED,
+                "29 15th St", "2", "1"));
+
+        assertEquals("1", readModelService.findStationByAddress("29 15th St"));
+        assertEquals(toPersons(false, person1, person2, person3, person4),
+                readModelService.findAllByStation("1", now, false));
+        assertTrue(readModelService.findAllByStation("2", now, false).isEmpty());
+    }
+
+    @Test
+    void medicalRecordChanged() {
+        readModelService.rebuild();
+
+        PersonEntity updated = person(4L, "John", "Boyd", address(3L, "834 Binoc Ave", "Paris", "1"),
+                "841-874-6544", "jaboyd@email.com", 1970);
+        when(personRepository.findAllCompleteByIdIn(Collections.singleton(4L)))
+                .thenReturn(Collections.singletonList(updated));
+        readModelService.onMedicalRecordChanged(new MedicalRecordChangedEvent(ChangeType.CREATED, 4L,
+                null, null, "834 Binoc Ave", "1"));
+
+        assertEquals(toPersons(true, updated), readModelService.findAllByAddress("834 Binoc Ave", now, true));
+    }
+
+    @Test
+    void refreshAfterCommit() {
+        readModelService.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+
+        readModelService.onMedicalRecordChanged(new MedicalRecordChangedEvent(ChangeType.DELETED, 1L,
+                null, null, "1509 Culver St", "1"));
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 2L,
+                personMapper.toPerson(person2), "1", null, null));
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+        assertEquals(2, readModelService.findAllByAddress("1509 Culver St", now, false).size());
+
+        when(addressRepository.findAllByAddressIn(any())).thenReturn(Collections.singletonList(address1));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // both changes are reloaded at once
+        verify(personRepository, times(1)).findAllCompleteByIdIn(any());
+        assertTrue(readModelService.findAllByAddress("1509 Culver St", now, false).isEmpty());
+        assertNull(TransactionSynchronizationManager.getResource(readModelService));
+    }
+
+    @Test
+    void rebuildAfterImport() {
+        readModelService.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 2L,
+                personMapper.toPerson(person2), "1", null, null));
+        readModelService.onDatasetImported(new DatasetImportedEvent(3, 4, 4));
+        verify(addressRepository, times(1)).findAll();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // the whole model is reloaded, rather than the changed rows
+        verify(addressRepository, times(2)).findAll();
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+        assertNull(TransactionSynchronizationManager.getResource(readModelService));
+    }
+
+    @Test
+    void discardedOnRollback() {
+        readModelService.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+
+        readModelService.onPersonChanged(new PersonChangedEvent(ChangeType.DELETED, 2L,
+                personMapper.toPerson(person2), "1", null, null));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+        assertEquals(2, readModelService.findAllByAddress("1509 Culver St", now, false).size());
+        assertNull(TransactionSynchronizationManager.getResource(readModelService));
+    }
+
+    @Test
+    void refreshFailure() {
+        readModelService.rebuild();
+
+        when(personRepository.findAllCompleteByIdIn(any())).thenThrow(new IllegalStateException("Database is down"));
+        readModelService.onMedicalRecordChanged(new MedicalRecordChangedEvent(ChangeType.DELETED, 1L,
+                null, null, "1509 Culver St", "1"));
+        assertFalse(readModelService.isReady());
+    }
+
+    @Test
+    void rebuildAfterRefreshFailure() throws InterruptedException {
+        readModelService.rebuild();
+        when(personRepository.findAllCompleteByIdIn(any())).thenThrow(new IllegalStateException("Database is down"));
+        when(personRepository.findAllComplete()).thenThrow(new IllegalStateException("Database is down"))
+                .thenThrow(new IllegalStateException("Database is down"))
+                .thenReturn(Arrays.asList(person1, person2, person3, person4));
+
+        readModelService.onMedicalRecordChanged(new MedicalRecordChangedEvent(ChangeType.DELETED, 1L,
+                null, null, "1509 Culver St", "1"));
+        assertFalse(readModelService.isReady());
+
+        // rebuilt in the background, once the database is back
+        for (int i = 0; i < 100 && !readModelService.isReady(); ++i) {
+            Thread.sleep(50);
+        }
+        assertTrue(readModelService.isReady());
+        verify(personRepository, times(4)).findAllComplete();
+        assertEquals(toPersons(true, person1, person2), readModelService.findAllByAddress("1509 Culver St", now, true));
+    }
+
+    @Test
+    void refreshLargeRebuilds() {
+        readModelService.rebuild();
+
+        List<Long> personIds = LongStream.rangeClosed(1L, ReadModelService.MAX_REFRESH_SIZE + 1L).boxed()
+                .collect(Collectors.toList());
+        readModelService.refresh(personIds, Collections.emptyList());
+
+        // too many changed rows: the whole model is reloaded instead
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+        verify(personRepository, times(2)).findAllComplete();
+        assertTrue(readModelService.isReady());
+    }
+}
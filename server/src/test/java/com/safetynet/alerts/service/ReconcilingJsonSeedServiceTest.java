@@ -0,0 +1,281 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.api.model.Person;
+import com.safetynet.alerts.properties.JsonSeedProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.mapper.PersonMapper;
+import com.safetynet.alerts.service.event.ChangeType;
+import com.safetynet.alerts.service.event.FirestationChangedEvent;
+import com.safetynet.alerts.service.event.PersonChangedEvent;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReconcilingJsonSeedServiceTest {
+    private static final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReconcilingJsonSeedService reconcilingJsonSeedService;
+
+    private final List<PersonEntity> savedPersons = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        JsonSeedProperties props = new JsonSeedProperties();
+        props.setChunkSize(2);
+        reconcilingJsonSeedService = new ReconcilingJsonSeedService(addressRepository, personRepository,
+                medicalRecordRepository, new PersonMapper(), eventPublisher, entityManager,
+                new ObjectMapper().findAndRegisterModules(), transactionManager, props);
+
+        // simulates the generation of IDs
+        AtomicLong nextId = new AtomicLong(100L);
+        when(personRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<PersonEntity> entities = invocation.getArgument(0);
+            entities.forEach(entity -> {
+                entity.setId(nextId.getAndIncrement());
+                savedPersons.add(entity);
+            });
+            return entities;
+        });
+    }
+
+    private static ByteArrayResource resource(String json) {
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <T> T projection(Class<T> type, Object... keyValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            values.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return projectionFactory.createProjection(type, values);
+    }
+
+    private static PersonRepository.PersonRow personRow(long id, String firstName, String phone) {
+        return projection(PersonRepository.PersonRow.class, "id", id, "firstName", firstName, "lastName", "Boyd",
+                "address", "1509 Culver St", "city", "Culver", "zip", "97451", "phone", phone,
+                "email", firstName + "@email.com");
+    }
+
+    private static PersonRepository.PersonRef personRef(long id, String firstName, Long medicalRecordId) {
+        return projection(PersonRepository.PersonRef.class, "id", id, "firstName", firstName, "lastName", "Boyd",
+                "medicalRecordId", medicalRecordId, "address", "1509 Culver St", "firestation", "3");
+    }
+
+    private static String person(String firstName, String phone) {
+        return "{\"firstName\": \"" + firstName + "\", \"lastName\": \"Boyd\", \"address\": \"1509 Culver St\","
+                + " \"city\": \"Culver\", \"zip\": \"97451\", \"phone\": \"" + phone + "\","
+                + " \"email\": \"" + firstName + "@email.com\"}";
+    }
+
+    private static String medicalRecord(String firstName) {
+        return "{\"firstName\": \"" + firstName + "\", \"lastName\": \"Boyd\", \"birthdate\": \"03/06/1984\","
+                + " \"medications\": [\"aznol:350mg\"], \"allergies\": []}";
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile() {
+        AddressEntity address = new AddressEntity();
+        address.setId(10L);
+        address.setAddress("1509 Culver St");
+        address.setCity("Culver");
+        address.setZip("97451");
+        address.setFirestation("3");
+        PersonEntity jacob = new PersonEntity();
+        jacob.setId(2L);
+        jacob.setFirstName("Jacob");
+        jacob.setLastName("Boyd");
+        jacob.setAddress(address);
+        jacob.setPhone("841-874-6513");
+        jacob.setEmail("Jacob@email.com");
+        PersonEntity felicia = new PersonEntity();
+        felicia.setId(4L);
+        felicia.setFirstName("Felicia");
+        felicia.setLastName("Boyd");
+        felicia.setAddress(address);
+        felicia.setPhone("841-874-6544");
+        felicia.setEmail("Felicia@email.com");
+        MedicalRecordEntity johnRecord = new MedicalRecordEntity();
+        johnRecord.setId(1L);
+        johnRecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        johnRecord.setMedications(Collections.singletonList("aznol:350mg"));
+        johnRecord.setAllergies(Collections.emptyList());
+        MedicalRecordEntity jacobRecord = new MedicalRecordEntity();
+        jacobRecord.setId(2L);
+        jacobRecord.setBirthdate(LocalDate.of(1989, 3, 6));
+        jacobRecord.setMedications(Collections.emptyList());
+        jacobRecord.setAllergies(Collections.emptyList());
+
+        // John is unchanged, Jacob's phone changed, Tenley is new and Felicia is missing
+        when(personRepository.findAllRowsByNamesIn(anyCollection()))
+                .thenReturn(Arrays.asList(personRow(1L, "John", "841-874-6512"),
+                        personRow(2L, "Jacob", "841-874-6513")));
+        when(personRepository.findAllCompleteByIdIn(Collections.singleton(2L)))
+                .thenReturn(Collections.singletonList(jacob));
+        when(personRepository.findAllCompleteByIdIn(Collections.singletonList(4L)))
+                .thenReturn(Collections.singletonList(felicia));
+        when(addressRepository.findAllByAddressIn(any())).thenReturn(Collections.singletonList(address));
+        when(personRepository.findAllRefsByIdIn(any())).thenReturn(Arrays.asList(
+                personRef(1L, "John", 1L), personRef(100L, "Tenley", null)));
+        when(medicalRecordRepository.findAllById(Collections.singleton(1L)))
+                .thenReturn(Collections.singletonList(johnRecord));
+        when(personRepository.findAllRefs()).thenReturn(Arrays.asList(personRef(1L, "John", 1L),
+                personRef(2L, "Jacob", 2L), personRef(4L, "Felicia", 4L), personRef(100L, "Tenley", 100L)));
+        when(personRepository.findAllRefsByIdIn(Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(personRef(2L, "Jacob", 2L)));
+        when(medicalRecordRepository.findAllById(Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(jacobRecord));
+        when(addressRepository.findAllRefs()).thenReturn(Arrays.asList(
+                projection(AddressRepository.AddressRef.class, "id", 10L, "address", "1509 Culver St",
+                        "firestation", "3"),
+                projection(AddressRepository.AddressRef.class, "id", 11L, "address", "29 15th St",
+                        "firestation", "2")));
+        AddressEntity otherAddress = new AddressEntity();
+        otherAddress.setId(11L);
+        otherAddress.setAddress("29 15th St");
+        otherAddress.setFirestation("2");
+        when(addressRepository.findAllById(Collections.singletonList(11L)))
+                .thenReturn(Collections.singletonList(otherAddress));
+
+        Person jacobBefore = new PersonMapper().toPerson(jacob);
+
+        ReconcilingJsonSeedService.Report report = reconcilingJsonSeedService.reconcile(Collections.singletonMap(
+                "data", resource("{\"persons\": [" + person("John", "841-874-6512") + ", "
+                        + person("Jacob", "000-000-0000") + ", " + person("Tenley", "841-874-6512") + "],"
+                        + " \"firestations\": [{\"address\": \"1509 Culver St\", \"station\": \"1\"},"
+                        + " {\"address\": \"1509 Culver St\", \"station\": \"3\"}],"
+                        + " \"medicalrecords\": [" + medicalRecord("John") + ", " + medicalRecord("Tenley") + "]}")));
+
+        // only the changes are written
+        assertEquals("000-000-0000", jacob.getPhone());
+        assertEquals(1, savedPersons.size());
+        assertEquals("Tenley", savedPersons.get(0).getFirstName());
+        assertEquals(address, savedPersons.get(0).getAddress());
+        ArgumentCaptor<Iterable<MedicalRecordEntity>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(medicalRecordRepository, atLeastOnce()).saveAll(captor.capture());
+        List<MedicalRecordEntity> savedMedicalRecords = new ArrayList<>();
+        captor.getAllValues().forEach(entities -> entities.forEach(savedMedicalRecords::add));
+        assertEquals(1, savedMedicalRecords.size());
+        verify(entityManager).getReference(PersonEntity.class, 100L);
+        verify(personRepository).deleteAll(Collections.singletonList(felicia));
+        verify(medicalRecordRepository).deleteAll(Collections.singletonList(jacobRecord));
+        assertEquals("3", address.getFirestation());
+        assertEquals(null, otherAddress.getFirestation());
+
+        assertEquals(1, report.getPersons().getCreated());
+        assertEquals(1, report.getPersons().getUpdated());
+        assertEquals(1, report.getPersons().getDeleted());
+        assertEquals(1, report.getPersons().getUnchanged());
+        assertEquals(0, report.getFirestations().getUpdated());
+        assertEquals(1, report.getFirestations().getDeleted());
+        assertEquals(1, report.getFirestations().getUnchanged());
+        assertEquals(1, report.getMedicalRecords().getCreated());
+        assertEquals(0, report.getMedicalRecords().getUpdated());
+        assertEquals(1, report.getMedicalRecords().getDeleted());
+        assertEquals(1, report.getMedicalRecords().getUnchanged());
+
+        // the changes are published
+        verify(eventPublisher).publishEvent(new PersonChangedEvent(ChangeType.UPDATED, 2L, jacobBefore, "3",
+                new PersonMapper().toPerson(jacob), "3"));
+        verify(eventPublisher).publishEvent(new FirestationChangedEvent(ChangeType.DELETED, "29 15th St", "2", null));
+    }
+
+    @Test
+    void reconcileUnknownPerson() {
+        assertThrows(IllegalArgumentException.class, () -> reconcilingJsonSeedService.reconcile(
+                Collections.singletonMap("data", resource("{\"persons\": [],"
+                        + " \"medicalrecords\": [" + medicalRecord("John") + "]}"))));
+
+        // nothing is deleted from an invalid document
+        verify(personRepository, never()).findAllRefs();
+        verify(personRepository, never()).deleteAll(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void reconcileUnchanged() {
+        when(personRepository.findAllRowsByNamesIn(anyCollection()))
+                .thenReturn(Collections.singletonList(personRow(1L, "John", "841-874-6512")));
+        when(personRepository.findAllRefs()).thenReturn(Collections.singletonList(personRef(1L, "John", null)));
+
+        ReconcilingJsonSeedService.Report report = reconcilingJsonSeedService.reconcile(Collections.singletonMap(
+                "data", resource("{\"persons\": [" + person("John", "841-874-6512") + "]}")));
+
+        assertEquals(1, report.getPersons().getUnchanged());
+        verify(personRepository, never()).findAllCompleteByIdIn(any());
+        verify(personRepository, never()).saveAll(any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertTrue(savedPersons.isEmpty());
+    }
+
+    @Test
+    void reconcileMedicalRecordsFirst() {
+        when(personRepository.findAllRowsByNamesIn(anyCollection()))
+                .thenReturn(Collections.singletonList(personRow(1L, "John", "841-874-6512")));
+        when(personRepository.findAllRefsByIdIn(any()))
+                .thenReturn(Collections.singletonList(personRef(1L, "John", null)));
+        when(personRepository.findAllRefs()).thenReturn(Collections.singletonList(personRef(1L, "John", 1L)));
+
+        // the medical records are reconciled once the persons are read again
+        ReconcilingJsonSeedService.Report report = reconcilingJsonSeedService.reconcile(Collections.singletonMap(
+                "data", resource("{\"medicalrecords\": [" + medicalRecord("John") + "],"
+                        + " \"persons\": [" + person("John", "841-874-6512") + "]}")));
+
+        assertEquals(1, report.getPersons().getUnchanged());
+        assertEquals(1, report.getMedicalRecords().getCreated());
+        verify(medicalRecordRepository).saveAll(any());
+        verify(personRepository, never()).deleteAll(any());
+    }
+}
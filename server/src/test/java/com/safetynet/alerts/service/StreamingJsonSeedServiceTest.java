@@ -0,0 +1,261 @@
+package com.safetynet.alerts.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.properties.JsonSeedProperties;
+import com.safetynet.alerts.repository.AddressRepository;
+import com.safetynet.alerts.repository.MedicalRecordRepository;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.SeedProgressRepository;
+import com.safetynet.alerts.repository.entity.AddressEntity;
+import com.safetynet.alerts.repository.entity.MedicalRecordEntity;
+import com.safetynet.alerts.repository.entity.PersonEntity;
+import com.safetynet.alerts.repository.entity.SeedProgressEntity;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static com.safetynet.alerts.service.JsonSeedServiceTestData.seedModelsJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamingJsonSeedServiceTest {
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private SeedProgressRepository seedProgressRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StreamingJsonSeedService streamingJsonSeedService;
+
+    private final List<PersonEntity> savedPersons = new ArrayList<>();
+    private final List<SeedProgressEntity> savedProgresses = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.initMocks(this);
+        JsonSeedProperties props = new JsonSeedProperties();
+        props.setChunkSize(1);
+        streamingJsonSeedService = new StreamingJsonSeedService(addressRepository, personRepository,
+                medicalRecordRepository, seedProgressRepository, entityManager,
+                new ObjectMapper().findAndRegisterModules(), transactionManager, props);
+
+        // simulates the generation of IDs, and keeps a copy of each saved progress
+        AtomicLong nextId = new AtomicLong(1L);
+        when(personRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<PersonEntity> entities = invocation.getArgument(0);
+            entities.forEach(entity -> {
+                entity.setId(nextId.getAndIncrement());
+                if (entity.getAddress().getId() == null) {
+                    entity.getAddress().setId(100L + entity.getId());
+                }
+                savedPersons.add(entity);
+            });
+            return entities;
+        });
+        when(seedProgressRepository.save(any())).thenAnswer(invocation -> {
+            SeedProgressEntity progress = invocation.getArgument(0);
+            SeedProgressEntity copy = new SeedProgressEntity();
+            copy.setName(progress.getName());
+            copy.setPersons(progress.getPersons());
+            copy.setFirestations(progress.getFirestations());
+            copy.setMedicalRecords(progress.getMedicalRecords());
+            copy.setCompleted(progress.isCompleted());
+            savedProgresses.add(copy);
+            return progress;
+        });
+    }
+
+    private static ByteArrayResource seedResource() {
+        return new ByteArrayResource(seedModelsJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void seed() {
+        AddressEntity address = new AddressEntity();
+        address.setId(101L);
+        address.setAddress("1509 Culver St");
+        PersonEntity person = new PersonEntity();
+        person.setId(1L);
+        when(seedProgressRepository.findById("data")).thenReturn(Optional.empty());
+        when(addressRepository.findAllById(any())).thenReturn(Collections.singletonList(address));
+        when(entityManager.getReference(AddressEntity.class, 101L)).thenReturn(address);
+        when(entityManager.getReference(PersonEntity.class, 1L)).thenReturn(person);
+
+        streamingJsonSeedService.seed("data", seedResource());
+
+        // one chunk per person: the second one references the address written by the first one
+        verify(personRepository, times(2)).saveAll(any());
+        assertEquals(2, savedPersons.size());
+        assertSame(address, savedPersons.get(1).getAddress());
+        assertEquals("3", address.getFirestation());
+        ArgumentCaptor<Iterable<MedicalRecordEntity>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(medicalRecordRepository).saveAll(captor.capture());
+        MedicalRecordEntity medicalRecord = captor.getValue().iterator().next();
+        assertSame(person, medicalRecord.getPerson());
+        assertEquals(Collections.singletonList("nillacilan"), medicalRecord.getAllergies());
+
+        // the progress is saved with each chunk, then completed
+        assertEquals(5, savedProgresses.size());
+        assertEquals(1L, savedProgresses.get(0).getPersons());
+        assertEquals(2L, savedProgresses.get(1).getPersons());
+        assertEquals(1L, savedProgresses.get(2).getFirestations());
+        assertEquals(1L, savedProgresses.get(3).getMedicalRecords());
+        assertTrue(savedProgresses.get(4).isCompleted());
+    }
+
+    @Test
+    void seedSectionsInAnyOrder() {
+        String json = "{\n"
+                + "  \"medicalrecords\": [\n"
+                + "    {\"firstName\": \"John\", \"lastName\": \"Boyd\", \"birthdate\": \"03/06/1984\"}\n"
+                + "  ],\n"
+                + "  \"firestations\": [\n"
+                + "    {\"address\": \"1509 Culver St\", \"station\": \"3\"}\n"
+                + "  ],\n"
+                + "  \"persons\": [\n"
+                + "    {\"firstName\": \"John\", \"lastName\": \"Boyd\", \"address\": \"1509 Culver St\"}\n"
+                + "  ]\n"
+                + "}";
+        AddressEntity address = new AddressEntity();
+        address.setId(101L);
+        when(seedProgressRepository.findById("data")).thenReturn(Optional.empty());
+        when(addressRepository.findAllById(any())).thenReturn(Collections.singletonList(address));
+
+        streamingJsonSeedService.seed("data", new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)));
+
+        // the sections preceding the persons are written after them, in their order
+        assertEquals("3", address.getFirestation());
+        verify(medicalRecordRepository).saveAll(any());
+        assertEquals(4, savedProgresses.size());
+        assertEquals(1L, savedProgresses.get(0).getPersons());
+        assertEquals(0L, savedProgresses.get(0).getMedicalRecords());
+        assertEquals(1L, savedProgresses.get(1).getMedicalRecords());
+        assertEquals(1L, savedProgresses.get(2).getFirestations());
+        assertTrue(savedProgresses.get(3).isCompleted());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void seedMedicalRecordsOfSamePerson() {
+        String json = "{\n"
+                + "  \"persons\": [\n"
+                + "    {\"firstName\": \"John\", \"lastName\": \"Boyd\", \"address\": \"1509 Culver St\"}\n"
+                + "  ],\n"
+                + "  \"medicalrecords\": [\n"
+                + "    {\"firstName\": \"John\", \"lastName\": \"Boyd\", \"allergies\": [\"nillacilan\"]},\n"
+                + "    {\"firstName\": \"John\", \"lastName\": \"Boyd\", \"allergies\": [\"peanut\"]}\n"
+                + "  ]\n"
+                + "}";
+        MedicalRecordEntity existing = new MedicalRecordEntity();
+        existing.setId(1L);
+        when(seedProgressRepository.findById("data")).thenReturn(Optional.empty());
+        // the second chunk finds the record written by the first one
+        when(medicalRecordRepository.findAllById(any())).thenReturn(Collections.emptyList())
+                .thenReturn(Collections.singletonList(existing));
+
+        streamingJsonSeedService.seed("data", new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)));
+
+        ArgumentCaptor<Iterable<MedicalRecordEntity>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(medicalRecordRepository, times(2)).saveAll(captor.capture());
+        assertSame(existing, captor.getAllValues().get(1).iterator().next());
+        // the last record wins
+        assertEquals(Collections.singletonList("peanut"), existing.getAllergies());
+    }
+
+    @Test
+    void seedResumed() {
+        SeedProgressEntity progress = new SeedProgressEntity();
+        progress.setName("data");
+        progress.setPersons(2L);
+        progress.setFirestations(1L);
+        PersonEntity person = new PersonEntity();
+        person.setId(7L);
+        when(seedProgressRepository.findById("data")).thenReturn(Optional.of(progress));
+        when(personRepository.findAllRefs()).thenReturn(Collections.singletonList(
+                new PersonRepository.PersonRef() {
+                    @Override
+                    public Long getId() {
+                        return 7L;
+                    }
+
+                    @Override
+                    public String getFirstName() {
+                        return "John";
+                    }
+
+                    @Override
+                    public String getLastName() {
+                        return "Boyd";
+                    }
+
+                    @Override
+                    public Long getMedicalRecordId() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getAddress() {
+                        return "1509 Culver St";
+                    }
+
+                    @Override
+                    public String getFirestation() {
+                        return "3";
+                    }
+                }));
+        when(entityManager.getReference(PersonEntity.class, 7L)).thenReturn(person);
+
+        streamingJsonSeedService.seed("data", seedResource());
+
+        // only the medical record is left, and it is associated with the written person
+        verify(personRepository, never()).saveAll(any());
+        verify(addressRepository, never()).findAllById(any());
+        verify(entityManager).getReference(PersonEntity.class, 7L);
+        verify(medicalRecordRepository).saveAll(any());
+        assertEquals(1L, savedProgresses.get(0).getMedicalRecords());
+        assertTrue(savedProgresses.get(1).isCompleted());
+    }
+
+    @Test
+    void seedCompleted() {
+        SeedProgressEntity progress = new SeedProgressEntity();
+        progress.setName("data");
+        progress.setCompleted(true);
+        when(seedProgressRepository.findById("data")).thenReturn(Optional.of(progress));
+
+        streamingJsonSeedService.seed("data", seedResource());
+
+        verify(personRepository, never()).saveAll(any());
+        verify(seedProgressRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.safetynet.alerts.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+    @Test
+    void capacity() {
+        assertEquals(8, new RingBuffer<String>(5).getCapacity());
+        assertEquals(8, new RingBuffer<String>(8).getCapacity());
+        assertEquals(1, new RingBuffer<String>(1).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<String>(0));
+    }
+
+    @Test
+    void appendRead() {
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+        assertEquals(0, buffer.getLastOffset());
+        assertEquals(new RingBuffer.Batch<>(Collections.emptyList(), 0, false), buffer.read(0, 10));
+
+        assertEquals(1, buffer.append(offset -> "a" + offset));
+        assertEquals(2, buffer.append(offset -> "b" + offset));
+        assertEquals(3, buffer.append(offset -> "c" + offset));
+
+        assertEquals(3, buffer.getLastOffset());
+        assertEquals(new RingBuffer.Batch<>(Arrays.asList("a1", "b2", "c3"), 3, false), buffer.read(0, 10));
+        assertEquals(new RingBuffer.Batch<>(Arrays.asList("b2", "c3"), 3, false), buffer.read(1, 10));
+        assertEquals(new RingBuffer.Batch<>(Collections.singletonList("b2"), 2, false), buffer.read(1, 1));
+        assertEquals(new RingBuffer.Batch<>(Collections.emptyList(), 3, false), buffer.read(3, 10));
+    }
+
+    @Test
+    void readOverwritten() {
+        RingBuffer<Long> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 10; ++i) {
+            buffer.append(offset -> offset);
+        }
+
+        // 1 to 6 were overwritten
+        assertEquals(new RingBuffer.Batch<>(Arrays.asList(7L, 8L, 9L, 10L), 10, true), buffer.read(2, 10));
+        assertEquals(new RingBuffer.Batch<>(Arrays.asList(7L, 8L, 9L, 10L), 10, false), buffer.read(6, 10));
+    }
+
+    @Test
+    void concurrentAppends() throws Exception {
+        RingBuffer<Long> buffer = new RingBuffer<>(1 << 16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; ++i) {
+                    buffer.append(offset -> offset);
+                }
+            }));
+        }
+        // reads concurrently, in several batches
+        Set<Long> read = new HashSet<>();
+        long after = 0;
+        while (after < 40000) {
+            RingBuffer.Batch<Long> batch = buffer.read(after, 1000);
+            assertFalse(batch.isTruncated());
+            for (Long element : batch.getElements()) {
+                assertEquals(++after, element);
+                read.add(element);
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(40000, read.size());
+        assertEquals(40000, buffer.getLastOffset());
+        assertTrue(buffer.read(40000, 10).getElements().isEmpty());
+    }
+}
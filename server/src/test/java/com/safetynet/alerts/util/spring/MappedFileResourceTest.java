@@ -0,0 +1,63 @@
+package com.safetynet.alerts.util.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedFileResourceTest {
+    @TempDir
+    Path dir;
+
+    private static String readAll(InputStream is) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[5];
+        int n;
+        while ((n = is.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void getInputStream() throws Exception {
+        Path file = Files.write(dir.resolve("data.json"), "{\"persons\":[]}".getBytes(StandardCharsets.UTF_8));
+
+        try (InputStream is = new MappedFileResource(file).getInputStream()) {
+            assertEquals("{\"persons\":[]}", readAll(is));
+        }
+    }
+
+    @Test
+    void getInputStreamByRegions() throws Exception {
+        Path file = Files.write(dir.resolve("data.json"), "0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+        MappedFileResource resource = new MappedFileResource(file, 3);
+
+        try (InputStream is = resource.getInputStream()) {
+            assertEquals("0123456789abcdef", readAll(is));
+            assertEquals(-1, is.read());
+        }
+        try (InputStream is = resource.getInputStream()) {
+            assertEquals('0', is.read());
+            assertEquals(7, is.skip(7));
+            assertEquals('8', is.read());
+            assertEquals(7, is.skip(100));
+            assertEquals(-1, is.read());
+        }
+        assertEquals(16, resource.contentLength());
+    }
+
+    @Test
+    void getInputStreamEmpty() throws Exception {
+        Path file = Files.write(dir.resolve("data.json"), new byte[0]);
+
+        try (InputStream is = new MappedFileResource(file).getInputStream()) {
+            assertEquals(-1, is.read());
+        }
+    }
+}
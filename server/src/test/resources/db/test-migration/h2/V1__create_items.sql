@@ -0,0 +1,7 @@
+-- a comment; not a statement
+create table items (
+    id bigint not null,
+    name varchar(255),
+    primary key (id)
+);
+insert into items (id, name) values (1, 'first');
@@ -0,0 +1 @@
+insert into items (id, name) values (2, 'second')